@@ -78,6 +78,15 @@ public final class JConstants {
     public static final int MAX_WEIGHT =
             SystemPropertyUtil.getInt("jupiter.rpc.load-balancer.max.weight", 100);
 
+    /**
+     * Provider thread-per-core 模式, 默认关闭, 适合CPU密集并且没有阻塞操作的服务:
+     * acceptor的worker线程数等于核数并且各自绑定到不同的核上, 请求直接在解码它的IO线程中执行并写回响应,
+     * 没有线程池的切换. 服务指定了私有线程池的仍然交给私有线程池执行, 流式调用需要阻塞等待channel可写,
+     * 交给全局的provider线程池执行.
+     */
+    public static final boolean THREAD_PER_CORE =
+            SystemPropertyUtil.getBoolean("jupiter.provider.thread_per_core", false);
+
     /** Suggest that the count of connections **/
     public static final int SUGGESTED_CONNECTION_COUNT =
             SystemPropertyUtil.getInt("jupiter.rpc.suggest.connection.count", Math.min(AVAILABLE_PROCESSORS, 4));
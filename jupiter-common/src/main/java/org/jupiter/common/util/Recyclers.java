@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.common.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jupiter.common.util.internal.InternalThreadLocal;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Light-weight object pool based on a thread-local stack, 参考 netty 的 {@code io.netty.util.Recycler}.
+ *
+ * 默认关闭 (jupiter.recycler.enabled=false), 关闭时 {@link #get()} 每次都会 new 一个新对象, {@link Handle#recycle}
+ * 什么也不做, 与未池化时的行为完全一致.
+ *
+ * 1. 对象在哪个线程 {@link #get()}, 就属于哪个线程的栈, 同一线程内回收是无锁的数组 push/pop;
+ * 2. 在其他线程回收时, 通过 CAS 挂到所属栈的一个无锁链表上 (链表节点就是 handle 本身, 不会额外分配),
+ *    所属线程在本地栈为空时一次性取走;
+ * 3. 超出容量的回收直接丢弃交给 GC, 没有被回收的对象同样只是交给 GC, 不会泄露.
+ *
+ * 被回收的对象不能再被使用, 调用方必须保证回收时已经没有任何引用.
+ *
+ * jupiter
+ * org.jupiter.common.util
+ *
+ * @author jiachun.fjc
+ */
+public abstract class Recyclers<T> {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Recyclers.class);
+
+    private static final boolean ENABLED = SystemPropertyUtil.getBoolean("jupiter.recycler.enabled", false);
+    private static final int DEFAULT_MAX_CAPACITY_PER_THREAD =
+            Math.max(0, SystemPropertyUtil.getInt("jupiter.recycler.max_capacity_per_thread", 4096));
+    private static final int INITIAL_CAPACITY = Math.min(DEFAULT_MAX_CAPACITY_PER_THREAD, 256);
+
+    @SuppressWarnings("rawtypes")
+    private static final Handle NOOP_HANDLE = object -> {
+        // do nothing
+    };
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Djupiter.recycler.enabled: {}", ENABLED);
+            logger.debug("-Djupiter.recycler.max_capacity_per_thread: {}", DEFAULT_MAX_CAPACITY_PER_THREAD);
+        }
+    }
+
+    private final int maxCapacityPerThread;
+
+    private final InternalThreadLocal<Stack<T>> threadLocal = new InternalThreadLocal<Stack<T>>() {
+
+        @Override
+        protected Stack<T> initialValue() {
+            return new Stack<>(Thread.currentThread(), maxCapacityPerThread);
+        }
+    };
+
+    protected Recyclers() {
+        this(ENABLED ? DEFAULT_MAX_CAPACITY_PER_THREAD : 0);
+    }
+
+    protected Recyclers(int maxCapacityPerThread) {
+        this.maxCapacityPerThread = Math.max(0, maxCapacityPerThread);
+    }
+
+    /**
+     * 是否开启了对象池.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final T get() {
+        if (maxCapacityPerThread == 0) {
+            return newObject((Handle<T>) NOOP_HANDLE);
+        }
+        Stack<T> stack = threadLocal.get();
+        DefaultHandle<T> handle = stack.pop();
+        if (handle == null) {
+            handle = new DefaultHandle<>(stack);
+            handle.value = newObject(handle);
+        }
+        return handle.value;
+    }
+
+    /**
+     * 当前线程栈中缓存的对象个数, 只用于测试.
+     */
+    final int threadLocalSize() {
+        return threadLocal.get().size;
+    }
+
+    protected abstract T newObject(Handle<T> handle);
+
+    public interface Handle<T> {
+
+        /**
+         * 将对象归还到对象池, 每次 {@link #get()} 得到的对象最多只能归还一次.
+         */
+        void recycle(T object);
+    }
+
+    static final class DefaultHandle<T> implements Handle<T> {
+
+        private static final AtomicIntegerFieldUpdater<DefaultHandle> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(DefaultHandle.class, "state");
+
+        private static final int ST_IN_USE = 0;
+        private static final int ST_RECYCLED = 1;
+
+        final Stack<T> stack;
+        T value;
+        // 跨线程回收时的链表指针
+        DefaultHandle<T> next;
+
+        private volatile int state = ST_IN_USE;
+
+        DefaultHandle(Stack<T> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        public void recycle(T object) {
+            if (object != value) {
+                throw new IllegalArgumentException("object does not belong to handle");
+            }
+            if (!stateUpdater.compareAndSet(this, ST_IN_USE, ST_RECYCLED)) {
+                throw new IllegalStateException("recycled already");
+            }
+            stack.push(this);
+        }
+
+        void reuse() {
+            state = ST_IN_USE;
+        }
+    }
+
+    static final class Stack<T> {
+
+        // 弱引用, 避免池中的对象阻止已经退出的线程被回收
+        private final WeakReference<Thread> threadRef;
+        private final int maxCapacity;
+
+        private DefaultHandle<?>[] elements;
+        private int size;
+
+        // 其他线程归还的对象
+        private final AtomicReference<DefaultHandle<T>> foreignHead = new AtomicReference<>();
+        private final AtomicInteger foreignSize = new AtomicInteger();
+
+        Stack(Thread thread, int maxCapacity) {
+            this.threadRef = new WeakReference<>(thread);
+            this.maxCapacity = maxCapacity;
+            elements = new DefaultHandle[Math.min(INITIAL_CAPACITY, maxCapacity)];
+        }
+
+        @SuppressWarnings("unchecked")
+        DefaultHandle<T> pop() {
+            if (size == 0 && !scavenge()) {
+                return null;
+            }
+            int index = --size;
+            DefaultHandle<T> handle = (DefaultHandle<T>) elements[index];
+            elements[index] = null;
+            handle.reuse();
+            return handle;
+        }
+
+        void push(DefaultHandle<T> handle) {
+            if (threadRef.get() == Thread.currentThread()) {
+                pushNow(handle);
+            } else {
+                pushLater(handle);
+            }
+        }
+
+        private void pushNow(DefaultHandle<?> handle) {
+            int size = this.size;
+            if (size >= maxCapacity) {
+                // 丢弃, 交给 GC
+                return;
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.min(size << 1, maxCapacity));
+            }
+            elements[size] = handle;
+            this.size = size + 1;
+        }
+
+        private void pushLater(DefaultHandle<T> handle) {
+            if (foreignSize.incrementAndGet() > maxCapacity) {
+                foreignSize.decrementAndGet();
+                return;
+            }
+            for (;;) {
+                DefaultHandle<T> head = foreignHead.get();
+                handle.next = head;
+                if (foreignHead.compareAndSet(head, handle)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean scavenge() {
+            DefaultHandle<T> handle = foreignHead.getAndSet(null);
+            if (handle == null) {
+                return false;
+            }
+            int drained = 0;
+            while (handle != null) {
+                DefaultHandle<T> next = handle.next;
+                handle.next = null;
+                pushNow(handle);
+                handle = next;
+                drained++;
+            }
+            foreignSize.addAndGet(-drained);
+            return size > 0;
+        }
+    }
+}
@@ -560,6 +560,14 @@ public final class UnsafeUtil {
             this.unsafe.putLongVolatile(target, offset, value);
         }
 
+        public void putOrderedLong(Object target, long offset, long value) {
+            this.unsafe.putOrderedLong(target, offset, value);
+        }
+
+        public boolean compareAndSwapLong(Object target, long offset, long expected, long value) {
+            return this.unsafe.compareAndSwapLong(target, offset, expected, value);
+        }
+
         public boolean getBooleanVolatile(Object target, long offset) {
             return this.unsafe.getBooleanVolatile(target, offset);
         }
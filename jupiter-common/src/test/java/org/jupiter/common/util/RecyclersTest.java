@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.common.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * jupiter
+ * org.jupiter.common.util
+ *
+ * @author jiachun.fjc
+ */
+public class RecyclersTest {
+
+    static final class Pooled {
+
+        final Recyclers.Handle<Pooled> handle;
+
+        Pooled(Recyclers.Handle<Pooled> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+
+    static Recyclers<Pooled> newRecyclers(int maxCapacity) {
+        return new Recyclers<Pooled>(maxCapacity) {
+
+            @Override
+            protected Pooled newObject(Handle<Pooled> handle) {
+                return new Pooled(handle);
+            }
+        };
+    }
+
+    @Test
+    public void testRecycleSameThread() {
+        Recyclers<Pooled> recyclers = newRecyclers(16);
+        Pooled o1 = recyclers.get();
+        o1.recycle();
+        Pooled o2 = recyclers.get();
+        assertSame(o1, o2);
+        o2.recycle();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycle() {
+        Recyclers<Pooled> recyclers = newRecyclers(16);
+        Pooled o = recyclers.get();
+        o.recycle();
+        o.recycle();
+    }
+
+    @Test
+    public void testRecycleOtherThread() throws Exception {
+        Recyclers<Pooled> recyclers = newRecyclers(16);
+        Pooled o1 = recyclers.get();
+        Thread t = new Thread(o1::recycle);
+        t.start();
+        t.join();
+        Pooled o2 = recyclers.get();
+        assertSame(o1, o2);
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        Recyclers<Pooled> recyclers = newRecyclers(4);
+        Pooled[] objects = new Pooled[8];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recyclers.get();
+        }
+        for (Pooled o : objects) {
+            o.recycle();
+        }
+        assertEquals(4, recyclers.threadLocalSize());
+    }
+
+    @Test
+    public void testDisabled() {
+        Recyclers<Pooled> recyclers = newRecyclers(0);
+        Pooled o1 = recyclers.get();
+        o1.recycle();
+        o1.recycle(); // noop
+        Pooled o2 = recyclers.get();
+        assertNotSame(o1, o2);
+    }
+}
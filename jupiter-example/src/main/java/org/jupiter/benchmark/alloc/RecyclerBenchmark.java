@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.benchmark.alloc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jupiter.rpc.DefaultClient;
+import org.jupiter.rpc.DefaultServer;
+import org.jupiter.rpc.JClient;
+import org.jupiter.rpc.JServer;
+import org.jupiter.rpc.consumer.GenericProxyFactory;
+import org.jupiter.rpc.consumer.invoker.GenericInvoker;
+import org.jupiter.serialization.SerializerType;
+import org.jupiter.transport.UnresolvedAddress;
+import org.jupiter.transport.UnresolvedSocketAddress;
+import org.jupiter.transport.netty.JNettyTcpAcceptor;
+import org.jupiter.transport.netty.JNettyTcpConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 对比开启/关闭对象池 (jupiter.recycler.enabled) 时一次同步调用的内存分配,
+ * 同一个进程内启动server和client, 看 gc.alloc.rate.norm (B/op) 一项, 它统计的是所有线程的分配,
+ * 包括consumer和provider两端.
+ *
+ * jupiter
+ * org.jupiter.benchmark.alloc
+ *
+ * @author jiachun.fjc
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecyclerBenchmark {
+
+    /*
+        -p serializerType=KRYO, 单核虚拟机, 只看 B/op 一项:
+
+        Benchmark                                       (serializerType)  Mode  Cnt     Score   Units
+        RecyclerBenchmark.pooled                                    KRYO  avgt    3    47.082   us/op
+        RecyclerBenchmark.pooled:·gc.alloc.rate.norm                KRYO  avgt    3  2865.880    B/op
+        RecyclerBenchmark.unpooled                                  KRYO  avgt    3    45.428   us/op
+        RecyclerBenchmark.unpooled:·gc.alloc.rate.norm              KRYO  avgt    3  3020.977    B/op
+     */
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(RecyclerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static final int PORT = 18098;
+
+    @Param({ "PROTO_STUFF" })
+    public String serializerType;
+
+    private JServer server;
+    private JClient client;
+    private GenericInvoker invoker;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new DefaultServer().withAcceptor(new JNettyTcpAcceptor(PORT));
+        server.serviceRegistry()
+                .provider(new ServiceImpl())
+                .register();
+        server.start(false);
+
+        client = new DefaultClient().withConnector(new JNettyTcpConnector());
+        UnresolvedAddress address = new UnresolvedSocketAddress("127.0.0.1", PORT);
+        client.connector().connect(address);
+
+        invoker = GenericProxyFactory.factory()
+                .group("test")
+                .providerName("alloc")
+                .version("1.0.0")
+                .serializerType(SerializerType.valueOf(serializerType))
+                .client(client)
+                .addProviderAddress(address)
+                .newProxyInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.shutdownGracefully();
+        server.shutdownGracefully();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public Object unpooled() throws Throwable {
+        return invoker.$invoke("hello", "jupiter");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djupiter.recycler.enabled=true")
+    public Object pooled() throws Throwable {
+        return invoker.$invoke("hello", "jupiter");
+    }
+}
@@ -313,6 +313,11 @@ public class SerializationBenchmark {
             return byteBuf.writerIndex(actualWriteBytes);
         }
 
+        @Override
+        public boolean release() {
+            return byteBuf.release();
+        }
+
         private static ByteBuffer newNioByteBuffer(ByteBuf byteBuf, int writableBytes) {
             return byteBuf
                     .ensureWritable(writableBytes)
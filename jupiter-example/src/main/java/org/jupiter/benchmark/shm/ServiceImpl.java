@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.benchmark.shm;
+
+import org.jupiter.rpc.ServiceProviderImpl;
+
+/**
+ * jupiter
+ * org.jupiter.benchmark.tcp
+ *
+ * @author jiachun.fjc
+ */
+@ServiceProviderImpl
+public class ServiceImpl implements Service {
+
+    @Override
+    public String hello(String arg) {
+        return arg;
+    }
+}
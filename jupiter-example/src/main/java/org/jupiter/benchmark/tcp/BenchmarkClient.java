@@ -15,6 +15,7 @@
  */
 package org.jupiter.benchmark.tcp;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +33,7 @@ import org.jupiter.rpc.consumer.future.InvokeFuture;
 import org.jupiter.rpc.consumer.future.InvokeFutureContext;
 import org.jupiter.rpc.load.balance.LoadBalancerType;
 import org.jupiter.serialization.SerializerType;
+import org.jupiter.transport.JOption;
 import org.jupiter.transport.UnresolvedAddress;
 import org.jupiter.transport.UnresolvedSocketAddress;
 import org.jupiter.transport.netty.JNettyTcpConnector;
@@ -72,6 +74,8 @@ public class BenchmarkClient {
 
     public static void main(String[] args) {
 //        SystemPropertyUtil.setProperty("jupiter.io.codec.low_copy", "true");
+//        // io_uring transport (Linux 5.x+, 需要netty-incubator-transport-native-io_uring), 不可用时退回epoll
+//        SystemPropertyUtil.setProperty("jupiter.io.native.io_uring", "true");
 
         int processors = JConstants.AVAILABLE_PROCESSORS;
         SystemPropertyUtil
@@ -91,6 +95,14 @@ public class BenchmarkClient {
 //            }
         });
 
+        if (SystemPropertyUtil.getBoolean("jupiter.test.tls", false)) {
+            // 先启动TLS模式的BenchmarkServer, 它会生成自签名证书
+            client.connector().config().setOption(JOption.SSL_ENABLED, true);
+            client.connector().config().setOption(JOption.SSL_TRUST_CERT_FILE, tlsTrustCertFile().getPath());
+            // 自签名证书签发给localhost, 这里连接的是127.0.0.1
+            client.connector().config().setOption(JOption.SSL_HOSTNAME_VERIFICATION, false);
+        }
+
         UnresolvedAddress[] addresses = new UnresolvedAddress[processors];
         for (int i = 0; i < processors; i++) {
             addresses[i] = new UnresolvedSocketAddress("127.0.0.1", 18099);
@@ -228,4 +240,8 @@ public class BenchmarkClient {
         long second = (System.currentTimeMillis() - start) / 1000;
         logger.warn("Request count: " + count.get() + ", time: " + second + " second, qps: " + count.get() / second);
     }
+
+    static File tlsTrustCertFile() {
+        return new File(SystemPropertyUtil.get("java.io.tmpdir"), "jupiter-benchmark-tls.crt");
+    }
 }
@@ -15,11 +15,18 @@
  */
 package org.jupiter.benchmark.tcp;
 
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
 import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.monitor.MonitorServer;
 import org.jupiter.rpc.DefaultServer;
 import org.jupiter.rpc.JServer;
+import org.jupiter.transport.JConfig;
+import org.jupiter.transport.JOption;
 import org.jupiter.transport.netty.JNettyTcpAcceptor;
 
 /**
@@ -34,6 +41,10 @@ public class BenchmarkServer {
 
     public static void main(String[] args) {
 //        SystemPropertyUtil.setProperty("jupiter.io.codec.low_copy", "true");
+//        // io_uring transport (Linux 5.x+, 需要netty-incubator-transport-native-io_uring), 不可用时退回epoll
+//        SystemPropertyUtil.setProperty("jupiter.io.native.io_uring", "true");
+//        // thread-per-core: worker线程绑核, 请求直接在IO线程中执行, 适合CPU密集并且没有阻塞操作的服务
+//        SystemPropertyUtil.setProperty("jupiter.provider.thread_per_core", "true");
 
         final int processors = JConstants.AVAILABLE_PROCESSORS;
         SystemPropertyUtil
@@ -60,6 +71,9 @@ public class BenchmarkServer {
 //                return new AffinityNettyThreadFactory(name, Thread.MAX_PRIORITY);
 //            }
         });
+        if (SystemPropertyUtil.getBoolean("jupiter.test.tls", false)) {
+            enableTls(server.acceptor().configGroup().child());
+        }
         final MonitorServer monitor = new MonitorServer();
         try {
             monitor.start();
@@ -73,4 +87,22 @@ public class BenchmarkServer {
             e.printStackTrace();
         }
     }
+
+    /**
+     * TLS模式: -Djupiter.test.tls=true, 服务端和客户端都需要设置.
+     *
+     * 使用自签名证书, 证书拷贝到 ${java.io.tmpdir}/jupiter-benchmark-tls.crt 供客户端信任.
+     */
+    private static void enableTls(JConfig child) {
+        try {
+            SelfSignedCertificate ssc = new SelfSignedCertificate("localhost");
+            Files.copy(ssc.certificate().toPath(), BenchmarkClient.tlsTrustCertFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            child.setOption(JOption.SSL_ENABLED, true);
+            child.setOption(JOption.SSL_CERT_CHAIN_FILE, ssc.certificate().getPath());
+            child.setOption(JOption.SSL_PRIVATE_KEY_FILE, ssc.privateKey().getPath());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to enable TLS", e);
+        }
+    }
 }
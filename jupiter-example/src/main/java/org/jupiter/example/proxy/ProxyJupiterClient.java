@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.example.proxy;
+
+import org.jupiter.example.User;
+import org.jupiter.example.UserService;
+import org.jupiter.rpc.DefaultClient;
+import org.jupiter.rpc.JClient;
+import org.jupiter.rpc.consumer.ProxyFactory;
+import org.jupiter.serialization.SerializerType;
+import org.jupiter.transport.UnresolvedAddress;
+import org.jupiter.transport.UnresolvedSocketAddress;
+import org.jupiter.transport.netty.JNettyTcpConnector;
+
+/**
+ * jupiter
+ * org.jupiter.example.proxy
+ *
+ * @author jiachun.fjc
+ */
+public class ProxyJupiterClient {
+
+    public static void main(String[] args) {
+        JClient client = new DefaultClient().withConnector(new JNettyTcpConnector());
+        // 连接代理, 而不是服务提供者
+        UnresolvedAddress proxyAddress = new UnresolvedSocketAddress("127.0.0.1", 18099);
+        client.connector().connect(proxyAddress);
+
+        UserService userService = ProxyFactory.factory(UserService.class)
+                .version("1.0.0.daily")
+                .client(client)
+                .serializerType(SerializerType.KRYO)
+                .addProviderAddress(proxyAddress)
+                .routeKey(1)
+                .newProxyInstance();
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                User user = userService.createUser();
+                System.out.println(user);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
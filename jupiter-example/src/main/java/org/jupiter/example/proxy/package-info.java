@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 帧转发代理example, 代理只看协议头中的 route key, 不反序列化消息体
+ *
+ * 1. 先启动ProxyBackendServer
+ * 2. 再启动ForwardingProxyServer
+ * 3. 最后启动ProxyJupiterClient
+ */
+package org.jupiter.example.proxy;
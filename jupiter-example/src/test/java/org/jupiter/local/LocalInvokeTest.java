@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.local;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jupiter.rpc.DefaultClient;
+import org.jupiter.rpc.DefaultServer;
+import org.jupiter.rpc.JClient;
+import org.jupiter.rpc.JRequest;
+import org.jupiter.rpc.JResponse;
+import org.jupiter.rpc.JServer;
+import org.jupiter.rpc.consumer.ConsumerInterceptor;
+import org.jupiter.rpc.consumer.ProxyFactory;
+import org.jupiter.rpc.exception.JupiterFlowControlException;
+import org.jupiter.rpc.flow.control.ControlResult;
+import org.jupiter.rpc.provider.ProviderInterceptor;
+import org.jupiter.serialization.SerializerType;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.netty.JNettyTcpAcceptor;
+import org.jupiter.transport.netty.JNettyTcpConnector;
+
+/**
+ * 同一个JVM内的短路调用: 没有任何连接的client也能调用成功, 参数的拷贝以及provider端的过滤器链.
+ *
+ * jupiter
+ * org.jupiter.local
+ *
+ * @author jiachun.fjc
+ */
+public class LocalInvokeTest {
+
+    public static void main(String[] args) throws Exception {
+        AtomicInteger providerIntercepted = new AtomicInteger();
+        AtomicInteger consumerIntercepted = new AtomicInteger();
+
+        JServer server = new DefaultServer().withAcceptor(new JNettyTcpAcceptor(18099));
+        server.serviceRegistry()
+                .provider(new EchoServiceImpl(), new ProviderInterceptor() {
+
+                    @Override
+                    public void beforeInvoke(Object provider, String methodName, Object[] args) {
+                        providerIntercepted.incrementAndGet();
+                    }
+
+                    @Override
+                    public void afterInvoke(Object provider, String methodName, Object[] args, Object result, Throwable failCause) {}
+                })
+                .interfaceClass(EchoService.class)
+                .group("local")
+                .providerName("echo")
+                .version("1.0.0")
+                .register();
+        server.serviceRegistry()
+                .provider(new EchoServiceImpl())
+                .interfaceClass(EchoService.class)
+                .group("local")
+                .providerName("rejected")
+                .version("1.0.0")
+                .flowController(request -> new ControlResult(false, "rejected by test"))
+                .register();
+        server.start(false);
+
+        // client没有连接任何地址, 只能走短路调用
+        JClient client = new DefaultClient().withConnector(new JNettyTcpConnector());
+        ConsumerInterceptor consumerInterceptor = new ConsumerInterceptor() {
+
+            @Override
+            public void beforeInvoke(JRequest request, JChannel channel) {
+                check("local".equals(channel.id()), "consumer interceptor should see the local channel");
+                consumerIntercepted.incrementAndGet();
+            }
+
+            @Override
+            public void afterInvoke(JResponse response, JChannel channel) {}
+        };
+
+        try {
+            // 不拷贝参数, provider拿到的就是consumer传入的对象
+            EchoService service = ProxyFactory.factory(EchoService.class)
+                    .client(client)
+                    .group("local")
+                    .providerName("echo")
+                    .serializerType(SerializerType.JAVA)
+                    .addInterceptor(consumerInterceptor)
+                    .localInvoke(true)
+                    .newProxyInstance();
+            Bean bean = new Bean("hello");
+            Bean result = service.echo(bean);
+            check(result == bean, "args should not be copied");
+            check("hello!".equals(bean.value), "provider should mutate the caller's object");
+            check(providerIntercepted.get() == 1, "provider interceptor should run");
+            check(consumerIntercepted.get() == 1, "consumer interceptor should run");
+
+            // 拷贝参数和结果, consumer的对象不受provider的修改影响
+            EchoService copyService = ProxyFactory.factory(EchoService.class)
+                    .client(client)
+                    .group("local")
+                    .providerName("echo")
+                    .serializerType(SerializerType.JAVA)
+                    .localInvoke(true, true)
+                    .newProxyInstance();
+            bean = new Bean("hello");
+            result = copyService.echo(bean);
+            check(result != bean, "result should be a copy");
+            check("hello".equals(bean.value), "caller's object should be untouched");
+            check("hello!".equals(result.value), "result should carry the provider's change");
+            check(providerIntercepted.get() == 2, "provider interceptor should run");
+
+            // provider私有的流量控制同样生效
+            EchoService rejectedService = ProxyFactory.factory(EchoService.class)
+                    .client(client)
+                    .serializerType(SerializerType.JAVA)
+                    .group("local")
+                    .providerName("rejected")
+                    .localInvoke(true)
+                    .newProxyInstance();
+            Throwable rejected = null;
+            try {
+                rejectedService.echo(new Bean("hello"));
+            } catch (Throwable t) {
+                // 同步调用的异常可能被包装成ExecutionException
+                for (rejected = t; rejected != null; rejected = rejected.getCause()) {
+                    if (rejected instanceof JupiterFlowControlException) {
+                        break;
+                    }
+                }
+            }
+            check(rejected != null, "flow controller should reject the call");
+
+            System.out.println("ok");
+        } finally {
+            client.shutdownGracefully();
+            server.shutdownGracefully();
+        }
+    }
+
+    private static void check(boolean expression, String message) {
+        if (!expression) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public interface EchoService {
+
+        Bean echo(Bean bean);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+
+        @Override
+        public Bean echo(Bean bean) {
+            bean.value += "!";
+            return bean;
+        }
+    }
+
+    public static class Bean implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        String value;
+
+        Bean(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -23,8 +23,11 @@ import org.jupiter.common.util.StackTraceUtil;
 import org.jupiter.common.util.internal.ReferenceFieldUpdater;
 import org.jupiter.common.util.internal.Updaters;
 import org.jupiter.rpc.metric.Metrics;
+import org.jupiter.transport.netty.handler.connector.Reconnects;
 
 import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 
 /**
  * Indicators measure used to provide data for the monitor.
@@ -45,6 +48,14 @@ public class MetricsReporter {
                                                             .outputTo(output)
                                                             .build();
 
+    static {
+        // 传输层没有依赖metrics, 在这里把重连的统计注册进来
+        MetricRegistry registry = Metrics.metricRegistry();
+        registry.register("reconnect.pending", (Gauge<Integer>) Reconnects::pendingReconnects);
+        registry.register("reconnect.attempts", (Gauge<Long>) Reconnects::reconnectAttempts);
+        registry.register("reconnect.throttled", (Gauge<Long>) Reconnects::throttledReconnects);
+    }
+
     public synchronized static String report() {
         reporter.report();
         return consoleOutput();
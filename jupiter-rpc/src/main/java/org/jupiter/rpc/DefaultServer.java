@@ -40,6 +40,7 @@ import org.jupiter.rpc.model.metadata.ServiceMetadata;
 import org.jupiter.rpc.model.metadata.ServiceWrapper;
 import org.jupiter.rpc.provider.ProviderInterceptor;
 import org.jupiter.rpc.provider.processor.DefaultProviderProcessor;
+import org.jupiter.rpc.provider.processor.LocalProviders;
 import org.jupiter.transport.Directory;
 import org.jupiter.transport.JAcceptor;
 
@@ -227,16 +228,21 @@ public class DefaultServer implements JServer {
 
     @Override
     public void start() throws InterruptedException {
+        registerLocal();
         acceptor.start();
     }
 
     @Override
     public void start(boolean sync) throws InterruptedException {
+        registerLocal();
         acceptor.start(sync);
     }
 
     @Override
     public void shutdownGracefully() {
+        if (acceptor.processor() instanceof DefaultProviderProcessor) {
+            LocalProviders.unregister((DefaultProviderProcessor) acceptor.processor());
+        }
         registryService.shutdownGracefully();
         acceptor.shutdownGracefully();
     }
@@ -245,6 +251,13 @@ public class DefaultServer implements JServer {
         withAcceptor(acceptor);
     }
 
+    // 同一个JVM内的consumer可以绕过网络直接调用
+    private void registerLocal() {
+        if (acceptor.processor() instanceof DefaultProviderProcessor) {
+            LocalProviders.register((DefaultProviderProcessor) acceptor.processor());
+        }
+    }
+
     ServiceWrapper registerService(
             String group,
             String providerName,
@@ -18,6 +18,10 @@ package org.jupiter.rpc;
 /**
  * 远程调用方式, 支持同步调用和异步调用, 异步方式支持 Future 以及 Listener.
  *
+ * 另外支持服务端流式调用 {@link #STREAMING}, 服务端方法返回 {@link java.util.stream.Stream},
+ * {@link java.util.Iterator} 或者 {@link Iterable}, 结果以同一个 invokeId 的多个帧陆续推送给客户端,
+ * 客户端代理方法需要声明返回 {@link java.util.stream.Stream} 或者 {@link java.util.Iterator}.
+ *
  * jupiter
  * org.jupiter.rpc
  *
@@ -26,7 +30,8 @@ package org.jupiter.rpc;
 public enum InvokeType {
     SYNC,   // 同步调用
     ASYNC,  // 异步调用
-    AUTO;   // 当接口返回值是一个 CompletableFuture 或者它的子类将自动适配为异步调用, 否则为同步调用
+    AUTO,   // 当接口返回值是一个 CompletableFuture 或者它的子类将自动适配为异步调用, 否则为同步调用
+    STREAMING; // 服务端流式调用, 需要协议v2
 
     public static InvokeType parse(String name) {
         for (InvokeType s : values()) {
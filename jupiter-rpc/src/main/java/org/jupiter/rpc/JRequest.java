@@ -18,6 +18,7 @@ package org.jupiter.rpc;
 import java.util.Collections;
 import java.util.Map;
 
+import org.jupiter.common.util.Recyclers;
 import org.jupiter.rpc.model.metadata.MessageWrapper;
 import org.jupiter.serialization.io.OutputBuf;
 import org.jupiter.transport.payload.JRequestPayload;
@@ -34,15 +35,55 @@ import org.jupiter.transport.payload.JRequestPayload;
  */
 public class JRequest {
 
-    private final JRequestPayload payload;   // 请求bytes/stream
+    // 只用于provider端, consumer端的请求在集群容错(failover)时会被重复发送, 不参与池化
+    private static final Recyclers<JRequest> recyclers = new Recyclers<JRequest>() {
+
+        @Override
+        protected JRequest newObject(Handle<JRequest> handle) {
+            return new JRequest(handle);
+        }
+    };
+
+    private JRequestPayload payload;         // 请求bytes/stream
     private MessageWrapper message;          // 请求对象
 
+    private final Recyclers.Handle<JRequest> handle;
+
     public JRequest() {
         this(new JRequestPayload());
     }
 
     public JRequest(JRequestPayload payload) {
         this.payload = payload;
+        this.handle = null;
+    }
+
+    private JRequest(Recyclers.Handle<JRequest> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个request (对象池未开启时等同于 {@code new JRequest(payload)}).
+     */
+    public static JRequest newInstance(JRequestPayload payload) {
+        JRequest request = recyclers.get();
+        request.payload = payload;
+        return request;
+    }
+
+    /**
+     * 连同payload一起归还到对象池, 调用之后不能再持有这个request的任何引用 (包括filter和拦截器),
+     * 对象池未开启或者非池化创建的对象调用此方法什么也不做.
+     */
+    public void recycle() {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        JRequestPayload _payload = payload;
+        payload = null;
+        message = null;
+        _payload.recycle();
+        handle.recycle(this);
     }
 
     public JRequestPayload payload() {
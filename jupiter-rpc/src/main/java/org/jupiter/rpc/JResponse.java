@@ -15,6 +15,7 @@
  */
 package org.jupiter.rpc;
 
+import org.jupiter.common.util.Recyclers;
 import org.jupiter.rpc.model.metadata.ResultWrapper;
 import org.jupiter.transport.Status;
 import org.jupiter.transport.payload.JResponsePayload;
@@ -31,15 +32,55 @@ import org.jupiter.transport.payload.JResponsePayload;
  */
 public class JResponse {
 
-    private final JResponsePayload payload;     // 响应bytes/stream
+    private static final Recyclers<JResponse> recyclers = new Recyclers<JResponse>() {
+
+        @Override
+        protected JResponse newObject(Handle<JResponse> handle) {
+            return new JResponse(handle);
+        }
+    };
+
+    private JResponsePayload payload;           // 响应bytes/stream
     private ResultWrapper result;               // 响应对象
 
+    private final Recyclers.Handle<JResponse> handle;
+
     public JResponse(long id) {
         payload = new JResponsePayload(id);
+        handle = null;
     }
 
     public JResponse(JResponsePayload payload) {
         this.payload = payload;
+        this.handle = null;
+    }
+
+    private JResponse(Recyclers.Handle<JResponse> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个response (对象池未开启时等同于 {@code new JResponse(payload)}).
+     */
+    public static JResponse newInstance(JResponsePayload payload) {
+        JResponse response = recyclers.get();
+        response.payload = payload;
+        return response;
+    }
+
+    /**
+     * 连同payload一起归还到对象池, 调用之后不能再持有这个response的任何引用 (包括拦截器),
+     * 对象池未开启或者非池化创建的对象调用此方法什么也不做.
+     */
+    public void recycle() {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        JResponsePayload _payload = payload;
+        payload = null;
+        result = null;
+        _payload.recycle();
+        handle.recycle(this);
     }
 
     public JResponsePayload payload() {
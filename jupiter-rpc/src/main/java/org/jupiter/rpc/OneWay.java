@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * One-way method annotation.
+ *
+ * 单向调用(fire-and-forget): 客户端不注册future也不做超时检测, 服务端不序列化也不写回响应,
+ * 适合日志、打点这类不关心结果的调用. 方法返回值必须是 void, 需要协议v2, 与 v1 的对端通信时退化为普通调用.
+ *
+ * 也可以通过 {@link org.jupiter.rpc.model.metadata.MethodSpecialConfig#oneWay(boolean)} 指定.
+ *
+ * jupiter
+ * org.jupiter.rpc
+ *
+ * @author jiachun.fjc
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OneWay {
+}
@@ -22,6 +22,7 @@ import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.Lists;
 import org.jupiter.common.util.Requires;
 import org.jupiter.common.util.Strings;
+import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.rpc.DispatchType;
 import org.jupiter.rpc.InvokeType;
 import org.jupiter.rpc.JClient;
@@ -86,6 +87,16 @@ public class GenericProxyFactory {
     private ClusterInvoker.Strategy strategy = ClusterInvoker.Strategy.getDefault();
     // failover重试次数
     private int retries = 2;
+    // hedging等待时间, <= 0 时使用学习到的延迟分位数
+    private long hedgingDelayMillis;
+    // hedging请求占总请求数的百分比上限
+    private int hedgingBudgetPercent;
+    // 同一个JVM内有provider时短路调用, 不经过序列化和网络
+    private boolean localInvoke = SystemPropertyUtil.getBoolean("jupiter.rpc.local_invoke", false);
+    // 短路调用时是否对参数和结果做防御性拷贝
+    private boolean localInvokeCopyArgs = SystemPropertyUtil.getBoolean("jupiter.rpc.local_invoke.copy_args", false);
+    // 经过转发代理调用时的路由键
+    private int routeKey;
 
     public static GenericProxyFactory factory() {
         GenericProxyFactory factory = new GenericProxyFactory();
@@ -186,6 +197,32 @@ public class GenericProxyFactory {
         return this;
     }
 
+    public GenericProxyFactory hedgingDelayMillis(long hedgingDelayMillis) {
+        this.hedgingDelayMillis = hedgingDelayMillis;
+        return this;
+    }
+
+    public GenericProxyFactory hedgingBudgetPercent(int hedgingBudgetPercent) {
+        this.hedgingBudgetPercent = hedgingBudgetPercent;
+        return this;
+    }
+
+    public GenericProxyFactory localInvoke(boolean localInvoke) {
+        this.localInvoke = localInvoke;
+        return this;
+    }
+
+    public GenericProxyFactory localInvoke(boolean localInvoke, boolean copyArgs) {
+        this.localInvoke = localInvoke;
+        this.localInvokeCopyArgs = copyArgs;
+        return this;
+    }
+
+    public GenericProxyFactory routeKey(int routeKey) {
+        this.routeKey = routeKey;
+        return this;
+    }
+
     public GenericInvoker newProxyInstance() {
         // check arguments
         Requires.requireTrue(Strings.isNotBlank(group), "group");
@@ -213,9 +250,11 @@ public class GenericProxyFactory {
         Dispatcher dispatcher = dispatcher()
                 .interceptors(interceptors)
                 .timeoutMillis(timeoutMillis)
-                .methodSpecialConfigs(methodSpecialConfigs);
+                .methodSpecialConfigs(methodSpecialConfigs)
+                .localInvoke(localInvoke, localInvokeCopyArgs)
+                .routeKey(routeKey);
 
-        ClusterStrategyConfig strategyConfig = ClusterStrategyConfig.of(strategy, retries);
+        ClusterStrategyConfig strategyConfig = ClusterStrategyConfig.of(strategy, retries, hedgingDelayMillis, hedgingBudgetPercent);
         switch (invokeType) {
             case SYNC:
             case AUTO:
@@ -15,6 +15,7 @@
  */
 package org.jupiter.rpc.consumer;
 
+import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.List;
 
@@ -23,9 +24,11 @@ import org.jupiter.common.util.Lists;
 import org.jupiter.common.util.Proxies;
 import org.jupiter.common.util.Requires;
 import org.jupiter.common.util.Strings;
+import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.rpc.DispatchType;
 import org.jupiter.rpc.InvokeType;
 import org.jupiter.rpc.JClient;
+import org.jupiter.rpc.OneWay;
 import org.jupiter.rpc.ServiceProvider;
 import org.jupiter.rpc.consumer.cluster.ClusterInvoker;
 import org.jupiter.rpc.consumer.dispatcher.DefaultBroadcastDispatcher;
@@ -33,6 +36,7 @@ import org.jupiter.rpc.consumer.dispatcher.DefaultRoundDispatcher;
 import org.jupiter.rpc.consumer.dispatcher.Dispatcher;
 import org.jupiter.rpc.consumer.invoker.AsyncInvoker;
 import org.jupiter.rpc.consumer.invoker.AutoInvoker;
+import org.jupiter.rpc.consumer.invoker.StreamingInvoker;
 import org.jupiter.rpc.load.balance.LoadBalancerFactory;
 import org.jupiter.rpc.load.balance.LoadBalancerType;
 import org.jupiter.rpc.model.metadata.ClusterStrategyConfig;
@@ -89,6 +93,16 @@ public class ProxyFactory<I> {
     private ClusterInvoker.Strategy strategy = ClusterInvoker.Strategy.getDefault();
     // failover重试次数
     private int retries = 2;
+    // hedging等待时间, <= 0 时使用学习到的延迟分位数
+    private long hedgingDelayMillis;
+    // hedging请求占总请求数的百分比上限
+    private int hedgingBudgetPercent;
+    // 同一个JVM内有provider时短路调用, 不经过序列化和网络
+    private boolean localInvoke = SystemPropertyUtil.getBoolean("jupiter.rpc.local_invoke", false);
+    // 短路调用时是否对参数和结果做防御性拷贝
+    private boolean localInvokeCopyArgs = SystemPropertyUtil.getBoolean("jupiter.rpc.local_invoke.copy_args", false);
+    // 经过转发代理调用时的路由键
+    private int routeKey;
 
     public static <I> ProxyFactory<I> factory(Class<I> interfaceClass) {
         ProxyFactory<I> factory = new ProxyFactory<>(interfaceClass);
@@ -195,6 +209,32 @@ public class ProxyFactory<I> {
         return this;
     }
 
+    public ProxyFactory<I> hedgingDelayMillis(long hedgingDelayMillis) {
+        this.hedgingDelayMillis = hedgingDelayMillis;
+        return this;
+    }
+
+    public ProxyFactory<I> hedgingBudgetPercent(int hedgingBudgetPercent) {
+        this.hedgingBudgetPercent = hedgingBudgetPercent;
+        return this;
+    }
+
+    public ProxyFactory<I> localInvoke(boolean localInvoke) {
+        this.localInvoke = localInvoke;
+        return this;
+    }
+
+    public ProxyFactory<I> localInvoke(boolean localInvoke, boolean copyArgs) {
+        this.localInvoke = localInvoke;
+        this.localInvokeCopyArgs = copyArgs;
+        return this;
+    }
+
+    public ProxyFactory<I> routeKey(int routeKey) {
+        this.routeKey = routeKey;
+        return this;
+    }
+
     public I newProxyInstance() {
         // check arguments
         Requires.requireNotNull(interfaceClass, "interfaceClass");
@@ -224,6 +264,16 @@ public class ProxyFactory<I> {
         if (dispatchType == DispatchType.BROADCAST && invokeType == InvokeType.SYNC) {
             throw reject("broadcast & sync unsupported");
         }
+        if (invokeType == InvokeType.STREAMING) {
+            if (dispatchType == DispatchType.BROADCAST) {
+                throw reject("broadcast & streaming unsupported");
+            }
+            if (strategy != ClusterInvoker.Strategy.FAIL_FAST) {
+                throw reject("streaming & " + strategy + " unsupported");
+            }
+        }
+
+        resolveOneWayMethods();
 
         // metadata
         ServiceMetadata metadata = new ServiceMetadata(
@@ -241,9 +291,11 @@ public class ProxyFactory<I> {
         Dispatcher dispatcher = dispatcher()
                 .interceptors(interceptors)
                 .timeoutMillis(timeoutMillis)
-                .methodSpecialConfigs(methodSpecialConfigs);
+                .methodSpecialConfigs(methodSpecialConfigs)
+                .localInvoke(localInvoke, localInvokeCopyArgs)
+                .routeKey(routeKey);
 
-        ClusterStrategyConfig strategyConfig = ClusterStrategyConfig.of(strategy, retries);
+        ClusterStrategyConfig strategyConfig = ClusterStrategyConfig.of(strategy, retries, hedgingDelayMillis, hedgingBudgetPercent);
         Object handler;
         switch (invokeType) {
             case SYNC:
@@ -253,6 +305,9 @@ public class ProxyFactory<I> {
             case ASYNC:
                 handler = new AsyncInvoker(client.appName(), metadata, dispatcher, strategyConfig, methodSpecialConfigs);
                 break;
+            case STREAMING:
+                handler = new StreamingInvoker(client.appName(), metadata, dispatcher, strategyConfig, methodSpecialConfigs);
+                break;
             default:
                 throw reject("invokeType: " + invokeType);
         }
@@ -260,6 +315,42 @@ public class ProxyFactory<I> {
         return Proxies.getDefault().newProxy(interfaceClass, handler);
     }
 
+    /**
+     * 合并 {@link OneWay} 注解到 {@link MethodSpecialConfig}, 并检查单向调用的方法返回值必须是 void.
+     */
+    private void resolveOneWayMethods() {
+        for (Method method : interfaceClass.getMethods()) {
+            if (method.isAnnotationPresent(OneWay.class)) {
+                methodSpecialConfig(method.getName()).oneWay(true);
+            }
+        }
+
+        for (MethodSpecialConfig config : methodSpecialConfigs) {
+            if (!config.isOneWay()) {
+                continue;
+            }
+            if (invokeType == InvokeType.STREAMING) {
+                throw reject("streaming & one-way unsupported: " + config.getMethodName());
+            }
+            for (Method method : interfaceClass.getMethods()) {
+                if (method.getName().equals(config.getMethodName()) && method.getReturnType() != void.class) {
+                    throw reject("one-way method must return void: " + method);
+                }
+            }
+        }
+    }
+
+    private MethodSpecialConfig methodSpecialConfig(String methodName) {
+        for (MethodSpecialConfig config : methodSpecialConfigs) {
+            if (config.getMethodName().equals(methodName)) {
+                return config;
+            }
+        }
+        MethodSpecialConfig config = MethodSpecialConfig.of(methodName);
+        methodSpecialConfigs.add(config);
+        return config;
+    }
+
     protected Dispatcher dispatcher() {
         switch (dispatchType) {
             case ROUND:
@@ -33,6 +33,7 @@ public interface ClusterInvoker {
         FAIL_FAST,  // 快速失败
         FAIL_OVER,  // 失败重试
         FAIL_SAFE,  // 失败安全
+        HEDGING,    // 对冲请求, 慢于预期时向另一个服务节点再发一次, 先到的响应为准
         // FAIL_BACK,  没想到合适场景, 暂不支持
         // FORKING,    消耗资源太多, 暂不支持
         ;
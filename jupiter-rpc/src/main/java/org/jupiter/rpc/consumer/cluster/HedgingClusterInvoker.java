@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.cluster;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
+
+import org.jupiter.common.concurrent.NamedThreadFactory;
+import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.Reflects;
+import org.jupiter.common.util.Requires;
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.common.util.timer.HashedWheelTimer;
+import org.jupiter.common.util.timer.Timeout;
+import org.jupiter.rpc.JRequest;
+import org.jupiter.rpc.consumer.dispatcher.DefaultRoundDispatcher;
+import org.jupiter.rpc.consumer.dispatcher.Dispatcher;
+import org.jupiter.rpc.consumer.future.DefaultInvokeFuture;
+import org.jupiter.rpc.consumer.future.HedgingInvokeFuture;
+import org.jupiter.rpc.consumer.future.InvokeFuture;
+import org.jupiter.rpc.metric.Metrics;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.channel.JChannel;
+
+/**
+ * 对冲请求, 在预期时间内没有收到响应时, 向另一个服务节点 (另一个channel group) 再发送一次相同的请求,
+ * 以先成功的响应为准, 另一个的结果直接忽略 (由它自己的响应或者超时清理), 用于削减长尾延时.
+ *
+ * 等待时间可以固定, 也可以为每个方法学习一个耗时分位数 (默认p95), 学习到足够样本之前不发对冲请求.
+ * 对冲请求的数量不会超过总请求数的一个百分比 (默认10%), 避免服务端整体变慢时请求量翻倍.
+ *
+ * 和failover一样只建议用于幂等性操作, 也不能支持广播的调用方式.
+ *
+ * https://research.google/pubs/pub40801/ (The Tail at Scale)
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.cluster
+ *
+ * @author jiachun.fjc
+ */
+public class HedgingClusterInvoker implements ClusterInvoker {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(HedgingClusterInvoker.class);
+
+    // 学习等待时间时使用的耗时分位数
+    private static final int LATENCY_PERCENTILE = Math.min(99, Math.max(1,
+            SystemPropertyUtil.getInt("jupiter.rpc.cluster.hedging.percentile", 95)));
+    private static final long TIMER_TICK_MILLIS =
+            SystemPropertyUtil.getLong("jupiter.rpc.cluster.hedging.timer_tick_millis", 5);
+
+    private static final int DEFAULT_BUDGET_PERCENT = 10;
+    // 预算以百分之一个请求为单位, 最多积攒10个对冲请求
+    private static final long FULL_BUDGET = 100 * 10;
+
+    private static final HashedWheelTimer timer = new HashedWheelTimer(
+            new NamedThreadFactory("cluster.hedging.timer", true), TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, 512);
+
+    private final DefaultRoundDispatcher dispatcher;
+    private final long delayMillis;     // > 0 时固定等待时间, 否则使用学习到的分位数
+    private final int budgetPercent;
+    private final AtomicLong budget = new AtomicLong();
+    private final ConcurrentMap<String, LatencyHistogram> latencies = Maps.newConcurrentMap();
+
+    public HedgingClusterInvoker(Dispatcher dispatcher, long delayMillis, int budgetPercent) {
+        Requires.requireTrue(
+                dispatcher instanceof DefaultRoundDispatcher,
+                Reflects.simpleClassName(dispatcher) + " is unsupported [HedgingClusterInvoker]"
+        );
+
+        this.dispatcher = (DefaultRoundDispatcher) dispatcher;
+        this.delayMillis = delayMillis;
+        this.budgetPercent = budgetPercent > 0 ? Math.min(budgetPercent, 100) : DEFAULT_BUDGET_PERCENT;
+    }
+
+    @Override
+    public Strategy strategy() {
+        return Strategy.HEDGING;
+    }
+
+    @Override
+    public <T> InvokeFuture<T> invoke(JRequest request, Class<T> returnType) throws Exception {
+        // 单向调用没有响应, 无从对冲
+        if (request.payload().hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            return dispatcher.dispatch(request, returnType);
+        }
+
+        deposit();
+
+        LatencyHistogram latency = delayMillis > 0 ? null : latency(request.message().getMethodName());
+        long delay = latency == null ? delayMillis : latency.valueMillis();
+
+        long startNanos = System.nanoTime();
+        InvokeFuture<T> future = dispatcher.dispatch(request, returnType);
+
+        // 本地短路调用 (非DefaultInvokeFuture) 或者还在学习阶段, 只记录耗时
+        if (delay <= 0 || !(future instanceof DefaultInvokeFuture)) {
+            if (latency != null) {
+                record(future, latency, startNanos);
+            }
+            return future;
+        }
+
+        HedgedCall<T> call = new HedgedCall<>(request, returnType, latency, ((DefaultInvokeFuture<T>) future).channel());
+        call.track(future, startNanos, false);
+
+        HedgingInvokeFuture<T> hedgingFuture = call.future;
+        if (!hedgingFuture.isDone()) {
+            Timeout timeout = timer.newTimeout(t -> call.hedge(), delay, TimeUnit.MILLISECONDS);
+            hedgingFuture.whenComplete((result, throwable) -> timeout.cancel());
+        }
+        return hedgingFuture;
+    }
+
+    private LatencyHistogram latency(String methodName) {
+        LatencyHistogram latency = latencies.get(methodName);
+        if (latency == null) {
+            LatencyHistogram newLatency = new LatencyHistogram(LATENCY_PERCENTILE);
+            latency = latencies.putIfAbsent(methodName, newLatency);
+            if (latency == null) {
+                latency = newLatency;
+            }
+        }
+        return latency;
+    }
+
+    private static void record(InvokeFuture<?> future, LatencyHistogram latency, long startNanos) {
+        future.whenComplete((result, throwable) -> {
+            // 失败的调用往往很快, 不计入
+            if (throwable == null) {
+                latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+        });
+    }
+
+    private void deposit() {
+        if (budget.get() < FULL_BUDGET) {
+            budget.addAndGet(budgetPercent);
+        }
+    }
+
+    private boolean tryWithdraw() {
+        for (;;) {
+            long b = budget.get();
+            if (b < 100) {
+                return false;
+            }
+            if (budget.compareAndSet(b, b - 100)) {
+                return true;
+            }
+        }
+    }
+
+    private void refund() {
+        budget.addAndGet(100);
+    }
+
+    private final class HedgedCall<T> {
+
+        final JRequest request;
+        final Class<T> returnType;
+        final LatencyHistogram latency;
+        final JChannel primaryChannel;
+        final HedgingInvokeFuture<T> future;
+        final AtomicInteger pending = new AtomicInteger(1);
+
+        volatile Throwable lastCause;
+
+        HedgedCall(JRequest request, Class<T> returnType, LatencyHistogram latency, JChannel primaryChannel) {
+            this.request = request;
+            this.returnType = returnType;
+            this.latency = latency;
+            this.primaryChannel = primaryChannel;
+            this.future = HedgingInvokeFuture.with(returnType);
+        }
+
+        void track(InvokeFuture<T> attempt, long startNanos, boolean hedged) {
+            attempt.whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    if (latency != null) {
+                        latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    }
+                    if (future.complete(result) && hedged) {
+                        MetricsHolder.wonMeter.mark();
+                    }
+                } else {
+                    attemptFailed(throwable);
+                }
+            });
+        }
+
+        // 在时间轮线程中执行
+        void hedge() {
+            if (future.isDone()) {
+                return;
+            }
+            if (!tryWithdraw()) {
+                MetricsHolder.budgetExhaustedMeter.mark();
+                return;
+            }
+
+            pending.incrementAndGet();
+
+            // 对冲请求使用新的invokeId, 与原始请求各自注册future, 互不覆盖
+            JRequest hedgedRequest = new JRequest();
+            hedgedRequest.payload().flags(request.payload().flags());
+            hedgedRequest.message(request.message());
+
+            InvokeFuture<T> attempt = null;
+            Throwable cause = null;
+            long startNanos = System.nanoTime();
+            try {
+                attempt = dispatcher.dispatchHedged(hedgedRequest, returnType, primaryChannel);
+            } catch (Throwable t) {
+                cause = t;
+                if (logger.isWarnEnabled()) {
+                    logger.warn("[Hedging] dispatch failed, [method: {}], [metadata: {}], {}.",
+                            request.message().getMethodName(),
+                            request.message().getMetadata(),
+                            StackTraceUtil.stackTrace(t));
+                }
+            }
+
+            if (attempt == null) {
+                // 没有其它可用的服务节点
+                refund();
+                attemptFailed(cause);
+                return;
+            }
+
+            MetricsHolder.sentMeter.mark();
+            track(attempt, startNanos, true);
+        }
+
+        // 所有发出的请求都失败时, 以最后一个失败原因结束
+        void attemptFailed(Throwable cause) {
+            if (cause != null) {
+                lastCause = cause;
+            }
+            if (pending.decrementAndGet() == 0) {
+                future.completeExceptionally(lastCause);
+            }
+        }
+    }
+
+    // - Metrics -------------------------------------------------------------------------------------------------------
+    static class MetricsHolder {
+        // 发出的对冲请求数统计
+        static final Meter sentMeter                = Metrics.meter("hedging_sent");
+        // 对冲请求先于原始请求成功的次数统计
+        static final Meter wonMeter                 = Metrics.meter("hedging_won");
+        // 因为超出预算而没有发出的对冲请求数统计
+        static final Meter budgetExhaustedMeter     = Metrics.meter("hedging_budget_exhausted");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.cluster;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 以毫秒为单位的调用耗时直方图, 用来估计某个分位数的耗时.
+ *
+ * 0~15ms每毫秒一个桶, 之后每个2的幂区间再均分为8个桶 (相对误差不超过12.5%), 每记录 {@link #RECALC_INTERVAL}
+ * 个样本重新计算一次分位数, 同时把所有桶的计数减半, 让估计值跟随最近的流量变化.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.cluster
+ *
+ * @author jiachun.fjc
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int LINEAR_EXPONENT = 4;   // LINEAR_BUCKETS = 1 << LINEAR_EXPONENT
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int MAX_EXPONENT = 20;     // 超过2^20ms的都记在最后一个桶
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + ((MAX_EXPONENT - LINEAR_EXPONENT) << SUB_BUCKET_BITS);
+
+    static final int RECALC_INTERVAL = 256;         // 必须是2的幂
+
+    private final int percentile;
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKET_COUNT);
+    private final AtomicInteger samples = new AtomicInteger();
+
+    // 样本不足时为0
+    private volatile long valueMillis;
+
+    LatencyHistogram(int percentile) {
+        this.percentile = percentile;
+    }
+
+    void record(long millis) {
+        counts.incrementAndGet(indexOf(millis));
+        if ((samples.incrementAndGet() & (RECALC_INTERVAL - 1)) == 0) {
+            recalculate();
+        }
+    }
+
+    /**
+     * 分位数所在桶的上界, 宁可偏大也不要让对冲请求发得太早.
+     */
+    long valueMillis() {
+        return valueMillis;
+    }
+
+    private void recalculate() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        long threshold = (total * percentile + 99) / 100;
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            accumulated += counts.get(i);
+            if (accumulated >= threshold) {
+                valueMillis = upperBoundOf(i);
+                break;
+            }
+        }
+        // 衰减, 与并发的record之间有竞争, 只影响精度
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.getAndUpdate(i, c -> c >>> 1);
+        }
+    }
+
+    static int indexOf(long millis) {
+        if (millis < LINEAR_BUCKETS) {
+            return millis < 0 ? 0 : (int) millis;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(millis);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (millis >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + ((exponent - LINEAR_EXPONENT) << SUB_BUCKET_BITS) + sub;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index + 1;
+        }
+        int i = index - LINEAR_BUCKETS;
+        int exponent = LINEAR_EXPONENT + (i >>> SUB_BUCKET_BITS);
+        int sub = i & ((1 << SUB_BUCKET_BITS) - 1);
+        return (long) ((1 << SUB_BUCKET_BITS) + sub + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -17,9 +17,12 @@ package org.jupiter.rpc.consumer.dispatcher;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.Requires;
 import org.jupiter.common.util.StackTraceUtil;
 import org.jupiter.common.util.SystemClock;
 import org.jupiter.common.util.internal.logging.InternalLogger;
@@ -31,19 +34,23 @@ import org.jupiter.rpc.JResponse;
 import org.jupiter.rpc.consumer.ConsumerInterceptor;
 import org.jupiter.rpc.consumer.future.DefaultInvokeFuture;
 import org.jupiter.rpc.exception.JupiterRemoteException;
+import org.jupiter.rpc.exception.JupiterSerializationException;
 import org.jupiter.rpc.load.balance.LoadBalancer;
 import org.jupiter.rpc.model.metadata.MessageWrapper;
 import org.jupiter.rpc.model.metadata.MethodSpecialConfig;
 import org.jupiter.rpc.model.metadata.ResultWrapper;
 import org.jupiter.rpc.model.metadata.ServiceMetadata;
+import org.jupiter.rpc.provider.processor.DefaultProviderProcessor;
 import org.jupiter.serialization.Serializer;
 import org.jupiter.serialization.SerializerFactory;
 import org.jupiter.serialization.SerializerType;
+import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.Status;
 import org.jupiter.transport.channel.CopyOnWriteGroupList;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.channel.JChannelGroup;
 import org.jupiter.transport.channel.JFutureListener;
+import org.jupiter.transport.exception.ChannelOverloadedException;
 import org.jupiter.transport.payload.JRequestPayload;
 
 /**
@@ -63,6 +70,11 @@ abstract class AbstractDispatcher implements Dispatcher {
     private long timeoutMillis = JConstants.DEFAULT_TIMEOUT;    // 调用超时时间设置
     // 针对指定方法单独设置的超时时间, 方法名为key, 方法参数类型不做区别对待
     private Map<String, Long> methodSpecialTimeoutMapping = Maps.newHashMap();
+    private boolean localInvoke;                                // 同一个JVM内短路调用
+    private boolean localCopyArgs;                              // 短路调用时是否拷贝参数和结果
+    private byte routeKey;                                      // 转发代理的路由键
+    // 输出缓冲区按操作(服务+方法)估算大小, 一个dispatcher只对应一个服务, 方法名为key
+    private final ConcurrentMap<String, String> operationKeys = Maps.newConcurrentMap();
 
     public AbstractDispatcher(JClient client, SerializerType serializerType) {
         this(client, null, serializerType);
@@ -111,6 +123,24 @@ abstract class AbstractDispatcher implements Dispatcher {
         return this;
     }
 
+    @Override
+    public Dispatcher localInvoke(boolean enabled, boolean copyArgs) {
+        this.localInvoke = enabled;
+        this.localCopyArgs = copyArgs;
+        return this;
+    }
+
+    @Override
+    public Dispatcher routeKey(int routeKey) {
+        Requires.requireTrue(routeKey >= 0 && routeKey <= 0xff, "illegal route key: " + routeKey);
+        this.routeKey = (byte) routeKey;
+        return this;
+    }
+
+    protected boolean isLocalInvoke() {
+        return localInvoke;
+    }
+
     protected long getMethodSpecialTimeoutMillis(String methodName) {
         Long methodTimeoutMillis = methodSpecialTimeoutMapping.get(methodName);
         if (methodTimeoutMillis != null && methodTimeoutMillis > 0) {
@@ -119,6 +149,18 @@ abstract class AbstractDispatcher implements Dispatcher {
         return timeoutMillis;
     }
 
+    protected Object operationKey(ServiceMetadata metadata, String methodName) {
+        String key = operationKeys.get(methodName);
+        if (key == null) {
+            String newKey = metadata.directoryString() + '#' + methodName;
+            key = operationKeys.putIfAbsent(methodName, newKey);
+            if (key == null) {
+                key = newKey;
+            }
+        }
+        return key;
+    }
+
     protected JChannel select(ServiceMetadata metadata) {
         CopyOnWriteGroupList groups = client
                 .connector()
@@ -158,6 +200,47 @@ abstract class AbstractDispatcher implements Dispatcher {
         throw new IllegalStateException("No channel");
     }
 
+    /**
+     * 优先交给负载均衡选择, 选中的group包含 {@code excluded} 时从随机位置开始找第一个可用的其它group,
+     * 找不到返回 {@code null}.
+     */
+    protected JChannel selectExcluding(ServiceMetadata metadata, JChannel excluded) {
+        CopyOnWriteGroupList groups = client
+                .connector()
+                .directory(metadata);
+        JChannelGroup group = loadBalancer.select(groups, metadata);
+
+        if (group != null && group.isAvailable() && !group.channels().contains(excluded)) {
+            return group.next();
+        }
+
+        JChannelGroup[] snapshot = groups.getSnapshot();
+        int length = snapshot.length;
+        if (length > 1) {
+            int offset = ThreadLocalRandom.current().nextInt(length);
+            for (int i = 0; i < length; i++) {
+                JChannelGroup g = snapshot[(offset + i) % length];
+                if (g.isAvailable() && !g.channels().contains(excluded)) {
+                    return g.next();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写缓冲积压超过上限或者在途窗口连同排队都已经满了.
+     */
+    protected static boolean isOverloaded(JChannel channel) {
+        return channel.isOverloaded() || InFlightWindow.isSaturated(channel);
+    }
+
+    protected static ChannelOverloadedException overloaded(JChannel channel) {
+        return new ChannelOverloadedException(
+                "pending write bytes: " + channel.pendingWriteBytes()
+                        + ", in-flight requests: " + channel.inFlightRequests() + ", channel: " + channel);
+    }
+
     protected JChannelGroup[] groups(ServiceMetadata metadata) {
         return client.connector()
                 .directory(metadata)
@@ -170,9 +253,34 @@ abstract class AbstractDispatcher implements Dispatcher {
         final MessageWrapper message = request.message();
         final long timeoutMillis = getMethodSpecialTimeoutMillis(message.getMethodName());
         final ConsumerInterceptor[] interceptors = interceptors();
-        final DefaultInvokeFuture<T> future = DefaultInvokeFuture
-                .with(request.invokeId(), channel, timeoutMillis, returnType, dispatchType)
-                .interceptors(interceptors);
+        final JRequestPayload payload = request.payload();
+
+        if (payload.hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            if (channel.protocolVersion() >= JProtocolHeader.VERSION_2) {
+                return writeOneWay(channel, request, returnType, dispatchType, interceptors);
+            }
+            // v1的对端不认识帧标志位, 退化为普通调用
+            payload.flags((byte) (payload.flags() & ~JProtocolHeader.FLAG_ONE_WAY));
+        }
+
+        if (channel.protocolVersion() >= JProtocolHeader.VERSION_2) {
+            if (routeKey != 0) {
+                payload.routeKey(routeKey);
+            }
+            // 超时时间随请求传给provider, 超时后provider不再处理; 写出前可能还要排队, 所以这里只记录截止时间
+            payload.deadlineMillis(SystemClock.millisClock().now() + timeoutMillis);
+        }
+
+        final DefaultInvokeFuture<T> future;
+        if (payload.hasFlag(JProtocolHeader.FLAG_STREAMING)) {
+            future = DefaultInvokeFuture
+                    .withStreaming(request.invokeId(), channel, timeoutMillis, returnType)
+                    .interceptors(interceptors);
+        } else {
+            future = DefaultInvokeFuture
+                    .with(request.invokeId(), channel, timeoutMillis, returnType, dispatchType)
+                    .interceptors(interceptors);
+        }
 
         if (interceptors != null) {
             for (int i = 0; i < interceptors.length; i++) {
@@ -180,9 +288,7 @@ abstract class AbstractDispatcher implements Dispatcher {
             }
         }
 
-        final JRequestPayload payload = request.payload();
-
-        channel.write(payload, new JFutureListener<JChannel>() {
+        JFutureListener<JChannel> listener = new JFutureListener<JChannel>() {
 
             @Override
             public void operationSuccess(JChannel channel) throws Exception {
@@ -213,8 +319,113 @@ abstract class AbstractDispatcher implements Dispatcher {
 
                 DefaultInvokeFuture.fakeReceived(channel, response, dispatchType);
             }
+        };
+
+        InFlightWindow window = InFlightWindow.of(channel);
+        if (window == null) {
+            channel.write(payload, listener);
+        } else {
+            // 超出在途窗口的请求在本地排队
+            window.write(payload, listener, future);
+        }
+
+        return future;
+    }
+
+    /**
+     * 单向调用: 不注册 {@link DefaultInvokeFuture}, 不做超时检测, 也不会有响应, 所以拦截器只有
+     * {@link ConsumerInterceptor#beforeInvoke} 会被调用.
+     */
+    private <T> DefaultInvokeFuture<T> writeOneWay(
+            final JChannel channel,
+            final JRequest request,
+            final Class<T> returnType,
+            final DispatchType dispatchType,
+            final ConsumerInterceptor[] interceptors) {
+
+        if (interceptors != null) {
+            for (int i = 0; i < interceptors.length; i++) {
+                interceptors[i].beforeInvoke(request, channel);
+            }
+        }
+
+        final JRequestPayload payload = request.payload();
+
+        channel.write(payload, new JFutureListener<JChannel>() {
+
+            @Override
+            public void operationSuccess(JChannel channel) throws Exception {
+                if (dispatchType == DispatchType.ROUND) {
+                    payload.clear();
+                }
+            }
+
+            @Override
+            public void operationFailure(JChannel channel, Throwable cause) throws Exception {
+                if (dispatchType == DispatchType.ROUND) {
+                    payload.clear();
+                }
+
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Writes one-way {} fail on {}, {}.", request, channel, StackTraceUtil.stackTrace(cause));
+                }
+            }
+        });
+
+        return DefaultInvokeFuture.withOneWay(request.invokeId(), channel, returnType);
+    }
+
+    /**
+     * 同一个JVM内的短路调用: 不序列化也不经过网络, 直接交给本地provider的过滤器链执行,
+     * 流量控制/拦截器/metrics与远程调用一致, 超时也同样由 {@link DefaultInvokeFuture} 负责.
+     */
+    protected <T> DefaultInvokeFuture<T> writeLocal(
+            final DefaultProviderProcessor processor, final JRequest request, final Class<T> returnType) {
+        final MessageWrapper message = request.message();
+        final long timeoutMillis = getMethodSpecialTimeoutMillis(message.getMethodName());
+        final ConsumerInterceptor[] interceptors = interceptors();
+        final JChannel channel = LocalChannel.INSTANCE;
+        final JRequestPayload payload = request.payload();
+
+        // provider看到的是一个新的请求对象, 与consumer隔离
+        JRequest localRequest = new JRequest(new JRequestPayload(request.invokeId()));
+        localRequest.payload().flags(payload.flags());
+        localRequest.message(localCopyArgs ? copy(message, MessageWrapper.class) : message);
+
+        if (interceptors != null) {
+            for (int i = 0; i < interceptors.length; i++) {
+                interceptors[i].beforeInvoke(request, channel);
+            }
+        }
+
+        if (payload.hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            processor.handleLocalRequest(localRequest, null);
+            return DefaultInvokeFuture.withOneWay(request.invokeId(), channel, returnType);
+        }
+
+        final DefaultInvokeFuture<T> future = DefaultInvokeFuture
+                .with(request.invokeId(), channel, timeoutMillis, returnType, DispatchType.ROUND)
+                .interceptors(interceptors);
+        future.markSent();
+
+        processor.handleLocalRequest(localRequest, response -> {
+            if (localCopyArgs && response.status() == Status.OK.value()) {
+                try {
+                    response.result(copy(response.result(), ResultWrapper.class));
+                } catch (Throwable t) {
+                    ResultWrapper result = new ResultWrapper();
+                    result.setError(new JupiterSerializationException(t));
+                    response.status(Status.DESERIALIZATION_FAIL);
+                    response.result(result);
+                }
+            }
+            DefaultInvokeFuture.received(channel, response);
         });
 
         return future;
     }
+
+    private <O> O copy(O obj, Class<O> clazz) {
+        return serializerImpl.readObject(serializerImpl.writeObject(obj), clazz);
+    }
 }
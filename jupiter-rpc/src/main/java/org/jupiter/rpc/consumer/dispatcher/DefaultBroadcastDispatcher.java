@@ -64,12 +64,18 @@ public class DefaultBroadcastDispatcher extends AbstractDispatcher {
             request.bytes(s_code, bytes);
         }
 
+        Object operation = isLowCopy ? operationKey(message.getMetadata(), message.getMethodName()) : null;
+
         DefaultInvokeFuture<T>[] futures = new DefaultInvokeFuture[channels.length];
         for (int i = 0; i < channels.length; i++) {
             JChannel channel = channels[i];
+            if (isOverloaded(channel)) {
+                futures[i] = DefaultInvokeFuture.withFailure(request.invokeId(), channel, returnType, overloaded(channel));
+                continue;
+            }
             if (isLowCopy) {
                 OutputBuf outputBuf =
-                        _serializer.writeObject(channel.allocOutputBuf(), message);
+                        _serializer.writeObject(channel.allocOutputBuf(operation), message);
                 request.outputBuf(s_code, outputBuf);
             }
             futures[i] = write(channel, request, returnType, DispatchType.BROADCAST);
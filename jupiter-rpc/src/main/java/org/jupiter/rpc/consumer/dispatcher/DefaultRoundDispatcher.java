@@ -21,10 +21,13 @@ import org.jupiter.rpc.JRequest;
 import org.jupiter.rpc.consumer.future.InvokeFuture;
 import org.jupiter.rpc.load.balance.LoadBalancer;
 import org.jupiter.rpc.model.metadata.MessageWrapper;
+import org.jupiter.rpc.provider.processor.DefaultProviderProcessor;
+import org.jupiter.rpc.provider.processor.LocalProviders;
 import org.jupiter.serialization.Serializer;
 import org.jupiter.serialization.SerializerType;
 import org.jupiter.serialization.io.OutputBuf;
 import org.jupiter.transport.CodecConfig;
+import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.channel.JChannel;
 
 /**
@@ -48,14 +51,53 @@ public class DefaultRoundDispatcher extends AbstractDispatcher {
         final Serializer _serializer = serializer();
         final MessageWrapper message = request.message();
 
+        // 同一个JVM内有provider时短路调用, 流式调用依赖数据帧, 仍然走网络
+        if (isLocalInvoke() && !request.payload().hasFlag(JProtocolHeader.FLAG_STREAMING)) {
+            DefaultProviderProcessor localProcessor = LocalProviders.lookup(message.getMetadata());
+            if (localProcessor != null) {
+                return writeLocal(localProcessor, request, returnType);
+            }
+        }
+
         // 通过软负载均衡选择一个channel
         JChannel channel = select(message.getMetadata());
 
+        return dispatch(channel, _serializer, request, returnType);
+    }
+
+    /**
+     * 对冲请求 (见 {@link org.jupiter.rpc.consumer.cluster.HedgingClusterInvoker}), 避开 {@code excluded}
+     * 所在的channel group, 没有其它可用的group时返回 {@code null}.
+     */
+    public <T> InvokeFuture<T> dispatchHedged(JRequest request, Class<T> returnType, JChannel excluded) {
+        JChannel channel = selectExcluding(request.message().getMetadata(), excluded);
+        if (channel == null) {
+            return null;
+        }
+        return dispatch(channel, serializer(), request, returnType);
+    }
+
+    private <T> InvokeFuture<T> dispatch(
+            JChannel channel, Serializer _serializer, JRequest request, Class<T> returnType) {
+        final MessageWrapper message = request.message();
+
+        // 流式调用的数据帧依赖协议v2的帧标志位
+        if (request.payload().hasFlag(JProtocolHeader.FLAG_STREAMING)
+                && channel.protocolVersion() < JProtocolHeader.VERSION_2) {
+            throw new UnsupportedOperationException("streaming requires protocol v2, channel: " + channel);
+        }
+
+        // 写缓冲积压或者在途窗口已满, 快速失败, 不再序列化
+        if (isOverloaded(channel)) {
+            throw overloaded(channel);
+        }
+
         byte s_code = _serializer.code();
         // 在业务线程中序列化, 减轻IO线程负担
         if (CodecConfig.isCodecLowCopy()) {
+            Object operation = operationKey(message.getMetadata(), message.getMethodName());
             OutputBuf outputBuf =
-                    _serializer.writeObject(channel.allocOutputBuf(), message);
+                    _serializer.writeObject(channel.allocOutputBuf(operation), message);
             request.outputBuf(s_code, outputBuf);
         } else {
             byte[] bytes = _serializer.writeObject(message);
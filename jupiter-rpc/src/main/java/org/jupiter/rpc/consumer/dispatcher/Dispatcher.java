@@ -37,4 +37,17 @@ public interface Dispatcher {
     Dispatcher timeoutMillis(long timeoutMillis);
 
     Dispatcher methodSpecialConfigs(List<MethodSpecialConfig> methodSpecialConfigs);
+
+    /**
+     * 同一个JVM内有对应的provider时直接调用, 不经过序列化和网络.
+     *
+     * @param copyArgs 是否对参数和结果做防御性拷贝(序列化/反序列化一次), 否则provider与consumer共享对象
+     */
+    Dispatcher localInvoke(boolean enabled, boolean copyArgs);
+
+    /**
+     * 经过转发代理调用时, 代理根据路由键(1 ~ 255)选择后端, 不需要反序列化消息体, 0表示不设置.
+     * 只在协商到协议v2的连接上生效.
+     */
+    Dispatcher routeKey(int routeKey);
 }
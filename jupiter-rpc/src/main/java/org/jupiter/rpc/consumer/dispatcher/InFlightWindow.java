@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.dispatcher;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.rpc.metric.Metrics;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JChannelGroup;
+import org.jupiter.transport.channel.JFutureListener;
+import org.jupiter.transport.exception.ChannelOverloadedException;
+import org.jupiter.transport.payload.PayloadHolder;
+
+/**
+ * 每个channel上同时在途(已发出还没有收到响应)的请求数窗口.
+ *
+ * 超出窗口的请求先在本地排队, 等前面的请求完成(收到响应/超时/写失败)后再写出, 排队的请求同样受调用超时的
+ * 约束, 超时前没有写出的请求以 {@link org.jupiter.transport.Status#CLIENT_TIMEOUT} 结束; 队列也满了就直接拒绝.
+ * 这样consumer在provider变慢时把压力留在本地, 而不是把请求全部推过去, 撑满provider的线程池之后再被
+ * {@link org.jupiter.transport.Status#SERVER_BUSY} 拒绝.
+ *
+ * 默认关闭, 通过 {@code jupiter.rpc.in_flight.max_per_channel} 开启. 开启后所有channel当前的在途/排队请求数
+ * 以gauge的形式注册到 {@link Metrics}, 单个channel或者group的可以通过 {@link #inFlight(JChannel)} 等方法获取.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.dispatcher
+ *
+ * @author jiachun.fjc
+ */
+public final class InFlightWindow {
+
+    // 每个channel的在途请求数上限, 小于等于0表示不限制
+    private static final int MAX_IN_FLIGHT = SystemPropertyUtil.getInt("jupiter.rpc.in_flight.max_per_channel", 0);
+    // 超出窗口后每个channel最多排队的请求数, 0表示不排队直接拒绝
+    private static final int MAX_QUEUED = SystemPropertyUtil.getInt("jupiter.rpc.in_flight.max_queued", 1024);
+
+    private static final ConcurrentMap<String, InFlightWindow> windows = Maps.newConcurrentMap();
+
+    static {
+        if (isEnabled()) {
+            MetricRegistry registry = Metrics.metricRegistry();
+            registry.register("in_flight_requests", (Gauge<Integer>) InFlightWindow::totalInFlight);
+            registry.register("in_flight_queued_requests", (Gauge<Integer>) InFlightWindow::totalQueued);
+        }
+    }
+
+    private final JChannel channel;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 只计还在排队的请求, 排队期间超时的请求立即从中扣除
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+
+    InFlightWindow(JChannel channel, int maxInFlight, int maxQueued) {
+        this.channel = channel;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    static boolean isEnabled() {
+        return MAX_IN_FLIGHT > 0;
+    }
+
+    /**
+     * 没有开启时返回 null.
+     */
+    static InFlightWindow of(JChannel channel) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        String id = channel.id();
+        InFlightWindow window = windows.get(id);
+        if (window == null) {
+            InFlightWindow newWindow = new InFlightWindow(channel, MAX_IN_FLIGHT, MAX_QUEUED);
+            window = windows.putIfAbsent(id, newWindow);
+            if (window == null) {
+                window = newWindow;
+                // 关闭时没有在途请求的channel不会再走到release, 在新channel建立(通常就是重连)时顺便清理
+                removeClosedWindows();
+            }
+        }
+        return window;
+    }
+
+    private static void removeClosedWindows() {
+        for (InFlightWindow w : windows.values()) {
+            if (!w.channel.isActive() && w.inFlight.get() == 0 && w.queued.get() == 0) {
+                windows.remove(w.channel.id(), w);
+            }
+        }
+    }
+
+    /**
+     * 窗口和队列都满了, dispatcher据此在序列化之前快速失败.
+     */
+    static boolean isSaturated(JChannel channel) {
+        if (!isEnabled()) {
+            return false;
+        }
+        InFlightWindow window = windows.get(channel.id());
+        return window != null && window.isSaturated();
+    }
+
+    /**
+     * channel上当前的在途请求数, 没有开启时返回0.
+     */
+    public static int inFlight(JChannel channel) {
+        InFlightWindow window = isEnabled() ? windows.get(channel.id()) : null;
+        return window == null ? 0 : window.inFlight();
+    }
+
+    /**
+     * channel上当前排队等待写出的请求数, 没有开启时返回0.
+     */
+    public static int queued(JChannel channel) {
+        InFlightWindow window = isEnabled() ? windows.get(channel.id()) : null;
+        return window == null ? 0 : window.queued();
+    }
+
+    /**
+     * group中所有channel当前的在途请求数之和.
+     */
+    public static int inFlight(JChannelGroup group) {
+        int sum = 0;
+        for (JChannel channel : group.channels()) {
+            sum += inFlight(channel);
+        }
+        return sum;
+    }
+
+    /**
+     * group中所有channel当前排队的请求数之和.
+     */
+    public static int queued(JChannelGroup group) {
+        int sum = 0;
+        for (JChannel channel : group.channels()) {
+            sum += queued(channel);
+        }
+        return sum;
+    }
+
+    private static int totalInFlight() {
+        int sum = 0;
+        for (InFlightWindow window : windows.values()) {
+            sum += window.inFlight();
+        }
+        return sum;
+    }
+
+    private static int totalQueued() {
+        int sum = 0;
+        for (InFlightWindow window : windows.values()) {
+            sum += window.queued();
+        }
+        return sum;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    boolean isSaturated() {
+        return inFlight.get() >= maxInFlight && queued.get() >= maxQueued;
+    }
+
+    /**
+     * 窗口内直接写出, 否则排队, 队列满了交给 {@code listener} 的失败分支处理.
+     *
+     * {@code future} 完成时归还窗口.
+     */
+    void write(Object msg, JFutureListener<JChannel> listener, CompletableFuture<?> future) {
+        Entry entry = new Entry(this, msg, listener);
+
+        // 有请求在排队时不插队
+        if (queued.get() == 0 && tryAcquire()) {
+            entry.state = Entry.ST_SENT;
+            future.whenComplete(entry);
+            channel.write(msg, listener);
+            return;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            MetricsHolder.rejectionMeter.mark();
+            reject(entry);
+            return;
+        }
+
+        MetricsHolder.queuedMeter.mark();
+        future.whenComplete(entry);
+        queue.offer(entry);
+        // 入队之前窗口可能已经全部归还了
+        drain();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+
+        if (!channel.isActive() && inFlight.get() == 0 && queued.get() == 0) {
+            windows.remove(channel.id(), this);
+        }
+    }
+
+    private void drain() {
+        while (queued.get() > 0 && tryAcquire()) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+
+            if (Entry.stateUpdater.compareAndSet(entry, Entry.ST_QUEUED, Entry.ST_SENT)) {
+                queued.decrementAndGet();
+                channel.write(entry.msg, entry.listener);
+            } else {
+                // 排队期间已经超时, 计数和缓冲区已经在cancel时处理过了, 只需要归还窗口
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void cancel(Entry entry) {
+        queued.decrementAndGet();
+        queue.remove(entry);
+        MetricsHolder.expiredMeter.mark();
+        releaseMessage(entry);
+
+        if (!channel.isActive() && inFlight.get() == 0 && queued.get() == 0) {
+            windows.remove(channel.id(), this);
+        }
+    }
+
+    private void reject(Entry entry) {
+        // listener的失败分支只会clear, 不会释放序列化时分配的缓冲区
+        releaseMessage(entry);
+        try {
+            entry.listener.operationFailure(channel, new ChannelOverloadedException(
+                    "in-flight window is full, in-flight: " + inFlight.get() + ", queued: " + queued.get()
+                            + ", channel: " + channel));
+        } catch (Throwable ignored) {
+            // listener自己会打印日志
+        }
+    }
+
+    private static void releaseMessage(Entry entry) {
+        if (entry.msg instanceof PayloadHolder) {
+            ((PayloadHolder) entry.msg).releaseOutputBuf();
+        }
+    }
+
+    private static final class Entry implements BiConsumer<Object, Throwable> {
+
+        static final int ST_QUEUED = 0;
+        static final int ST_SENT = 1;
+        static final int ST_CANCELLED = 2;
+
+        static final AtomicIntegerFieldUpdater<Entry> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        final InFlightWindow window;
+        final Object msg;
+        final JFutureListener<JChannel> listener;
+
+        volatile int state = ST_QUEUED;
+
+        Entry(InFlightWindow window, Object msg, JFutureListener<JChannel> listener) {
+            this.window = window;
+            this.msg = msg;
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(Object result, Throwable cause) {
+            if (stateUpdater.compareAndSet(this, ST_QUEUED, ST_CANCELLED)) {
+                // 还在排队, 没有占用窗口, 立即移出队列并释放缓冲区, 不占用排队的名额
+                window.cancel(this);
+                return;
+            }
+            window.release();
+        }
+    }
+
+    // - Metrics -------------------------------------------------------------------------------------------------------
+    static class MetricsHolder {
+        // 超出窗口而排队的请求数统计
+        static final Meter queuedMeter      = Metrics.meter("in_flight_queued");
+        // 队列也满了而被拒绝的请求数统计
+        static final Meter rejectionMeter   = Metrics.meter("in_flight_rejection");
+        // 排队期间就已经超时的请求数统计
+        static final Meter expiredMeter     = Metrics.meter("in_flight_expired");
+    }
+}
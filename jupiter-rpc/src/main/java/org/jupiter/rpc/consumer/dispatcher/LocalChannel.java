@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.dispatcher;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.jupiter.serialization.io.OutputBuf;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JFutureListener;
+
+/**
+ * 同一个JVM内短路调用时使用的 {@link JChannel}, 没有真正的连接, 只是为了让
+ * {@link org.jupiter.rpc.consumer.future.DefaultInvokeFuture} 以及consumer拦截器
+ * 可以与远程调用同样对待, 任何写操作都是不支持的.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.dispatcher
+ *
+ * @author jiachun.fjc
+ */
+final class LocalChannel implements JChannel {
+
+    static final LocalChannel INSTANCE = new LocalChannel();
+
+    private static final SocketAddress LOCAL_ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private static final AtomicIntegerFieldUpdater<LocalChannel> inFlightRequestsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "inFlightRequests");
+
+    @SuppressWarnings("unused")
+    private volatile int inFlightRequests = 0;
+
+    private LocalChannel() {}
+
+    @Override
+    public String id() {
+        return "local";
+    }
+
+    @Override
+    public boolean isActive() {
+        return true;
+    }
+
+    @Override
+    public boolean inIoThread() {
+        return false;
+    }
+
+    @Override
+    public SocketAddress localAddress() {
+        return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public SocketAddress remoteAddress() {
+        return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutNanos) {
+        return true;
+    }
+
+    @Override
+    public long pendingWriteBytes() {
+        return 0;
+    }
+
+    @Override
+    public boolean isOverloaded() {
+        return false;
+    }
+
+    @Override
+    public int inFlightRequests() {
+        return inFlightRequests;
+    }
+
+    @Override
+    public void incrementInFlight() {
+        inFlightRequestsUpdater.incrementAndGet(this);
+    }
+
+    @Override
+    public void decrementInFlight() {
+        inFlightRequestsUpdater.decrementAndGet(this);
+    }
+
+    @Override
+    public void recordLatency(long latencyNanos) {
+        // 短路调用不经过负载均衡
+    }
+
+    @Override
+    public long latencyEwmaNanos() {
+        return 0;
+    }
+
+    @Override
+    public boolean isMarkedReconnect() {
+        return false;
+    }
+
+    @Override
+    public boolean isAutoRead() {
+        return true;
+    }
+
+    @Override
+    public void setAutoRead(boolean autoRead) {}
+
+    @Override
+    public JChannel close() {
+        return this;
+    }
+
+    @Override
+    public JChannel close(JFutureListener<JChannel> listener) {
+        return this;
+    }
+
+    @Override
+    public byte protocolVersion() {
+        return JProtocolHeader.VERSION_2;
+    }
+
+    @Override
+    public boolean isWriteBatchEnabled() {
+        return false;
+    }
+
+    @Override
+    public JChannel write(Object msg) {
+        throw new UnsupportedOperationException("local channel");
+    }
+
+    @Override
+    public JChannel write(Object msg, JFutureListener<JChannel> listener) {
+        throw new UnsupportedOperationException("local channel");
+    }
+
+    @Override
+    public void addTask(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public OutputBuf allocOutputBuf() {
+        throw new UnsupportedOperationException("local channel");
+    }
+
+    @Override
+    public OutputBuf allocOutputBuf(Object operation) {
+        throw new UnsupportedOperationException("local channel");
+    }
+
+    @Override
+    public String toString() {
+        return "LocalChannel";
+    }
+}
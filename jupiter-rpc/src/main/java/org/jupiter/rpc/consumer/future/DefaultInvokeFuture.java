@@ -16,13 +16,12 @@
 package org.jupiter.rpc.consumer.future;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.jupiter.common.concurrent.NamedThreadFactory;
 import org.jupiter.common.util.JConstants;
-import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.Pow2;
 import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.common.util.internal.logging.InternalLogger;
 import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
@@ -57,70 +56,157 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
     private static final long TIMEOUT_SCANNER_INTERVAL_MILLIS =
             SystemPropertyUtil.getLong("jupiter.rpc.invoke.timeout_scanner_interval_millis", 50);
 
-    private static final ConcurrentMap<Long, DefaultInvokeFuture<?>> roundFutures =
-            Maps.newConcurrentMapLong(FUTURES_CONTAINER_INITIAL_CAPACITY);
-    private static final ConcurrentMap<String, DefaultInvokeFuture<?>> broadcastFutures =
-            Maps.newConcurrentMap(FUTURES_CONTAINER_INITIAL_CAPACITY);
+    private static final int FUTURES_CONTAINER_SEGMENTS =
+            SystemPropertyUtil.getInt("jupiter.rpc.invoke.futures_container_segments", JConstants.AVAILABLE_PROCESSORS << 2);
 
-    private static final HashedWheelTimer timeoutScanner =
-            new HashedWheelTimer(
+    // 在途调用, round和broadcast共用, 以invokeId为key分段, 广播调用再以channel区分
+    private static final InFlightFutures inFlightFutures =
+            new InFlightFutures(FUTURES_CONTAINER_SEGMENTS, FUTURES_CONTAINER_INITIAL_CAPACITY);
+
+    // 超时检测的时间轮个数, 以invokeId选择, 每个时间轮一个线程
+    private static final int TIMEOUT_SCANNER_COUNT = Pow2.roundToPowerOfTwo(Math.max(1,
+            SystemPropertyUtil.getInt("jupiter.rpc.invoke.timeout_scanner_count", JConstants.AVAILABLE_PROCESSORS >> 3)));
+
+    private static final HashedWheelTimer[] timeoutScanners = new HashedWheelTimer[TIMEOUT_SCANNER_COUNT];
+
+    static {
+        for (int i = 0; i < TIMEOUT_SCANNER_COUNT; i++) {
+            timeoutScanners[i] = new HashedWheelTimer(
                     new NamedThreadFactory("futures.timeout.scanner", true),
                     TIMEOUT_SCANNER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS,
                     4096
             );
+        }
+    }
 
     private final long invokeId; // request.invokeId, 广播的场景可以重复
     private final JChannel channel;
     private final Class<V> returnType;
     private final long timeout;
     private final long startTime = System.nanoTime();
+    private final InvokeStream<?> stream; // 非流式调用为null
+    private final boolean broadcast;
+
+    // 同一个广播调用的其他future, 由InFlightFutures加锁访问
+    DefaultInvokeFuture<?> next;
 
     private volatile boolean sent = false;
+    // 收到响应后取消, 避免时间轮中堆积已经完成的调用的超时任务
+    private volatile Timeout timeoutHandle;
 
     private ConsumerInterceptor[] interceptors;
 
     public static <T> DefaultInvokeFuture<T> with(
             long invokeId, JChannel channel, long timeoutMillis, Class<T> returnType, DispatchType dispatchType) {
 
-        return new DefaultInvokeFuture<>(invokeId, channel, timeoutMillis, returnType, dispatchType);
+        return new DefaultInvokeFuture<>(invokeId, channel, timeoutMillis, returnType, dispatchType, false);
+    }
+
+    /**
+     * 服务端流式调用, 超时时间 {@code timeoutMillis} 表示两个数据帧之间的最大间隔.
+     */
+    public static <T> DefaultInvokeFuture<T> withStreaming(
+            long invokeId, JChannel channel, long timeoutMillis, Class<T> returnType) {
+
+        return new DefaultInvokeFuture<>(invokeId, channel, timeoutMillis, returnType, DispatchType.ROUND, true);
+    }
+
+    /**
+     * 单向调用, 返回一个已经完成(结果为null)的future, 不注册也不做超时检测.
+     */
+    public static <T> DefaultInvokeFuture<T> withOneWay(long invokeId, JChannel channel, Class<T> returnType) {
+        DefaultInvokeFuture<T> future = new DefaultInvokeFuture<>(invokeId, channel, returnType, false);
+        future.complete(null);
+        return future;
+    }
+
+    /**
+     * 请求没有发出去就已经失败(比如channel的写缓冲积压过多), 返回一个异常完成的future, 不注册也不做超时检测.
+     */
+    public static <T> DefaultInvokeFuture<T> withFailure(
+            long invokeId, JChannel channel, Class<T> returnType, Throwable cause) {
+
+        DefaultInvokeFuture<T> future = new DefaultInvokeFuture<>(invokeId, channel, returnType, false);
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * 不注册也不做超时检测.
+     */
+    DefaultInvokeFuture(long invokeId, JChannel channel, Class<V> returnType, boolean broadcast) {
+        this.invokeId = invokeId;
+        this.channel = channel;
+        this.timeout = DEFAULT_TIMEOUT_NANOSECONDS;
+        this.returnType = returnType;
+        this.stream = null;
+        this.broadcast = broadcast;
     }
 
     private DefaultInvokeFuture(
-            long invokeId, JChannel channel, long timeoutMillis, Class<V> returnType, DispatchType dispatchType) {
+            long invokeId,
+            JChannel channel,
+            long timeoutMillis,
+            Class<V> returnType,
+            DispatchType dispatchType,
+            boolean streaming) {
 
         this.invokeId = invokeId;
         this.channel = channel;
         this.timeout = timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : DEFAULT_TIMEOUT_NANOSECONDS;
         this.returnType = returnType;
 
+        if (streaming) {
+            InvokeStream<?> s = new InvokeStream<>(channel);
+            whenComplete((r, t) -> s.onCompleted(t));
+            stream = s;
+        } else {
+            stream = null;
+        }
+
         TimeoutTask timeoutTask;
 
         switch (dispatchType) {
             case ROUND:
-                roundFutures.put(invokeId, this);
+                broadcast = false;
                 timeoutTask = new TimeoutTask(invokeId);
                 break;
             case BROADCAST:
-                String channelId = channel.id();
-                broadcastFutures.put(subInvokeId(channelId, invokeId), this);
-                timeoutTask = new TimeoutTask(channelId, invokeId);
+                broadcast = true;
+                timeoutTask = new TimeoutTask(channel, invokeId);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported " + dispatchType);
         }
 
-        timeoutScanner.newTimeout(timeoutTask, timeout, TimeUnit.NANOSECONDS);
+        inFlightFutures.put(this);
+
+        channel.incrementInFlight();
+
+        scheduleTimeout(timeoutTask, timeout);
+    }
+
+    public long invokeId() {
+        return invokeId;
     }
 
     public JChannel channel() {
         return channel;
     }
 
+    boolean isBroadcast() {
+        return broadcast;
+    }
+
     @Override
     public Class<V> returnType() {
         return returnType;
     }
 
+    public InvokeStream<?> stream() {
+        return stream;
+    }
+
     @Override
     public V getResult() throws Throwable {
         try {
@@ -146,8 +232,18 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
 
     @SuppressWarnings("all")
     private void doReceived(JResponse response) {
+        // 能走到这里说明已经从inFlightFutures中移除
+        channel.decrementInFlight();
+
         byte status = response.status();
 
+        // 写失败之类的本地错误返回得很快, 不能让它把耗时拉低, 引来更多的流量
+        if (stream == null && (status == Status.OK.value()
+                || status == Status.SERVICE_EXPECTED_ERROR.value()
+                || status == Status.SERVER_TIMEOUT.value())) {
+            channel.recordLatency(System.nanoTime() - startTime);
+        }
+
         if (status == Status.OK.value()) {
             ResultWrapper wrapper = response.result();
             complete((V) wrapper.getResult());
@@ -155,6 +251,12 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
             setException(status, response);
         }
 
+        // 必须在complete之后, 与scheduleTimeout配合保证两边至少有一边能看到对方
+        Timeout t = timeoutHandle;
+        if (t != null) {
+            t.cancel();
+        }
+
         ConsumerInterceptor[] interceptors = this.interceptors; // snapshot
         if (interceptors != null) {
             for (int i = interceptors.length - 1; i >= 0; i--) {
@@ -163,6 +265,16 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
         }
     }
 
+    private void scheduleTimeout(TimerTask task, long delayNanos) {
+        Timeout t = timeoutScanners[(int) invokeId & (TIMEOUT_SCANNER_COUNT - 1)]
+                .newTimeout(task, delayNanos, TimeUnit.NANOSECONDS);
+        timeoutHandle = t;
+        if (isDone()) {
+            // 响应在timeoutHandle赋值之前就已经到达
+            t.cancel();
+        }
+    }
+
     private void setException(byte status, JResponse response) {
         Throwable cause;
         if (status == Status.SERVER_TIMEOUT.value()) {
@@ -194,12 +306,7 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
     public static void received(JChannel channel, JResponse response) {
         long invokeId = response.id();
 
-        DefaultInvokeFuture<?> future = roundFutures.remove(invokeId);
-
-        if (future == null) {
-            // 广播场景下做出了一点让步, 多查询了一次roundFutures
-            future = broadcastFutures.remove(subInvokeId(channel.id(), invokeId));
-        }
+        DefaultInvokeFuture<?> future = inFlightFutures.remove(invokeId, channel);
 
         if (future == null) {
             logger.warn("A timeout response [{}] finally returned on {}.", response, channel);
@@ -209,16 +316,26 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
         future.doReceived(response);
     }
 
+    /**
+     * 服务端流式调用的数据帧, 在IO线程中直接调用以保证帧的顺序.
+     */
+    public static void streamReceived(JChannel channel, JResponse response) {
+        DefaultInvokeFuture<?> future = inFlightFutures.get(response.id());
+
+        if (future == null || future.stream == null) {
+            response.payload().releaseInputBuf();
+            logger.warn("A timeout stream item [{}] finally returned on {}.", response, channel);
+            return;
+        }
+
+        future.stream.onItem(response);
+    }
+
     public static void fakeReceived(JChannel channel, JResponse response, DispatchType dispatchType) {
         long invokeId = response.id();
 
-        DefaultInvokeFuture<?> future = null;
-
-        if (dispatchType == DispatchType.ROUND) {
-            future = roundFutures.remove(invokeId);
-        } else if (dispatchType == DispatchType.BROADCAST) {
-            future = broadcastFutures.remove(subInvokeId(channel.id(), invokeId));
-        }
+        // round/broadcast共用inFlightFutures, 广播调用以channel区分
+        DefaultInvokeFuture<?> future = inFlightFutures.remove(invokeId, channel);
 
         if (future == null) {
             return; // 正确结果在超时被处理之前返回
@@ -227,22 +344,18 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
         future.doReceived(response);
     }
 
-    private static String subInvokeId(String channelId, long invokeId) {
-        return channelId + invokeId;
-    }
-
     static final class TimeoutTask implements TimerTask {
 
-        private final String channelId;
+        private final JChannel channel; // 只有广播调用需要
         private final long invokeId;
 
         public TimeoutTask(long invokeId) {
-            this.channelId = null;
+            this.channel = null;
             this.invokeId = invokeId;
         }
 
-        public TimeoutTask(String channelId, long invokeId) {
-            this.channelId = channelId;
+        public TimeoutTask(JChannel channel, long invokeId) {
+            this.channel = channel;
             this.invokeId = invokeId;
         }
 
@@ -250,12 +363,21 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
         public void run(Timeout timeout) throws Exception {
             DefaultInvokeFuture<?> future;
 
-            if (channelId == null) {
+            if (channel == null) {
                 // round
-                future = roundFutures.remove(invokeId);
+                future = inFlightFutures.get(invokeId);
+                if (future != null && future.stream != null) {
+                    // 流式调用的超时是空闲超时, 期间收到过数据帧就顺延
+                    long idle = System.nanoTime() - future.stream.lastActiveTime();
+                    if (idle < future.timeout) {
+                        future.scheduleTimeout(this, future.timeout - idle);
+                        return;
+                    }
+                }
+                future = inFlightFutures.remove(invokeId, null);
             } else {
                 // broadcast
-                future = broadcastFutures.remove(subInvokeId(channelId, invokeId));
+                future = inFlightFutures.remove(invokeId, channel);
             }
 
             if (future != null) {
@@ -264,11 +386,14 @@ public class DefaultInvokeFuture<V> extends CompletableFuture<V> implements Invo
         }
 
         private void processTimeout(DefaultInvokeFuture<?> future) {
-            if (System.nanoTime() - future.startTime > future.timeout) {
+            // 流式调用在移除之前已经检查过空闲时间
+            if (future.stream != null || System.nanoTime() - future.startTime > future.timeout) {
                 JResponse response = new JResponse(future.invokeId);
                 response.status(future.sent ? Status.SERVER_TIMEOUT : Status.CLIENT_TIMEOUT);
 
                 future.doReceived(response);
+            } else {
+                future.channel.decrementInFlight();
             }
         }
     }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.future;
+
+import org.jupiter.common.util.Pow2;
+import org.jupiter.common.util.collection.LongObjectHashMap;
+import org.jupiter.transport.channel.JChannel;
+
+/**
+ * 所有在途调用(已注册还没有收到响应也没有超时)的 {@link DefaultInvokeFuture}.
+ *
+ * 以invokeId为key分段加锁, 每一段是一个以long为key的 {@link LongObjectHashMap}, 不装箱;
+ * 广播调用的多个future共享同一个invokeId, 它们通过 {@link DefaultInvokeFuture#next} 串成一个链表,
+ * 以channel区分, 不再需要拼接 channelId + invokeId 字符串作为key.
+ *
+ * invokeId是递增的序列, 直接取低位就可以把相邻的调用均匀地分散到各个段上.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.future
+ *
+ * @author jiachun.fjc
+ */
+final class InFlightFutures {
+
+    private final Segment[] segments;
+    private final int mask;
+
+    InFlightFutures(int nSegments, int initialCapacity) {
+        nSegments = Pow2.roundToPowerOfTwo(Math.max(nSegments, 1));
+        int segmentCapacity = Math.max(initialCapacity / nSegments, LongObjectHashMap.DEFAULT_CAPACITY);
+        segments = new Segment[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        mask = nSegments - 1;
+    }
+
+    void put(DefaultInvokeFuture<?> future) {
+        long invokeId = future.invokeId();
+        Segment segment = segmentFor(invokeId);
+        synchronized (segment) {
+            DefaultInvokeFuture<?> head = segment.futures.put(invokeId, future);
+            if (head != null) {
+                // 只有广播调用会出现相同的invokeId
+                future.next = head;
+            }
+        }
+    }
+
+    /**
+     * 只查找不移除, 只用于非广播调用.
+     */
+    DefaultInvokeFuture<?> get(long invokeId) {
+        Segment segment = segmentFor(invokeId);
+        synchronized (segment) {
+            return segment.futures.get(invokeId);
+        }
+    }
+
+    /**
+     * 移除并返回invokeId对应的future, 广播调用需要同时匹配channel.
+     */
+    DefaultInvokeFuture<?> remove(long invokeId, JChannel channel) {
+        Segment segment = segmentFor(invokeId);
+        synchronized (segment) {
+            DefaultInvokeFuture<?> head = segment.futures.get(invokeId);
+            if (head == null) {
+                return null;
+            }
+            if (!head.isBroadcast()) {
+                segment.futures.remove(invokeId);
+                return head;
+            }
+
+            DefaultInvokeFuture<?> prev = null;
+            for (DefaultInvokeFuture<?> f = head; f != null; prev = f, f = f.next) {
+                if (!isSameChannel(f.channel(), channel)) {
+                    continue;
+                }
+                if (prev != null) {
+                    prev.next = f.next;
+                } else if (f.next != null) {
+                    segment.futures.put(invokeId, f.next);
+                } else {
+                    segment.futures.remove(invokeId);
+                }
+                f.next = null;
+                return f;
+            }
+            return null;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.futures.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(long invokeId) {
+        return segments[(int) invokeId & mask];
+    }
+
+    private static boolean isSameChannel(JChannel c1, JChannel c2) {
+        return c1 == c2 || (c1 != null && c2 != null && c1.id().equals(c2.id()));
+    }
+
+    static final class Segment {
+
+        final LongObjectHashMap<DefaultInvokeFuture<?>> futures;
+
+        Segment(int initialCapacity) {
+            futures = new LongObjectHashMap<>(initialCapacity);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.future;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.ThrowUtil;
+import org.jupiter.rpc.JResponse;
+import org.jupiter.rpc.exception.JupiterSerializationException;
+import org.jupiter.rpc.model.metadata.ResultWrapper;
+import org.jupiter.serialization.Serializer;
+import org.jupiter.serialization.SerializerFactory;
+import org.jupiter.serialization.io.InputBuf;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.payload.JResponsePayload;
+
+/**
+ * 服务端流式调用 {@link org.jupiter.rpc.InvokeType#STREAMING} 在客户端的结果视图.
+ *
+ * IO线程按到达顺序把数据帧放入缓冲队列(不做反序列化), 消费线程在 {@link #hasNext()} 中
+ * 取出并反序列化, 因此帧的顺序与服务端写出的顺序一致, 不受consumer线程池调度的影响.
+ *
+ * 背压: 缓冲的帧数达到高水位线时暂停读取channel(autoRead=false), 服务端的写缓冲随之积压直到
+ * channel不可写, 服务端就会停止从 {@link Iterator} 中取数据; 消费到低水位线以下时恢复读取.
+ * 注意暂停读取的是整个连接, 同一个连接上的其他调用的响应也会被推迟, 所以请及时消费或者 {@link #close()}.
+ *
+ * 结束帧(正常结束或者异常)通过 {@link DefaultInvokeFuture} 的完成来通知, 异常会在 {@link #hasNext()} 中抛出.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.future
+ *
+ * @author jiachun.fjc
+ */
+public final class InvokeStream<V> implements Iterator<V>, AutoCloseable {
+
+    private static final int HIGH_WATER_MARK =
+            SystemPropertyUtil.getInt("jupiter.rpc.streaming.buffer_high_water_mark", 256);
+    private static final int LOW_WATER_MARK =
+            SystemPropertyUtil.getInt("jupiter.rpc.streaming.buffer_low_water_mark", HIGH_WATER_MARK >> 1);
+
+    private static final Object END = new Object();
+
+    private final JChannel channel;
+    private final BlockingQueue<Object> frames = new LinkedBlockingQueue<>();
+    private final AtomicBoolean readSuspended = new AtomicBoolean(false);
+
+    private volatile long lastActiveTime = System.nanoTime();
+    private volatile Throwable cause;
+    private volatile boolean closed;
+
+    // 以下字段只被消费线程访问
+    private boolean ended;
+    private boolean nextReady;
+    private V nextItem;
+
+    InvokeStream(JChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns a sequential {@link Stream} view, closing the stream closes this iterator.
+     */
+    public Stream<V> toStream() {
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextReady) {
+            return true;
+        }
+        if (ended || closed) {
+            return false;
+        }
+
+        Object frame;
+        try {
+            frame = frames.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ThrowUtil.throwException(e);
+            return false;
+        }
+
+        if (readSuspended.get() && frames.size() <= LOW_WATER_MARK) {
+            resumeRead();
+        }
+
+        if (frame == END) {
+            ended = true;
+            Throwable t = cause;
+            if (t != null) {
+                ThrowUtil.throwException(t);
+            }
+            return false;
+        }
+
+        nextItem = decode((JResponse) frame);
+        nextReady = true;
+        return true;
+    }
+
+    @Override
+    public V next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        V item = nextItem;
+        nextItem = null;
+        nextReady = false;
+        return item;
+    }
+
+    /**
+     * 丢弃所有未消费的数据, 服务端仍然会把剩下的数据推送完, 客户端收到后直接丢弃.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        drain();
+        resumeRead();
+    }
+
+    long lastActiveTime() {
+        return lastActiveTime;
+    }
+
+    // IO线程调用
+    void onItem(JResponse response) {
+        lastActiveTime = System.nanoTime();
+
+        if (closed) {
+            response.payload().releaseInputBuf();
+            return;
+        }
+
+        frames.add(response);
+
+        if (closed) {
+            drain(); // close()与本方法并发
+            return;
+        }
+
+        if (frames.size() >= HIGH_WATER_MARK && readSuspended.compareAndSet(false, true)) {
+            channel.setAutoRead(false);
+        }
+    }
+
+    void onCompleted(Throwable cause) {
+        this.cause = cause;
+        frames.add(END);
+        // 不会再有数据帧了(比如超时), 不能让连接一直处于暂停读取的状态
+        resumeRead();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V decode(JResponse response) {
+        JResponsePayload payload = response.payload();
+        ResultWrapper wrapper;
+        try {
+            Serializer serializer = SerializerFactory.getSerializer(payload.serializerCode());
+
+            InputBuf inputBuf = payload.inputBuf();
+            if (inputBuf != null) {
+                payload.clear(); // inputBuf的所有权转移给serializer, 由它负责release
+                wrapper = serializer.readObject(inputBuf, ResultWrapper.class);
+            } else {
+                byte[] bytes = payload.bytes();
+                payload.clear();
+                wrapper = serializer.readObject(bytes, ResultWrapper.class);
+            }
+        } catch (Throwable t) {
+            payload.releaseInputBuf();
+            close();
+            throw new JupiterSerializationException(t, channel.remoteAddress());
+        }
+        return (V) wrapper.getResult();
+    }
+
+    private void drain() {
+        Object frame;
+        while ((frame = frames.poll()) != null) {
+            if (frame != END) {
+                ((JResponse) frame).payload().releaseInputBuf();
+            }
+        }
+    }
+
+    private void resumeRead() {
+        if (readSuspended.compareAndSet(true, false)) {
+            channel.setAutoRead(true);
+        }
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.jupiter.rpc.consumer.invoker;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.jupiter.rpc.DefaultFilterChain;
 import org.jupiter.rpc.JFilter;
@@ -30,6 +32,7 @@ import org.jupiter.rpc.model.metadata.ClusterStrategyConfig;
 import org.jupiter.rpc.model.metadata.MessageWrapper;
 import org.jupiter.rpc.model.metadata.MethodSpecialConfig;
 import org.jupiter.rpc.model.metadata.ServiceMetadata;
+import org.jupiter.transport.JProtocolHeader;
 
 /**
  * jupiter
@@ -42,6 +45,7 @@ public abstract class AbstractInvoker {
     private final String appName;
     private final ServiceMetadata metadata; // 目标服务元信息
     private final ClusterStrategyBridging clusterStrategyBridging;
+    private final Set<String> oneWayMethods = new HashSet<>(); // 单向调用的方法
 
     public AbstractInvoker(String appName,
                            ServiceMetadata metadata,
@@ -51,6 +55,11 @@ public abstract class AbstractInvoker {
         this.appName = appName;
         this.metadata = metadata;
         clusterStrategyBridging = new ClusterStrategyBridging(dispatcher, defaultStrategy, methodSpecialConfigs);
+        for (MethodSpecialConfig config : methodSpecialConfigs) {
+            if (config.isOneWay()) {
+                oneWayMethods.add(config.getMethodName());
+            }
+        }
     }
 
     protected Object doInvoke(String methodName, Object[] args, Class<?> returnType, boolean sync) throws Throwable {
@@ -63,7 +72,7 @@ public abstract class AbstractInvoker {
         return invokeCtx.getResult();
     }
 
-    private JRequest createRequest(String methodName, Object[] args) {
+    protected JRequest createRequest(String methodName, Object[] args) {
         MessageWrapper message = new MessageWrapper(metadata);
         message.setAppName(appName);
         message.setMethodName(methodName);
@@ -72,6 +81,9 @@ public abstract class AbstractInvoker {
 
         JRequest request = new JRequest();
         request.message(message);
+        if (!oneWayMethods.isEmpty() && oneWayMethods.contains(methodName)) {
+            request.payload().setFlag(JProtocolHeader.FLAG_ONE_WAY);
+        }
 
         return request;
     }
@@ -23,6 +23,7 @@ import org.jupiter.rpc.consumer.cluster.ClusterInvoker;
 import org.jupiter.rpc.consumer.cluster.FailfastClusterInvoker;
 import org.jupiter.rpc.consumer.cluster.FailoverClusterInvoker;
 import org.jupiter.rpc.consumer.cluster.FailsafeClusterInvoker;
+import org.jupiter.rpc.consumer.cluster.HedgingClusterInvoker;
 import org.jupiter.rpc.consumer.dispatcher.Dispatcher;
 import org.jupiter.rpc.model.metadata.ClusterStrategyConfig;
 import org.jupiter.rpc.model.metadata.MethodSpecialConfig;
@@ -69,6 +70,9 @@ public class ClusterStrategyBridging {
                 return new FailoverClusterInvoker(dispatcher, strategy.getFailoverRetries());
             case FAIL_SAFE:
                 return new FailsafeClusterInvoker(dispatcher);
+            case HEDGING:
+                return new HedgingClusterInvoker(
+                        dispatcher, strategy.getHedgingDelayMillis(), strategy.getHedgingBudgetPercent());
             default:
                 throw new UnsupportedOperationException("Unsupported strategy: " + strategy);
         }
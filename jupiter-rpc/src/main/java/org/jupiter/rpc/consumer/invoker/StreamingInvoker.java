@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.invoker;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import org.jupiter.rpc.JRequest;
+import org.jupiter.rpc.consumer.dispatcher.Dispatcher;
+import org.jupiter.rpc.consumer.future.DefaultInvokeFuture;
+import org.jupiter.rpc.consumer.future.InvokeStream;
+import org.jupiter.rpc.model.metadata.ClusterStrategyConfig;
+import org.jupiter.rpc.model.metadata.MethodSpecialConfig;
+import org.jupiter.rpc.model.metadata.ServiceMetadata;
+import org.jupiter.transport.JProtocolHeader;
+
+/**
+ * Server-streaming call, {@link #invoke(Method, Object[])} returns an {@link InvokeStream}
+ * (or a {@link Stream} view of it) which yields the items pushed by the provider.
+ *
+ * 服务端流式调用, 接口方法的返回值必须是 {@link Stream}, {@link java.util.Iterator} 或者 {@link InvokeStream}.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.invoker
+ *
+ * @author jiachun.fjc
+ */
+public class StreamingInvoker extends AbstractInvoker {
+
+    public StreamingInvoker(String appName,
+                            ServiceMetadata metadata,
+                            Dispatcher dispatcher,
+                            ClusterStrategyConfig defaultStrategy,
+                            List<MethodSpecialConfig> methodSpecialConfigs) {
+        super(appName, metadata, dispatcher, defaultStrategy, methodSpecialConfigs);
+    }
+
+    @RuntimeType
+    public Object invoke(@Origin Method method, @AllArguments @RuntimeType Object[] args) throws Throwable {
+        Class<?> returnType = method.getReturnType();
+
+        boolean asIterator = returnType.isAssignableFrom(InvokeStream.class);
+        if (!asIterator && !returnType.isAssignableFrom(Stream.class)) {
+            throw new UnsupportedOperationException(
+                    "streaming method must return a Stream or an Iterator: " + method);
+        }
+
+        Object result = doInvoke(method.getName(), args, returnType, false);
+
+        if (!(result instanceof DefaultInvokeFuture)) {
+            throw new UnsupportedOperationException("streaming only supports the FAIL_FAST cluster strategy");
+        }
+
+        InvokeStream<?> stream = ((DefaultInvokeFuture<?>) result).stream();
+
+        return asIterator ? stream : stream.toStream();
+    }
+
+    @Override
+    protected JRequest createRequest(String methodName, Object[] args) {
+        JRequest request = super.createRequest(methodName, args);
+        request.payload().setFlag(JProtocolHeader.FLAG_STREAMING);
+        return request;
+    }
+}
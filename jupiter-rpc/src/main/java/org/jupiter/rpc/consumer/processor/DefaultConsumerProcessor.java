@@ -16,8 +16,10 @@
 package org.jupiter.rpc.consumer.processor;
 
 import org.jupiter.rpc.JResponse;
+import org.jupiter.rpc.consumer.future.DefaultInvokeFuture;
 import org.jupiter.rpc.consumer.processor.task.MessageTask;
 import org.jupiter.rpc.executor.CloseableExecutor;
+import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.payload.JResponsePayload;
 import org.jupiter.transport.processor.ConsumerProcessor;
@@ -44,7 +46,13 @@ public class DefaultConsumerProcessor implements ConsumerProcessor {
 
     @Override
     public void handleResponse(JChannel channel, JResponsePayload responsePayload) throws Exception {
-        MessageTask task = new MessageTask(channel, new JResponse(responsePayload));
+        if (responsePayload.hasFlag(JProtocolHeader.FLAG_STREAMING)) {
+            // 流式调用的数据帧必须保序, 在IO线程中直接入队, 由消费者线程反序列化
+            DefaultInvokeFuture.streamReceived(channel, new JResponse(responsePayload));
+            return;
+        }
+
+        MessageTask task = MessageTask.newInstance(channel, JResponse.newInstance(responsePayload));
         if (executor == null) {
             channel.addTask(task);
         } else {
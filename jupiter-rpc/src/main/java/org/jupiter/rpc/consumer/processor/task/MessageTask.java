@@ -15,17 +15,18 @@
  */
 package org.jupiter.rpc.consumer.processor.task;
 
+import org.jupiter.common.util.Recyclers;
 import org.jupiter.common.util.StackTraceUtil;
 import org.jupiter.common.util.internal.logging.InternalLogger;
 import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
 import org.jupiter.rpc.JResponse;
 import org.jupiter.rpc.consumer.future.DefaultInvokeFuture;
+import org.jupiter.rpc.exception.JupiterRemoteException;
 import org.jupiter.rpc.exception.JupiterSerializationException;
 import org.jupiter.rpc.model.metadata.ResultWrapper;
 import org.jupiter.serialization.Serializer;
 import org.jupiter.serialization.SerializerFactory;
 import org.jupiter.serialization.io.InputBuf;
-import org.jupiter.transport.CodecConfig;
 import org.jupiter.transport.Status;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.payload.JResponsePayload;
@@ -40,12 +41,38 @@ public class MessageTask implements Runnable {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(MessageTask.class);
 
-    private final JChannel channel;
-    private final JResponse response;
+    private static final Recyclers<MessageTask> recyclers = new Recyclers<MessageTask>() {
+
+        @Override
+        protected MessageTask newObject(Handle<MessageTask> handle) {
+            return new MessageTask(handle);
+        }
+    };
+
+    private JChannel channel;
+    private JResponse response;
+
+    private final Recyclers.Handle<MessageTask> handle;
 
     public MessageTask(JChannel channel, JResponse response) {
         this.channel = channel;
         this.response = response;
+        this.handle = null;
+    }
+
+    private MessageTask(Recyclers.Handle<MessageTask> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个task (对象池未开启时等同于 {@code new MessageTask(channel, response)}),
+     * 响应交付给future之后task连同response一起被回收.
+     */
+    public static MessageTask newInstance(JChannel channel, JResponse response) {
+        MessageTask task = recyclers.get();
+        task.channel = channel;
+        task.response = response;
+        return task;
     }
 
     @Override
@@ -56,26 +83,53 @@ public class MessageTask implements Runnable {
 
         byte s_code = _response.serializerCode();
 
-        Serializer serializer = SerializerFactory.getSerializer(s_code);
         ResultWrapper wrapper;
-        try {
-            if (CodecConfig.isCodecLowCopy()) {
-                InputBuf inputBuf = _responsePayload.inputBuf();
-                wrapper = serializer.readObject(inputBuf, ResultWrapper.class);
-            } else {
-                byte[] bytes = _responsePayload.bytes();
-                wrapper = serializer.readObject(bytes, ResultWrapper.class);
-            }
-            _responsePayload.clear();
-        } catch (Throwable t) {
-            logger.error("Deserialize object failed: {}, {}.", channel.remoteAddress(), StackTraceUtil.stackTrace(t));
+        if (_responsePayload.size() == 0 && _response.status() != Status.OK.value()) {
+            // 没有消息体的错误响应, 比如转发代理找不到路由或者后端不可用
+            _responsePayload.releaseInputBuf();
 
-            _response.status(Status.DESERIALIZATION_FAIL);
             wrapper = new ResultWrapper();
-            wrapper.setError(new JupiterSerializationException(t));
+            wrapper.setError(new JupiterRemoteException(
+                    String.valueOf(Status.parse(_response.status())), channel.remoteAddress()));
+        } else {
+            try {
+                Serializer serializer = SerializerFactory.getSerializer(s_code);
+
+                InputBuf inputBuf = _responsePayload.inputBuf();
+                if (inputBuf != null) {
+                    _responsePayload.clear(); // inputBuf的所有权转移给serializer, 由它负责release
+                    wrapper = serializer.readObject(inputBuf, ResultWrapper.class);
+                } else {
+                    byte[] bytes = _responsePayload.bytes();
+                    _responsePayload.clear();
+                    wrapper = serializer.readObject(bytes, ResultWrapper.class);
+                }
+            } catch (Throwable t) {
+                _responsePayload.releaseInputBuf();
+
+                logger.error("Deserialize object failed: {}, {}.",
+                        channel.remoteAddress(), StackTraceUtil.stackTrace(t));
+
+                _response.status(Status.DESERIALIZATION_FAIL);
+                wrapper = new ResultWrapper();
+                wrapper.setError(new JupiterSerializationException(t));
+            }
         }
         _response.result(wrapper);
 
         DefaultInvokeFuture.received(channel, _response);
+
+        recycle();
+    }
+
+    private void recycle() {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        JResponse _response = response;
+        channel = null;
+        response = null;
+        _response.recycle();
+        handle.recycle(this);
     }
 }
@@ -34,6 +34,10 @@ public final class LoadBalancerFactory {
             return RoundRobinLoadBalancer.instance();
         }
 
+        if (type == LoadBalancerType.PEAK_EWMA) {
+            return PeakEwmaLoadBalancer.instance();
+        }
+
         if (type == LoadBalancerType.EXT_SPI) {
             return ExtSpiFactoryHolder.factory.getInstance(name);
         }
@@ -24,6 +24,7 @@ package org.jupiter.rpc.load.balance;
 public enum LoadBalancerType {
     ROUND_ROBIN,                // 加权轮询
     RANDOM,                     // 加权随机
+    PEAK_EWMA,                  // 延迟感知, 加权随机选出两个候选, 取耗时和在途请求数更优的一个
     EXT_SPI;                    // 用户自行扩展, SPI方式加载
 
     public static LoadBalancerType parse(String name) {
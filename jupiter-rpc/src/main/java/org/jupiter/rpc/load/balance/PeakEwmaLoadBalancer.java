@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.load.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jupiter.transport.Directory;
+import org.jupiter.transport.channel.CopyOnWriteGroupList;
+import org.jupiter.transport.channel.JChannelGroup;
+
+/**
+ * 延迟感知的负载均衡 (peak EWMA + power of two choices).
+ *
+ * 按权重(包含预热权重)随机选出两个候选, 取负载更低的一个, 负载为:
+ *
+ * <pre>
+ *     (耗时EWMA + 1) * (在途请求数 + 1) / 权重
+ * </pre>
+ *
+ * 耗时和在途请求数由consumer在调用完成时更新 (见 {@link JChannelGroup#latencyEwmaNanos()},
+ * {@link JChannelGroup#inFlightRequests()}), 静态权重无法反映某个provider此刻变慢了, 这里可以.
+ * 只比较两个候选而不是全部, 一方面避免所有consumer同时涌向同一个最快的provider, 另一方面选择的开销是常数.
+ *
+ * https://www.eecs.harvard.edu/~michaelm/postscripts/mythesis.pdf
+ *
+ * jupiter
+ * org.jupiter.rpc.load.balance
+ *
+ * @author jiachun.fjc
+ */
+public class PeakEwmaLoadBalancer implements LoadBalancer {
+
+    private static final PeakEwmaLoadBalancer instance = new PeakEwmaLoadBalancer();
+
+    public static PeakEwmaLoadBalancer instance() {
+        return instance;
+    }
+
+    @Override
+    public JChannelGroup select(CopyOnWriteGroupList groups, Directory directory) {
+        JChannelGroup[] elements = groups.getSnapshot();
+        int length = elements.length;
+
+        if (length == 0) {
+            return null;
+        }
+
+        if (length == 1) {
+            return elements[0];
+        }
+
+        WeightArray weightArray = (WeightArray) groups.getWeightArray(elements, directory.directoryString());
+        if (weightArray == null || weightArray.length() != length) {
+            weightArray = WeightSupport.computeWeights(groups, elements, directory);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int first;
+        int second;
+        if (weightArray.isAllSameWeight()) {
+            first = random.nextInt(length);
+            second = random.nextInt(length - 1);
+            if (second >= first) {
+                second++;
+            }
+        } else {
+            first = getNextServerIndex(weightArray, length, random);
+            second = getNextServerIndex(weightArray, length, random);
+            if (second == first) {
+                second = (first + 1 + random.nextInt(length - 1)) % length;
+            }
+        }
+
+        JChannelGroup a = elements[first];
+        JChannelGroup b = elements[second];
+
+        // 所有channel都不可写的一方直接淘汰
+        boolean aWritable = a.isWritable();
+        if (aWritable != b.isWritable()) {
+            return aWritable ? a : b;
+        }
+        if (!aWritable) {
+            return WeightSupport.preferWritable(elements, first);
+        }
+
+        return load(a, weightArray, first) <= load(b, weightArray, second) ? a : b;
+    }
+
+    private static double load(JChannelGroup group, WeightArray weightArray, int index) {
+        double load = (group.latencyEwmaNanos() + 1.0) * (group.inFlightRequests() + 1);
+        if (weightArray.isAllSameWeight()) {
+            return load;
+        }
+        int weight = index == 0 ? weightArray.get(0) : weightArray.get(index) - weightArray.get(index - 1);
+        return weight > 0 ? load / weight : Double.MAX_VALUE;
+    }
+
+    private static int getNextServerIndex(WeightArray weightArray, int length, ThreadLocalRandom random) {
+        int sumWeight = weightArray.get(length - 1);
+        int val = random.nextInt(sumWeight + 1);
+        return WeightSupport.binarySearchIndex(weightArray, length, val);
+    }
+}
@@ -72,12 +72,12 @@ public class RandomLoadBalancer implements LoadBalancer {
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         if (weightArray.isAllSameWeight()) {
-            return elements[random.nextInt(length)];
+            return WeightSupport.preferWritable(elements, random.nextInt(length));
         }
 
         int nextIndex = getNextServerIndex(weightArray, length, random);
 
-        return elements[nextIndex];
+        return WeightSupport.preferWritable(elements, nextIndex);
     }
 
     private static int getNextServerIndex(WeightArray weightArray, int length, ThreadLocalRandom random) {
@@ -92,12 +92,12 @@ public class RoundRobinLoadBalancer implements LoadBalancer {
         int rrIndex = indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE;
 
         if (weightArray.isAllSameWeight()) {
-            return elements[rrIndex % length];
+            return WeightSupport.preferWritable(elements, rrIndex % length);
         }
 
         int nextIndex = getNextServerIndex(weightArray, length, rrIndex);
 
-        return elements[nextIndex];
+        return WeightSupport.preferWritable(elements, nextIndex);
     }
 
     private static int getNextServerIndex(WeightArray weightArray, int length, final int rrIndex) {
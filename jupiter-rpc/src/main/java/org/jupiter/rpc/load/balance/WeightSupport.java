@@ -30,6 +30,26 @@ import static java.lang.Math.min;
  */
 final class WeightSupport {
 
+    /**
+     * 选中的group所有channel都不可写(写缓冲超过高水位线)时, 从它之后顺序找一个可写的group代替,
+     * 都不可写时仍然返回原来选中的, 由调用方决定是否快速失败.
+     */
+    static JChannelGroup preferWritable(JChannelGroup[] elements, int index) {
+        JChannelGroup selected = elements[index];
+        if (selected.isWritable()) {
+            return selected;
+        }
+
+        int length = elements.length;
+        for (int i = 1; i < length; i++) {
+            JChannelGroup next = elements[(index + i) % length];
+            if (next.isWritable()) {
+                return next;
+            }
+        }
+        return selected;
+    }
+
     static int binarySearchIndex(WeightArray weightArray, int length, int value) {
         int low = 0;
         int high = length - 1;
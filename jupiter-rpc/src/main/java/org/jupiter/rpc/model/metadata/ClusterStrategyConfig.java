@@ -31,6 +31,8 @@ public class ClusterStrategyConfig implements Serializable {
 
     private ClusterInvoker.Strategy strategy;
     private int failoverRetries;
+    private long hedgingDelayMillis;    // 发出对冲请求前的等待时间, <= 0 时使用学习到的延迟分位数
+    private int hedgingBudgetPercent;   // 对冲请求占总请求数的百分比上限, <= 0 时使用默认值
 
     public static ClusterStrategyConfig of(String strategy, String failoverRetries) {
         int retries = 0;
@@ -42,12 +44,25 @@ public class ClusterStrategyConfig implements Serializable {
     }
 
     public static ClusterStrategyConfig of(ClusterInvoker.Strategy strategy, int failoverRetries) {
+        return of(strategy, failoverRetries, 0, 0);
+    }
+
+    public static ClusterStrategyConfig of(ClusterInvoker.Strategy strategy,
+                                           int failoverRetries,
+                                           long hedgingDelayMillis,
+                                           int hedgingBudgetPercent) {
         ClusterStrategyConfig s = new ClusterStrategyConfig();
         s.setStrategy(strategy);
         s.setFailoverRetries(failoverRetries);
+        s.setHedgingDelayMillis(hedgingDelayMillis);
+        s.setHedgingBudgetPercent(hedgingBudgetPercent);
         return s;
     }
 
+    public static ClusterStrategyConfig ofHedging(long hedgingDelayMillis, int hedgingBudgetPercent) {
+        return of(ClusterInvoker.Strategy.HEDGING, 0, hedgingDelayMillis, hedgingBudgetPercent);
+    }
+
     public ClusterInvoker.Strategy getStrategy() {
         return strategy;
     }
@@ -63,4 +78,20 @@ public class ClusterStrategyConfig implements Serializable {
     public void setFailoverRetries(int failoverRetries) {
         this.failoverRetries = failoverRetries;
     }
+
+    public long getHedgingDelayMillis() {
+        return hedgingDelayMillis;
+    }
+
+    public void setHedgingDelayMillis(long hedgingDelayMillis) {
+        this.hedgingDelayMillis = hedgingDelayMillis;
+    }
+
+    public int getHedgingBudgetPercent() {
+        return hedgingBudgetPercent;
+    }
+
+    public void setHedgingBudgetPercent(int hedgingBudgetPercent) {
+        this.hedgingBudgetPercent = hedgingBudgetPercent;
+    }
 }
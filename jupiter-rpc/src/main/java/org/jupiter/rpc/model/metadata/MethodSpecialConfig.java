@@ -31,6 +31,7 @@ public class MethodSpecialConfig implements Serializable {
 
     private long timeoutMillis;
     private ClusterStrategyConfig strategy;
+    private boolean oneWay; // 单向调用, 见 org.jupiter.rpc.OneWay
 
     public static MethodSpecialConfig of(String methodName) {
         return new MethodSpecialConfig(methodName);
@@ -50,6 +51,11 @@ public class MethodSpecialConfig implements Serializable {
         return this;
     }
 
+    public MethodSpecialConfig oneWay(boolean oneWay) {
+        this.oneWay = oneWay;
+        return this;
+    }
+
     public String getMethodName() {
         return methodName;
     }
@@ -69,4 +75,12 @@ public class MethodSpecialConfig implements Serializable {
     public void setStrategy(ClusterStrategyConfig strategy) {
         this.strategy = strategy;
     }
+
+    public boolean isOneWay() {
+        return oneWay;
+    }
+
+    public void setOneWay(boolean oneWay) {
+        this.oneWay = oneWay;
+    }
 }
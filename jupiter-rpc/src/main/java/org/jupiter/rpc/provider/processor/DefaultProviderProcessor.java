@@ -15,20 +15,26 @@
  */
 package org.jupiter.rpc.provider.processor;
 
+import java.util.function.Consumer;
+
+import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.StackTraceUtil;
 import org.jupiter.common.util.ThrowUtil;
 import org.jupiter.common.util.internal.logging.InternalLogger;
 import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
 import org.jupiter.rpc.JRequest;
+import org.jupiter.rpc.JResponse;
 import org.jupiter.rpc.executor.CloseableExecutor;
 import org.jupiter.rpc.flow.control.FlowController;
 import org.jupiter.rpc.model.metadata.ResultWrapper;
 import org.jupiter.rpc.provider.LookupService;
+import org.jupiter.rpc.provider.processor.task.LocalMessageTask;
 import org.jupiter.rpc.provider.processor.task.MessageTask;
 import org.jupiter.serialization.Serializer;
 import org.jupiter.serialization.SerializerFactory;
 import org.jupiter.serialization.io.OutputBuf;
 import org.jupiter.transport.CodecConfig;
+import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.Status;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.channel.JFutureListener;
@@ -47,9 +53,12 @@ public abstract class DefaultProviderProcessor implements ProviderProcessor, Loo
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultProviderProcessor.class);
 
     private final CloseableExecutor executor;
+    // 没有provider线程池时, 流式调用是否用到了(延迟创建的)全局线程池
+    private volatile boolean streamingExecutorUsed;
 
     public DefaultProviderProcessor() {
-        this(ProviderExecutors.executor());
+        // thread-per-core模式下不需要全局的provider线程池
+        this(JConstants.THREAD_PER_CORE ? null : ProviderExecutors.executor());
     }
 
     public DefaultProviderProcessor(CloseableExecutor executor) {
@@ -58,27 +67,45 @@ public abstract class DefaultProviderProcessor implements ProviderProcessor, Loo
 
     @Override
     public void handleRequest(JChannel channel, JRequestPayload requestPayload) throws Exception {
-        MessageTask task = new MessageTask(this, channel, new JRequest(requestPayload));
-        if (executor == null) {
-            channel.addTask(task);
-        } else {
+        MessageTask task = MessageTask.newInstance(this, channel, JRequest.newInstance(requestPayload));
+        if (executor != null) {
             executor.execute(task);
+        } else if (requestPayload.hasFlag(JProtocolHeader.FLAG_STREAMING)) {
+            // 流式调用在channel不可写时要阻塞等待, 不能放在IO线程中执行
+            streamingExecutorUsed = true;
+            ProviderExecutors.executor().execute(task);
+        } else if (JConstants.THREAD_PER_CORE && channel.inIoThread()) {
+            // thread-per-core: 直接在当前IO线程中执行, 省掉一次入队和唤醒
+            task.run();
+        } else {
+            channel.addTask(task);
         }
     }
 
     @Override
     public void handleException(JChannel channel, JRequestPayload request, Status status, Throwable cause) {
+        request.releaseInputBuf();
+
         logger.error("An exception was caught while processing request: {}, {}.",
                 channel.remoteAddress(), StackTraceUtil.stackTrace(cause));
 
-        doHandleException(
-                channel, request.invokeId(), request.serializerCode(), status.value(), cause, false);
+        doHandleException(channel, request, status.value(), cause, false);
+    }
+
+    /**
+     * 同一个JVM内的调用, 不经过序列化和网络, 在调用者线程中直接执行(服务指定了私有线程池的除外),
+     * 单向调用不会有响应.
+     */
+    public void handleLocalRequest(JRequest request, Consumer<JResponse> responder) {
+        new LocalMessageTask(this, request, responder).run();
     }
 
     @Override
     public void shutdown() {
         if (executor != null) {
             executor.shutdown();
+        } else if (streamingExecutorUsed) {
+            ProviderExecutors.executor().shutdown();
         }
     }
 
@@ -86,8 +113,7 @@ public abstract class DefaultProviderProcessor implements ProviderProcessor, Loo
         logger.error("An exception was caught while processing request: {}, {}.",
                 channel.remoteAddress(), StackTraceUtil.stackTrace(cause));
 
-        doHandleException(
-                channel, request.invokeId(), request.serializerCode(), status.value(), cause, false);
+        doHandleException(channel, request.payload(), status.value(), cause, false);
     }
 
     public void handleRejected(JChannel channel, JRequest request, Status status, Throwable cause) {
@@ -95,12 +121,22 @@ public abstract class DefaultProviderProcessor implements ProviderProcessor, Loo
             logger.warn("Service rejected: {}, {}.", channel.remoteAddress(), StackTraceUtil.stackTrace(cause));
         }
 
-        doHandleException(
-                channel, request.invokeId(), request.serializerCode(), status.value(), cause, true);
+        doHandleException(channel, request.payload(), status.value(), cause, true);
     }
 
     private void doHandleException(
-            JChannel channel, long invokeId, byte s_code, byte status, Throwable cause, boolean closeChannel) {
+            JChannel channel, JRequestPayload request, byte status, Throwable cause, boolean closeChannel) {
+
+        if (request.hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            // 单向调用没有响应, 异常只记录日志
+            if (closeChannel) {
+                channel.close();
+            }
+            return;
+        }
+
+        long invokeId = request.invokeId();
+        byte s_code = request.serializerCode();
 
         ResultWrapper result = new ResultWrapper();
         // 截断cause, 避免客户端无法找到cause类型而无法序列化
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.provider.processor;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jupiter.transport.Directory;
+
+/**
+ * 当前JVM中已经启动的 {@link DefaultProviderProcessor}, 用于同一个JVM内的短路调用.
+ *
+ * {@link org.jupiter.rpc.DefaultServer} 启动时注册, 关闭时移除.
+ *
+ * jupiter
+ * org.jupiter.rpc.provider.processor
+ *
+ * @author jiachun.fjc
+ */
+public final class LocalProviders {
+
+    private static final CopyOnWriteArrayList<DefaultProviderProcessor> processors = new CopyOnWriteArrayList<>();
+
+    public static void register(DefaultProviderProcessor processor) {
+        processors.addIfAbsent(processor);
+    }
+
+    public static void unregister(DefaultProviderProcessor processor) {
+        processors.remove(processor);
+    }
+
+    /**
+     * 返回提供指定服务的本地processor, 没有则返回null.
+     */
+    public static DefaultProviderProcessor lookup(Directory directory) {
+        for (DefaultProviderProcessor processor : processors) {
+            if (processor.lookupService(directory) != null) {
+                return processor;
+            }
+        }
+        return null;
+    }
+
+    private LocalProviders() {}
+}
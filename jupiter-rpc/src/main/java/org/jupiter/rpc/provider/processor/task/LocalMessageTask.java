@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.provider.processor.task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.rpc.JRequest;
+import org.jupiter.rpc.JResponse;
+import org.jupiter.rpc.exception.JupiterFlowControlException;
+import org.jupiter.rpc.exception.JupiterServerBusyException;
+import org.jupiter.rpc.exception.JupiterServiceNotFoundException;
+import org.jupiter.rpc.flow.control.ControlResult;
+import org.jupiter.rpc.flow.control.FlowController;
+import org.jupiter.rpc.model.metadata.ResultWrapper;
+import org.jupiter.rpc.model.metadata.ServiceWrapper;
+import org.jupiter.rpc.provider.processor.DefaultProviderProcessor;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.Status;
+
+/**
+ * 同一个JVM内的调用, 与 {@link MessageTask} 走同样的流量控制和过滤器链(包括拦截器以及metrics),
+ * 区别是没有序列化和网络传输, 结果直接以 {@link JResponse} 的形式交给consumer.
+ *
+ * 默认在调用者线程中执行, 如果服务指定了私有线程池则在私有线程池中执行.
+ *
+ * jupiter
+ * org.jupiter.rpc.provider.processor.task
+ *
+ * @author jiachun.fjc
+ */
+public class LocalMessageTask implements Runnable {
+
+    private static final boolean METRIC_NEEDED = SystemPropertyUtil.getBoolean("jupiter.metric.needed", false);
+
+    private final DefaultProviderProcessor processor;
+    private final JRequest request;
+    private final Consumer<JResponse> responder;
+
+    public LocalMessageTask(DefaultProviderProcessor processor, JRequest request, Consumer<JResponse> responder) {
+        this.processor = processor;
+        this.request = request;
+        this.responder = responder;
+    }
+
+    @Override
+    public void run() {
+        // stack copy
+        final DefaultProviderProcessor _processor = processor;
+        final JRequest _request = request;
+
+        _request.payload().timestamp(SystemClock.millisClock().now());
+
+        // 全局流量控制
+        ControlResult ctrl = _processor.flowControl(_request);
+        if (!ctrl.isAllowed()) {
+            rejected(Status.APP_FLOW_CONTROL, new JupiterFlowControlException(String.valueOf(ctrl)));
+            return;
+        }
+
+        // 查找服务
+        final ServiceWrapper service = _processor.lookupService(_request.message().getMetadata());
+        if (service == null) {
+            rejected(Status.SERVICE_NOT_FOUND, new JupiterServiceNotFoundException(String.valueOf(_request.message())));
+            return;
+        }
+
+        // provider私有流量控制
+        FlowController<JRequest> childController = service.getFlowController();
+        if (childController != null) {
+            ctrl = childController.flowControl(_request);
+            if (!ctrl.isAllowed()) {
+                rejected(Status.PROVIDER_FLOW_CONTROL, new JupiterFlowControlException(String.valueOf(ctrl)));
+                return;
+            }
+        }
+
+        // processing
+        Executor childExecutor = service.getExecutor();
+        if (childExecutor == null) {
+            process(service);
+        } else {
+            // provider私有线程池执行
+            try {
+                childExecutor.execute(() -> process(service));
+            } catch (RejectedExecutionException e) {
+                rejected(Status.SERVER_BUSY, new JupiterServerBusyException(String.valueOf(_request)));
+            }
+        }
+    }
+
+    private void rejected(Status status, Throwable cause) {
+        if (METRIC_NEEDED) {
+            MessageTask.MetricsHolder.rejectionMeter.mark();
+        }
+        respond(status, cause);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void process(ServiceWrapper service) {
+        final MessageTask.Context invokeCtx = new MessageTask.Context(service);
+        try {
+            final Object invokeResult = MessageTask.Chains.invoke(request, invokeCtx)
+                    .getResult();
+
+            if (!(invokeResult instanceof CompletableFuture)) {
+                doProcess(invokeResult);
+                return;
+            }
+
+            CompletableFuture<Object> cf = (CompletableFuture<Object>) invokeResult;
+
+            if (cf.isDone()) {
+                doProcess(cf.join());
+                return;
+            }
+
+            cf.whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    doProcess(result);
+                } else {
+                    handleFail(invokeCtx, throwable);
+                }
+            });
+        } catch (Throwable t) {
+            handleFail(invokeCtx, t);
+        }
+    }
+
+    private void doProcess(Object realResult) {
+        if (METRIC_NEEDED) {
+            long duration = SystemClock.millisClock().now() - request.timestamp();
+            MessageTask.MetricsHolder.processingTimer.update(duration, TimeUnit.MILLISECONDS);
+        }
+
+        respond(Status.OK, realResult);
+    }
+
+    private void handleFail(MessageTask.Context invokeCtx, Throwable t) {
+        if (MessageTask.INVOKE_ERROR != t) {
+            respond(Status.SERVER_ERROR, t);
+            return;
+        }
+
+        // handle biz exception
+        Throwable failCause = invokeCtx.getCause();
+        Class<?>[] exceptionTypes = invokeCtx.getExpectCauseTypes();
+        if (exceptionTypes != null) {
+            Class<?> failType = failCause.getClass();
+            for (Class<?> eType : exceptionTypes) {
+                if (eType.isAssignableFrom(failType)) {
+                    // 预期内的异常
+                    respond(Status.SERVICE_EXPECTED_ERROR, failCause);
+                    return;
+                }
+            }
+        }
+
+        // 预期外的异常
+        respond(Status.SERVICE_UNEXPECTED_ERROR, failCause);
+    }
+
+    private void respond(Status status, Object result) {
+        if (request.payload().hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            // 单向调用没有响应
+            return;
+        }
+
+        ResultWrapper wrapper = new ResultWrapper();
+        wrapper.setResult(result);
+
+        JResponse response = new JResponse(request.invokeId());
+        response.status(status);
+        response.result(wrapper);
+
+        responder.accept(response);
+    }
+}
@@ -15,13 +15,17 @@
  */
 package org.jupiter.rpc.provider.processor.task;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
 
 import org.jupiter.common.concurrent.RejectedRunnable;
 import org.jupiter.common.util.Pair;
+import org.jupiter.common.util.Recyclers;
 import org.jupiter.common.util.Reflects;
 import org.jupiter.common.util.Requires;
 import org.jupiter.common.util.Signal;
@@ -41,6 +45,7 @@ import org.jupiter.rpc.exception.JupiterFlowControlException;
 import org.jupiter.rpc.exception.JupiterRemoteException;
 import org.jupiter.rpc.exception.JupiterServerBusyException;
 import org.jupiter.rpc.exception.JupiterServiceNotFoundException;
+import org.jupiter.rpc.exception.JupiterTimeoutException;
 import org.jupiter.rpc.flow.control.ControlResult;
 import org.jupiter.rpc.flow.control.FlowController;
 import org.jupiter.rpc.metric.Metrics;
@@ -54,6 +59,7 @@ import org.jupiter.serialization.SerializerFactory;
 import org.jupiter.serialization.io.InputBuf;
 import org.jupiter.serialization.io.OutputBuf;
 import org.jupiter.transport.CodecConfig;
+import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.Status;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.channel.JFutureListener;
@@ -70,22 +76,59 @@ import com.codahale.metrics.Timer;
  *
  * @author jiachun.fjc
  */
-public class MessageTask implements RejectedRunnable {
+public class MessageTask implements RejectedRunnable, JFutureListener<JChannel> {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(MessageTask.class);
 
     private static final boolean METRIC_NEEDED = SystemPropertyUtil.getBoolean("jupiter.metric.needed", false);
 
-    private static final Signal INVOKE_ERROR = Signal.valueOf(MessageTask.class, "INVOKE_ERROR");
+    // 丢弃已经超过consumer端超时时间的请求, consumer已经不再等待它的结果
+    private static final boolean SHED_EXPIRED = SystemPropertyUtil.getBoolean("jupiter.rpc.provider.shed_expired", true);
 
-    private final DefaultProviderProcessor processor;
-    private final JChannel channel;
-    private final JRequest request;
+    static final Signal INVOKE_ERROR = Signal.valueOf(MessageTask.class, "INVOKE_ERROR");
+    private static final Signal STREAMING_STALLED = Signal.valueOf(MessageTask.class, "STREAMING_STALLED");
+    private static final Signal STREAMING_INACTIVE = Signal.valueOf(MessageTask.class, "STREAMING_INACTIVE");
+
+    // 流式调用时channel持续不可写的最长等待时间, 超过后以SERVER_TIMEOUT结束
+    private static final long STREAMING_WRITE_STALL_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            SystemPropertyUtil.getLong("jupiter.rpc.streaming.write_stall_timeout_millis", 30000));
+
+    private static final Recyclers<MessageTask> recyclers = new Recyclers<MessageTask>() {
+
+        @Override
+        protected MessageTask newObject(Handle<MessageTask> handle) {
+            return new MessageTask(handle);
+        }
+    };
+
+    private DefaultProviderProcessor processor;
+    private JChannel channel;
+    private JRequest request;
+    private JResponsePayload response;
+
+    private final Recyclers.Handle<MessageTask> handle;
 
     public MessageTask(DefaultProviderProcessor processor, JChannel channel, JRequest request) {
         this.processor = processor;
         this.channel = channel;
         this.request = request;
+        this.handle = null;
+    }
+
+    private MessageTask(Recyclers.Handle<MessageTask> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个task (对象池未开启时等同于 {@code new MessageTask(processor, channel, request)}),
+     * 响应写出完成后task连同request一起被回收.
+     */
+    public static MessageTask newInstance(DefaultProviderProcessor processor, JChannel channel, JRequest request) {
+        MessageTask task = recyclers.get();
+        task.processor = processor;
+        task.channel = channel;
+        task.request = request;
+        return task;
     }
 
     @Override
@@ -94,32 +137,42 @@ public class MessageTask implements RejectedRunnable {
         final DefaultProviderProcessor _processor = processor;
         final JRequest _request = request;
 
+        final JRequestPayload _requestPayload = _request.payload();
+
+        // 在队列中等待的时间已经超过了consumer端的超时时间, 不必再反序列化
+        if (isExpired()) {
+            _requestPayload.releaseInputBuf();
+            dropExpired(MetricsHolder.expiredBeforeDeserializationMeter, "deserialization");
+            return;
+        }
+
         // 全局流量控制
         ControlResult ctrl = _processor.flowControl(_request);
         if (!ctrl.isAllowed()) {
+            _requestPayload.releaseInputBuf();
             rejected(Status.APP_FLOW_CONTROL, new JupiterFlowControlException(String.valueOf(ctrl)));
             return;
         }
 
         MessageWrapper msg;
         try {
-            JRequestPayload _requestPayload = _request.payload();
-
             byte s_code = _requestPayload.serializerCode();
             Serializer serializer = SerializerFactory.getSerializer(s_code);
 
             // 在业务线程中反序列化, 减轻IO线程负担
-            if (CodecConfig.isCodecLowCopy()) {
-                InputBuf inputBuf = _requestPayload.inputBuf();
+            InputBuf inputBuf = _requestPayload.inputBuf();
+            if (inputBuf != null) {
+                _requestPayload.clear(); // inputBuf的所有权转移给serializer, 由它负责release
                 msg = serializer.readObject(inputBuf, MessageWrapper.class);
             } else {
                 byte[] bytes = _requestPayload.bytes();
+                _requestPayload.clear();
                 msg = serializer.readObject(bytes, MessageWrapper.class);
             }
-            _requestPayload.clear();
 
             _request.message(msg);
         } catch (Throwable t) {
+            _requestPayload.releaseInputBuf();
             rejected(Status.BAD_REQUEST, new JupiterBadRequestException("reading request failed", t));
             return;
         }
@@ -153,6 +206,7 @@ public class MessageTask implements RejectedRunnable {
 
     @Override
     public void rejected() {
+        request.payload().releaseInputBuf();
         rejected(Status.SERVER_BUSY, new JupiterServerBusyException(String.valueOf(request)));
     }
 
@@ -169,6 +223,12 @@ public class MessageTask implements RejectedRunnable {
 
     @SuppressWarnings("unchecked")
     private void process(ServiceWrapper service) {
+        // provider私有线程池中可能又排了一次队
+        if (isExpired()) {
+            dropExpired(MetricsHolder.expiredBeforeInvocationMeter, "invocation");
+            return;
+        }
+
         final Context invokeCtx = new Context(service);
         try {
             final Object invokeResult = Chains.invoke(request, invokeCtx)
@@ -203,16 +263,116 @@ public class MessageTask implements RejectedRunnable {
     }
 
     private void doProcess(Object realResult) {
+        if (request.payload().hasFlag(JProtocolHeader.FLAG_ONE_WAY)) {
+            // 单向调用, 不需要序列化和写回响应
+            if (METRIC_NEEDED) {
+                long duration = SystemClock.millisClock().now() - request.timestamp();
+                MetricsHolder.processingTimer.update(duration, TimeUnit.MILLISECONDS);
+            }
+            recycle(null);
+            return;
+        }
+
+        if (request.payload().hasFlag(JProtocolHeader.FLAG_STREAMING)) {
+            doStreamProcess(realResult);
+            return;
+        }
+
+        if (isExpired()) {
+            // consumer已经超时, 省掉序列化和写回
+            dropExpired(MetricsHolder.expiredBeforeResponseMeter, "response");
+            return;
+        }
+
+        if (channel.isOverloaded()) {
+            // 对端读得太慢, 写缓冲积压已经超过上限, 丢弃响应(客户端会超时), 也省掉了序列化
+            if (METRIC_NEEDED) {
+                MetricsHolder.overloadedMeter.mark();
+            }
+            if (logger.isWarnEnabled()) {
+                logger.warn("Response dropped, pending write bytes: {}, channel: {}.",
+                        channel.pendingWriteBytes(), channel);
+            }
+            recycle(null);
+            return;
+        }
+
+        handleWriteResponse(newResponsePayload(JResponsePayload.newInstance(request.invokeId()), realResult));
+    }
+
+    /**
+     * 服务端流式调用: 逐个取出结果中的元素, 每个元素作为一个带 {@link JProtocolHeader#FLAG_STREAMING}
+     * 标志位的响应帧写出, 最后写一个普通的响应帧(结果为null)表示结束.
+     *
+     * 只有在channel可写时才会取下一个元素, 客户端消费不过来时会暂停读取, 这边的写缓冲随之积压,
+     * 业务线程就会停在 {@link #awaitWritable()} 上, 从而不会把整个结果堆积在内存里.
+     */
+    private void doStreamProcess(Object realResult) {
+        Iterator<?> items = toIterator(realResult);
+        try {
+            while (items.hasNext()) {
+                awaitWritable();
+
+                // 中间帧不监听写出结果, 不参与池化
+                JResponsePayload responsePayload =
+                        newResponsePayload(new JResponsePayload(request.invokeId()), items.next());
+                responsePayload.setFlag(JProtocolHeader.FLAG_STREAMING);
+                channel.write(responsePayload);
+            }
+        } catch (Signal s) {
+            if (s == STREAMING_STALLED) {
+                processor.handleException(channel, request, Status.SERVER_TIMEOUT,
+                        new JupiterTimeoutException(channel.remoteAddress(), Status.SERVER_TIMEOUT));
+            } else if (logger.isWarnEnabled()) {
+                logger.warn("Streaming response aborted, channel inactive: {}.", channel);
+            }
+            return;
+        } catch (Throwable t) {
+            handleException(null, t);
+            return;
+        } finally {
+            if (realResult instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) realResult).close();
+                } catch (Throwable t) {
+                    logger.warn("Close streaming result failed: {}.", StackTraceUtil.stackTrace(t));
+                }
+            }
+        }
+
+        handleWriteResponse(newResponsePayload(JResponsePayload.newInstance(request.invokeId()), null));
+    }
+
+    private void awaitWritable() throws Signal {
+        if (channel.isWritable() || channel.inIoThread()) {
+            // IO线程中等待可写会死锁, 只能交给netty的写缓冲
+            return;
+        }
+
+        // 由channel可写性变化(或者关闭)的事件唤醒, 等待时间以STREAMING_WRITE_STALL_TIMEOUT_NANOS为上限
+        boolean writable;
+        try {
+            writable = channel.awaitWritable(STREAMING_WRITE_STALL_TIMEOUT_NANOS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw STREAMING_STALLED;
+        }
+        if (!writable) {
+            throw channel.isActive() ? STREAMING_STALLED : STREAMING_INACTIVE;
+        }
+    }
+
+    private JResponsePayload newResponsePayload(JResponsePayload responsePayload, Object realResult) {
         ResultWrapper result = new ResultWrapper();
         result.setResult(realResult);
         byte s_code = request.serializerCode();
         Serializer serializer = SerializerFactory.getSerializer(s_code);
 
-        JResponsePayload responsePayload = new JResponsePayload(request.invokeId());
-
         if (CodecConfig.isCodecLowCopy()) {
+            // 输出缓冲区按响应类型估算大小
+            Object operation = realResult == null ? null : realResult.getClass();
             OutputBuf outputBuf =
-                    serializer.writeObject(channel.allocOutputBuf(), result);
+                    serializer.writeObject(channel.allocOutputBuf(operation), result);
             responsePayload.outputBuf(s_code, outputBuf);
         } else {
             byte[] bytes = serializer.writeObject(result);
@@ -221,7 +381,7 @@ public class MessageTask implements RejectedRunnable {
 
         responsePayload.status(Status.OK.value());
 
-        handleWriteResponse(responsePayload);
+        return responsePayload;
     }
 
     private void handleFail(Context invokeCtx, Throwable t) {
@@ -234,23 +394,71 @@ public class MessageTask implements RejectedRunnable {
     }
 
     private void handleWriteResponse(JResponsePayload response) {
-        channel.write(response, new JFutureListener<JChannel>() {
+        this.response = response;
+        // task本身作为写出结果的listener, 写出完成后回收
+        channel.write(response, this);
+    }
 
-            @Override
-            public void operationSuccess(JChannel channel) throws Exception {
-                if (METRIC_NEEDED) {
-                    long duration = SystemClock.millisClock().now() - request.timestamp();
-                    MetricsHolder.processingTimer.update(duration, TimeUnit.MILLISECONDS);
-                }
-            }
+    @Override
+    public void operationSuccess(JChannel channel) throws Exception {
+        if (METRIC_NEEDED) {
+            long duration = SystemClock.millisClock().now() - request.timestamp();
+            MetricsHolder.processingTimer.update(duration, TimeUnit.MILLISECONDS);
+        }
+        recycle(response);
+    }
 
-            @Override
-            public void operationFailure(JChannel channel, Throwable cause) throws Exception {
-                long duration = SystemClock.millisClock().now() - request.timestamp();
-                logger.error("Response sent failed, duration: {} millis, channel: {}, cause: {}.",
-                        duration, channel, cause);
-            }
-        });
+    @Override
+    public void operationFailure(JChannel channel, Throwable cause) throws Exception {
+        long duration = SystemClock.millisClock().now() - request.timestamp();
+        logger.error("Response sent failed, duration: {} millis, channel: {}, cause: {}.",
+                duration, channel, cause);
+        recycle(response);
+    }
+
+    /**
+     * consumer端带过来的超时时间已经过了, 再处理也没有意义.
+     */
+    private boolean isExpired() {
+        if (!SHED_EXPIRED) {
+            return false;
+        }
+        JRequestPayload payload = request.payload();
+        long timeoutMillis = payload.timeoutMillis();
+        // 从解码完成时开始计时, 不包括网络传输的时间, 判定只会偏晚不会偏早
+        return timeoutMillis > 0 && SystemClock.millisClock().now() - payload.timestamp() > timeoutMillis;
+    }
+
+    private void dropExpired(Meter meter, String stage) {
+        if (METRIC_NEEDED) {
+            meter.mark();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Expired request dropped before {}, timeout: {} millis, request: {}, channel: {}.",
+                    stage, request.payload().timeoutMillis(), request, channel);
+        }
+        recycle(null);
+    }
+
+    /**
+     * 请求的生命周期结束(响应已经写出或者不需要响应), 归还task/request/response到对象池.
+     *
+     * 异常和拒绝的分支不回收, 交给GC即可.
+     */
+    private void recycle(JResponsePayload response) {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        if (response != null) {
+            response.recycle();
+        }
+        JRequest _request = request;
+        processor = null;
+        channel = null;
+        request = null;
+        this.response = null;
+        _request.recycle();
+        handle.recycle(this);
     }
 
     private void handleException(Class<?>[] exceptionTypes, Throwable failCause) {
@@ -270,6 +478,23 @@ public class MessageTask implements RejectedRunnable {
         processor.handleException(channel, request, Status.SERVICE_UNEXPECTED_ERROR, failCause);
     }
 
+    private static Iterator<?> toIterator(Object result) {
+        if (result == null) {
+            return Collections.emptyIterator();
+        }
+        if (result instanceof Iterator) {
+            return (Iterator<?>) result;
+        }
+        if (result instanceof Iterable) {
+            return ((Iterable<?>) result).iterator();
+        }
+        if (result instanceof BaseStream) {
+            return ((BaseStream<?, ?>) result).iterator();
+        }
+        // 非集合类型的结果作为只有一个元素的流
+        return Collections.singletonList(result).iterator();
+    }
+
     private static Object invoke(MessageWrapper msg, Context invokeCtx) throws Signal {
         ServiceWrapper service = invokeCtx.getService();
         Object provider = service.getServiceProvider();
@@ -453,5 +678,11 @@ public class MessageTask implements RejectedRunnable {
         static final Timer processingTimer              = Metrics.timer("processing");
         // 请求被拒绝次数统计
         static final Meter rejectionMeter               = Metrics.meter("rejection");
+        // 写缓冲积压超过上限而丢弃的响应数统计
+        static final Meter overloadedMeter              = Metrics.meter("overloaded");
+        // 超过consumer端超时时间而丢弃的请求数统计, 分别在反序列化之前/调用之前/写响应之前
+        static final Meter expiredBeforeDeserializationMeter = Metrics.meter("expired.before_deserialization");
+        static final Meter expiredBeforeInvocationMeter      = Metrics.meter("expired.before_invocation");
+        static final Meter expiredBeforeResponseMeter        = Metrics.meter("expired.before_response");
     }
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.dispatcher;
+
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import org.jupiter.serialization.io.OutputBuf;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JFutureListener;
+import org.jupiter.transport.exception.ChannelOverloadedException;
+import org.jupiter.transport.payload.JRequestPayload;
+
+/**
+ * 在途窗口: 窗口内直接写出, 超出窗口排队, 队列满了拒绝, 排队超时的请求立即让出排队名额并释放缓冲区.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.dispatcher
+ *
+ * @author jiachun.fjc
+ */
+public class InFlightWindowTest {
+
+    public static void main(String[] args) {
+        testAcquireQueueAndRelease();
+        testReject();
+        testCancelledEntries();
+        System.out.println("ok");
+    }
+
+    private static void testAcquireQueueAndRelease() {
+        TestChannel channel = new TestChannel();
+        InFlightWindow window = new InFlightWindow(channel, 2, 2);
+
+        Call c1 = Call.write(window, 1);
+        Call c2 = Call.write(window, 2);
+        check(channel.written.size() == 2, "writes within the window go out immediately");
+        check(window.inFlight() == 2 && window.queued() == 0, "two in flight");
+
+        Call c3 = Call.write(window, 3);
+        Call c4 = Call.write(window, 4);
+        check(channel.written.size() == 2, "writes beyond the window are queued");
+        check(window.queued() == 2 && window.isSaturated(), "window and queue are full");
+
+        // 收到响应后归还窗口, 排队的请求按顺序写出
+        c1.future.complete(null);
+        check(channel.written.size() == 3 && channel.written.get(2) == c3.payload, "queued request is written in order");
+        check(window.inFlight() == 2 && window.queued() == 1, "one slot handed over to the queued request");
+
+        c2.future.complete(null);
+        c3.future.complete(null);
+        check(channel.written.size() == 4 && channel.written.get(3) == c4.payload, "queue drained");
+        c4.future.complete(null);
+        check(window.inFlight() == 0 && window.queued() == 0, "everything released");
+        check(!c1.buf.released && !c4.buf.released, "written buffers belong to the transport");
+    }
+
+    private static void testReject() {
+        TestChannel channel = new TestChannel();
+        InFlightWindow window = new InFlightWindow(channel, 1, 1);
+
+        Call.write(window, 1);
+        Call.write(window, 2);
+        Call c3 = Call.write(window, 3);
+        check(c3.failure instanceof ChannelOverloadedException, "rejected when the queue is full");
+        check(c3.buf.released, "rejected request's buffer is released");
+        check(window.inFlight() == 1 && window.queued() == 1, "rejection does not change the counters");
+    }
+
+    private static void testCancelledEntries() {
+        TestChannel channel = new TestChannel();
+        InFlightWindow window = new InFlightWindow(channel, 1, 2);
+
+        // 在途请求的超时时间很长, 排队的请求很快超时
+        Call slow = Call.write(window, 1);
+        Call q1 = Call.write(window, 2);
+        Call q2 = Call.write(window, 3);
+        check(window.isSaturated(), "window and queue are full");
+
+        q1.future.completeExceptionally(new TimeoutException());
+        q2.future.completeExceptionally(new TimeoutException());
+        check(window.queued() == 0 && !window.isSaturated(), "timed out entries leave the queue at once");
+        check(q1.buf.released && q2.buf.released, "timed out entries' buffers are released at once");
+
+        // 超时的请求不再占用排队的名额
+        Call q3 = Call.write(window, 4);
+        Call q4 = Call.write(window, 5);
+        check(q3.failure == null && q4.failure == null, "new requests are queued, not rejected");
+        check(window.queued() == 2, "only live entries are counted");
+
+        slow.future.complete(null);
+        check(channel.written.size() == 2 && channel.written.get(1) == q3.payload, "timed out entries are never written");
+        check(window.inFlight() == 1 && window.queued() == 1, "next live entry took the slot");
+    }
+
+    private static void check(boolean expression, String message) {
+        if (!expression) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static final class Call implements JFutureListener<JChannel> {
+
+        final TestBuf buf = new TestBuf();
+        final JRequestPayload payload;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        volatile Throwable failure;
+
+        Call(long invokeId) {
+            payload = new JRequestPayload(invokeId);
+            payload.outputBuf((byte) 0, buf);
+        }
+
+        static Call write(InFlightWindow window, long invokeId) {
+            Call call = new Call(invokeId);
+            window.write(call.payload, call, call.future);
+            return call;
+        }
+
+        @Override
+        public void operationSuccess(JChannel channel) {}
+
+        @Override
+        public void operationFailure(JChannel channel, Throwable cause) {
+            failure = cause;
+        }
+    }
+
+    static final class TestBuf implements OutputBuf {
+
+        volatile boolean released;
+
+        @Override
+        public OutputStream outputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ByteBuffer nioByteBuffer(int minWritableBytes) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public boolean hasMemoryAddress() {
+            return false;
+        }
+
+        @Override
+        public Object backingObject() {
+            return null;
+        }
+
+        @Override
+        public boolean release() {
+            released = true;
+            return true;
+        }
+    }
+
+    static final class TestChannel implements JChannel {
+
+        final List<Object> written = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String id() {
+            return "test";
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public boolean inIoThread() {
+            return false;
+        }
+
+        @Override
+        public SocketAddress localAddress() {
+            return null;
+        }
+
+        @Override
+        public SocketAddress remoteAddress() {
+            return null;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return true;
+        }
+
+        @Override
+        public long pendingWriteBytes() {
+            return 0;
+        }
+
+        @Override
+        public boolean isOverloaded() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitWritable(long timeoutNanos) {
+            return true;
+        }
+
+        @Override
+        public int inFlightRequests() {
+            return 0;
+        }
+
+        @Override
+        public void incrementInFlight() {}
+
+        @Override
+        public void decrementInFlight() {}
+
+        @Override
+        public void recordLatency(long latencyNanos) {}
+
+        @Override
+        public long latencyEwmaNanos() {
+            return 0;
+        }
+
+        @Override
+        public boolean isMarkedReconnect() {
+            return false;
+        }
+
+        @Override
+        public boolean isAutoRead() {
+            return true;
+        }
+
+        @Override
+        public void setAutoRead(boolean autoRead) {}
+
+        @Override
+        public JChannel close() {
+            return this;
+        }
+
+        @Override
+        public JChannel close(JFutureListener<JChannel> listener) {
+            return this;
+        }
+
+        @Override
+        public byte protocolVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean isWriteBatchEnabled() {
+            return false;
+        }
+
+        @Override
+        public JChannel write(Object msg) {
+            written.add(msg);
+            return this;
+        }
+
+        @Override
+        public JChannel write(Object msg, JFutureListener<JChannel> listener) {
+            written.add(msg);
+            return this;
+        }
+
+        @Override
+        public void addTask(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public OutputBuf allocOutputBuf() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputBuf allocOutputBuf(Object operation) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
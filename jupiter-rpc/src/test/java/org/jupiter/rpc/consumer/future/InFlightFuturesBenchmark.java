@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.rpc.consumer.future;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jupiter.common.util.Maps;
+import org.jupiter.transport.channel.JChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 对比原来的 ConcurrentMap<Long, ...> / ConcurrentMap<String, ...> 与 {@link InFlightFutures},
+ * 预先放入 {@code outstanding} 个在途调用, 每次操作注册一个新的调用并移除最早的一个, 保持在途数量不变.
+ *
+ * 广播调用每次发给 {@link #BROADCAST_CHANNELS} 个channel, 共享同一个invokeId.
+ *
+ * jupiter
+ * org.jupiter.rpc.consumer.future
+ *
+ * @author jiachun.fjc
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InFlightFuturesBenchmark {
+
+    /*
+        单核虚拟机, -t 2 -prof gc, 吞吐量只做参考, 主要看 B/op (包括每次新建的future本身, 约72字节):
+
+        Benchmark                                                    (outstanding)   Mode  Cnt     Score   Units
+        InFlightFuturesBenchmark.concurrentMapRound                          10000  thrpt    2     3.921  ops/us
+        InFlightFuturesBenchmark.concurrentMapRound:·gc.alloc.rate.norm      10000  thrpt    2   216.452    B/op
+        InFlightFuturesBenchmark.concurrentMapRound                        1000000  thrpt    3     0.458  ops/us
+        InFlightFuturesBenchmark.inFlightFuturesRound                        10000  thrpt    3     7.208  ops/us
+        InFlightFuturesBenchmark.inFlightFuturesRound:·gc.alloc.rate.norm    10000  thrpt    3    72.068    B/op
+        InFlightFuturesBenchmark.inFlightFuturesRound                      1000000  thrpt    3     1.418  ops/us
+        InFlightFuturesBenchmark.concurrentMapBroadcast                      10000  thrpt    3     0.298  ops/us
+        InFlightFuturesBenchmark.concurrentMapBroadcast:·gc.alloc.rate.norm  10000  thrpt    3  1313.400    B/op
+        InFlightFuturesBenchmark.concurrentMapBroadcast                    1000000  thrpt    3     0.057  ops/us
+        InFlightFuturesBenchmark.inFlightFuturesBroadcast                    10000  thrpt    3     1.628  ops/us
+        InFlightFuturesBenchmark.inFlightFuturesBroadcast:·gc.alloc.rate.norm 10000 thrpt    3   288.274    B/op
+        InFlightFuturesBenchmark.inFlightFuturesBroadcast                  1000000  thrpt    3     0.352  ops/us
+     */
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(InFlightFuturesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    static final int BROADCAST_CHANNELS = 4;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int outstanding;
+
+    private final JChannel[] channels = new JChannel[BROADCAST_CHANNELS];
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConcurrentMap<Long, DefaultInvokeFuture<?>> roundMap;
+    private ConcurrentMap<String, DefaultInvokeFuture<?>> broadcastMap;
+    private InFlightFutures roundFutures;
+    private InFlightFutures broadcastFutures;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = newChannel("channel-" + i);
+        }
+
+        roundMap = Maps.newConcurrentMapLong(1024);
+        broadcastMap = Maps.newConcurrentMap(1024);
+        roundFutures = new InFlightFutures(Runtime.getRuntime().availableProcessors() << 2, 1024);
+        broadcastFutures = new InFlightFutures(Runtime.getRuntime().availableProcessors() << 2, 1024);
+
+        for (long id = 0; id < outstanding; id++) {
+            roundMap.put(id, new DefaultInvokeFuture<>(id, channels[0], Object.class, false));
+            roundFutures.put(new DefaultInvokeFuture<>(id, channels[0], Object.class, false));
+            for (JChannel ch : channels) {
+                broadcastMap.put(ch.id() + id, new DefaultInvokeFuture<>(id, ch, Object.class, true));
+                broadcastFutures.put(new DefaultInvokeFuture<>(id, ch, Object.class, true));
+            }
+        }
+        sequence.set(outstanding);
+    }
+
+    // 多线程下移除的调用可能还没有被其他线程放进去, 对测试结果的影响可以忽略
+
+    @Benchmark
+    public Object concurrentMapRound() {
+        long id = sequence.getAndIncrement();
+        roundMap.put(id, new DefaultInvokeFuture<>(id, channels[0], Object.class, false));
+        return roundMap.remove(id - outstanding);
+    }
+
+    @Benchmark
+    public Object inFlightFuturesRound() {
+        long id = sequence.getAndIncrement();
+        roundFutures.put(new DefaultInvokeFuture<>(id, channels[0], Object.class, false));
+        return roundFutures.remove(id - outstanding, channels[0]);
+    }
+
+    @Benchmark
+    public Object concurrentMapBroadcast() {
+        long id = sequence.getAndIncrement();
+        Object removed = null;
+        for (JChannel ch : channels) {
+            broadcastMap.put(ch.id() + id, new DefaultInvokeFuture<>(id, ch, Object.class, true));
+        }
+        for (JChannel ch : channels) {
+            removed = broadcastMap.remove(ch.id() + (id - outstanding));
+        }
+        return removed;
+    }
+
+    @Benchmark
+    public Object inFlightFuturesBroadcast() {
+        long id = sequence.getAndIncrement();
+        Object removed = null;
+        for (JChannel ch : channels) {
+            broadcastFutures.put(new DefaultInvokeFuture<>(id, ch, Object.class, true));
+        }
+        for (JChannel ch : channels) {
+            removed = broadcastFutures.remove(id - outstanding, ch);
+        }
+        return removed;
+    }
+
+    private static JChannel newChannel(String id) {
+        return (JChannel) Proxy.newProxyInstance(
+                JChannel.class.getClassLoader(),
+                new Class<?>[] { JChannel.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "id":
+                            return id;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return id;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
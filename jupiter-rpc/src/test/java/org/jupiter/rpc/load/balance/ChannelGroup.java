@@ -32,6 +32,9 @@ import org.jupiter.transport.channel.JChannelGroup;
 public class ChannelGroup implements JChannelGroup {
     public int index;
     public int weight;
+    public boolean writable = true;
+    public int inFlight;
+    public long latency;
 
     public volatile long timestamp = SystemClock.millisClock().now();
 
@@ -99,6 +102,11 @@ public class ChannelGroup implements JChannelGroup {
         return false;
     }
 
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
     @Override
     public boolean waitForAvailable(long timeoutMillis) {
         return false;
@@ -133,6 +141,16 @@ public class ChannelGroup implements JChannelGroup {
         return true;
     }
 
+    @Override
+    public int inFlightRequests() {
+        return inFlight;
+    }
+
+    @Override
+    public long latencyEwmaNanos() {
+        return latency;
+    }
+
     @Override
     public long timestamp() {
         return timestamp;
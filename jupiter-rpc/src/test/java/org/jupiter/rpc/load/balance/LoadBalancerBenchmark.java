@@ -73,6 +73,15 @@ public class LoadBalancerBenchmark {
         LoadBalancerBenchmark.roundRobin                         ss      10   17424.000 ± 7863.309   ns/op
      */
 
+    /*
+        peakEwma与上面不是同一台机器, 同一次运行的对比 (-bm avgt -wi 3 -i 5):
+
+        Benchmark                         Mode  Cnt    Score     Error  Units
+        LoadBalancerBenchmark.peakEwma    avgt    5  168.904 ±  47.963  ns/op
+        LoadBalancerBenchmark.random      avgt    5   87.962 ±  29.362  ns/op
+        LoadBalancerBenchmark.roundRobin  avgt    5  194.395 ± 100.144  ns/op
+     */
+
     static final CopyOnWriteGroupList groupList = new CopyOnWriteGroupList(new DirectoryJChannelGroup());
     static final Directory directory = new Directory() {
         @Override
@@ -97,12 +106,15 @@ public class LoadBalancerBenchmark {
             ChannelGroup c = new ChannelGroup();
             c.index = i;
             c.weight = (i == 5 ? 10 : 2);
+            c.latency = (i % 10 + 1) * 1000 * 1000;
+            c.inFlight = i % 8;
             groupList.addIfAbsent(c);
         }
     }
 
     static final LoadBalancer rr = new RoundRobinLoadBalancer();
     static final LoadBalancer rm = new RandomLoadBalancer();
+    static final LoadBalancer pe = new PeakEwmaLoadBalancer();
 
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
@@ -121,4 +133,9 @@ public class LoadBalancerBenchmark {
     public void random() {
         rm.select(groupList, directory);
     }
+
+    @Benchmark
+    public void peakEwma() {
+        pe.select(groupList, directory);
+    }
 }
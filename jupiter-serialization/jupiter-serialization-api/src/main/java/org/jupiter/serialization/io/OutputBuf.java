@@ -51,4 +51,10 @@ public interface OutputBuf {
      * Returns the backing object.
      */
     Object backingObject();
+
+    /**
+     * Releases the backing data, only needed when this buf is dropped before it is handed
+     * over to the transport layer (which takes the ownership of {@link #backingObject()}).
+     */
+    boolean release();
 }
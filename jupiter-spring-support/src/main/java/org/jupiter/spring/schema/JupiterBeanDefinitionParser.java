@@ -234,10 +234,12 @@ public class JupiterBeanDefinitionParser implements BeanDefinitionParser {
                                 String timeoutMillis = ((Element) configItem).getAttribute("timeoutMillis");
                                 String clusterStrategy = ((Element) configItem).getAttribute("clusterStrategy");
                                 String failoverRetries = ((Element) configItem).getAttribute("failoverRetries");
+                                String oneWay = ((Element) configItem).getAttribute("oneWay");
 
                                 MethodSpecialConfig config = MethodSpecialConfig.of(methodName)
                                         .timeoutMillis(Long.parseLong(timeoutMillis))
-                                        .strategy(ClusterStrategyConfig.of(clusterStrategy, failoverRetries));
+                                        .strategy(ClusterStrategyConfig.of(clusterStrategy, failoverRetries))
+                                        .oneWay(Boolean.parseBoolean(oneWay));
                                 methodSpecialConfigs.add(config);
                             }
                         }
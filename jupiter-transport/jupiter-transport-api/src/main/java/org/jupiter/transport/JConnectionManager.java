@@ -52,6 +52,16 @@ public class JConnectionManager {
         list.add(connection);
     }
 
+    /**
+     * 不再自动管理这个连接, 用于主动关闭的连接
+     */
+    public void unmanage(JConnection connection) {
+        CopyOnWriteArrayList<JConnection> list = connections.get(connection.getAddress());
+        if (list != null) {
+            list.remove(connection);
+        }
+    }
+
     /**
      * 取消对指定地址的自动重连
      */
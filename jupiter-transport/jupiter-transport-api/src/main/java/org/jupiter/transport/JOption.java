@@ -321,6 +321,62 @@ public final class JOption<T> extends AbstractConstant<JOption<T>> {
      * ==== Netty native epoll options ============================================================================
      */
 
+    /** ==== TLS options, 只对TCP的child channel有效 =========================================================== */
+
+    /**
+     * 开启TLS, 优先使用OpenSSL引擎(需要引入netty-tcnative), 不可用时使用JDK引擎.
+     */
+    public static final JOption<Boolean> SSL_ENABLED = valueOf("SSL_ENABLED");
+
+    /**
+     * PEM格式的证书链文件, acceptor必须设置; connector设置时在双向认证中作为客户端证书.
+     */
+    public static final JOption<String> SSL_CERT_CHAIN_FILE = valueOf("SSL_CERT_CHAIN_FILE");
+
+    /**
+     * PKCS#8 PEM格式的私钥文件, 与 {@link #SSL_CERT_CHAIN_FILE} 配对.
+     */
+    public static final JOption<String> SSL_PRIVATE_KEY_FILE = valueOf("SSL_PRIVATE_KEY_FILE");
+
+    /**
+     * 私钥的密码, 私钥没有加密时不需要设置.
+     */
+    public static final JOption<String> SSL_PRIVATE_KEY_PASSWORD = valueOf("SSL_PRIVATE_KEY_PASSWORD");
+
+    /**
+     * PEM格式的信任证书文件.
+     * connector不设置时使用JDK默认的信任库; acceptor设置后会要求并校验客户端证书(双向认证).
+     */
+    public static final JOption<String> SSL_TRUST_CERT_FILE = valueOf("SSL_TRUST_CERT_FILE");
+
+    /**
+     * 会话缓存的大小, 用于会话复用, 小于等于0使用引擎的默认值.
+     */
+    public static final JOption<Integer> SSL_SESSION_CACHE_SIZE = valueOf("SSL_SESSION_CACHE_SIZE");
+
+    /**
+     * 缓存的会话(以及session ticket)的超时时间, 小于等于0使用引擎的默认值.
+     */
+    public static final JOption<Integer> SSL_SESSION_TIMEOUT_SECONDS = valueOf("SSL_SESSION_TIMEOUT_SECONDS");
+
+    /**
+     * session ticket的密钥文件(48个字节: 16字节name + 16字节HMAC key + 16字节AES key), 只对acceptor并且是
+     * OpenSSL引擎时有效.
+     * 一组provider使用相同的密钥, 客户端重连到其中任何一个(包括重启后的进程)都可以复用会话, 省掉完整的握手;
+     * 不设置时每个进程随机生成.
+     */
+    public static final JOption<String> SSL_SESSION_TICKET_KEY_FILE = valueOf("SSL_SESSION_TICKET_KEY_FILE");
+
+    /**
+     * connector校验服务端证书中的主机名(DNS或IP的SAN)与连接的地址一致, 默认开启.
+     * 只在使用自签名证书之类的测试环境中关闭.
+     */
+    public static final JOption<Boolean> SSL_HOSTNAME_VERIFICATION = valueOf("SSL_HOSTNAME_VERIFICATION");
+
+    /**
+     * ==== TLS options ============================================================================================
+     */
+
     public static final Set<JOption<?>> ALL_OPTIONS;
 
     static {
@@ -353,6 +409,15 @@ public final class JOption<T> extends AbstractConstant<JOption<T>> {
         options.add(TCP_DEFER_ACCEPT);
         options.add(TCP_QUICKACK);
         options.add(EDGE_TRIGGERED);
+        options.add(SSL_ENABLED);
+        options.add(SSL_CERT_CHAIN_FILE);
+        options.add(SSL_PRIVATE_KEY_FILE);
+        options.add(SSL_PRIVATE_KEY_PASSWORD);
+        options.add(SSL_TRUST_CERT_FILE);
+        options.add(SSL_SESSION_CACHE_SIZE);
+        options.add(SSL_SESSION_TIMEOUT_SECONDS);
+        options.add(SSL_SESSION_TICKET_KEY_FILE);
+        options.add(SSL_HOSTNAME_VERIFICATION);
 
         ALL_OPTIONS = Collections.unmodifiableSet(options);
     }
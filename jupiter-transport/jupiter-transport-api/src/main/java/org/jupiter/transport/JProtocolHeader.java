@@ -35,6 +35,17 @@ package org.jupiter.transport;
  * + 8 // 消息 id, long 类型, 未来jupiter可能将id限制在48位, 留出高地址的16位作为扩展字段
  * + 4 // 消息体 body 长度, int 类型
  *
+ * Protocol v2:
+ * 消息头仍然是16个字节定长, 与v1完全兼容, 区别只在于 Invoke Id 的8个字节:
+ * = 1 // flags, 每个帧独立的标志位(压缩/流式/分片/单向调用/优先级)
+ * + 1 // 扩展字段, 目前用作路由键(route key), 转发代理据此选择后端而不需要反序列化消息体, 0表示没有路由键
+ * + 6 // 消息 id, 限制在48位
+ *
+ * 版本在建连时协商: connector在连接建立后发送一个 status 为 {@link #HANDSHAKE_REQUEST} 的心跳包,
+ * id 为本端支持的最高版本, acceptor 回复一个 status 为 {@link #HANDSHAKE_RESPONSE} 的心跳包, id 为协商
+ * 后的版本. v1的decoder会忽略心跳包的 status 和 id, 所以v1的acceptor不会回复, 连接就一直保持在v1.
+ * 只有协商到v2的连接上才允许设置flags, flags为0时v2的帧与v1的帧逐字节相同.
+ *
  * jupiter
  * org.jupiter.transport
  *
@@ -57,6 +68,27 @@ public class JProtocolHeader {
     public static final byte ACK                        = 0x07;     // Acknowledge
     public static final byte HEARTBEAT                  = 0x0f;     // Heartbeat
 
+    /** Protocol Version ============================================================================================ */
+    public static final byte VERSION_1                  = 0x01;
+    public static final byte VERSION_2                  = 0x02;
+
+    /** Heartbeat Status: 借用心跳包的状态位协商协议版本 ============================================================== */
+    public static final byte HANDSHAKE_REQUEST          = 0x01;
+    public static final byte HANDSHAKE_RESPONSE         = 0x02;
+
+    /** Frame Flags(v2): id 高地址的8位 ============================================================================= */
+    public static final byte FLAG_COMPRESSED            = 0x01;     // 消息体经过压缩
+    public static final byte FLAG_STREAMING             = 0x02;     // 流式调用, 同一个id会有多个帧
+    public static final byte FLAG_CHUNKED               = 0x04;     // 分片帧, 消息体需要重新组装
+    public static final byte FLAG_ONE_WAY               = 0x08;     // 单向调用, 不需要响应
+    public static final byte FLAG_PRIORITY              = 0x10;     // 高优先级
+
+    /** v2 中消息 id 的有效位 */
+    public static final long ID_MASK                    = 0x0000ffffffffffffL;
+
+    /** Request Timeout(v2): 请求帧的状态位携带剩余超时时间, 高4位指数, 低4位尾数, 0表示不限 ================== */
+    public static final long MAX_ENCODED_TIMEOUT_MILLIS = 31L << 14;
+
     private byte messageCode;       // sign 低地址4位
 
     /** Serializer Code: 0x01 ~ 0x0f ================================================================================ */
@@ -73,6 +105,61 @@ public class JProtocolHeader {
     private long id;                // request.invokeId, 用于映射 <id, request, response> 三元组
     private int bodySize;           // 消息体长度
 
+    private byte version = VERSION_1;   // 连接上协商后的协议版本, 不在线路上传输
+    private byte flags;                 // v2: id 高地址的8位
+    private byte routeKey;              // v2: id 次高地址的8位
+
+    /**
+     * 将 flags 合并到 id 的高地址位, 只允许在协商到 v2 的连接上使用非零的 flags.
+     *
+     * flags为0时原样返回, 这样v1的对端发来的超过48位的 id 也能原样回写.
+     */
+    public static long toId(long invokeId, byte flags) {
+        return toId(invokeId, flags, (byte) 0);
+    }
+
+    /**
+     * 将 flags 和路由键合并到 id 的高地址位, 同样只允许在协商到 v2 的连接上使用非零值.
+     */
+    public static long toId(long invokeId, byte flags, byte routeKey) {
+        if (flags == 0 && routeKey == 0) {
+            return invokeId;
+        }
+        return (((long) flags & 0xff) << 56) | (((long) routeKey & 0xff) << 48) | (invokeId & ID_MASK);
+    }
+
+    /**
+     * 将剩余超时时间(毫秒)编码到请求帧的状态位, 只向上取整(精度约为1/16), 保证对端不会提前判定超时.
+     *
+     * 小于32ms时精确表示, 超过 {@link #MAX_ENCODED_TIMEOUT_MILLIS} (约8.5分钟) 时编码为0, 即不限.
+     */
+    public static byte encodeTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0 || timeoutMillis > MAX_ENCODED_TIMEOUT_MILLIS) {
+            return 0;
+        }
+        if (timeoutMillis < 32) {
+            return (byte) timeoutMillis;
+        }
+        // timeoutMillis 在 [16 << (e - 1), 32 << (e - 1)) 区间内
+        int e = 63 - Long.numberOfLeadingZeros(timeoutMillis) - 3;
+        long step = 1L << (e - 1);
+        long m = (timeoutMillis + step - 1) / step - 16;
+        if (m == 16) {
+            e++;
+            m = 0;
+        }
+        return (byte) ((e << 4) | m);
+    }
+
+    /**
+     * {@link #encodeTimeout(long)} 的逆运算, 返回0表示不限.
+     */
+    public static long decodeTimeout(byte status) {
+        int e = (status & 0xff) >>> 4;
+        int m = status & 0x0f;
+        return e == 0 ? m : (16L + m) << (e - 1);
+    }
+
     public static byte toSign(byte serializerCode, byte messageCode) {
         return (byte) ((serializerCode << 4) | (messageCode & 0x0f));
     }
@@ -104,8 +191,39 @@ public class JProtocolHeader {
         return id;
     }
 
+    /**
+     * 设置线路上读到的 id, v2 会从中拆出 flags 和路由键.
+     */
     public void id(long id) {
-        this.id = id;
+        if (version >= VERSION_2) {
+            this.flags = (byte) (id >>> 56);
+            this.routeKey = (byte) (id >>> 48);
+            this.id = id & ID_MASK;
+        } else {
+            this.flags = 0;
+            this.routeKey = 0;
+            this.id = id;
+        }
+    }
+
+    public byte version() {
+        return version;
+    }
+
+    public void version(byte version) {
+        this.version = version;
+    }
+
+    public byte flags() {
+        return flags;
+    }
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    public byte routeKey() {
+        return routeKey;
     }
 
     public int bodySize() {
@@ -123,6 +241,9 @@ public class JProtocolHeader {
                 ", serializerCode=" + serializerCode +
                 ", status=" + status +
                 ", id=" + id +
+                ", version=" + version +
+                ", flags=" + flags +
+                ", routeKey=" + routeKey +
                 ", bodySize=" + bodySize +
                 '}';
     }
@@ -34,6 +34,7 @@ public interface Transporter {
      */
     enum Protocol {
         TCP,
-        DOMAIN  // Unix domain socket
+        DOMAIN,         // Unix domain socket
+        SHARED_MEMORY   // 同一台机器上基于共享内存的进程间通信
     }
 }
@@ -80,6 +80,56 @@ public interface JChannel {
      */
     boolean isWritable();
 
+    /**
+     * Returns the number of bytes that were requested to be written but have not
+     * been written to the socket yet, including the messages queued for the I/O thread.
+     */
+    long pendingWriteBytes();
+
+    /**
+     * Returns {@code true} if {@link #pendingWriteBytes()} exceeds the hard limit,
+     * callers should fail fast with a {@link org.jupiter.transport.exception.ChannelOverloadedException}
+     * instead of writing more into this channel.
+     *
+     * 与 {@link #isWritable()} 的水位线不同, 不可写只是建议避开这个channel, 超过上限则拒绝写入.
+     */
+    boolean isOverloaded();
+
+    /**
+     * Waits until this channel becomes writable, is closed, or the specified
+     * waiting time elapses, returns {@link #isWritable()} at that moment.
+     *
+     * 由channel可写性变化的事件唤醒, 不能在IO线程中调用(会死锁).
+     */
+    boolean awaitWritable(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Returns the number of requests sent on this channel that are still waiting
+     * for the response (neither received nor timed out).
+     */
+    int inFlightRequests();
+
+    /**
+     * 请求发出时由consumer调用, 与 {@link #decrementInFlight()} 成对出现.
+     */
+    void incrementInFlight();
+
+    /**
+     * 收到响应或者超时时由consumer调用.
+     */
+    void decrementInFlight();
+
+    /**
+     * 收到响应(或者响应超时)时由consumer调用, 记录本次调用的耗时.
+     */
+    void recordLatency(long latencyNanos);
+
+    /**
+     * 调用耗时的peak EWMA (纳秒): 变慢时立即跟上, 变快时按时间指数衰减, 长时间没有样本时衰减到0.
+     * 没有样本时为0.
+     */
+    long latencyEwmaNanos();
+
     /**
      * Is set up automatic reconnection.
      */
@@ -109,13 +159,34 @@ public interface JChannel {
      */
     JChannel close(JFutureListener<JChannel> listener);
 
+    /**
+     * Returns the protocol version negotiated with the remote peer, it is
+     * {@link org.jupiter.transport.JProtocolHeader#VERSION_1} until the handshake completes,
+     * frame flags must not be used on a v1 channel.
+     */
+    byte protocolVersion();
+
+    /**
+     * Returns {@code true} if writes from non-IO threads are batched, in this mode the
+     * messages are queued and written by a single task in the IO thread, which flushes
+     * only once for all of them.
+     */
+    boolean isWriteBatchEnabled();
+
     /**
      * Requests to write a message on the channel.
+     *
+     * When {@link #isWriteBatchEnabled()} is {@code true} the message may be flushed
+     * together with others.
      */
     JChannel write(Object msg);
 
     /**
      * Requests to write a message on the channel.
+     *
+     * When {@link #isWriteBatchEnabled()} is {@code true} the message may be flushed
+     * together with others, but the {@code listener} is still notified once for this
+     * message, the same as the non-batching mode.
      */
     JChannel write(Object msg, JFutureListener<JChannel> listener);
 
@@ -128,4 +199,15 @@ public interface JChannel {
      * Allocate a {@link OutputBuf}.
      */
     OutputBuf allocOutputBuf();
+
+    /**
+     * Allocate a {@link OutputBuf}, the initial capacity is learned from the
+     * previous writes of the same operation (shared across channels) instead
+     * of this channel.
+     *
+     * @param operation the operation key (e.g. service directory + method name
+     *                  for requests, result type for responses), {@code null}
+     *                  is the same as {@link #allocOutputBuf()}
+     */
+    OutputBuf allocOutputBuf(Object operation);
 }
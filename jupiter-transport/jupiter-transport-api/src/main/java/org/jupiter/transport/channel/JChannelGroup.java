@@ -92,6 +92,12 @@ public interface JChannelGroup {
      */
     boolean isAvailable();
 
+    /**
+     * Returns {@code true} if at least one {@link JChannel} in this group is writable,
+     * load balancers should prefer writable groups.
+     */
+    boolean isWritable();
+
     /**
      * Wait until the {@link JChannel}s are available or timeout,
      * if available return true, otherwise return false.
@@ -133,6 +139,17 @@ public interface JChannelGroup {
      */
     boolean isWarmUpComplete();
 
+    /**
+     * Returns the sum of {@link JChannel#inFlightRequests()} of all channels in this group.
+     */
+    int inFlightRequests();
+
+    /**
+     * Returns the average of {@link JChannel#latencyEwmaNanos()} of all channels in this group,
+     * {@code 0} if there is no sample.
+     */
+    long latencyEwmaNanos();
+
     /**
      * Time of birth.
      */
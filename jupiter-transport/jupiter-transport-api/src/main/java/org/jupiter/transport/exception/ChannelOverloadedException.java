@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.exception;
+
+/**
+ * 写缓冲中积压的数据超过上限(对端处理太慢或者网络拥塞), 拒绝继续写入.
+ *
+ * 见 {@link org.jupiter.transport.channel.JChannel#isOverloaded()}
+ *
+ * jupiter
+ * org.jupiter.transport.exception
+ *
+ * @author jiachun.fjc
+ */
+public class ChannelOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 2374616423417253094L;
+
+    public ChannelOverloadedException() {
+        super();
+    }
+
+    public ChannelOverloadedException(String message) {
+        super(message);
+    }
+
+    public ChannelOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ChannelOverloadedException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -37,4 +37,6 @@ public class IoSignals {
     public static final Signal READER_IDLE      = Signal.valueOf(IoSignals.class, "READER_IDLE");
     /** Protocol body 太大 */
     public static final Signal BODY_TOO_LARGE   = Signal.valueOf(IoSignals.class, "BODY_TOO_LARGE");
+    /** 请求在写出之前就已经超时 */
+    public static final Signal DEADLINE_EXCEEDED = Signal.valueOf(IoSignals.class, "DEADLINE_EXCEEDED");
 }
@@ -16,6 +16,8 @@
 package org.jupiter.transport.payload;
 
 import org.jupiter.common.util.LongSequence;
+import org.jupiter.common.util.Recyclers;
+import org.jupiter.transport.JProtocolHeader;
 
 /**
  * 请求的消息体bytes/stream载体, 避免在IO线程中序列化/反序列化, jupiter-transport这一层不关注消息体的对象结构.
@@ -33,20 +35,66 @@ public class JRequestPayload extends PayloadHolder {
     // 所以id可在 <Long.MIN_VALUE ~ Long.MAX_VALUE> 范围内从小到大循环利用, 即使溢出也是没关系的, 并且只是从理论上
     // 才有溢出的可能, 比如一个100万qps的系统把 <0 ~ Long.MAX_VALUE> 范围内的id都使用完大概需要29万年.
     //
-    // 未来jupiter可能将invokeId限制在48位, 留出高地址的16位作为扩展字段.
+    // 协议v2将invokeId限制在48位, 留出高地址的16位作为扩展字段(见 JProtocolHeader), 48位的id对于一个100万qps的
+    // 系统来说大概需要9年才会循环一次, 仍然足够.
     private static final LongSequence sequence = new LongSequence();
 
+    // 只用于provider端decoder创建的payload, consumer端的请求在集群容错(failover)时会被重复发送, 不参与池化
+    private static final Recyclers<JRequestPayload> recyclers = new Recyclers<JRequestPayload>() {
+
+        @Override
+        protected JRequestPayload newObject(Handle<JRequestPayload> handle) {
+            return new JRequestPayload(handle);
+        }
+    };
+
     // 用于映射 <id, request, response> 三元组
-    private final long invokeId;
+    private long invokeId;
     // jupiter-transport层会在协议解析完成后打上一个时间戳, 用于后续监控对该请求的处理时间
     private transient long timestamp;
+    // 剩余超时时间(毫秒), 协议v2中由请求帧的状态位携带, 0表示不限
+    private transient long timeoutMillis;
+    // consumer端请求的截止时间(SystemClock.millisClock()), 编码时才换算成剩余超时时间, 0表示没有设置
+    private transient long deadlineMillis;
+
+    private final transient Recyclers.Handle<JRequestPayload> handle;
 
     public JRequestPayload() {
-        this(sequence.next());
+        this(sequence.next() & JProtocolHeader.ID_MASK);
     }
 
     public JRequestPayload(long invokeId) {
         this.invokeId = invokeId;
+        this.handle = null;
+    }
+
+    private JRequestPayload(Recyclers.Handle<JRequestPayload> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个payload (对象池未开启时等同于 {@code new JRequestPayload(invokeId)}),
+     * 使用完毕后调用 {@link #recycle()} 归还.
+     */
+    public static JRequestPayload newInstance(long invokeId) {
+        JRequestPayload payload = recyclers.get();
+        payload.invokeId = invokeId;
+        return payload;
+    }
+
+    /**
+     * 归还到对象池, 对象池未开启或者非池化创建的对象调用此方法什么也不做.
+     */
+    public void recycle() {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        reset();
+        invokeId = 0;
+        timestamp = 0;
+        timeoutMillis = 0;
+        deadlineMillis = 0;
+        handle.recycle(this);
     }
 
     public long invokeId() {
@@ -60,4 +108,24 @@ public class JRequestPayload extends PayloadHolder {
     public void timestamp(long timestamp) {
         this.timestamp = timestamp;
     }
+
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void timeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long deadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * 请求在发出之前可能还要在本地排队(在途窗口、批量写队列), 所以consumer只记录截止时间,
+     * 由encoder在真正写出时换算成剩余超时时间.
+     */
+    public void deadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
 }
@@ -15,6 +15,8 @@
  */
 package org.jupiter.transport.payload;
 
+import org.jupiter.common.util.Recyclers;
+
 /**
  * 响应的消息体bytes/stream载体, 避免在IO线程中序列化/反序列化, jupiter-transport这一层不关注消息体的对象结构.
  *
@@ -25,12 +27,50 @@ package org.jupiter.transport.payload;
  */
 public class JResponsePayload extends PayloadHolder {
 
+    private static final Recyclers<JResponsePayload> recyclers = new Recyclers<JResponsePayload>() {
+
+        @Override
+        protected JResponsePayload newObject(Handle<JResponsePayload> handle) {
+            return new JResponsePayload(handle);
+        }
+    };
+
     // 用于映射 <id, request, response> 三元组
-    private final long id; // request.invokeId
+    private long id; // request.invokeId
     private byte status;
 
+    private final transient Recyclers.Handle<JResponsePayload> handle;
+
     public JResponsePayload(long id) {
         this.id = id;
+        this.handle = null;
+    }
+
+    private JResponsePayload(Recyclers.Handle<JResponsePayload> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池中获取一个payload (对象池未开启时等同于 {@code new JResponsePayload(id)}),
+     * 使用完毕后调用 {@link #recycle()} 归还.
+     */
+    public static JResponsePayload newInstance(long id) {
+        JResponsePayload payload = recyclers.get();
+        payload.id = id;
+        return payload;
+    }
+
+    /**
+     * 归还到对象池, 对象池未开启或者非池化创建的对象调用此方法什么也不做.
+     */
+    public void recycle() {
+        if (handle == null || !Recyclers.isEnabled()) {
+            return;
+        }
+        reset();
+        id = 0;
+        status = 0;
+        handle.recycle(this);
     }
 
     public long id() {
@@ -37,6 +37,10 @@ import org.jupiter.serialization.io.OutputBuf;
 public abstract class PayloadHolder {
 
     private byte serializerCode;
+    // 协议v2的帧标志位, 见 JProtocolHeader#FLAG_*, 只能在协商到v2的连接上设置
+    private byte flags;
+    // 协议v2的路由键, 见 JProtocolHeader#routeKey(), 只有请求才会设置
+    private byte routeKey;
 
     private byte[] bytes;
     private InputBuf inputBuf;
@@ -46,6 +50,30 @@ public abstract class PayloadHolder {
         return serializerCode;
     }
 
+    public byte flags() {
+        return flags;
+    }
+
+    public void flags(byte flags) {
+        this.flags = flags;
+    }
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    public void setFlag(byte flag) {
+        flags |= flag;
+    }
+
+    public byte routeKey() {
+        return routeKey;
+    }
+
+    public void routeKey(byte routeKey) {
+        this.routeKey = routeKey;
+    }
+
     public byte[] bytes() {
         return bytes;
     }
@@ -80,6 +108,47 @@ public abstract class PayloadHolder {
         outputBuf = null;
     }
 
+    /**
+     * transport层decoder交出的 {@link InputBuf} 可能是网络缓冲区的引用计数视图, 它的释放规则如下:
+     *
+     * 1. 正常情况下由 {@code Serializer#readObject(InputBuf, Class)} 在反序列化完成后负责release,
+     *    调用方在把 {@link InputBuf} 交给serializer之前应先 {@link #clear()}, 表示所有权已经转移;
+     * 2. 如果在反序列化之前就丢弃了这个payload(比如被流控拒绝、线程池拒绝), 必须调用此方法释放.
+     *
+     * 对已经 {@link #clear()} 过的payload调用此方法什么也不做.
+     */
+    public void releaseInputBuf() {
+        InputBuf buf = inputBuf;
+        if (buf != null) {
+            inputBuf = null;
+            buf.release();
+        }
+    }
+
+    /**
+     * 编码之前就丢弃了这个payload(比如在途窗口排队超时、被拒绝)时调用, 释放序列化时分配的 {@link OutputBuf},
+     * 已经交给transport层写出的payload不能调用此方法.
+     */
+    public void releaseOutputBuf() {
+        OutputBuf buf = outputBuf;
+        if (buf != null) {
+            outputBuf = null;
+            buf.release();
+        }
+    }
+
+    /**
+     * 对象池回收前重置所有状态, 尚未被消费的 {@link InputBuf} 会在这里释放.
+     */
+    void reset() {
+        releaseInputBuf();
+        serializerCode = 0;
+        flags = 0;
+        routeKey = 0;
+        bytes = null;
+        outputBuf = null;
+    }
+
     public int size() {
         return (bytes == null ? 0 : bytes.length)
                 + (inputBuf == null ? 0 : inputBuf.size())
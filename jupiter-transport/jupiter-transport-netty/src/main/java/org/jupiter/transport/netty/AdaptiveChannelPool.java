@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JConnection;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JChannelGroup;
+import org.jupiter.transport.netty.channel.NettyChannel;
+import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
+
+/**
+ * 自适应的连接池, 根据每个地址(group)的负载在 [min, max] 范围内增减连接数.
+ *
+ * 单个连接只会落在一个event loop上, 流量高峰时容易成为瓶颈; 而固定的多个连接在低峰期
+ * 又会浪费大量的文件描述符(成千上万个consumer乘以provider数量).
+ *
+ * 定期采样group内每个channel的in-flight请求数以及待写出的字节数(outbound queue depth):
+ * 1. 平均值超过阈值时新建一个连接(一次检查最多新建一个);
+ * 2. 持续一段时间负载很低(去掉一个连接后仍然远低于阈值)时关闭一个由连接池新建的连接,
+ *    关闭前先从group中摘掉并等待in-flight请求结束, 最初由客户端建立的连接不会被关闭.
+ *
+ * 通过 -Djupiter.io.channel.pool.adaptive=true 开启.
+ *
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+final class AdaptiveChannelPool implements TimerTask {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AdaptiveChannelPool.class);
+
+    static final boolean ENABLED = SystemPropertyUtil.getBoolean("jupiter.io.channel.pool.adaptive", false);
+
+    // 每个地址的最小/最大连接数
+    private static final int MIN_CHANNELS = Math.max(1, SystemPropertyUtil.getInt("jupiter.io.channel.pool.min", 1));
+    private static final int MAX_CHANNELS = Math.max(MIN_CHANNELS,
+            SystemPropertyUtil.getInt("jupiter.io.channel.pool.max", JConstants.AVAILABLE_PROCESSORS));
+    // 平均每个channel的in-flight请求数超过这个值时扩容
+    private static final int GROW_IN_FLIGHT = SystemPropertyUtil.getInt("jupiter.io.channel.pool.grow.in_flight", 512);
+    // 平均每个channel待写出的字节数超过这个值时扩容
+    private static final long GROW_PENDING_BYTES = SystemPropertyUtil
+            .getLong("jupiter.io.channel.pool.grow.pending.bytes", 1024 * 1024);
+    // 负载持续低于缩容水位的时长
+    private static final long SHRINK_IDLE_MILLIS = SystemPropertyUtil
+            .getLong("jupiter.io.channel.pool.shrink.idle.millis", TimeUnit.MINUTES.toMillis(1));
+    // 关闭连接前等待in-flight请求结束的最长时间
+    private static final long CLOSE_GRACE_MILLIS = SystemPropertyUtil
+            .getLong("jupiter.io.channel.pool.close.grace.millis", TimeUnit.SECONDS.toMillis(5));
+    static final long CHECK_INTERVAL_MILLIS = SystemPropertyUtil
+            .getLong("jupiter.io.channel.pool.check.interval.millis", TimeUnit.SECONDS.toMillis(1));
+
+    private final NettyConnector connector;
+    private final int minChannels;
+    private final int maxChannels;
+    private final int growInFlight;
+    private final long growPendingBytes;
+    private final long shrinkIdleMillis;
+    // 只在timer线程中访问
+    private final Map<JChannelGroup, PoolState> states = Maps.newIdentityHashMap();
+
+    AdaptiveChannelPool(NettyConnector connector) {
+        this(connector, MIN_CHANNELS, MAX_CHANNELS, GROW_IN_FLIGHT, GROW_PENDING_BYTES, SHRINK_IDLE_MILLIS);
+    }
+
+    AdaptiveChannelPool(NettyConnector connector, int minChannels, int maxChannels,
+                        int growInFlight, long growPendingBytes, long shrinkIdleMillis) {
+        this.connector = connector;
+        this.minChannels = minChannels;
+        this.maxChannels = maxChannels;
+        this.growInFlight = growInFlight;
+        this.growPendingBytes = growPendingBytes;
+        this.shrinkIdleMillis = shrinkIdleMillis;
+    }
+
+    @Override
+    public void run(Timeout timeout) throws Exception {
+        try {
+            for (JChannelGroup group : connector.groups()) {
+                if (connector.directoryGroup().getRefCount(group) <= 0) {
+                    // 没有被任何服务引用的group不做调整, 服务下线时连接的重连已经由connectionManager取消了,
+                    // 状态也不再保留
+                    states.remove(group);
+                    continue;
+                }
+                if (group.isEmpty()) {
+                    // 断线由watchdog负责重连
+                    continue;
+                }
+                PoolState state = states.get(group);
+                if (state == null) {
+                    states.put(group, state = new PoolState());
+                }
+                adjust(group, state);
+            }
+        } catch (Throwable t) {
+            logger.error("Adaptive channel pool check failed: {}.", StackTraceUtil.stackTrace(t));
+        } finally {
+            if (!timeout.isCancelled()) {
+                timeout.timer().newTimeout(this, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void adjust(JChannelGroup group, PoolState state) {
+        if (state.connecting) {
+            return;
+        }
+
+        List<? extends JChannel> channels = group.channels();
+        int size = channels.size();
+        if (size == 0) {
+            return;
+        }
+
+        long inFlight = 0;
+        long pendingBytes = 0;
+        for (JChannel ch : channels) {
+            inFlight += ch.inFlightRequests();
+            pendingBytes += ch.pendingWriteBytes();
+        }
+
+        if (shouldGrow(size, inFlight, pendingBytes)) {
+            state.lowLoadSince = -1;
+            grow(group, state, size);
+            return;
+        }
+
+        if (shouldShrink(state, size, inFlight, pendingBytes, SystemClock.millisClock().now())) {
+            shrink(group, state);
+        }
+    }
+
+    boolean shouldGrow(int size, long inFlight, long pendingBytes) {
+        return size < minChannels
+                || (size < maxChannels && (inFlight > (long) growInFlight * size || pendingBytes > growPendingBytes * size));
+    }
+
+    /**
+     * 负载持续 {@code shrinkIdleMillis} 都很低时返回 {@code true}, 一个周期最多关闭一个连接.
+     */
+    boolean shouldShrink(PoolState state, int size, long inFlight, long pendingBytes, long now) {
+        // 去掉一个连接之后平均负载仍然不到扩容阈值的一半
+        int remains = size - 1;
+        boolean lowLoad = size > minChannels
+                && !state.grown.isEmpty()
+                && inFlight * 2 < (long) growInFlight * remains
+                && pendingBytes * 2 < growPendingBytes * remains;
+        if (!lowLoad) {
+            state.lowLoadSince = -1;
+            return false;
+        }
+        if (state.lowLoadSince < 0) {
+            state.lowLoadSince = now;
+            return false;
+        }
+        if (now - state.lowLoadSince >= shrinkIdleMillis) {
+            state.lowLoadSince = now;
+            return true;
+        }
+        return false;
+    }
+
+    private void grow(final JChannelGroup group, final PoolState state, int size) {
+        state.connecting = true;
+        // watchdog只在 size < capacity 时重连, 这里要同步放大capacity
+        group.setCapacity(Math.max(group.getCapacity(), size + 1));
+
+        final JConnection connection;
+        try {
+            connection = connector.connect(group.remoteAddress(), true);
+        } catch (Throwable t) {
+            state.connecting = false;
+            logger.warn("Adaptive channel pool failed to connect to {}: {}.", group.remoteAddress(), StackTraceUtil.stackTrace(t));
+            return;
+        }
+
+        connection.operationComplete(isSuccess -> {
+            // watchdog是Sharable的, 这个连接以后重连出来的channel上都是同一个实例
+            ConnectionWatchdog watchdog = isSuccess
+                    ? ((JNettyConnection) connection).getFuture().channel().pipeline().get(ConnectionWatchdog.class)
+                    : null;
+            if (watchdog != null) {
+                state.grown.push(new PooledConnection(connection, watchdog));
+                connector.connectionManager().manage(connection);
+                if (logger.isInfoEnabled()) {
+                    logger.info("Adaptive channel pool grew {} to {} channels.", group.remoteAddress(), group.size());
+                }
+            } else {
+                if (isSuccess) {
+                    // 刚建立就断开了(pipeline已经清空), 以后也认不出它的channel, 不再重连
+                    connection.setReconnect(false);
+                }
+                group.setCapacity(Math.max(1, group.getCapacity() - 1));
+            }
+            state.connecting = false;
+        });
+    }
+
+    private void shrink(JChannelGroup group, PoolState state) {
+        PooledConnection pooled = state.grown.poll();
+        if (pooled == null) {
+            return;
+        }
+
+        pooled.connection.setReconnect(false);
+        connector.connectionManager().unmanage(pooled.connection);
+        group.setCapacity(Math.max(minChannels, group.getCapacity() - 1));
+
+        NettyChannel target = findChannel(group, pooled.watchdog);
+        if (target == null) {
+            return; // 当前处于断开状态, 停止重连即可
+        }
+
+        // 先摘掉, 不再有新的请求落到这个channel上
+        group.remove(target);
+        if (logger.isInfoEnabled()) {
+            logger.info("Adaptive channel pool shrank {} to {} channels.", group.remoteAddress(), group.size());
+        }
+
+        closeWhenDrained(target, SystemClock.millisClock().now() + CLOSE_GRACE_MILLIS);
+    }
+
+    /**
+     * 断线重连后channel会变, 通过这个连接自己的watchdog实例找到它当前的channel,
+     * 不能按watchdog的状态找, 否则可能关掉用户取消了重连的连接.
+     */
+    static NettyChannel findChannel(JChannelGroup group, ConnectionWatchdog watchdog) {
+        for (JChannel ch : group.channels()) {
+            if (((NettyChannel) ch).channel().pipeline().get(ConnectionWatchdog.class) == watchdog) {
+                return (NettyChannel) ch;
+            }
+        }
+        return null;
+    }
+
+    private void closeWhenDrained(final NettyChannel channel, final long deadline) {
+        if (channel.inFlightRequests() <= 0 || SystemClock.millisClock().now() >= deadline || !channel.isActive()) {
+            channel.close();
+            return;
+        }
+        connector.timer.newTimeout(timeout -> closeWhenDrained(channel, deadline), 100, TimeUnit.MILLISECONDS);
+    }
+
+    static final class PoolState {
+        // 由连接池新建的连接, 缩容时只关闭这些连接
+        final Deque<PooledConnection> grown = new ConcurrentLinkedDeque<>();
+        volatile boolean connecting;
+        long lowLoadSince = -1;
+    }
+
+    static final class PooledConnection {
+        final JConnection connection;
+        final ConnectionWatchdog watchdog;
+
+        PooledConnection(JConnection connection, ConnectionWatchdog watchdog) {
+            this.connection = connection;
+            this.watchdog = watchdog;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.netty.channel.NettyChannel;
+
+/**
+ * 协议版本协商.
+ *
+ * 借用心跳包完成, v1的decoder会忽略心跳包的 status 和 id, 所以与v1的对端是兼容的:
+ * connector在连接建立后发送 {@link JProtocolHeader#HANDSHAKE_REQUEST}, id 为本端支持的最高版本;
+ * acceptor取双方的最小版本, 回复 {@link JProtocolHeader#HANDSHAKE_RESPONSE}.
+ * 没有收到回复的连接一直保持在 {@link JProtocolHeader#VERSION_1}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+public final class Handshakes {
+
+    // 本端支持的最高协议版本, 设置为1则不发起协商
+    private static final byte LOCAL_VERSION = (byte) SystemPropertyUtil.getInt(
+            "jupiter.io.protocol.version", JProtocolHeader.VERSION_2);
+
+    private static final ByteBuf HANDSHAKE_REQUEST_BUF = newContent(JProtocolHeader.HANDSHAKE_REQUEST, LOCAL_VERSION);
+
+    public static boolean isNegotiationEnabled() {
+        return LOCAL_VERSION >= JProtocolHeader.VERSION_2;
+    }
+
+    /**
+     * Returns the shared handshake request content.
+     */
+    public static ByteBuf handshakeRequestContent() {
+        return HANDSHAKE_REQUEST_BUF.duplicate();
+    }
+
+    /**
+     * 由decoder在读到心跳包后调用, 普通心跳包什么也不做.
+     *
+     * 协商后的版本会同时设置到decoder的 {@link JProtocolHeader} 和 {@link NettyChannel} 上, 前者用于解析后续
+     * 帧的 id, 后者用于上层判断是否可以使用帧标志位.
+     */
+    public static void handle(ChannelHandlerContext ctx, JProtocolHeader header) {
+        byte status = header.status();
+        if (status != JProtocolHeader.HANDSHAKE_REQUEST && status != JProtocolHeader.HANDSHAKE_RESPONSE) {
+            return;
+        }
+
+        long peerVersion = header.id();
+        byte version = (byte) Math.max(JProtocolHeader.VERSION_1, Math.min(LOCAL_VERSION, peerVersion));
+
+        header.version(version);
+        NettyChannel.attachChannel(ctx.channel()).protocolVersion(version);
+
+        if (status == JProtocolHeader.HANDSHAKE_REQUEST) {
+            // 在IO线程中直接回复, 保证回复先于之后的任何响应到达对端
+            ctx.writeAndFlush(newContent(JProtocolHeader.HANDSHAKE_RESPONSE, version));
+        }
+    }
+
+    private static ByteBuf newContent(byte status, byte version) {
+        ByteBuf buf = Unpooled.buffer(JProtocolHeader.HEADER_SIZE);
+        buf.writeShort(JProtocolHeader.MAGIC);
+        buf.writeByte(JProtocolHeader.HEARTBEAT);
+        buf.writeByte(status);
+        buf.writeLong(version);
+        buf.writeInt(0);
+        return Unpooled.unreleasableBuffer(buf).asReadOnly();
+    }
+
+    private Handshakes() {}
+}
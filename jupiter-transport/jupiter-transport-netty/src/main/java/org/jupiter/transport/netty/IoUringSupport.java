@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+
+import org.jupiter.common.concurrent.collection.ConcurrentSet;
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * io_uring transport (Linux 5.x+), 由netty的incubator模块提供(netty-incubator-transport-native-io_uring),
+ * 这是一个可选依赖, 所以这里只通过反射访问它, classpath中没有这个模块或者内核不支持时视为不可用.
+ *
+ * 通过 -Djupiter.io.native.io_uring=true 开启, 只对使用native transport的tcp acceptor/connector生效,
+ * 不可用时退回到epoll.
+ *
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+final class IoUringSupport {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IoUringSupport.class);
+
+    private static final String PACKAGE_NAME = "io.netty.incubator.channel.uring.";
+
+    static final boolean PREFERRED = SystemPropertyUtil.getBoolean("jupiter.io.native.io_uring", false);
+
+    private static final Throwable UNAVAILABILITY_CAUSE;
+    private static final Constructor<?> EVENT_LOOP_GROUP_CONSTRUCTOR;
+    private static final Constructor<?> SERVER_SOCKET_CHANNEL_CONSTRUCTOR;
+    private static final Constructor<?> SOCKET_CHANNEL_CONSTRUCTOR;
+    private static final Class<?> CHANNEL_OPTION_CLASS;
+    // IOUringEventLoopGroup 不一定有 setIoRatio, 没有时为null
+    private static final Method SET_IO_RATIO_METHOD;
+
+    // 已经打印过日志的不支持的选项, 每个只打印一次
+    private static final Set<String> unsupported = new ConcurrentSet<>();
+
+    static {
+        Throwable cause = null;
+        Constructor<?> eventLoopGroupConstructor = null;
+        Constructor<?> serverSocketChannelConstructor = null;
+        Constructor<?> socketChannelConstructor = null;
+        Class<?> channelOptionClass = null;
+        Method setIoRatioMethod = null;
+        if (PREFERRED) {
+            try {
+                Class<?> ioUring = Class.forName(PACKAGE_NAME + "IOUring");
+                if ((Boolean) ioUring.getMethod("isAvailable").invoke(null)) {
+                    eventLoopGroupConstructor = Class.forName(PACKAGE_NAME + "IOUringEventLoopGroup")
+                            .getConstructor(int.class, ThreadFactory.class);
+                    serverSocketChannelConstructor = Class.forName(PACKAGE_NAME + "IOUringServerSocketChannel")
+                            .getConstructor();
+                    socketChannelConstructor = Class.forName(PACKAGE_NAME + "IOUringSocketChannel")
+                            .getConstructor();
+                    channelOptionClass = Class.forName(PACKAGE_NAME + "IOUringChannelOption");
+                    try {
+                        setIoRatioMethod = eventLoopGroupConstructor.getDeclaringClass().getMethod("setIoRatio", int.class);
+                    } catch (NoSuchMethodException ignored) {
+                        // io_uring 的 event loop 没有 ioRatio
+                    }
+                } else {
+                    cause = (Throwable) ioUring.getMethod("unavailabilityCause").invoke(null);
+                }
+            } catch (Throwable t) {
+                cause = t;
+            }
+        } else {
+            cause = new UnsupportedOperationException("io_uring is disabled, -Djupiter.io.native.io_uring=true to enable");
+        }
+
+        if (PREFERRED && cause != null) {
+            logger.warn("io_uring transport is unavailable, fall back to epoll: {}.", StackTraceUtil.stackTrace(cause));
+        }
+
+        UNAVAILABILITY_CAUSE = cause;
+        EVENT_LOOP_GROUP_CONSTRUCTOR = eventLoopGroupConstructor;
+        SERVER_SOCKET_CHANNEL_CONSTRUCTOR = serverSocketChannelConstructor;
+        SOCKET_CHANNEL_CONSTRUCTOR = socketChannelConstructor;
+        CHANNEL_OPTION_CLASS = channelOptionClass;
+        SET_IO_RATIO_METHOD = setIoRatioMethod;
+    }
+
+    static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    static EventLoopGroup newEventLoopGroup(int nThreads, ThreadFactory tFactory) {
+        return newInstance(EVENT_LOOP_GROUP_CONSTRUCTOR, nThreads, tFactory);
+    }
+
+    static ServerChannel newServerSocketChannel() {
+        return newInstance(SERVER_SOCKET_CHANNEL_CONSTRUCTOR);
+    }
+
+    static Channel newSocketChannel() {
+        return newInstance(SOCKET_CHANNEL_CONSTRUCTOR);
+    }
+
+    /**
+     * 选项都是按epoll设置的, 而io_uring的channel只认 IOUringChannelOption 中的选项 (与 EpollChannelOption 是
+     * 不同的实例), 这里把它们逐个换成io_uring中的同名选项, io_uring没有的 (比如 EPOLL_MODE) 去掉并打印一次日志.
+     */
+    static void translateOptions(ServerBootstrap boot) {
+        for (Map.Entry<ChannelOption<?>, Object> entry : boot.config().options().entrySet()) {
+            ChannelOption<Object> option = cast(entry.getKey());
+            ChannelOption<Object> translated = translate(option);
+            if (translated != option) {
+                boot.option(option, null);
+                if (translated != null) {
+                    boot.option(translated, entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<ChannelOption<?>, Object> entry : boot.config().childOptions().entrySet()) {
+            ChannelOption<Object> option = cast(entry.getKey());
+            ChannelOption<Object> translated = translate(option);
+            if (translated != option) {
+                boot.childOption(option, null);
+                if (translated != null) {
+                    boot.childOption(translated, entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 见 {@link #translateOptions(ServerBootstrap)}.
+     */
+    static void translateOptions(Bootstrap boot) {
+        for (Map.Entry<ChannelOption<?>, Object> entry : boot.config().options().entrySet()) {
+            ChannelOption<Object> option = cast(entry.getKey());
+            ChannelOption<Object> translated = translate(option);
+            if (translated != option) {
+                boot.option(option, null);
+                if (translated != null) {
+                    boot.option(translated, entry.getValue());
+                }
+            }
+        }
+    }
+
+    static void setIoRatio(EventLoopGroup group, int ioRatio) {
+        if (SET_IO_RATIO_METHOD == null) {
+            if (unsupported.add("ioRatio")) {
+                logger.info("io_uring event loop does not support ioRatio, ignored: {}.", ioRatio);
+            }
+            return;
+        }
+        try {
+            SET_IO_RATIO_METHOD.invoke(group, ioRatio);
+        } catch (Exception e) {
+            logger.warn("Failed to set ioRatio of io_uring event loop: {}.", StackTraceUtil.stackTrace(e));
+        }
+    }
+
+    /**
+     * 非epoll的选项 (包括io_uring与epoll共用的 UnixChannelOption) 原样返回, io_uring不支持时返回null.
+     */
+    private static ChannelOption<Object> translate(ChannelOption<Object> option) {
+        String field = EpollOptionNames.NAMES.get(option);
+        if (field == null) {
+            return option;
+        }
+        try {
+            return cast((ChannelOption<?>) CHANNEL_OPTION_CLASS.getField(field).get(null));
+        } catch (Exception e) {
+            if (unsupported.add(field)) {
+                logger.info("io_uring transport does not support channel option {}, ignored.", field);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * EpollChannelOption 中自己声明的选项 -> 字段名, 有的选项名带类名前缀, 有的 (比如 IP_TRANSPARENT) 没有,
+     * 所以按实例而不是按名字识别.
+     */
+    private static final class EpollOptionNames {
+
+        static final Map<ChannelOption<?>, String> NAMES = new IdentityHashMap<>();
+
+        static {
+            for (Field f : EpollChannelOption.class.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) && ChannelOption.class.isAssignableFrom(f.getType())) {
+                    try {
+                        NAMES.put((ChannelOption<?>) f.get(null), f.getName());
+                    } catch (IllegalAccessException ignored) {
+                        // 只取public的选项
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChannelOption<Object> cast(ChannelOption<?> option) {
+        return (ChannelOption<Object>) option;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newInstance(Constructor<?> constructor, Object... args) {
+        if (constructor == null) {
+            throw new IllegalStateException("io_uring transport is unavailable", UNAVAILABILITY_CAUSE);
+        }
+        try {
+            return (T) constructor.newInstance(args);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create io_uring object: " + constructor.getDeclaringClass(), e);
+        }
+    }
+
+    private IoUringSupport() {}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.common.util.Requires;
+import org.jupiter.transport.CodecConfig;
+import org.jupiter.transport.JConnection;
+import org.jupiter.transport.JOption;
+import org.jupiter.transport.UnresolvedAddress;
+import org.jupiter.transport.channel.JChannelGroup;
+import org.jupiter.transport.exception.ConnectFailedException;
+import org.jupiter.transport.netty.handler.IdleStateChecker;
+import org.jupiter.transport.netty.handler.LowCopyProtocolEncoder;
+import org.jupiter.transport.netty.handler.ProtocolDecoders;
+import org.jupiter.transport.netty.handler.ProtocolEncoder;
+import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
+import org.jupiter.transport.netty.handler.connector.ConnectorHandler;
+import org.jupiter.transport.netty.handler.connector.ConnectorIdleStateTrigger;
+import org.jupiter.transport.netty.shm.SharedMemoryAddress;
+import org.jupiter.transport.processor.ConsumerProcessor;
+
+/**
+ * Jupiter shared memory connector based on netty.
+ *
+ * <pre>
+ * ************************************************************************
+ *                      ┌ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┐
+ *
+ *                 ─ ─ ─│        Server         │─ ─▷
+ *                 │                                 │
+ *                      └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘
+ *                 │                                 ▽
+ *                                              I/O Response
+ *                 │                                 │
+ *
+ *                 │                                 │
+ * ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─
+ * │               │                                 │                │
+ *
+ * │               │                                 │                │
+ *   ┌ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┐      ┌ ─ ─ ─ ─ ─ ─▽─ ─ ─ ─ ─ ─ ─
+ * │  ConnectionWatchdog#outbound        ConnectionWatchdog#inbound│  │
+ *   └ ─ ─ ─ ─ ─ ─ △ ─ ─ ─ ─ ─ ─ ┘      └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─
+ * │                                                 │                │
+ *                 │
+ * │  ┌ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┐       ┌ ─ ─ ─ ─ ─ ─▽─ ─ ─ ─ ─ ─ ┐   │
+ *     IdleStateChecker#outBound         IdleStateChecker#inBound
+ * │  └ ─ ─ ─ ─ ─ ─△─ ─ ─ ─ ─ ─ ┘       └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘   │
+ *                                                   │
+ * │               │                                                  │
+ *                                      ┌ ─ ─ ─ ─ ─ ─▽─ ─ ─ ─ ─ ─ ┐
+ * │               │                     ConnectorIdleStateTrigger    │
+ *                                      └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘
+ * │               │                                 │                │
+ *
+ * │               │                    ┌ ─ ─ ─ ─ ─ ─▽─ ─ ─ ─ ─ ─ ┐   │
+ *                                            ProtocolDecoder
+ * │               │                    └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘   │
+ *                                                   │
+ * │               │                                                  │
+ *                                      ┌ ─ ─ ─ ─ ─ ─▽─ ─ ─ ─ ─ ─ ┐
+ * │               │                         ConnectorHandler         │
+ *    ┌ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┐       └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘
+ * │        ProtocolEncoder                          │                │
+ *    └ ─ ─ ─ ─ ─ ─△─ ─ ─ ─ ─ ─ ┘
+ * │                                                 │                │
+ * ─ ─ ─ ─ ─ ─ ─ ─ ┼ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─
+ *                                       ┌ ─ ─ ─ ─ ─ ▽ ─ ─ ─ ─ ─ ┐
+ *                 │
+ *                                       │       Processor       │
+ *                 │
+ *            I/O Request                └ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ─ ┘
+ *
+ * </pre>
+ *
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+public class JNettySharedMemoryConnector extends NettySharedMemoryConnector {
+
+    // handlers
+    private final ConnectorIdleStateTrigger idleStateTrigger = new ConnectorIdleStateTrigger();
+    private final ChannelOutboundHandler encoder =
+            CodecConfig.isCodecLowCopy() ? new LowCopyProtocolEncoder() : new ProtocolEncoder();
+    private final ConnectorHandler handler = new ConnectorHandler();
+
+    public JNettySharedMemoryConnector() {
+        super();
+    }
+
+    public JNettySharedMemoryConnector(int nWorkers) {
+        super(nWorkers);
+    }
+
+    @Override
+    protected void doInit() {
+        // child options
+        config().setOption(JOption.CONNECT_TIMEOUT_MILLIS, (int) TimeUnit.SECONDS.toMillis(3));
+        // channel factory
+        initChannelFactory();
+    }
+
+    @Override
+    protected void setProcessor(ConsumerProcessor processor) {
+        handler.processor(Requires.requireNotNull(processor, "processor"));
+    }
+
+    @Override
+    public JConnection connect(UnresolvedAddress address, boolean async) {
+        setOptions();
+
+        final Bootstrap boot = bootstrap();
+        final SocketAddress socketAddress = new SharedMemoryAddress(address.getPath());
+        final JChannelGroup group = group(address);
+
+        // 重连watchdog
+        final ConnectionWatchdog watchdog = new ConnectionWatchdog(boot, timer, socketAddress, group) {
+
+            @Override
+            public ChannelHandler[] handlers() {
+                return new ChannelHandler[] {
+                        new FlushConsolidationHandler(JConstants.EXPLICIT_FLUSH_AFTER_FLUSHES, true),
+                        this,
+                        new IdleStateChecker(timer, 0, JConstants.WRITER_IDLE_TIME_SECONDS, 0),
+                        idleStateTrigger,
+                        ProtocolDecoders.newInstance(),
+                        encoder,
+                        handler
+                };
+            }
+        };
+
+        ChannelFuture future;
+        try {
+            synchronized (bootstrapLock()) {
+                boot.handler(new ChannelInitializer<Channel>() {
+
+                    @Override
+                    protected void initChannel(Channel ch) throws Exception {
+                        ch.pipeline().addLast(watchdog.handlers());
+                    }
+                });
+
+                future = boot.connect(socketAddress);
+            }
+
+            // 以下代码在synchronized同步块外面是安全的
+            if (!async) {
+                future.sync();
+            }
+        } catch (Throwable t) {
+            throw new ConnectFailedException("Connects to [" + address + "] fails", t);
+        }
+
+        return new JNettyConnection(address, future) {
+
+            @Override
+            public void setReconnect(boolean reconnect) {
+                if (reconnect) {
+                    watchdog.start();
+                } else {
+                    watchdog.stop();
+                }
+            }
+        };
+    }
+}
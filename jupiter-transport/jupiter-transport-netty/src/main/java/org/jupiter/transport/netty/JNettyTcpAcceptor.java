@@ -23,6 +23,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.SslContext;
 
 import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.Requires;
@@ -30,9 +31,8 @@ import org.jupiter.transport.CodecConfig;
 import org.jupiter.transport.JConfig;
 import org.jupiter.transport.JOption;
 import org.jupiter.transport.netty.handler.IdleStateChecker;
-import org.jupiter.transport.netty.handler.LowCopyProtocolDecoder;
 import org.jupiter.transport.netty.handler.LowCopyProtocolEncoder;
-import org.jupiter.transport.netty.handler.ProtocolDecoder;
+import org.jupiter.transport.netty.handler.ProtocolDecoders;
 import org.jupiter.transport.netty.handler.ProtocolEncoder;
 import org.jupiter.transport.netty.handler.acceptor.AcceptorHandler;
 import org.jupiter.transport.netty.handler.acceptor.AcceptorIdleStateTrigger;
@@ -151,15 +151,21 @@ public class JNettyTcpAcceptor extends NettyTcpAcceptor {
 
         initChannelFactory();
 
+        // 所有child channel共享同一个SslContext (及其session cache)
+        final SslContext sslContext = SslContexts.forServer(configGroup().child());
+
         boot.childHandler(new ChannelInitializer<Channel>() {
 
             @Override
             protected void initChannel(Channel ch) throws Exception {
+                if (sslContext != null) {
+                    ch.pipeline().addLast(sslContext.newHandler(ch.alloc()));
+                }
                 ch.pipeline().addLast(
                         new FlushConsolidationHandler(JConstants.EXPLICIT_FLUSH_AFTER_FLUSHES, true),
                         new IdleStateChecker(timer, JConstants.READER_IDLE_TIME_SECONDS, 0, 0),
                         idleStateTrigger,
-                        CodecConfig.isCodecLowCopy() ? new LowCopyProtocolDecoder() : new ProtocolDecoder(),
+                        ProtocolDecoders.newInstance(),
                         encoder,
                         handler);
             }
@@ -26,6 +26,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.SslContext;
 
 import org.jupiter.common.util.JConstants;
 import org.jupiter.common.util.Requires;
@@ -36,9 +37,8 @@ import org.jupiter.transport.UnresolvedAddress;
 import org.jupiter.transport.channel.JChannelGroup;
 import org.jupiter.transport.exception.ConnectFailedException;
 import org.jupiter.transport.netty.handler.IdleStateChecker;
-import org.jupiter.transport.netty.handler.LowCopyProtocolDecoder;
 import org.jupiter.transport.netty.handler.LowCopyProtocolEncoder;
-import org.jupiter.transport.netty.handler.ProtocolDecoder;
+import org.jupiter.transport.netty.handler.ProtocolDecoders;
 import org.jupiter.transport.netty.handler.ProtocolEncoder;
 import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
 import org.jupiter.transport.netty.handler.connector.ConnectorHandler;
@@ -112,6 +112,9 @@ public class JNettyTcpConnector extends NettyTcpConnector {
             CodecConfig.isCodecLowCopy() ? new LowCopyProtocolEncoder() : new ProtocolEncoder();
     private final ConnectorHandler handler = new ConnectorHandler();
 
+    // 延迟创建, 所有连接共享, 重连时可以复用TLS session
+    private volatile SslContext sslContext;
+
     public JNettyTcpConnector() {
         super();
     }
@@ -149,21 +152,31 @@ public class JNettyTcpConnector extends NettyTcpConnector {
         final Bootstrap boot = bootstrap();
         final SocketAddress socketAddress = InetSocketAddress.createUnresolved(address.getHost(), address.getPort());
         final JChannelGroup group = group(address);
+        final SslContext sslContext = sslContext();
+        final boolean verifyHostname = SslContexts.isHostnameVerificationEnabled(config());
 
         // 重连watchdog
         final ConnectionWatchdog watchdog = new ConnectionWatchdog(boot, timer, socketAddress, group) {
 
             @Override
             public ChannelHandler[] handlers() {
-                return new ChannelHandler[] {
+                ChannelHandler[] handlers = new ChannelHandler[] {
                         new FlushConsolidationHandler(JConstants.EXPLICIT_FLUSH_AFTER_FLUSHES, true),
                         this,
                         new IdleStateChecker(timer, 0, JConstants.WRITER_IDLE_TIME_SECONDS, 0),
                         idleStateTrigger,
-                        CodecConfig.isCodecLowCopy() ? new LowCopyProtocolDecoder() : new ProtocolDecoder(),
+                        ProtocolDecoders.newInstance(),
                         encoder,
                         handler
                 };
+                if (sslContext == null) {
+                    return handlers;
+                }
+                // SslHandler不是Sharable的, 每次(包括重连)都要新建
+                ChannelHandler[] withSsl = new ChannelHandler[handlers.length + 1];
+                withSsl[0] = SslContexts.clientHandler(sslContext, address.getHost(), address.getPort(), verifyHostname);
+                System.arraycopy(handlers, 0, withSsl, 1, handlers.length);
+                return withSsl;
             }
         };
 
@@ -201,4 +214,17 @@ public class JNettyTcpConnector extends NettyTcpConnector {
             }
         };
     }
+
+    private SslContext sslContext() {
+        SslContext context = sslContext;
+        if (context == null) {
+            synchronized (this) {
+                context = sslContext;
+                if (context == null) {
+                    sslContext = context = SslContexts.forClient(config());
+                }
+            }
+        }
+        return context;
+    }
 }
@@ -42,4 +42,13 @@ public final class NativeSupport {
     public static boolean isNativeKQueueAvailable() {
         return KQueue.isAvailable();
     }
+
+    /**
+     * The io_uring socket transport for Linux 5.x+ (netty incubator), it is only
+     * available when enabled by {@code -Djupiter.io.native.io_uring=true}, the
+     * incubator module is on the classpath and the kernel supports it.
+     */
+    public static boolean isNativeIoUringAvailable() {
+        return IoUringSupport.isAvailable();
+    }
 }
@@ -26,6 +26,7 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import net.openhft.affinity.AffinityStrategies;
 
 import org.jupiter.common.concurrent.NamedThreadFactory;
 import org.jupiter.common.util.JConstants;
@@ -58,7 +59,8 @@ public abstract class NettyAcceptor implements JAcceptor {
     private ProviderProcessor processor;
 
     public NettyAcceptor(Protocol protocol, SocketAddress localAddress) {
-        this(protocol, localAddress, JConstants.AVAILABLE_PROCESSORS << 1);
+        this(protocol, localAddress, JConstants.THREAD_PER_CORE
+                ? JConstants.AVAILABLE_PROCESSORS : JConstants.AVAILABLE_PROCESSORS << 1);
     }
 
     public NettyAcceptor(Protocol protocol, SocketAddress localAddress, int nWorkers) {
@@ -134,6 +136,10 @@ public abstract class NettyAcceptor implements JAcceptor {
 
     @SuppressWarnings("SameParameterValue")
     protected ThreadFactory workerThreadFactory(String name) {
+        if (JConstants.THREAD_PER_CORE) {
+            // thread-per-core: 每个worker线程绑定到不同的核上
+            return new AffinityNettyThreadFactory(name, Thread.MAX_PRIORITY, AffinityStrategies.DIFFERENT_CORE);
+        }
         return new DefaultThreadFactory(name, Thread.MAX_PRIORITY);
     }
 
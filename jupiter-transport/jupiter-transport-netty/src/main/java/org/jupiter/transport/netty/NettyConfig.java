@@ -369,6 +369,17 @@ public class NettyConfig implements JConfig {
             private volatile boolean ipTransparent = false;
             private volatile boolean tcpFastOpenConnect = false;
 
+            // TLS options
+            private volatile boolean sslEnabled = false;
+            private volatile String sslCertChainFile;
+            private volatile String sslPrivateKeyFile;
+            private volatile String sslPrivateKeyPassword;
+            private volatile String sslTrustCertFile;
+            private volatile int sslSessionCacheSize = -1;
+            private volatile int sslSessionTimeoutSeconds = -1;
+            private volatile String sslSessionTicketKeyFile;
+            private volatile boolean sslHostnameVerification = true;
+
             @Override
             public List<JOption<?>> getOptions() {
                 return getOptions(super.getOptions(),
@@ -392,7 +403,16 @@ public class NettyConfig implements JConfig {
                         JOption.TCP_CORK,
                         JOption.TCP_QUICKACK,
                         JOption.IP_TRANSPARENT,
-                        JOption.TCP_FASTOPEN_CONNECT);
+                        JOption.TCP_FASTOPEN_CONNECT,
+                        JOption.SSL_ENABLED,
+                        JOption.SSL_CERT_CHAIN_FILE,
+                        JOption.SSL_PRIVATE_KEY_FILE,
+                        JOption.SSL_PRIVATE_KEY_PASSWORD,
+                        JOption.SSL_TRUST_CERT_FILE,
+                        JOption.SSL_SESSION_CACHE_SIZE,
+                        JOption.SSL_SESSION_TIMEOUT_SECONDS,
+                        JOption.SSL_SESSION_TICKET_KEY_FILE,
+                        JOption.SSL_HOSTNAME_VERIFICATION);
             }
 
             protected List<JOption<?>> getOptions(List<JOption<?>> result, JOption<?>... options) {
@@ -471,6 +491,33 @@ public class NettyConfig implements JConfig {
                 if (option == JOption.TCP_FASTOPEN_CONNECT) {
                     return (T) Boolean.valueOf(isTcpFastOpenConnect());
                 }
+                if (option == JOption.SSL_ENABLED) {
+                    return (T) Boolean.valueOf(isSslEnabled());
+                }
+                if (option == JOption.SSL_CERT_CHAIN_FILE) {
+                    return (T) getSslCertChainFile();
+                }
+                if (option == JOption.SSL_PRIVATE_KEY_FILE) {
+                    return (T) getSslPrivateKeyFile();
+                }
+                if (option == JOption.SSL_PRIVATE_KEY_PASSWORD) {
+                    return (T) getSslPrivateKeyPassword();
+                }
+                if (option == JOption.SSL_TRUST_CERT_FILE) {
+                    return (T) getSslTrustCertFile();
+                }
+                if (option == JOption.SSL_SESSION_CACHE_SIZE) {
+                    return (T) Integer.valueOf(getSslSessionCacheSize());
+                }
+                if (option == JOption.SSL_SESSION_TIMEOUT_SECONDS) {
+                    return (T) Integer.valueOf(getSslSessionTimeoutSeconds());
+                }
+                if (option == JOption.SSL_SESSION_TICKET_KEY_FILE) {
+                    return (T) getSslSessionTicketKeyFile();
+                }
+                if (option == JOption.SSL_HOSTNAME_VERIFICATION) {
+                    return (T) Boolean.valueOf(isSslHostnameVerification());
+                }
 
                 return super.getOption(option);
             }
@@ -521,6 +568,24 @@ public class NettyConfig implements JConfig {
                     setTcpQuickAck(castToBoolean(value));
                 } else if (option == JOption.TCP_FASTOPEN_CONNECT) {
                     setTcpFastOpenConnect(castToBoolean(value));
+                } else if (option == JOption.SSL_ENABLED) {
+                    setSslEnabled(castToBoolean(value));
+                } else if (option == JOption.SSL_CERT_CHAIN_FILE) {
+                    setSslCertChainFile(String.valueOf(value));
+                } else if (option == JOption.SSL_PRIVATE_KEY_FILE) {
+                    setSslPrivateKeyFile(String.valueOf(value));
+                } else if (option == JOption.SSL_PRIVATE_KEY_PASSWORD) {
+                    setSslPrivateKeyPassword(String.valueOf(value));
+                } else if (option == JOption.SSL_TRUST_CERT_FILE) {
+                    setSslTrustCertFile(String.valueOf(value));
+                } else if (option == JOption.SSL_SESSION_CACHE_SIZE) {
+                    setSslSessionCacheSize(castToInteger(value));
+                } else if (option == JOption.SSL_SESSION_TIMEOUT_SECONDS) {
+                    setSslSessionTimeoutSeconds(castToInteger(value));
+                } else if (option == JOption.SSL_SESSION_TICKET_KEY_FILE) {
+                    setSslSessionTicketKeyFile(String.valueOf(value));
+                } else if (option == JOption.SSL_HOSTNAME_VERIFICATION) {
+                    setSslHostnameVerification(castToBoolean(value));
                 } else {
                     return super.setOption(option, value);
                 }
@@ -695,6 +760,78 @@ public class NettyConfig implements JConfig {
             public void setTcpFastOpenConnect(boolean tcpFastOpenConnect) {
                 this.tcpFastOpenConnect = tcpFastOpenConnect;
             }
+
+            public boolean isSslEnabled() {
+                return sslEnabled;
+            }
+
+            public void setSslEnabled(boolean sslEnabled) {
+                this.sslEnabled = sslEnabled;
+            }
+
+            public String getSslCertChainFile() {
+                return sslCertChainFile;
+            }
+
+            public void setSslCertChainFile(String sslCertChainFile) {
+                this.sslCertChainFile = sslCertChainFile;
+            }
+
+            public String getSslPrivateKeyFile() {
+                return sslPrivateKeyFile;
+            }
+
+            public void setSslPrivateKeyFile(String sslPrivateKeyFile) {
+                this.sslPrivateKeyFile = sslPrivateKeyFile;
+            }
+
+            public String getSslPrivateKeyPassword() {
+                return sslPrivateKeyPassword;
+            }
+
+            public void setSslPrivateKeyPassword(String sslPrivateKeyPassword) {
+                this.sslPrivateKeyPassword = sslPrivateKeyPassword;
+            }
+
+            public String getSslTrustCertFile() {
+                return sslTrustCertFile;
+            }
+
+            public void setSslTrustCertFile(String sslTrustCertFile) {
+                this.sslTrustCertFile = sslTrustCertFile;
+            }
+
+            public int getSslSessionCacheSize() {
+                return sslSessionCacheSize;
+            }
+
+            public void setSslSessionCacheSize(int sslSessionCacheSize) {
+                this.sslSessionCacheSize = sslSessionCacheSize;
+            }
+
+            public int getSslSessionTimeoutSeconds() {
+                return sslSessionTimeoutSeconds;
+            }
+
+            public void setSslSessionTimeoutSeconds(int sslSessionTimeoutSeconds) {
+                this.sslSessionTimeoutSeconds = sslSessionTimeoutSeconds;
+            }
+
+            public String getSslSessionTicketKeyFile() {
+                return sslSessionTicketKeyFile;
+            }
+
+            public void setSslSessionTicketKeyFile(String sslSessionTicketKeyFile) {
+                this.sslSessionTicketKeyFile = sslSessionTicketKeyFile;
+            }
+
+            public boolean isSslHostnameVerification() {
+                return sslHostnameVerification;
+            }
+
+            public void setSslHostnameVerification(boolean sslHostnameVerification) {
+                this.sslHostnameVerification = sslHostnameVerification;
+            }
         }
     }
 
@@ -18,6 +18,7 @@ package org.jupiter.transport.netty;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelOption;
@@ -95,6 +96,11 @@ public abstract class NettyConnector implements JConnector<JConnection> {
         child.setOption(JOption.IO_RATIO, 100);
 
         doInit();
+
+        if (AdaptiveChannelPool.ENABLED) {
+            timer.newTimeout(
+                    new AdaptiveChannelPool(this), AdaptiveChannelPool.CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     protected abstract void doInit();
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JConfigGroup;
+import org.jupiter.transport.netty.shm.SharedMemoryAddress;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+public abstract class NettySharedMemoryAcceptor extends NettyAcceptor {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NettySharedMemoryAcceptor.class);
+
+    // 共享内存与 unix domain socket 一样没有 tcp 参数, 复用同一组配置
+    private final NettyConfig.NettyDomainConfigGroup configGroup = new NettyConfig.NettyDomainConfigGroup();
+
+    public NettySharedMemoryAcceptor(SharedMemoryAddress shmAddress) {
+        super(Protocol.SHARED_MEMORY, shmAddress);
+        init();
+    }
+
+    public NettySharedMemoryAcceptor(SharedMemoryAddress shmAddress, int nWorkers) {
+        super(Protocol.SHARED_MEMORY, shmAddress, nWorkers);
+        init();
+    }
+
+    public NettySharedMemoryAcceptor(SharedMemoryAddress shmAddress, int nBosses, int nWorkers) {
+        super(Protocol.SHARED_MEMORY, shmAddress, nBosses, nWorkers);
+        init();
+    }
+
+    @Override
+    protected void setOptions() {
+        super.setOptions();
+
+        ServerBootstrap boot = bootstrap();
+
+        // child options
+        NettyConfig.NettyDomainConfigGroup.ChildConfig child = configGroup.child();
+
+        WriteBufferWaterMark waterMark =
+                createWriteBufferWaterMark(child.getWriteBufferLowWaterMark(), child.getWriteBufferHighWaterMark());
+
+        boot.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+    }
+
+    @Override
+    public JConfigGroup configGroup() {
+        return configGroup;
+    }
+
+    @Override
+    public void start() throws InterruptedException {
+        start(true);
+    }
+
+    @Override
+    public void start(boolean sync) throws InterruptedException {
+        // wait until the server channel is bind succeed.
+        ChannelFuture future = bind(localAddress).sync();
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Jupiter shared memory server start" + (sync ? ", and waits until the server channel closed." : ".")
+                    + JConstants.NEWLINE + " {}.", toString());
+        }
+
+        if (sync) {
+            // wait until the server channel is closed.
+            future.channel().closeFuture().sync();
+        }
+    }
+
+    @Override
+    public void setIoRatio(int bossIoRatio, int workerIoRatio) {
+        // DefaultEventLoop has no I/O to balance against
+    }
+
+    @Override
+    protected EventLoopGroup initEventLoopGroup(int nThreads, ThreadFactory tFactory) {
+        // 共享内存 channel 以任务的方式轮询 ring, 不需要 selector
+        return new DefaultEventLoopGroup(nThreads, tFactory);
+    }
+
+    protected void initChannelFactory() {
+        bootstrap().channelFactory(SocketChannelProvider.SHARED_MEMORY_ACCEPTOR);
+    }
+
+    protected SocketChannelProvider.SocketType socketType() {
+        return SocketChannelProvider.SocketType.SHARED_MEMORY;
+    }
+
+    @Override
+    public String toString() {
+        return "Socket address:[" + localAddress + ']'
+                + ", socket type: " + socketType()
+                + JConstants.NEWLINE
+                + bootstrap();
+    }
+}
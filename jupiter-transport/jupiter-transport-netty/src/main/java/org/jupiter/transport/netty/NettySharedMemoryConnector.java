@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.transport.JConfig;
+import org.jupiter.transport.JConnection;
+import org.jupiter.transport.UnresolvedAddress;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+public abstract class NettySharedMemoryConnector extends NettyConnector {
+
+    private final NettyConfig.NettyDomainConfigGroup.ChildConfig childConfig = new NettyConfig.NettyDomainConfigGroup.ChildConfig();
+
+    public NettySharedMemoryConnector() {
+        super(Protocol.SHARED_MEMORY);
+        init();
+    }
+
+    public NettySharedMemoryConnector(int nWorkers) {
+        super(Protocol.SHARED_MEMORY, nWorkers);
+        init();
+    }
+
+    @Override
+    protected void setOptions() {
+        super.setOptions();
+
+        Bootstrap boot = bootstrap();
+
+        // child options
+        NettyConfig.NettyDomainConfigGroup.ChildConfig child = childConfig;
+
+        WriteBufferWaterMark waterMark =
+                createWriteBufferWaterMark(child.getWriteBufferLowWaterMark(), child.getWriteBufferHighWaterMark());
+
+        boot.option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+
+        if (child.getConnectTimeoutMillis() > 0) {
+            boot.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, child.getConnectTimeoutMillis());
+        }
+    }
+
+    @Override
+    public JConnection connect(UnresolvedAddress address) {
+        return connect(address, false);
+    }
+
+    @Override
+    public JConfig config() {
+        return childConfig;
+    }
+
+    @Override
+    public void setIoRatio(int workerIoRatio) {
+        // DefaultEventLoop has no I/O to balance against
+    }
+
+    @Override
+    protected EventLoopGroup initEventLoopGroup(int nThreads, ThreadFactory tFactory) {
+        // 共享内存 channel 以任务的方式轮询 ring, 不需要 selector
+        return new DefaultEventLoopGroup(nThreads, tFactory);
+    }
+
+    protected void initChannelFactory() {
+        bootstrap().channelFactory(SocketChannelProvider.SHARED_MEMORY_CONNECTOR);
+    }
+
+    protected SocketChannelProvider.SocketType socketType() {
+        return SocketChannelProvider.SocketType.SHARED_MEMORY;
+    }
+
+    @Override
+    public String toString() {
+        return "Socket type: " + socketType()
+                + JConstants.NEWLINE
+                + bootstrap();
+    }
+}
@@ -187,7 +187,9 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
         if (child.getTcpKeepInterval() > 0) {
             boot.childOption(EpollChannelOption.TCP_KEEPINTVL, child.getTcpKeepInterval());
         }
-        if (SocketChannelProvider.SocketType.NATIVE_EPOLL == socketType()) {
+        SocketChannelProvider.SocketType socketType = socketType();
+        if (SocketChannelProvider.SocketType.NATIVE_EPOLL == socketType
+                || SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType) {
             boot.childOption(EpollChannelOption.TCP_CORK, child.isTcpCork())
                     .childOption(EpollChannelOption.TCP_QUICKACK, child.isTcpQuickAck())
                     .childOption(EpollChannelOption.IP_TRANSPARENT, child.isIpTransparent());
@@ -201,6 +203,9 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
                 boot.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
             }
         }
+        if (SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType) {
+            IoUringSupport.translateOptions(boot);
+        }
     }
 
     @Override
@@ -238,6 +243,8 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
             ((KQueueEventLoopGroup) boss).setIoRatio(bossIoRatio);
         } else if (boss instanceof NioEventLoopGroup) {
             ((NioEventLoopGroup) boss).setIoRatio(bossIoRatio);
+        } else if (SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType()) {
+            IoUringSupport.setIoRatio(boss, bossIoRatio);
         }
 
         EventLoopGroup worker = worker();
@@ -247,6 +254,8 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
             ((KQueueEventLoopGroup) worker).setIoRatio(workerIoRatio);
         } else if (worker instanceof NioEventLoopGroup) {
             ((NioEventLoopGroup) worker).setIoRatio(workerIoRatio);
+        } else if (SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType()) {
+            IoUringSupport.setIoRatio(worker, workerIoRatio);
         }
     }
 
@@ -258,6 +267,8 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
                 return new EpollEventLoopGroup(nThreads, tFactory);
             case NATIVE_KQUEUE:
                 return new KQueueEventLoopGroup(nThreads, tFactory);
+            case NATIVE_IO_URING:
+                return IoUringSupport.newEventLoopGroup(nThreads, tFactory);
             case JAVA_NIO:
                 return new NioEventLoopGroup(nThreads, tFactory);
             default:
@@ -274,6 +285,9 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
             case NATIVE_KQUEUE:
                 bootstrap().channelFactory(SocketChannelProvider.NATIVE_KQUEUE_ACCEPTOR);
                 break;
+            case NATIVE_IO_URING:
+                bootstrap().channelFactory(SocketChannelProvider.NATIVE_IO_URING_ACCEPTOR);
+                break;
             case JAVA_NIO:
                 bootstrap().channelFactory(SocketChannelProvider.JAVA_NIO_ACCEPTOR);
                 break;
@@ -283,6 +297,10 @@ public abstract class NettyTcpAcceptor extends NettyAcceptor {
     }
 
     protected SocketChannelProvider.SocketType socketType() {
+        if (isNative && NativeSupport.isNativeIoUringAvailable()) {
+            // io_uring for Linux 5.x+, batched submission saves syscalls, falls back to epoll when unavailable.
+            return SocketChannelProvider.SocketType.NATIVE_IO_URING;
+        }
         if (isNative && NativeSupport.isNativeEPollAvailable()) {
             // netty provides the native socket transport for Linux using JNI.
             return SocketChannelProvider.SocketType.NATIVE_EPOLL;
@@ -114,7 +114,9 @@ public abstract class NettyTcpConnector extends NettyConnector {
         if (child.getTcpKeepInterval() > 0) {
             boot.option(EpollChannelOption.TCP_KEEPINTVL, child.getTcpKeepInterval());
         }
-        if (SocketChannelProvider.SocketType.NATIVE_EPOLL == socketType()) {
+        SocketChannelProvider.SocketType socketType = socketType();
+        if (SocketChannelProvider.SocketType.NATIVE_EPOLL == socketType
+                || SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType) {
             boot.option(EpollChannelOption.TCP_CORK, child.isTcpCork())
                     .option(EpollChannelOption.TCP_QUICKACK, child.isTcpQuickAck())
                     .option(EpollChannelOption.IP_TRANSPARENT, child.isIpTransparent());
@@ -128,6 +130,9 @@ public abstract class NettyTcpConnector extends NettyConnector {
                 boot.option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
             }
         }
+        if (SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType) {
+            IoUringSupport.translateOptions(boot);
+        }
     }
 
     @Override
@@ -149,6 +154,8 @@ public abstract class NettyTcpConnector extends NettyConnector {
             ((KQueueEventLoopGroup) worker).setIoRatio(workerIoRatio);
         } else if (worker instanceof NioEventLoopGroup) {
             ((NioEventLoopGroup) worker).setIoRatio(workerIoRatio);
+        } else if (SocketChannelProvider.SocketType.NATIVE_IO_URING == socketType()) {
+            IoUringSupport.setIoRatio(worker, workerIoRatio);
         }
     }
 
@@ -160,6 +167,8 @@ public abstract class NettyTcpConnector extends NettyConnector {
                 return new EpollEventLoopGroup(nThreads, tFactory);
             case NATIVE_KQUEUE:
                 return new KQueueEventLoopGroup(nThreads, tFactory);
+            case NATIVE_IO_URING:
+                return IoUringSupport.newEventLoopGroup(nThreads, tFactory);
             case JAVA_NIO:
                 return new NioEventLoopGroup(nThreads, tFactory);
             default:
@@ -176,6 +185,9 @@ public abstract class NettyTcpConnector extends NettyConnector {
             case NATIVE_KQUEUE:
                 bootstrap().channelFactory(SocketChannelProvider.NATIVE_KQUEUE_CONNECTOR);
                 break;
+            case NATIVE_IO_URING:
+                bootstrap().channelFactory(SocketChannelProvider.NATIVE_IO_URING_CONNECTOR);
+                break;
             case JAVA_NIO:
                 bootstrap().channelFactory(SocketChannelProvider.JAVA_NIO_CONNECTOR);
                 break;
@@ -185,6 +197,10 @@ public abstract class NettyTcpConnector extends NettyConnector {
     }
 
     protected SocketChannelProvider.SocketType socketType() {
+        if (isNative && NativeSupport.isNativeIoUringAvailable()) {
+            // io_uring for Linux 5.x+, batched submission saves syscalls, falls back to epoll when unavailable.
+            return SocketChannelProvider.SocketType.NATIVE_IO_URING;
+        }
         if (isNative && NativeSupport.isNativeEPollAvailable()) {
             // netty provides the native socket transport for Linux using JNI.
             return SocketChannelProvider.SocketType.NATIVE_EPOLL;
@@ -29,6 +29,9 @@ import io.netty.channel.kqueue.KQueueSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 
+import org.jupiter.transport.netty.shm.SharedMemoryChannel;
+import org.jupiter.transport.netty.shm.SharedMemoryServerChannel;
+
 /**
  * jupiter
  * org.jupiter.transport.netty
@@ -43,10 +46,14 @@ public final class SocketChannelProvider<T extends Channel> implements ChannelFa
             new SocketChannelProvider<>(SocketType.NATIVE_EPOLL, ChannelType.ACCEPTOR);
     public static final ChannelFactory<ServerChannel> NATIVE_KQUEUE_ACCEPTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_KQUEUE, ChannelType.ACCEPTOR);
+    public static final ChannelFactory<ServerChannel> NATIVE_IO_URING_ACCEPTOR =
+            new SocketChannelProvider<>(SocketType.NATIVE_IO_URING, ChannelType.ACCEPTOR);
     public static final ChannelFactory<ServerChannel> NATIVE_EPOLL_DOMAIN_ACCEPTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_EPOLL_DOMAIN, ChannelType.ACCEPTOR);
     public static final ChannelFactory<ServerChannel> NATIVE_KQUEUE_DOMAIN_ACCEPTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_KQUEUE_DOMAIN, ChannelType.ACCEPTOR);
+    public static final ChannelFactory<ServerChannel> SHARED_MEMORY_ACCEPTOR =
+            new SocketChannelProvider<>(SocketType.SHARED_MEMORY, ChannelType.ACCEPTOR);
 
     public static final ChannelFactory<Channel> JAVA_NIO_CONNECTOR =
             new SocketChannelProvider<>(SocketType.JAVA_NIO, ChannelType.CONNECTOR);
@@ -54,10 +61,14 @@ public final class SocketChannelProvider<T extends Channel> implements ChannelFa
             new SocketChannelProvider<>(SocketType.NATIVE_EPOLL, ChannelType.CONNECTOR);
     public static final ChannelFactory<Channel> NATIVE_KQUEUE_CONNECTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_KQUEUE, ChannelType.CONNECTOR);
+    public static final ChannelFactory<Channel> NATIVE_IO_URING_CONNECTOR =
+            new SocketChannelProvider<>(SocketType.NATIVE_IO_URING, ChannelType.CONNECTOR);
     public static final ChannelFactory<Channel> NATIVE_EPOLL_DOMAIN_CONNECTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_EPOLL_DOMAIN, ChannelType.CONNECTOR);
     public static final ChannelFactory<Channel> NATIVE_KQUEUE_DOMAIN_CONNECTOR =
             new SocketChannelProvider<>(SocketType.NATIVE_KQUEUE_DOMAIN, ChannelType.CONNECTOR);
+    public static final ChannelFactory<Channel> SHARED_MEMORY_CONNECTOR =
+            new SocketChannelProvider<>(SocketType.SHARED_MEMORY, ChannelType.CONNECTOR);
 
     public SocketChannelProvider(SocketType socketType, ChannelType channelType) {
         this.socketType = socketType;
@@ -79,10 +90,14 @@ public final class SocketChannelProvider<T extends Channel> implements ChannelFa
                         return (T) new EpollServerSocketChannel();
                     case NATIVE_KQUEUE:
                         return (T) new KQueueServerSocketChannel();
+                    case NATIVE_IO_URING:
+                        return (T) IoUringSupport.newServerSocketChannel();
                     case NATIVE_EPOLL_DOMAIN:
                         return (T) new EpollServerDomainSocketChannel();
                     case NATIVE_KQUEUE_DOMAIN:
                         return (T) new KQueueServerDomainSocketChannel();
+                    case SHARED_MEMORY:
+                        return (T) new SharedMemoryServerChannel();
                     default:
                         throw new IllegalStateException("Invalid socket type: " + socketType);
                 }
@@ -94,10 +109,14 @@ public final class SocketChannelProvider<T extends Channel> implements ChannelFa
                         return (T) new EpollSocketChannel();
                     case NATIVE_KQUEUE:
                         return (T) new KQueueSocketChannel();
+                    case NATIVE_IO_URING:
+                        return (T) IoUringSupport.newSocketChannel();
                     case NATIVE_EPOLL_DOMAIN:
                         return (T) new EpollDomainSocketChannel();
                     case NATIVE_KQUEUE_DOMAIN:
                         return (T) new KQueueDomainSocketChannel();
+                    case SHARED_MEMORY:
+                        return (T) new SharedMemoryChannel();
                     default:
                         throw new IllegalStateException("Invalid socket type: " + socketType);
                 }
@@ -110,8 +129,10 @@ public final class SocketChannelProvider<T extends Channel> implements ChannelFa
         JAVA_NIO,
         NATIVE_EPOLL,           // for linux
         NATIVE_KQUEUE,          // for bsd systems
+        NATIVE_IO_URING,        // for linux 5.x+, requires the netty incubator io_uring transport
         NATIVE_EPOLL_DOMAIN,    // unix domain socket for linux
-        NATIVE_KQUEUE_DOMAIN    // unix domain socket for bsd systems
+        NATIVE_KQUEUE_DOMAIN,   // unix domain socket for bsd systems
+        SHARED_MEMORY           // memory-mapped ring buffers between processes on the same host
     }
 
     public enum ChannelType {
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+
+import org.jupiter.common.util.Strings;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JConfig;
+import org.jupiter.transport.JOption;
+
+/**
+ * TCP transport 的 TLS 支持, 由 {@link JOption#SSL_ENABLED} 等选项开启.
+ *
+ * classpath中有netty-tcnative时使用OpenSSL引擎, 否则退回到JDK引擎.
+ * 一个acceptor/connector只创建一个 {@link SslContext}, 所有连接共享同一个session cache,
+ * 断线重连时客户端可以复用之前的session (client端的 SSLEngine 创建时需要带上对端的host/port).
+ * 客户端默认还会校验服务端证书中的主机名, 见 {@link JOption#SSL_HOSTNAME_VERIFICATION}.
+ *
+ * session ticket key 只在OpenSSL引擎下可以显式指定, 文件内容为48个字节:
+ * name(16) + hmac key(16) + aes key(16), 集群中的多个节点使用同一个文件时, 客户端的ticket可以在节点间通用;
+ * 未指定时每个进程随机生成一个.
+ *
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+final class SslContexts {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(SslContexts.class);
+
+    private static final int TICKET_KEY_LENGTH = OpenSslSessionTicketKey.NAME_SIZE
+            + OpenSslSessionTicketKey.HMAC_KEY_SIZE
+            + OpenSslSessionTicketKey.AES_KEY_SIZE;
+
+    static SslProvider provider() {
+        return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+    }
+
+    /**
+     * 未开启TLS时返回null.
+     */
+    static SslContext forServer(JConfig config) {
+        if (!isEnabled(config)) {
+            return null;
+        }
+
+        String certChainFile = config.getOption(JOption.SSL_CERT_CHAIN_FILE);
+        String privateKeyFile = config.getOption(JOption.SSL_PRIVATE_KEY_FILE);
+        if (Strings.isBlank(certChainFile) || Strings.isBlank(privateKeyFile)) {
+            throw new IllegalArgumentException("SSL_CERT_CHAIN_FILE and SSL_PRIVATE_KEY_FILE are required on server side");
+        }
+
+        SslProvider provider = provider();
+        try {
+            SslContextBuilder builder = SslContextBuilder
+                    .forServer(new File(certChainFile), new File(privateKeyFile), config.getOption(JOption.SSL_PRIVATE_KEY_PASSWORD))
+                    .sslProvider(provider);
+            String trustCertFile = config.getOption(JOption.SSL_TRUST_CERT_FILE);
+            if (Strings.isNotBlank(trustCertFile)) {
+                // 指定了信任的证书即要求客户端认证 (mTLS)
+                builder.trustManager(new File(trustCertFile)).clientAuth(ClientAuth.REQUIRE);
+            }
+            applySessionOptions(builder, config);
+
+            SslContext context = builder.build();
+            if (provider == SslProvider.OPENSSL) {
+                setTicketKeys(context, config.getOption(JOption.SSL_SESSION_TICKET_KEY_FILE));
+            }
+
+            logger.info("TLS server context created, provider: {}.", provider);
+
+            return context;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create TLS server context", e);
+        }
+    }
+
+    /**
+     * 未开启TLS时返回null.
+     */
+    static SslContext forClient(JConfig config) {
+        if (!isEnabled(config)) {
+            return null;
+        }
+
+        SslProvider provider = provider();
+        try {
+            SslContextBuilder builder = SslContextBuilder.forClient().sslProvider(provider);
+            String trustCertFile = config.getOption(JOption.SSL_TRUST_CERT_FILE);
+            if (Strings.isNotBlank(trustCertFile)) {
+                builder.trustManager(new File(trustCertFile));
+            }
+            String certChainFile = config.getOption(JOption.SSL_CERT_CHAIN_FILE);
+            String privateKeyFile = config.getOption(JOption.SSL_PRIVATE_KEY_FILE);
+            if (Strings.isNotBlank(certChainFile) && Strings.isNotBlank(privateKeyFile)) {
+                builder.keyManager(new File(certChainFile), new File(privateKeyFile), config.getOption(JOption.SSL_PRIVATE_KEY_PASSWORD));
+            }
+            applySessionOptions(builder, config);
+
+            SslContext context = builder.build();
+
+            logger.info("TLS client context created, provider: {}.", provider);
+
+            return context;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create TLS client context", e);
+        }
+    }
+
+    /**
+     * 客户端的SslHandler, 带上对端的host/port, JDK引擎需要依据它们查找可复用的session,
+     * {@code verifyHostname} 为true时同时依据peerHost校验服务端证书.
+     */
+    static ChannelHandler clientHandler(
+            final SslContext context, final String peerHost, final int peerPort, final boolean verifyHostname) {
+        return new ChannelInitializer<Channel>() {
+
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                SslHandler handler = context.newHandler(ch.alloc(), peerHost, peerPort);
+                if (verifyHostname) {
+                    SSLEngine engine = handler.engine();
+                    SSLParameters parameters = engine.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    engine.setSSLParameters(parameters);
+                }
+                ch.pipeline().addFirst(handler);
+            }
+        };
+    }
+
+    static boolean isHostnameVerificationEnabled(JConfig config) {
+        Boolean enabled = config.getOption(JOption.SSL_HOSTNAME_VERIFICATION);
+        return enabled == null || enabled;
+    }
+
+    private static boolean isEnabled(JConfig config) {
+        Boolean enabled = config.getOption(JOption.SSL_ENABLED);
+        return enabled != null && enabled;
+    }
+
+    private static void applySessionOptions(SslContextBuilder builder, JConfig config) {
+        Integer cacheSize = config.getOption(JOption.SSL_SESSION_CACHE_SIZE);
+        if (cacheSize != null && cacheSize >= 0) {
+            builder.sessionCacheSize(cacheSize);
+        }
+        Integer timeoutSeconds = config.getOption(JOption.SSL_SESSION_TIMEOUT_SECONDS);
+        if (timeoutSeconds != null && timeoutSeconds >= 0) {
+            builder.sessionTimeout(timeoutSeconds);
+        }
+    }
+
+    private static void setTicketKeys(SslContext context, String ticketKeyFile) throws Exception {
+        SSLSessionContext sessionContext = context.sessionContext();
+        if (!(sessionContext instanceof OpenSslSessionContext)) {
+            return;
+        }
+
+        byte[] key;
+        if (Strings.isNotBlank(ticketKeyFile)) {
+            key = Files.readAllBytes(new File(ticketKeyFile).toPath());
+            if (key.length != TICKET_KEY_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Session ticket key file must be exactly " + TICKET_KEY_LENGTH + " bytes: " + ticketKeyFile);
+            }
+        } else {
+            key = new byte[TICKET_KEY_LENGTH];
+            new SecureRandom().nextBytes(key);
+        }
+
+        int hmacOffset = OpenSslSessionTicketKey.NAME_SIZE;
+        int aesOffset = hmacOffset + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+        ((OpenSslSessionContext) sessionContext).setTicketKeys(new OpenSslSessionTicketKey(
+                Arrays.copyOfRange(key, 0, hmacOffset),
+                Arrays.copyOfRange(key, hmacOffset, aesOffset),
+                Arrays.copyOfRange(key, aesOffset, TICKET_KEY_LENGTH)));
+    }
+
+    private SslContexts() {}
+}
@@ -16,11 +16,14 @@
 package org.jupiter.transport.netty.alloc;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 
 import org.jupiter.common.util.Lists;
+import org.jupiter.common.util.Maps;
+import org.jupiter.common.util.SystemPropertyUtil;
 
 /**
  * jupiter
@@ -37,6 +40,9 @@ public class AdaptiveOutputBufAllocator {
     private static final int INDEX_INCREMENT = 4;
     private static final int INDEX_DECREMENT = 1;
 
+    // 按操作(请求的方法/响应的类型)区分的handle数量上限, 超过后新的操作退回到channel级别的handle
+    private static final int MAX_OPERATIONS = SystemPropertyUtil.getInt("jupiter.io.alloc.max_operations", 4096);
+
     private static final int[] SIZE_TABLE;
 
     static {
@@ -151,6 +157,7 @@ public class AdaptiveOutputBufAllocator {
     private final int minIndex;
     private final int maxIndex;
     private final int initial;
+    private final ConcurrentMap<Object, Handle> operationHandles = Maps.newConcurrentMap();
 
     /**
      * Creates a new predictor with the default parameters.  With the default
@@ -199,4 +206,29 @@ public class AdaptiveOutputBufAllocator {
     public Handle newHandle() {
         return new AdaptiveOutputBufAllocator.HandleImpl(minIndex, maxIndex, initial);
     }
+
+    /**
+     * 返回指定操作的handle, 所有channel共享.
+     *
+     * 同一个channel上大小悬殊的调用(比如200字节和200K)交替出现时, channel级别的handle总是猜错,
+     * 按操作分别学习可以减少ensureWritable扩容拷贝和内存池的浪费.
+     * handle会被多个线程同时访问, 并发下只是估算略有偏差, 不影响正确性.
+     *
+     * @param operation 操作的标识, 需要实现equals/hashCode
+     * @return 操作数量超过上限时返回null
+     */
+    public Handle operationHandle(Object operation) {
+        Handle handle = operationHandles.get(operation);
+        if (handle == null) {
+            if (operationHandles.size() >= MAX_OPERATIONS) {
+                return null;
+            }
+            Handle newHandle = newHandle();
+            handle = operationHandles.putIfAbsent(operation, newHandle);
+            if (handle == null) {
+                handle = newHandle;
+            }
+        }
+        return handle;
+    }
 }
@@ -19,22 +19,36 @@ import java.io.OutputStream;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
 import io.netty.channel.EventLoop;
+import io.netty.channel.MessageSizeEstimator;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 
+import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.serialization.io.OutputBuf;
 import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.channel.JChannel;
 import org.jupiter.transport.channel.JFutureListener;
 import org.jupiter.transport.netty.alloc.AdaptiveOutputBufAllocator;
+import org.jupiter.transport.netty.estimator.JMessageSizeEstimator;
 import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
 
 /**
@@ -50,6 +64,38 @@ public class NettyChannel implements JChannel {
 
     private static final AttributeKey<NettyChannel> NETTY_CHANNEL_KEY = AttributeKey.valueOf("netty.channel");
 
+    /**
+     * 开启后, 非IO线程的写请求先进入一个MPSC队列, 由IO线程中的单个任务批量write并只flush一次,
+     * 避免每个消息都向event loop提交一个任务(一次唤醒+一次入队)以及每个消息一次flush.
+     */
+    private static final boolean WRITE_BATCH_ENABLED =
+            SystemPropertyUtil.getBoolean("jupiter.io.channel.write.batch", false);
+    /** 单次批量写最多write多少个消息后强制flush一次, 避免一次攒太多数据 */
+    private static final int MAX_WRITES_PER_FLUSH =
+            SystemPropertyUtil.getInt("jupiter.io.channel.write.batch.max.writes.per.flush", 128);
+
+    /**
+     * 每个channel待写出字节数的上限, 超过后 {@link #isOverloaded()} 返回true, 调用方应该快速失败,
+     * 避免一个处理缓慢的对端把本节点的堆内存(或者直接内存)撑爆, 小于等于0表示不限制.
+     */
+    private static final long MAX_PENDING_WRITE_BYTES =
+            SystemPropertyUtil.getLong("jupiter.io.channel.max.pending.write.bytes", 64 * 1024 * 1024);
+
+    /**
+     * 调用耗时EWMA的衰减时间常数, 越小对最近的样本越敏感, 空闲的channel的耗时也越快衰减到0 (重新被选中试探).
+     */
+    private static final double LATENCY_DECAY_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            SystemPropertyUtil.getLong("jupiter.io.channel.latency.decay.millis", 10000));
+
+    private static final MessageSizeEstimator.Handle SIZE_ESTIMATOR = JMessageSizeEstimator.DEFAULT.newHandle();
+
+    private static final AtomicIntegerFieldUpdater<NettyChannel> writeScheduledUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(NettyChannel.class, "writeScheduled");
+    private static final AtomicLongFieldUpdater<NettyChannel> queuedWriteBytesUpdater =
+            AtomicLongFieldUpdater.newUpdater(NettyChannel.class, "queuedWriteBytes");
+    private static final AtomicIntegerFieldUpdater<NettyChannel> inFlightRequestsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(NettyChannel.class, "inFlightRequests");
+
     /**
      * Returns the {@link NettyChannel} for given {@link Channel}, this method never return null.
      */
@@ -57,7 +103,7 @@ public class NettyChannel implements JChannel {
         Attribute<NettyChannel> attr = channel.attr(NETTY_CHANNEL_KEY);
         NettyChannel nChannel = attr.get();
         if (nChannel == null) {
-            NettyChannel newNChannel = new NettyChannel(channel);
+            NettyChannel newNChannel = new NettyChannel(channel, WRITE_BATCH_ENABLED);
             nChannel = attr.setIfAbsent(newNChannel);
             if (nChannel == null) {
                 nChannel = newNChannel;
@@ -67,13 +113,38 @@ public class NettyChannel implements JChannel {
     }
 
     private final Channel channel;
+    private final boolean writeBatch;
     private final AdaptiveOutputBufAllocator.Handle allocHandle = AdaptiveOutputBufAllocator.DEFAULT.newHandle();
 
     private final Queue<Runnable> taskQueue = PlatformDependent.newMpscQueue(1024);
     private final Runnable runAllTasks = this::runAllTasks;
 
-    private NettyChannel(Channel channel) {
+    private final Queue<PendingWrite> writeQueue = PlatformDependent.newMpscQueue();
+    private final Runnable writeAllPending = this::writeAllPending;
+    // 0: no write task in event loop, 1: a write task has been scheduled
+    @SuppressWarnings("unused")
+    private volatile int writeScheduled = 0;
+    // 批量写队列中的字节数, 这部分还没有进入netty的ChannelOutboundBuffer
+    @SuppressWarnings("unused")
+    private volatile long queuedWriteBytes = 0;
+    // 已发出但还没有收到响应(也没有超时)的请求数
+    @SuppressWarnings("unused")
+    private volatile int inFlightRequests = 0;
+    // 调用耗时的peak EWMA和最后一次更新的时间, 并发更新时可能丢掉个别样本, 不影响负载均衡的效果
+    private volatile double latencyEwma = 0;
+    private volatile long latencyStamp = System.nanoTime();
+
+    private volatile byte protocolVersion = JProtocolHeader.VERSION_1;
+
+    // 等待channel重新可写的业务线程(比如流式响应), 由可写性变化或者channel关闭的事件唤醒
+    private final ReentrantLock writableLock = new ReentrantLock();
+    private final Condition writable = writableLock.newCondition();
+    // attempts to elide conditional wake-ups when nobody is waiting, only modified under writableLock
+    private volatile int writableWaiters = 0;
+
+    NettyChannel(Channel channel, boolean writeBatch) {
         this.channel = channel;
+        this.writeBatch = writeBatch;
     }
 
     public Channel channel() {
@@ -110,6 +181,102 @@ public class NettyChannel implements JChannel {
         return channel.isWritable();
     }
 
+    @Override
+    public boolean awaitWritable(long timeoutNanos) throws InterruptedException {
+        if (channel.isWritable()) {
+            return true;
+        }
+
+        long remainingNanos = timeoutNanos;
+        final ReentrantLock _look = writableLock;
+        _look.lockInterruptibly();
+        try {
+            writableWaiters++;
+            try {
+                // 先登记再检查, 与IO线程的'先改状态再检查waiters'配合, 不会丢失唤醒
+                while (!channel.isWritable() && channel.isActive()) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = writable.awaitNanos(remainingNanos);
+                }
+            } finally {
+                writableWaiters--;
+            }
+        } finally {
+            _look.unlock();
+        }
+        return channel.isWritable();
+    }
+
+    /**
+     * channel的可写性发生变化或者channel关闭时由IO线程调用, 唤醒 {@link #awaitWritable(long)} 中的线程.
+     */
+    public void notifyWritabilityChanged() {
+        if (writableWaiters == 0) {
+            return;
+        }
+
+        final ReentrantLock _look = writableLock;
+        _look.lock();
+        try {
+            writable.signalAll();
+        } finally {
+            _look.unlock();
+        }
+    }
+
+    @Override
+    public long pendingWriteBytes() {
+        // 非IO线程提交的write任务在入队时已经计入了ChannelOutboundBuffer (见netty的WriteTask)
+        ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        long bytes = queuedWriteBytes;
+        return outboundBuffer == null ? bytes : bytes + outboundBuffer.totalPendingWriteBytes();
+    }
+
+    @Override
+    public boolean isOverloaded() {
+        return MAX_PENDING_WRITE_BYTES > 0 && pendingWriteBytes() > MAX_PENDING_WRITE_BYTES;
+    }
+
+    @Override
+    public int inFlightRequests() {
+        return inFlightRequests;
+    }
+
+    @Override
+    public void incrementInFlight() {
+        inFlightRequestsUpdater.incrementAndGet(this);
+    }
+
+    @Override
+    public void decrementInFlight() {
+        inFlightRequestsUpdater.decrementAndGet(this);
+    }
+
+    @Override
+    public void recordLatency(long latencyNanos) {
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        if (latencyNanos > ewma) {
+            ewma = latencyNanos;
+        } else {
+            double w = Math.exp(-(now - latencyStamp) / LATENCY_DECAY_NANOS);
+            ewma = ewma * w + latencyNanos * (1 - w);
+        }
+        latencyStamp = now;
+        latencyEwma = ewma;
+    }
+
+    @Override
+    public long latencyEwmaNanos() {
+        double ewma = latencyEwma;
+        if (ewma == 0) {
+            return 0;
+        }
+        return (long) (ewma * Math.exp(-(System.nanoTime() - latencyStamp) / LATENCY_DECAY_NANOS));
+    }
+
     @Override
     public boolean isMarkedReconnect() {
         ConnectionWatchdog watchdog = channel.pipeline().get(ConnectionWatchdog.class);
@@ -145,26 +312,107 @@ public class NettyChannel implements JChannel {
         return jChannel;
     }
 
+    @Override
+    public byte protocolVersion() {
+        return protocolVersion;
+    }
+
+    public void protocolVersion(byte protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    @Override
+    public boolean isWriteBatchEnabled() {
+        return writeBatch;
+    }
+
     @Override
     public JChannel write(Object msg) {
-        channel.writeAndFlush(msg, channel.voidPromise());
+        if (writeBatch && !channel.eventLoop().inEventLoop()) {
+            addPendingWrite(msg, channel.voidPromise());
+        } else {
+            channel.writeAndFlush(msg, channel.voidPromise());
+        }
         return this;
     }
 
     @Override
     public JChannel write(Object msg, final JFutureListener<JChannel> listener) {
         final JChannel jChannel = this;
-        channel.writeAndFlush(msg)
-                .addListener((ChannelFutureListener) future -> {
-                    if (future.isSuccess()) {
-                        listener.operationSuccess(jChannel);
-                    } else {
-                        listener.operationFailure(jChannel, future.cause());
-                    }
-                });
+        ChannelFutureListener futureListener = future -> {
+            if (future.isSuccess()) {
+                listener.operationSuccess(jChannel);
+            } else {
+                listener.operationFailure(jChannel, future.cause());
+            }
+        };
+        if (writeBatch && !channel.eventLoop().inEventLoop()) {
+            // event loop已经关闭时由提交线程直接fail掉promise, listener不能再依赖event loop去通知
+            ChannelPromise promise = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+            addPendingWrite(msg, promise.addListener(futureListener));
+        } else {
+            channel.writeAndFlush(msg).addListener(futureListener);
+        }
         return jChannel;
     }
 
+    private void addPendingWrite(Object msg, ChannelPromise promise) {
+        int size = SIZE_ESTIMATOR.size(msg);
+        queuedWriteBytesUpdater.addAndGet(this, size);
+        writeQueue.offer(new PendingWrite(msg, promise, size));
+
+        // 只有从0变为1的线程负责向event loop提交任务, 其余线程的消息搭这次任务的顺风车
+        if (writeScheduledUpdater.compareAndSet(this, 0, 1)) {
+            try {
+                channel.eventLoop().execute(writeAllPending);
+            } catch (RejectedExecutionException e) {
+                writeScheduled = 0;
+                failAllPending(e);
+            }
+        }
+    }
+
+    private void writeAllPending() {
+        for (;;) {
+            int writes = 0;
+            for (;;) {
+                PendingWrite w = writeQueue.poll();
+                if (w == null) {
+                    break;
+                }
+                queuedWriteBytesUpdater.addAndGet(this, -w.size);
+                channel.write(w.msg, w.promise);
+                if (++writes == MAX_WRITES_PER_FLUSH) {
+                    channel.flush();
+                    writes = 0;
+                }
+            }
+            if (writes > 0) {
+                channel.flush();
+            }
+
+            writeScheduled = 0;
+
+            // 在重置标志位之后又有新的消息进入队列, 但提交任务的线程可能恰好看到标志位为1而放弃了提交,
+            // 所以这里需要再检查一次, 抢到标志位就继续写, 否则说明已有其他线程提交了新的任务
+            if (writeQueue.isEmpty() || !writeScheduledUpdater.compareAndSet(this, 0, 1)) {
+                return;
+            }
+        }
+    }
+
+    private void failAllPending(Throwable cause) {
+        for (;;) {
+            PendingWrite w = writeQueue.poll();
+            if (w == null) {
+                return;
+            }
+            queuedWriteBytesUpdater.addAndGet(this, -w.size);
+            ReferenceCountUtil.release(w.msg);
+            w.promise.tryFailure(cause);
+        }
+    }
+
     @Override
     public void addTask(Runnable task) {
         EventLoop eventLoop = channel.eventLoop();
@@ -202,6 +450,13 @@ public class NettyChannel implements JChannel {
         return new NettyOutputBuf(allocHandle, channel.alloc());
     }
 
+    @Override
+    public OutputBuf allocOutputBuf(Object operation) {
+        AdaptiveOutputBufAllocator.Handle handle =
+                operation == null ? null : AdaptiveOutputBufAllocator.DEFAULT.operationHandle(operation);
+        return new NettyOutputBuf(handle == null ? allocHandle : handle, channel.alloc());
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj || (obj instanceof NettyChannel && channel.equals(((NettyChannel) obj).channel));
@@ -217,6 +472,19 @@ public class NettyChannel implements JChannel {
         return channel.toString();
     }
 
+    static final class PendingWrite {
+
+        final Object msg;
+        final ChannelPromise promise;
+        final int size;
+
+        PendingWrite(Object msg, ChannelPromise promise, int size) {
+            this.msg = msg;
+            this.promise = promise;
+            this.size = size;
+        }
+    }
+
     static final class NettyOutputBuf implements OutputBuf {
 
         private final AdaptiveOutputBufAllocator.Handle allocHandle;
@@ -282,6 +550,11 @@ public class NettyChannel implements JChannel {
             return byteBuf.writerIndex(actualWroteBytes);
         }
 
+        @Override
+        public boolean release() {
+            return byteBuf.release();
+        }
+
         private static ByteBuffer newNioByteBuffer(ByteBuf byteBuf, int writableBytes) {
             return byteBuf
                     .ensureWritable(writableBytes)
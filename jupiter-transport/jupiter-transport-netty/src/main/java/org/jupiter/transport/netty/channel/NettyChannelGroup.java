@@ -112,9 +112,20 @@ public class NettyChannelGroup implements JChannelGroup {
                 return (JChannel) elements[0];
             }
 
-            int index = sequence.next() & Integer.MAX_VALUE;
+            int index = (sequence.next() & Integer.MAX_VALUE) % length;
+            JChannel channel = (JChannel) elements[index];
+            if (channel.isWritable()) {
+                return channel;
+            }
 
-            return (JChannel) elements[index % length];
+            // 优先选择可写的channel, 都不可写时仍然返回轮询到的那个
+            for (int i = 1; i < length; i++) {
+                JChannel next = (JChannel) elements[(index + i) % length];
+                if (next.isWritable()) {
+                    return next;
+                }
+            }
+            return channel;
         }
     }
 
@@ -196,6 +207,16 @@ public class NettyChannelGroup implements JChannelGroup {
         return !channels.isEmpty();
     }
 
+    @Override
+    public boolean isWritable() {
+        for (NettyChannel channel : channels) {
+            if (channel.isWritable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean waitForAvailable(long timeoutMillis) {
         boolean available = isAvailable();
@@ -272,6 +293,30 @@ public class NettyChannelGroup implements JChannelGroup {
         return SystemClock.millisClock().now() - timestamp > warmUp;
     }
 
+    @Override
+    public int inFlightRequests() {
+        Object[] elements = channelsUpdater.get(channels);
+        int sum = 0;
+        for (Object e : elements) {
+            sum += ((JChannel) e).inFlightRequests();
+        }
+        return sum;
+    }
+
+    @Override
+    public long latencyEwmaNanos() {
+        Object[] elements = channelsUpdater.get(channels);
+        int length = elements.length;
+        if (length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (Object e : elements) {
+            sum += ((JChannel) e).latencyEwmaNanos();
+        }
+        return sum / length;
+    }
+
     @Override
     public long timestamp() {
         return timestamp;
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.collection.LongObjectHashMap;
+
+import org.jupiter.common.util.Signal;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.exception.IoSignals;
+
+/**
+ * 从帧中取出上层可以直接反序列化的消息体: 重新组装分片帧({@link ChunkedFrames}), 解压被压缩的消息体({@link BodyCompressor}).
+ *
+ * 每个decoder持有一个实例, 只在IO线程中访问. 分片的消息体在收到第一个分片时按总长度一次性分配, 之后的分片
+ * 逐个拷贝进去, 这期间其他消息的帧照常解码. 一个连接上正在组装的消息体总大小不能超过
+ * "jupiter.io.decoder.max.chunked.body.size", 否则按 {@link IoSignals#BODY_TOO_LARGE} 处理.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+final class BodyAssembler {
+
+    // 分片组装后的消息体最大限制, 同时也是一个连接上正在组装的消息体总大小的限制, 默认64M
+    private static final int MAX_CHUNKED_BODY_SIZE =
+            SystemPropertyUtil.getInt("jupiter.io.decoder.max.chunked.body.size", 1024 * 1024 * 64);
+
+    private final int maxBodySize;
+    // <invokeId, 正在组装的消息体>
+    private final LongObjectHashMap<ByteBuf> assembling = new LongObjectHashMap<>();
+    private long assemblingBytes;
+
+    BodyAssembler(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 读取接下来 length 个字节的消息体, 返回的 {@link ByteBuf} 由调用方负责释放.
+     *
+     * 如果是一个还没有收齐的分片则返回 null.
+     */
+    ByteBuf read(ChannelHandlerContext ctx, JProtocolHeader header, ByteBuf in, int length) throws Exception {
+        boolean compressed = header.hasFlag(JProtocolHeader.FLAG_COMPRESSED);
+
+        if (!header.hasFlag(JProtocolHeader.FLAG_CHUNKED)) {
+            if (compressed) {
+                return BodyCompressor.decompress(ctx.alloc(), in, length, maxBodySize);
+            }
+            return in.readRetainedSlice(length);
+        }
+
+        ByteBuf body = assemble(ctx.alloc(), header.id(), in.readSlice(length));
+        if (body == null || !compressed) {
+            return body;
+        }
+        // 先分片再压缩的消息体, 收齐之后再解压
+        try {
+            return BodyCompressor.decompress(ctx.alloc(), body, body.readableBytes(), MAX_CHUNKED_BODY_SIZE);
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * 释放所有正在组装的消息体, 在decoder被移除时调用.
+     */
+    void releaseAll() {
+        for (ByteBuf body : assembling.values()) {
+            body.release();
+        }
+        assembling.clear();
+        assemblingBytes = 0;
+    }
+
+    private ByteBuf assemble(ByteBufAllocator alloc, long id, ByteBuf chunk) throws Signal {
+        ByteBuf body = assembling.get(id);
+        if (body == null) {
+            // 第一个分片, 前4个字节是整个消息体的长度
+            int totalLength = chunk.readInt();
+            if (totalLength < 0 || assemblingBytes + totalLength > MAX_CHUNKED_BODY_SIZE) {
+                throw IoSignals.BODY_TOO_LARGE;
+            }
+            body = alloc.buffer(totalLength, totalLength);
+            assembling.put(id, body);
+            assemblingBytes += totalLength;
+        }
+
+        if (chunk.readableBytes() > body.writableBytes()) {
+            throw IoSignals.BODY_TOO_LARGE;
+        }
+        body.writeBytes(chunk);
+
+        if (body.isWritable()) {
+            return null;
+        }
+
+        assembling.remove(id);
+        assemblingBytes -= body.capacity();
+        return body;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.channel.NettyChannel;
+
+/**
+ * 消息体压缩, 使用JDK自带的deflate(nowrap), 不引入额外的依赖.
+ *
+ * 只有消息体大小超过阈值并且连接协商到协议v2时才压缩, 压缩后的帧会打上 {@link JProtocolHeader#FLAG_COMPRESSED},
+ * 消息体格式为:
+ * = 4 // 压缩前的长度, int 类型
+ * + n // deflate 数据
+ *
+ * 如果压缩后没有变小则放弃压缩, 按原样发送. 压缩/解压都在IO线程中完成, Deflater/Inflater 按线程复用.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+final class BodyCompressor {
+
+    // 消息体大于等于这个值才压缩, 小于等于0表示关闭压缩(默认)
+    private static final int THRESHOLD = SystemPropertyUtil.getInt("jupiter.io.compression.threshold", -1);
+    // 压缩级别, 默认 BEST_SPEED
+    private static final int LEVEL = SystemPropertyUtil.getInt("jupiter.io.compression.level", Deflater.BEST_SPEED);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final FastThreadLocal<Deflater> deflaterThreadLocal = new FastThreadLocal<Deflater>() {
+
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(LEVEL, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater deflater) {
+            deflater.end();
+        }
+    };
+
+    private static final FastThreadLocal<Inflater> inflaterThreadLocal = new FastThreadLocal<Inflater>() {
+
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+
+        @Override
+        protected void onRemoval(Inflater inflater) {
+            inflater.end();
+        }
+    };
+
+    private static final FastThreadLocal<byte[]> inputChunkThreadLocal = new FastThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    private static final FastThreadLocal<byte[]> outputChunkThreadLocal = new FastThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    static boolean isEnabled() {
+        return THRESHOLD > 0;
+    }
+
+    static boolean shouldCompress(ChannelHandlerContext ctx, int bodySize) {
+        return THRESHOLD > 0
+                && bodySize >= THRESHOLD
+                && NettyChannel.attachChannel(ctx.channel()).protocolVersion() >= JProtocolHeader.VERSION_2;
+    }
+
+    /**
+     * 将 src 中 [index, index + length) 压缩后写入 out.
+     *
+     * 压缩后没有变小返回 false, 此时 out 的 writerIndex 保持不变.
+     */
+    static boolean compress(ByteBuf src, int index, int length, ByteBuf out) {
+        int writerIndex = out.writerIndex();
+        int limit = writerIndex + length;
+
+        out.writeInt(length);
+
+        Deflater deflater = deflaterThreadLocal.get();
+        byte[] outputChunk = outputChunkThreadLocal.get();
+        boolean smaller;
+        try {
+            if (src.hasArray()) {
+                deflater.setInput(src.array(), src.arrayOffset() + index, length);
+                deflater.finish();
+                smaller = deflate(deflater, outputChunk, out, limit);
+            } else {
+                byte[] inputChunk = inputChunkThreadLocal.get();
+                smaller = true;
+                for (int offset = 0; smaller && offset < length; ) {
+                    int n = Math.min(inputChunk.length, length - offset);
+                    src.getBytes(index + offset, inputChunk, 0, n);
+                    offset += n;
+                    deflater.setInput(inputChunk, 0, n);
+                    if (offset == length) {
+                        deflater.finish();
+                    }
+                    smaller = deflate(deflater, outputChunk, out, limit);
+                }
+            }
+        } finally {
+            deflater.reset();
+        }
+
+        if (!smaller) {
+            out.writerIndex(writerIndex);
+        }
+        return smaller;
+    }
+
+    /**
+     * 解压 in 中接下来 length 个字节, 返回的 {@link ByteBuf} 由调用方负责释放.
+     */
+    static ByteBuf decompress(ByteBufAllocator alloc, ByteBuf in, int length, int maxSize) throws Exception {
+        ByteBuf compressed = in.readSlice(length);
+        int rawLength = checkRawLength(compressed.readInt(), maxSize);
+
+        // heap buffer, Inflater 可以直接写进它的数组
+        ByteBuf buf = alloc.heapBuffer(rawLength);
+        boolean success = false;
+        try {
+            inflate(compressed, buf.array(), buf.arrayOffset() + buf.writerIndex(), rawLength);
+            buf.writerIndex(buf.writerIndex() + rawLength);
+            success = true;
+            return buf;
+        } finally {
+            if (!success) {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * 解压 in 中接下来 length 个字节.
+     */
+    static byte[] decompressToBytes(ByteBuf in, int length, int maxSize) throws Exception {
+        ByteBuf compressed = in.readSlice(length);
+        int rawLength = checkRawLength(compressed.readInt(), maxSize);
+
+        byte[] bytes = new byte[rawLength];
+        inflate(compressed, bytes, 0, rawLength);
+        return bytes;
+    }
+
+    private static boolean deflate(Deflater deflater, byte[] chunk, ByteBuf out, int limit) {
+        for (;;) {
+            int n = deflater.deflate(chunk, 0, chunk.length);
+            if (n == 0) {
+                // needs input or finished
+                return true;
+            }
+            if (out.writerIndex() + n >= limit) {
+                return false;
+            }
+            out.writeBytes(chunk, 0, n);
+        }
+    }
+
+    private static void inflate(ByteBuf compressed, byte[] dst, int offset, int rawLength) throws DataFormatException {
+        Inflater inflater = inflaterThreadLocal.get();
+        byte[] inputChunk = inputChunkThreadLocal.get();
+        try {
+            int produced = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!compressed.isReadable()) {
+                        throw new DataFormatException("truncated compressed body");
+                    }
+                    int n;
+                    if (compressed.hasArray()) {
+                        n = compressed.readableBytes();
+                        inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.readerIndex(), n);
+                    } else {
+                        n = Math.min(inputChunk.length, compressed.readableBytes());
+                        compressed.getBytes(compressed.readerIndex(), inputChunk, 0, n);
+                        inflater.setInput(inputChunk, 0, n);
+                    }
+                    compressed.skipBytes(n);
+                }
+
+                int remaining = rawLength - produced;
+                if (remaining > 0) {
+                    produced += inflater.inflate(dst, offset + produced, remaining);
+                } else if (inflater.inflate(outputChunkThreadLocal.get(), 0, 1) > 0) {
+                    // 已经达到声明的长度但是deflate流还没结束, 探测一下是否还有多余的数据
+                    throw new DataFormatException("decompressed body larger than " + rawLength);
+                }
+
+                if (inflater.needsDictionary()) {
+                    throw new DataFormatException("preset dictionary is not supported");
+                }
+            }
+            if (produced != rawLength) {
+                throw new DataFormatException("decompressed body size mismatch: " + produced + " != " + rawLength);
+            }
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static int checkRawLength(int rawLength, int maxSize) throws Exception {
+        if (rawLength < 0 || rawLength > maxSize) {
+            throw IoSignals.BODY_TOO_LARGE;
+        }
+        return rawLength;
+    }
+
+    private BodyCompressor() {}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.netty.channel.NettyChannel;
+
+/**
+ * 把一个大消息拆成多个分片帧发送.
+ *
+ * 每个分片帧都是一个完整的帧, 协议头与原始帧相同, 只是打上了 {@link JProtocolHeader#FLAG_CHUNKED} 并且 body size
+ * 为分片的长度, 第一个分片的消息体前面多了4个字节, 表示整个消息体的长度, 接收端据此一次性分配好内存并逐片拷贝进去.
+ *
+ * 第一个分片在当前调用中写出, 之后的每个分片都在一个单独的event loop任务中写出并flush, 这样其他消息的帧可以穿插在
+ * 分片之间, 小消息不会被排在一个大消息的后面.
+ *
+ * 但是同一个id的帧(流式调用的多个数据帧和结束帧)不能穿插, 接收端按id组装分片, 所以一个id还有分片没写完时,
+ * 这个id后续的帧都排在它后面, 等前面的消息全部写出之后再依次写出.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+final class ChunkedFrames {
+
+    // 消息体超过这个大小时拆成多个分片帧发送(仅限协议v2的连接), 小于等于0表示关闭, 默认1M
+    private static final int CHUNK_SIZE = SystemPropertyUtil.getInt("jupiter.io.encoder.chunk.size", 1024 * 1024);
+
+    // 每个channel上正在分片写出的消息, 以id为key, 只在event loop中访问
+    private static final AttributeKey<LongObjectMap<ChunkedWriteTask>> WRITING_TASKS_KEY =
+            AttributeKey.valueOf("chunked.writing.tasks");
+
+    static boolean shouldChunk(ChannelHandlerContext ctx, int bodySize) {
+        return CHUNK_SIZE > 0
+                && bodySize > CHUNK_SIZE
+                && NettyChannel.attachChannel(ctx.channel()).protocolVersion() >= JProtocolHeader.VERSION_2;
+    }
+
+    /**
+     * 这个channel上有消息正在分片写出, 这时候所有的帧都要经过 {@link #write}, 保证同一个id的帧不乱序.
+     */
+    static boolean isWriting(ChannelHandlerContext ctx) {
+        LongObjectMap<ChunkedWriteTask> tasks = ctx.channel().attr(WRITING_TASKS_KEY).get();
+        return tasks != null && !tasks.isEmpty();
+    }
+
+    /**
+     * frame 是一个编码完成的帧, 调用之后它的所有权就交给了这个方法.
+     */
+    static void write(ChannelHandlerContext ctx, ByteBuf frame, ChannelPromise promise) {
+        LongObjectMap<ChunkedWriteTask> tasks = ctx.channel().attr(WRITING_TASKS_KEY).get();
+        if (tasks != null && !tasks.isEmpty()) {
+            ChunkedWriteTask task = tasks.get(idOf(frame));
+            if (task != null) {
+                task.enqueue(frame, promise);
+                return;
+            }
+        }
+
+        if (shouldChunk(ctx, frame.readableBytes() - JProtocolHeader.HEADER_SIZE)) {
+            if (tasks == null) {
+                tasks = new LongObjectHashMap<>();
+                ctx.channel().attr(WRITING_TASKS_KEY).set(tasks);
+            }
+            long id = idOf(frame);
+            ChunkedWriteTask task = new ChunkedWriteTask(ctx, tasks, id);
+            tasks.put(id, task);
+            task.start(frame, promise);
+        } else {
+            ctx.write(frame, promise);
+        }
+    }
+
+    private static long idOf(ByteBuf frame) {
+        return frame.getLong(frame.readerIndex() + 4) & JProtocolHeader.ID_MASK;
+    }
+
+    private static final class ChunkedWriteTask implements Runnable {
+
+        private final ChannelHandlerContext ctx;
+        private final LongObjectMap<ChunkedWriteTask> tasks;
+        private final long key;
+        // 同一个id后续的帧, frame和promise交替存放
+        private final Queue<Object> pending = new ArrayDeque<>();
+
+        private ChannelPromise promise;
+        private byte sign;
+        private byte status;
+        private long id;
+        private int bodyIndex;
+        private int bodyEnd;
+
+        private ByteBuf frame;
+        private int offset;
+        // 每开始一个新的消息加1, 分片写失败的回调据此判断失败的是不是当前的消息
+        private int generation;
+
+        ChunkedWriteTask(ChannelHandlerContext ctx, LongObjectMap<ChunkedWriteTask> tasks, long key) {
+            this.ctx = ctx;
+            this.tasks = tasks;
+            this.key = key;
+        }
+
+        void start(ByteBuf frame, ChannelPromise promise) {
+            this.promise = promise;
+            this.frame = frame;
+
+            int headerIndex = frame.readerIndex();
+            sign = frame.getByte(headerIndex + 2);
+            status = frame.getByte(headerIndex + 3);
+            id = frame.getLong(headerIndex + 4) | (((long) JProtocolHeader.FLAG_CHUNKED & 0xff) << 56);
+            bodyIndex = headerIndex + JProtocolHeader.HEADER_SIZE;
+            bodyEnd = frame.writerIndex();
+            offset = bodyIndex;
+            generation++;
+
+            writeChunk(false);
+        }
+
+        void enqueue(ByteBuf frame, ChannelPromise promise) {
+            pending.add(frame);
+            pending.add(promise);
+        }
+
+        @Override
+        public void run() {
+            writeChunk(true);
+        }
+
+        void writeChunk(boolean flush) {
+            ByteBuf frame = this.frame;
+            if (frame == null) {
+                // 当前消息之前的分片写失败了, 接着写排在后面的
+                writePending();
+            } else {
+                boolean first = offset == bodyIndex;
+                int length = Math.min(CHUNK_SIZE, bodyEnd - offset);
+
+                ByteBuf header = ctx.alloc().ioBuffer(JProtocolHeader.HEADER_SIZE + 4);
+                header.writeShort(JProtocolHeader.MAGIC)
+                        .writeByte(sign)
+                        .writeByte(status)
+                        .writeLong(id)
+                        .writeInt(first ? length + 4 : length);
+                if (first) {
+                    header.writeInt(bodyEnd - bodyIndex);
+                }
+
+                ByteBuf chunk = ctx.alloc().compositeBuffer(2)
+                        .addComponents(true, header, frame.retainedSlice(offset, length));
+                offset += length;
+
+                if (offset == bodyEnd) {
+                    this.frame = null;
+                    frame.release();
+
+                    ctx.write(chunk, promise);
+                    writePending();
+                } else {
+                    final ChannelPromise _promise = promise;
+                    final int _generation = generation;
+                    ctx.write(chunk).addListener(future -> {
+                        if (!future.isSuccess()) {
+                            fail(_generation, _promise, future.cause());
+                        }
+                    });
+                    ctx.executor().execute(this);
+                }
+            }
+
+            if (flush) {
+                ctx.flush();
+            }
+        }
+
+        // 依次写出排在后面的帧, 遇到需要分片的消息时重新开始分片, 全部写完后移除这个task
+        private void writePending() {
+            for (;;) {
+                ByteBuf next = (ByteBuf) pending.poll();
+                if (next == null) {
+                    tasks.remove(key);
+                    return;
+                }
+                ChannelPromise nextPromise = (ChannelPromise) pending.poll();
+                if (shouldChunk(ctx, next.readableBytes() - JProtocolHeader.HEADER_SIZE)) {
+                    start(next, nextPromise);
+                    return;
+                }
+                ctx.write(next, nextPromise);
+            }
+        }
+
+        private void fail(int failedGeneration, ChannelPromise failedPromise, Throwable cause) {
+            ByteBuf frame = this.frame;
+            if (failedGeneration == generation && frame != null) {
+                this.frame = null;
+                frame.release();
+            }
+            failedPromise.tryFailure(cause);
+        }
+    }
+
+    private ChunkedFrames() {}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import org.jupiter.common.util.Signal;
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.Handshakes;
+import org.jupiter.transport.payload.JRequestPayload;
+import org.jupiter.transport.payload.JResponsePayload;
+import org.jupiter.transport.payload.PayloadHolder;
+
+/**
+ * 与 {@link ProtocolDecoder} 协议格式完全相同, 区别是不基于 {@link io.netty.handler.codec.ReplayingDecoder}.
+ *
+ * ReplayingDecoder在数据不足时抛出signal并从上一个checkpoint重新解析, 一个大消息体被拆成很多个TCP分段到达时,
+ * 每到达一个分段都要replay一次. 这里在读取之前先用 {@code readableBytes()} 判断16字节的协议头以及
+ * {@code bodySize} 长度的消息体是否已经完整, 不完整就直接返回等待更多数据, 协议头只解析一次, 不会replay.
+ *
+ * 通过 system property "jupiter.io.decoder.length_field" 开启, 参考 {@link ProtocolDecoders}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+public class LengthFieldProtocolDecoder extends ByteToMessageDecoder {
+
+    // 协议体最大限制, 默认5M
+    private static final int MAX_BODY_SIZE = SystemPropertyUtil.getInt("jupiter.io.decoder.max.body.size", 1024 * 1024 * 5);
+
+    /**
+     * Cumulate {@link ByteBuf}s by add them to a CompositeByteBuf and so do no memory copy whenever possible.
+     * Be aware that CompositeByteBuf use a more complex indexing implementation so depending on your use-case
+     * and the decoder implementation this may be slower then just use the {@link #MERGE_CUMULATOR}.
+     */
+    private static final boolean USE_COMPOSITE_BUF = SystemPropertyUtil.getBoolean("jupiter.io.decoder.composite.buf", false);
+
+    /**
+     * 与 {@link ProtocolDecoder} 相同, 设置为true时消息体拷贝成byte[]交给上层, 不再引用池化的内存.
+     */
+    private static final boolean COPY_BODY = SystemPropertyUtil.getBoolean("jupiter.io.decoder.copy.body", false);
+
+    public LengthFieldProtocolDecoder() {
+        if (USE_COMPOSITE_BUF) {
+            setCumulator(COMPOSITE_CUMULATOR);
+        }
+    }
+
+    // 协议头
+    private final JProtocolHeader header = new JProtocolHeader();
+    // 分片组装/解压
+    private final BodyAssembler assembler = new BodyAssembler(MAX_BODY_SIZE);
+
+    private State state = State.HEADER;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        switch (state) {
+            case HEADER:
+                if (in.readableBytes() < JProtocolHeader.HEADER_SIZE) {
+                    return;
+                }
+                checkMagic(in.readShort());         // MAGIC
+                header.sign(in.readByte());         // 消息标志位
+                header.status(in.readByte());       // 状态位
+                header.id(in.readLong());           // 消息id
+                header.bodySize(in.readInt());      // 消息体长度
+                state = State.BODY;
+            case BODY:
+                switch (header.messageCode()) {
+                    case JProtocolHeader.HEARTBEAT:
+                        Handshakes.handle(ctx, header);
+                        break;
+                    case JProtocolHeader.REQUEST: {
+                        int length = checkBodySize(header.bodySize());
+                        if (in.readableBytes() < length) {
+                            return;
+                        }
+
+                        JRequestPayload request = JRequestPayload.newInstance(header.id());
+                        request.flags(header.flags());
+                        request.timestamp(SystemClock.millisClock().now());
+                        request.timeoutMillis(JProtocolHeader.decodeTimeout(header.status()));
+                        if (readBody(ctx, in, length, request)) {
+                            out.add(request);
+                        }
+
+                        break;
+                    }
+                    case JProtocolHeader.RESPONSE: {
+                        int length = checkBodySize(header.bodySize());
+                        if (in.readableBytes() < length) {
+                            return;
+                        }
+
+                        JResponsePayload response = JResponsePayload.newInstance(header.id());
+                        response.status(header.status());
+                        response.flags(header.flags());
+                        if (readBody(ctx, in, length, response)) {
+                            out.add(response);
+                        }
+
+                        break;
+                    }
+                    default:
+                        throw IoSignals.ILLEGAL_SIGN;
+                }
+                state = State.HEADER;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        assembler.releaseAll();
+    }
+
+    /**
+     * 如果是一个还没有收齐的分片返回 false.
+     */
+    private boolean readBody(ChannelHandlerContext ctx, ByteBuf in, int length, PayloadHolder payload) throws Exception {
+        byte serializerCode = header.serializerCode();
+        if (COPY_BODY && !header.hasFlag(JProtocolHeader.FLAG_CHUNKED)) {
+            byte[] bytes;
+            if (header.hasFlag(JProtocolHeader.FLAG_COMPRESSED)) {
+                bytes = BodyCompressor.decompressToBytes(in, length, MAX_BODY_SIZE);
+            } else {
+                bytes = new byte[length];
+                in.readBytes(bytes);
+            }
+            payload.bytes(serializerCode, bytes);
+        } else {
+            ByteBuf body = assembler.read(ctx, header, in, length);
+            if (body == null) {
+                return false;
+            }
+            if (COPY_BODY) {
+                try {
+                    payload.bytes(serializerCode, ByteBufUtil.getBytes(body));
+                } finally {
+                    body.release();
+                }
+            } else {
+                payload.inputBuf(serializerCode, new NettyInputBuf(body));
+            }
+        }
+        // 上层拿到的总是完整的并且解压后的消息体
+        payload.flags((byte) (payload.flags() & ~(JProtocolHeader.FLAG_COMPRESSED | JProtocolHeader.FLAG_CHUNKED)));
+        return true;
+    }
+
+    private static void checkMagic(short magic) throws Signal {
+        if (magic != JProtocolHeader.MAGIC) {
+            throw IoSignals.ILLEGAL_MAGIC;
+        }
+    }
+
+    private static int checkBodySize(int size) throws Signal {
+        if (size < 0 || size > MAX_BODY_SIZE) {
+            throw IoSignals.BODY_TOO_LARGE;
+        }
+        return size;
+    }
+
+    enum State {
+        HEADER,
+        BODY
+    }
+}
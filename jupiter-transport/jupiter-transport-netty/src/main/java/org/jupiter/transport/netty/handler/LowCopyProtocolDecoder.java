@@ -15,23 +15,21 @@
  */
 package org.jupiter.transport.netty.handler;
 
-import java.io.InputStream;
-import java.nio.ByteBuffer;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ReplayingDecoder;
 
 import org.jupiter.common.util.Signal;
 import org.jupiter.common.util.SystemClock;
 import org.jupiter.common.util.SystemPropertyUtil;
-import org.jupiter.serialization.io.InputBuf;
 import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.Handshakes;
 import org.jupiter.transport.payload.JRequestPayload;
 import org.jupiter.transport.payload.JResponsePayload;
+import org.jupiter.transport.payload.PayloadHolder;
 
 /**
  * <pre>
@@ -49,7 +47,7 @@ import org.jupiter.transport.payload.JResponsePayload;
  * = 2 // magic = (short) 0xbabe
  * + 1 // 消息标志位, 低地址4位用来表示消息类型request/response/heartbeat等, 高地址4位用来表示序列化类型
  * + 1 // 状态位, 设置请求响应状态
- * + 8 // 消息 id, long 类型, 未来jupiter可能将id限制在48位, 留出高地址的16位作为扩展字段
+ * + 8 // 消息 id, long 类型, 协议v2中高地址的8位为flags, 次高8位为扩展字段, 低48位为id, 见 {@link JProtocolHeader}
  * + 4 // 消息体 body 长度, int 类型
  * </pre>
  *
@@ -79,6 +77,8 @@ public class LowCopyProtocolDecoder extends ReplayingDecoder<LowCopyProtocolDeco
 
     // 协议头
     private final JProtocolHeader header = new JProtocolHeader();
+    // 分片组装/解压
+    private final BodyAssembler assembler = new BodyAssembler(MAX_BODY_SIZE);
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
@@ -101,28 +101,30 @@ public class LowCopyProtocolDecoder extends ReplayingDecoder<LowCopyProtocolDeco
             case BODY:
                 switch (header.messageCode()) {
                     case JProtocolHeader.HEARTBEAT:
+                        Handshakes.handle(ctx, header);
                         break;
                     case JProtocolHeader.REQUEST: {
                         int length = checkBodySize(header.bodySize());
-                        ByteBuf bodyByteBuf = in.readRetainedSlice(length);
 
-                        JRequestPayload request = new JRequestPayload(header.id());
+                        JRequestPayload request = JRequestPayload.newInstance(header.id());
+                        request.flags(header.flags());
                         request.timestamp(SystemClock.millisClock().now());
-                        request.inputBuf(header.serializerCode(), new NettyInputBuf(bodyByteBuf));
-
-                        out.add(request);
+                        request.timeoutMillis(JProtocolHeader.decodeTimeout(header.status()));
+                        if (readBody(ctx, in, length, request)) {
+                            out.add(request);
+                        }
 
                         break;
                     }
                     case JProtocolHeader.RESPONSE: {
                         int length = checkBodySize(header.bodySize());
-                        ByteBuf bodyByteBuf = in.readRetainedSlice(length);
 
-                        JResponsePayload response = new JResponsePayload(header.id());
+                        JResponsePayload response = JResponsePayload.newInstance(header.id());
                         response.status(header.status());
-                        response.inputBuf(header.serializerCode(), new NettyInputBuf(bodyByteBuf));
-
-                        out.add(response);
+                        response.flags(header.flags());
+                        if (readBody(ctx, in, length, response)) {
+                            out.add(response);
+                        }
 
                         break;
                     }
@@ -133,6 +135,25 @@ public class LowCopyProtocolDecoder extends ReplayingDecoder<LowCopyProtocolDeco
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        assembler.releaseAll();
+    }
+
+    /**
+     * 如果是一个还没有收齐的分片返回 false.
+     */
+    private boolean readBody(ChannelHandlerContext ctx, ByteBuf in, int length, PayloadHolder payload) throws Exception {
+        ByteBuf body = assembler.read(ctx, header, in, length);
+        if (body == null) {
+            return false;
+        }
+        // 上层拿到的总是完整的并且解压后的消息体
+        payload.flags((byte) (payload.flags() & ~(JProtocolHeader.FLAG_COMPRESSED | JProtocolHeader.FLAG_CHUNKED)));
+        payload.inputBuf(header.serializerCode(), new NettyInputBuf(body));
+        return true;
+    }
+
     private static void checkMagic(short magic) throws Signal {
         if (magic != JProtocolHeader.MAGIC) {
             throw IoSignals.ILLEGAL_MAGIC;
@@ -146,40 +167,6 @@ public class LowCopyProtocolDecoder extends ReplayingDecoder<LowCopyProtocolDeco
         return size;
     }
 
-    static final class NettyInputBuf implements InputBuf {
-
-        private final ByteBuf byteBuf;
-
-        NettyInputBuf(ByteBuf byteBuf) {
-            this.byteBuf = byteBuf;
-        }
-
-        @Override
-        public InputStream inputStream() {
-            return new ByteBufInputStream(byteBuf); // should not be called more than once
-        }
-
-        @Override
-        public ByteBuffer nioByteBuffer() {
-            return byteBuf.nioBuffer(); // should not be called more than once
-        }
-
-        @Override
-        public int size() {
-            return byteBuf.readableBytes();
-        }
-
-        @Override
-        public boolean hasMemoryAddress() {
-            return byteBuf.hasMemoryAddress();
-        }
-
-        @Override
-        public boolean release() {
-            return byteBuf.release();
-        }
-    }
-
     enum State {
         MAGIC,
         SIGN,
@@ -23,6 +23,7 @@ import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.EncoderException;
 
 import org.jupiter.common.util.Reflects;
+import org.jupiter.common.util.Signal;
 import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.payload.JRequestPayload;
 import org.jupiter.transport.payload.JResponsePayload;
@@ -44,7 +45,7 @@ import org.jupiter.transport.payload.PayloadHolder;
  * = 2 // magic = (short) 0xbabe
  * + 1 // 消息标志位, 低地址4位用来表示消息类型request/response/heartbeat等, 高地址4位用来表示序列化类型
  * + 1 // 状态位, 设置请求响应状态
- * + 8 // 消息 id, long 类型, 未来jupiter可能将id限制在48位, 留出高地址的16位作为扩展字段
+ * + 8 // 消息 id, long 类型, 协议v2中高地址的8位为flags, 次高8位为扩展字段, 低48位为id, 见 {@link JProtocolHeader}
  * + 4 // 消息体 body 长度, int 类型
  * </pre>
  *
@@ -63,9 +64,10 @@ public class LowCopyProtocolEncoder extends ChannelOutboundHandlerAdapter {
             if (msg instanceof PayloadHolder) {
                 PayloadHolder cast = (PayloadHolder) msg;
 
-                buf = encode(cast);
+                buf = encode(ctx, cast);
 
-                ctx.write(buf, promise);
+                // 消息体过大时拆成多个分片帧
+                ChunkedFrames.write(ctx, buf, promise);
 
                 buf = null;
             } else {
@@ -80,42 +82,62 @@ public class LowCopyProtocolEncoder extends ChannelOutboundHandlerAdapter {
         }
     }
 
-    protected ByteBuf encode(PayloadHolder msg) throws Exception {
+    protected ByteBuf encode(ChannelHandlerContext ctx, PayloadHolder msg) throws Exception {
         if (msg instanceof JRequestPayload) {
-            return doEncodeRequest((JRequestPayload) msg);
+            return doEncodeRequest(ctx, (JRequestPayload) msg);
         } else if (msg instanceof JResponsePayload) {
-            return doEncodeResponse((JResponsePayload) msg);
+            return doEncodeResponse(ctx, (JResponsePayload) msg);
         } else {
             throw new IllegalArgumentException(Reflects.simpleClassName(msg));
         }
     }
 
-    private ByteBuf doEncodeRequest(JRequestPayload request) {
+    private ByteBuf doEncodeRequest(ChannelHandlerContext ctx, JRequestPayload request) throws Signal {
         byte sign = JProtocolHeader.toSign(request.serializerCode(), JProtocolHeader.REQUEST);
         long invokeId = request.invokeId();
-        ByteBuf byteBuf = (ByteBuf) request.outputBuf().backingObject();
-        int length = byteBuf.readableBytes();
-
-        byteBuf.markWriterIndex();
-
-        byteBuf.writerIndex(byteBuf.writerIndex() - length);
 
-        byteBuf.writeShort(JProtocolHeader.MAGIC)
-                .writeByte(sign)
-                .writeByte(0x00)
-                .writeLong(invokeId)
-                .writeInt(length - JProtocolHeader.HEADER_SIZE);
+        byte status;
+        try {
+            status = ProtocolEncoder.encodeTimeout(request);
+        } catch (Signal s) {
+            // 不会再写出了, 序列化时分配的缓冲区在这里释放
+            request.releaseOutputBuf();
+            throw s;
+        }
 
-        byteBuf.resetWriterIndex();
+        ByteBuf byteBuf = (ByteBuf) request.outputBuf().backingObject();
 
-        return byteBuf;
+        return doEncode(ctx, sign, status, invokeId, request.flags(), request.routeKey(), byteBuf);
     }
 
-    private ByteBuf doEncodeResponse(JResponsePayload response) {
+    private ByteBuf doEncodeResponse(ChannelHandlerContext ctx, JResponsePayload response) {
         byte sign = JProtocolHeader.toSign(response.serializerCode(), JProtocolHeader.RESPONSE);
         byte status = response.status();
         long invokeId = response.id();
         ByteBuf byteBuf = (ByteBuf) response.outputBuf().backingObject();
+
+        return doEncode(ctx, sign, status, invokeId, response.flags(), (byte) 0x00, byteBuf);
+    }
+
+    private static ByteBuf doEncode(
+            ChannelHandlerContext ctx, byte sign, byte status, long invokeId, byte flags, byte routeKey, ByteBuf byteBuf) {
+
+        // byteBuf 的前16个字节是序列化时预留的协议头
+        int bodyLength = byteBuf.readableBytes() - JProtocolHeader.HEADER_SIZE;
+
+        if (BodyCompressor.shouldCompress(ctx, bodyLength)) {
+            ByteBuf compressed = ctx.alloc().ioBuffer(byteBuf.readableBytes());
+            compressed.writerIndex(JProtocolHeader.HEADER_SIZE);
+            if (BodyCompressor.compress(byteBuf, byteBuf.readerIndex() + JProtocolHeader.HEADER_SIZE, bodyLength, compressed)) {
+                byteBuf.release();
+                byteBuf = compressed;
+                flags |= JProtocolHeader.FLAG_COMPRESSED;
+            } else {
+                // 压缩后没有变小, 按原样发送
+                compressed.release();
+            }
+        }
+
         int length = byteBuf.readableBytes();
 
         byteBuf.markWriterIndex();
@@ -125,7 +147,7 @@ public class LowCopyProtocolEncoder extends ChannelOutboundHandlerAdapter {
         byteBuf.writeShort(JProtocolHeader.MAGIC)
                 .writeByte(sign)
                 .writeByte(status)
-                .writeLong(invokeId)
+                .writeLong(JProtocolHeader.toId(invokeId, flags, routeKey))
                 .writeInt(length - JProtocolHeader.HEADER_SIZE);
 
         byteBuf.resetWriterIndex();
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import org.jupiter.serialization.io.InputBuf;
+
+/**
+ * 基于retained slice的 {@link InputBuf}, 与decoder的cumulation共享内存, 避免消息体的拷贝.
+ *
+ * 持有者必须并且只能调用一次 {@link #release()}, 通常由 {@code Serializer#readObject(InputBuf, Class)} 负责.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+final class NettyInputBuf implements InputBuf {
+
+    private final ByteBuf byteBuf;
+
+    NettyInputBuf(ByteBuf byteBuf) {
+        this.byteBuf = byteBuf;
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return new ByteBufInputStream(byteBuf); // should not be called more than once
+    }
+
+    @Override
+    public ByteBuffer nioByteBuffer() {
+        return byteBuf.nioBuffer(); // should not be called more than once
+    }
+
+    @Override
+    public int size() {
+        return byteBuf.readableBytes();
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return byteBuf.hasMemoryAddress();
+    }
+
+    @Override
+    public boolean release() {
+        return byteBuf.release();
+    }
+}
@@ -18,6 +18,7 @@ package org.jupiter.transport.netty.handler;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ReplayingDecoder;
 
@@ -26,8 +27,10 @@ import org.jupiter.common.util.SystemClock;
 import org.jupiter.common.util.SystemPropertyUtil;
 import org.jupiter.transport.JProtocolHeader;
 import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.Handshakes;
 import org.jupiter.transport.payload.JRequestPayload;
 import org.jupiter.transport.payload.JResponsePayload;
+import org.jupiter.transport.payload.PayloadHolder;
 
 /**
  * <pre>
@@ -45,7 +48,7 @@ import org.jupiter.transport.payload.JResponsePayload;
  * = 2 // magic = (short) 0xbabe
  * + 1 // 消息标志位, 低地址4位用来表示消息类型request/response/heartbeat等, 高地址4位用来表示序列化类型
  * + 1 // 状态位, 设置请求响应状态
- * + 8 // 消息 id, long 类型, 未来jupiter可能将id限制在48位, 留出高地址的16位作为扩展字段
+ * + 8 // 消息 id, long 类型, 协议v2中高地址的8位为flags, 次高8位为扩展字段, 低48位为id, 见 {@link JProtocolHeader}
  * + 4 // 消息体 body 长度, int 类型
  * </pre>
  *
@@ -66,6 +69,12 @@ public class ProtocolDecoder extends ReplayingDecoder<ProtocolDecoder.State> {
      */
     private static final boolean USE_COMPOSITE_BUF = SystemPropertyUtil.getBoolean("jupiter.io.decoder.composite.buf", false);
 
+    /**
+     * 默认消息体以cumulation buffer的retained slice({@link NettyInputBuf})交给上层, 省去一次byte[]分配和一次内存拷贝,
+     * 代价是在反序列化完成(release)之前会一直引用着池化的内存; 设置为true则退回到拷贝成byte[]的方式.
+     */
+    private static final boolean COPY_BODY = SystemPropertyUtil.getBoolean("jupiter.io.decoder.copy.body", false);
+
     public ProtocolDecoder() {
         super(State.MAGIC);
         if (USE_COMPOSITE_BUF) {
@@ -75,6 +84,8 @@ public class ProtocolDecoder extends ReplayingDecoder<ProtocolDecoder.State> {
 
     // 协议头
     private final JProtocolHeader header = new JProtocolHeader();
+    // 分片组装/解压
+    private final BodyAssembler assembler = new BodyAssembler(MAX_BODY_SIZE);
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
@@ -97,30 +108,30 @@ public class ProtocolDecoder extends ReplayingDecoder<ProtocolDecoder.State> {
             case BODY:
                 switch (header.messageCode()) {
                     case JProtocolHeader.HEARTBEAT:
+                        Handshakes.handle(ctx, header);
                         break;
                     case JProtocolHeader.REQUEST: {
                         int length = checkBodySize(header.bodySize());
-                        byte[] bytes = new byte[length];
-                        in.readBytes(bytes);
 
-                        JRequestPayload request = new JRequestPayload(header.id());
+                        JRequestPayload request = JRequestPayload.newInstance(header.id());
+                        request.flags(header.flags());
                         request.timestamp(SystemClock.millisClock().now());
-                        request.bytes(header.serializerCode(), bytes);
-
-                        out.add(request);
+                        request.timeoutMillis(JProtocolHeader.decodeTimeout(header.status()));
+                        if (readBody(ctx, in, length, request)) {
+                            out.add(request);
+                        }
 
                         break;
                     }
                     case JProtocolHeader.RESPONSE: {
                         int length = checkBodySize(header.bodySize());
-                        byte[] bytes = new byte[length];
-                        in.readBytes(bytes);
 
-                        JResponsePayload response = new JResponsePayload(header.id());
+                        JResponsePayload response = JResponsePayload.newInstance(header.id());
                         response.status(header.status());
-                        response.bytes(header.serializerCode(), bytes);
-
-                        out.add(response);
+                        response.flags(header.flags());
+                        if (readBody(ctx, in, length, response)) {
+                            out.add(response);
+                        }
 
                         break;
                     }
@@ -131,6 +142,45 @@ public class ProtocolDecoder extends ReplayingDecoder<ProtocolDecoder.State> {
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        assembler.releaseAll();
+    }
+
+    /**
+     * 如果是一个还没有收齐的分片返回 false.
+     */
+    private boolean readBody(ChannelHandlerContext ctx, ByteBuf in, int length, PayloadHolder payload) throws Exception {
+        byte serializerCode = header.serializerCode();
+        if (COPY_BODY && !header.hasFlag(JProtocolHeader.FLAG_CHUNKED)) {
+            byte[] bytes;
+            if (header.hasFlag(JProtocolHeader.FLAG_COMPRESSED)) {
+                bytes = BodyCompressor.decompressToBytes(in, length, MAX_BODY_SIZE);
+            } else {
+                bytes = new byte[length];
+                in.readBytes(bytes);
+            }
+            payload.bytes(serializerCode, bytes);
+        } else {
+            ByteBuf body = assembler.read(ctx, header, in, length);
+            if (body == null) {
+                return false;
+            }
+            if (COPY_BODY) {
+                try {
+                    payload.bytes(serializerCode, ByteBufUtil.getBytes(body));
+                } finally {
+                    body.release();
+                }
+            } else {
+                payload.inputBuf(serializerCode, new NettyInputBuf(body));
+            }
+        }
+        // 上层拿到的总是完整的并且解压后的消息体
+        payload.flags((byte) (payload.flags() & ~(JProtocolHeader.FLAG_COMPRESSED | JProtocolHeader.FLAG_CHUNKED)));
+        return true;
+    }
+
     private static void checkMagic(short magic) throws Signal {
         if (magic != JProtocolHeader.MAGIC) {
             throw IoSignals.ILLEGAL_MAGIC;
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.CodecConfig;
+
+/**
+ * 根据配置创建protocol decoder, decoder是有状态的, 每个channel都需要一个新的实例.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+public final class ProtocolDecoders {
+
+    /**
+     * 使用 {@link LengthFieldProtocolDecoder} 代替基于ReplayingDecoder的实现, 默认关闭.
+     */
+    private static final boolean USE_LENGTH_FIELD_DECODER =
+            SystemPropertyUtil.getBoolean("jupiter.io.decoder.length_field", false);
+
+    public static ByteToMessageDecoder newInstance() {
+        if (USE_LENGTH_FIELD_DECODER) {
+            return new LengthFieldProtocolDecoder();
+        }
+        return CodecConfig.isCodecLowCopy() ? new LowCopyProtocolDecoder() : new ProtocolDecoder();
+    }
+
+    private ProtocolDecoders() {}
+}
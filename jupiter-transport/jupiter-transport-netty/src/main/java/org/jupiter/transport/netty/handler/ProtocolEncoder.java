@@ -16,12 +16,18 @@
 package org.jupiter.transport.netty.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 import org.jupiter.common.util.Reflects;
+import org.jupiter.common.util.Signal;
+import org.jupiter.common.util.SystemClock;
 import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.exception.IoSignals;
 import org.jupiter.transport.payload.JRequestPayload;
 import org.jupiter.transport.payload.JResponsePayload;
 import org.jupiter.transport.payload.PayloadHolder;
@@ -42,7 +48,7 @@ import org.jupiter.transport.payload.PayloadHolder;
  * = 2 // magic = (short) 0xbabe
  * + 1 // 消息标志位, 低地址4位用来表示消息类型request/response/heartbeat等, 高地址4位用来表示序列化类型
  * + 1 // 状态位, 设置请求响应状态
- * + 8 // 消息 id, long 类型, 未来jupiter可能将id限制在48位, 留出高地址的16位作为扩展字段
+ * + 8 // 消息 id, long 类型, 协议v2中高地址的8位为flags, 次高8位为扩展字段, 低48位为id, 见 {@link JProtocolHeader}
  * + 4 // 消息体 body 长度, int 类型
  * </pre>
  *
@@ -57,14 +63,33 @@ public class ProtocolEncoder extends MessageToByteEncoder<PayloadHolder> {
     @Override
     protected void encode(ChannelHandlerContext ctx, PayloadHolder msg, ByteBuf out) throws Exception {
         if (msg instanceof JRequestPayload) {
-            doEncodeRequest((JRequestPayload) msg, out);
+            doEncodeRequest(ctx, (JRequestPayload) msg, out);
         } else if (msg instanceof JResponsePayload) {
-            doEncodeResponse((JResponsePayload) msg, out);
+            doEncodeResponse(ctx, (JResponsePayload) msg, out);
         } else {
             throw new IllegalArgumentException(Reflects.simpleClassName(msg));
         }
     }
 
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof PayloadHolder
+                && (ChunkedFrames.isWriting(ctx) || ChunkedFrames.shouldChunk(ctx, ((PayloadHolder) msg).size()))) {
+            // 消息体过大, 编码完成后拆成多个分片帧; 或者有消息正在分片写出, 同一个id的帧需要排在它后面
+            PayloadHolder cast = (PayloadHolder) msg;
+            ByteBuf buf = allocateBuffer(ctx, cast, true);
+            try {
+                encode(ctx, cast, buf);
+            } catch (Throwable t) {
+                buf.release();
+                throw new EncoderException(t);
+            }
+            ChunkedFrames.write(ctx, buf, promise);
+        } else {
+            super.write(ctx, msg, promise);
+        }
+    }
+
     @Override
     protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, PayloadHolder msg, boolean preferDirect) throws Exception {
         if (preferDirect) {
@@ -74,31 +99,67 @@ public class ProtocolEncoder extends MessageToByteEncoder<PayloadHolder> {
         }
     }
 
-    private void doEncodeRequest(JRequestPayload request, ByteBuf out) {
+    private void doEncodeRequest(ChannelHandlerContext ctx, JRequestPayload request, ByteBuf out) throws Signal {
         byte sign = JProtocolHeader.toSign(request.serializerCode(), JProtocolHeader.REQUEST);
         long invokeId = request.invokeId();
         byte[] bytes = request.bytes();
-        int length = bytes.length;
 
-        out.writeShort(JProtocolHeader.MAGIC)
-                .writeByte(sign)
-                .writeByte(0x00)
-                .writeLong(invokeId)
-                .writeInt(length)
-                .writeBytes(bytes);
+        byte status = encodeTimeout(request);
+
+        doEncode(ctx, sign, status, invokeId, request.flags(), request.routeKey(), bytes, out);
     }
 
-    private void doEncodeResponse(JResponsePayload response, ByteBuf out) {
+    /**
+     * 按写出时的剩余时间编码超时, 在本地排队期间就已经超时的请求不再发出.
+     */
+    static byte encodeTimeout(JRequestPayload request) throws Signal {
+        long timeoutMillis = request.timeoutMillis();
+        long deadlineMillis = request.deadlineMillis();
+        if (deadlineMillis > 0) {
+            timeoutMillis = deadlineMillis - SystemClock.millisClock().now();
+            if (timeoutMillis <= 0) {
+                throw IoSignals.DEADLINE_EXCEEDED;
+            }
+        }
+        return JProtocolHeader.encodeTimeout(timeoutMillis);
+    }
+
+    private void doEncodeResponse(ChannelHandlerContext ctx, JResponsePayload response, ByteBuf out) {
         byte sign = JProtocolHeader.toSign(response.serializerCode(), JProtocolHeader.RESPONSE);
         byte status = response.status();
         long invokeId = response.id();
         byte[] bytes = response.bytes();
+
+        doEncode(ctx, sign, status, invokeId, response.flags(), (byte) 0x00, bytes, out);
+    }
+
+    private static void doEncode(
+            ChannelHandlerContext ctx, byte sign, byte status, long invokeId, byte flags, byte routeKey, byte[] bytes, ByteBuf out) {
+
         int length = bytes.length;
 
+        if (BodyCompressor.shouldCompress(ctx, length)) {
+            int headerIndex = out.writerIndex();
+            out.writerIndex(headerIndex + JProtocolHeader.HEADER_SIZE);
+            if (BodyCompressor.compress(Unpooled.wrappedBuffer(bytes), 0, length, out)) {
+                int compressedLength = out.writerIndex() - headerIndex - JProtocolHeader.HEADER_SIZE;
+                flags |= JProtocolHeader.FLAG_COMPRESSED;
+
+                out.setShort(headerIndex, JProtocolHeader.MAGIC)
+                        .setByte(headerIndex + 2, sign)
+                        .setByte(headerIndex + 3, status)
+                        .setLong(headerIndex + 4, JProtocolHeader.toId(invokeId, flags, routeKey))
+                        .setInt(headerIndex + 12, compressedLength);
+                return;
+            }
+            // 压缩后没有变小, 按原样发送
+            out.writerIndex(headerIndex);
+        }
+
         out.writeShort(JProtocolHeader.MAGIC)
                 .writeByte(sign)
                 .writeByte(status)
-                .writeLong(invokeId)
+                .writeLong(JProtocolHeader.toId(invokeId, flags, routeKey))
                 .writeInt(length)
                 .writeBytes(bytes);
     }
@@ -84,6 +84,8 @@ public class AcceptorHandler extends ChannelInboundHandlerAdapter {
 
         logger.warn("Disconnects with {} as the {}th channel.", ctx.channel(), count);
 
+        NettyChannel.attachChannel(ctx.channel()).notifyWritabilityChanged();
+
         super.channelInactive(ctx);
     }
 
@@ -92,6 +94,9 @@ public class AcceptorHandler extends ChannelInboundHandlerAdapter {
         Channel ch = ctx.channel();
         ChannelConfig config = ch.config();
 
+        // 唤醒等待可写的业务线程
+        NettyChannel.attachChannel(ch).notifyWritabilityChanged();
+
         // 高水位线: ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK
         // 低水位线: ChannelOption.WRITE_BUFFER_LOW_WATER_MARK
         if (!ch.isWritable()) {
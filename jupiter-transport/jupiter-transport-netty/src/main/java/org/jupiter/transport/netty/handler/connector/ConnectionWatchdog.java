@@ -58,7 +58,8 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter im
     private final JChannelGroup group;
 
     private volatile int state = ST_STARTED;
-    private int attempts;
+    // 上一次的退避时间, 连接建立后清零
+    private long delayMillis;
 
     public ConnectionWatchdog(Bootstrap bootstrap, Timer timer, SocketAddress remoteAddress, JChannelGroup group) {
         this.bootstrap = bootstrap;
@@ -87,7 +88,7 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter im
             group.add(NettyChannel.attachChannel(ch));
         }
 
-        attempts = 0;
+        delayMillis = 0;
 
         logger.info("Connects with {}.", ch);
 
@@ -98,11 +99,9 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter im
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         boolean doReconnect = isReconnectNeeded();
         if (doReconnect) {
-            if (attempts < 12) {
-                attempts++;
-            }
-            long timeout = 2 << attempts;
-            timer.newTimeout(this, timeout, TimeUnit.MILLISECONDS);
+            // 随机退避, 避免大量连接同时断开后步调一致地重连
+            delayMillis = Reconnects.nextDelayMillis(delayMillis);
+            schedule(delayMillis);
         }
 
         logger.warn("Disconnects with {}, address: {}, reconnect: {}.", ctx.channel(), remoteAddress, doReconnect);
@@ -112,11 +111,23 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter im
 
     @Override
     public void run(Timeout timeout) throws Exception {
+        Reconnects.onFired();
+
         if (!isReconnectNeeded()) {
             logger.warn("Cancel reconnecting with {}.", remoteAddress);
             return;
         }
 
+        // 全进程共享的重连限速, 超过时推迟, 不占用退避次数
+        long waitMillis = Reconnects.tryAcquire();
+        if (waitMillis > 0) {
+            Reconnects.onThrottled();
+            schedule(waitMillis + Reconnects.nextDelayMillis(0));
+            return;
+        }
+
+        Reconnects.onAttempt();
+
         ChannelFuture future;
         synchronized (bootstrap) {
             bootstrap.handler(new ChannelInitializer<Channel>() {
@@ -140,6 +151,17 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter im
         });
     }
 
+    private void schedule(long delayMillis) {
+        Reconnects.onScheduled();
+        try {
+            timer.newTimeout(this, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (Throwable t) {
+            // timer已经停止
+            Reconnects.onFired();
+            logger.warn("Schedule reconnecting with {} failed: {}.", remoteAddress, t.getMessage());
+        }
+    }
+
     private boolean isReconnectNeeded() {
         return isStarted() && (group == null || (group.size() < group.getCapacity()));
     }
@@ -29,6 +29,7 @@ import org.jupiter.common.util.Signal;
 import org.jupiter.common.util.StackTraceUtil;
 import org.jupiter.common.util.internal.logging.InternalLogger;
 import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.netty.Handshakes;
 import org.jupiter.transport.netty.channel.NettyChannel;
 import org.jupiter.transport.payload.JResponsePayload;
 import org.jupiter.transport.processor.ConsumerProcessor;
@@ -46,6 +47,23 @@ public class ConnectorHandler extends ChannelInboundHandlerAdapter {
 
     private ConsumerProcessor processor;
 
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (Handshakes.isNegotiationEnabled()) {
+            // 协商协议版本, 在收到回复之前连接上按v1收发
+            ctx.writeAndFlush(Handshakes.handshakeRequestContent());
+        }
+
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel.attachChannel(ctx.channel()).notifyWritabilityChanged();
+
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         Channel ch = ctx.channel();
@@ -54,6 +72,8 @@ public class ConnectorHandler extends ChannelInboundHandlerAdapter {
             try {
                 processor.handleResponse(NettyChannel.attachChannel(ch), (JResponsePayload) msg);
             } catch (Throwable t) {
+                ((JResponsePayload) msg).releaseInputBuf();
+
                 logger.error("An exception was caught: {}, on {} #channelRead().", StackTraceUtil.stackTrace(t), ch);
             }
         } else {
@@ -68,6 +88,9 @@ public class ConnectorHandler extends ChannelInboundHandlerAdapter {
         Channel ch = ctx.channel();
         ChannelConfig config = ch.config();
 
+        // 唤醒等待可写的业务线程
+        NettyChannel.attachChannel(ch).notifyWritabilityChanged();
+
         // 高水位线: ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK
         // 低水位线: ChannelOption.WRITE_BUFFER_LOW_WATER_MARK
         if (!ch.isWritable()) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler.connector;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+
+/**
+ * 重连的退避策略和全进程共享的重连限速.
+ *
+ * 注册中心或者一批provider重启时, 大量连接会在同一时刻断开, 固定的退避时间会让它们步调一致地同时重连,
+ * 对端在accept和处理订阅全量推送时出现CPU尖刺. 这里用 decorrelated jitter 打散每个连接的重连时间,
+ * 再用一个进程内所有 {@link ConnectionWatchdog} 共享的令牌桶限制每秒发起的重连次数.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler.connector
+ *
+ * @author jiachun.fjc
+ */
+public final class Reconnects {
+
+    // 退避时间的下限
+    private static final long BASE_DELAY_MILLIS = SystemPropertyUtil.getLong("jupiter.io.reconnect.base_delay_millis", 4);
+    // 退避时间的上限
+    private static final long MAX_DELAY_MILLIS = SystemPropertyUtil.getLong("jupiter.io.reconnect.max_delay_millis", 8192);
+    // 整个进程每秒最多发起的重连次数(允许一秒的突发), 小于等于0表示不限制
+    private static final int MAX_PER_SECOND = SystemPropertyUtil.getInt("jupiter.io.reconnect.max_per_second", 128);
+
+    private static final long INTERVAL_NANOS = MAX_PER_SECOND > 0 ? TimeUnit.SECONDS.toNanos(1) / MAX_PER_SECOND : 0;
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // 令牌桶(GCRA): 下一个重连理论上可以发起的时间
+    private static final AtomicLong theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final LongAdder attempts = new LongAdder();
+    private static final LongAdder throttled = new LongAdder();
+
+    /**
+     * Decorrelated jitter: 在 [base, previous * 3] 之间随机, 不超过上限.
+     *
+     * @param previousDelayMillis 上一次的退避时间, 第一次重连传0
+     */
+    public static long nextDelayMillis(long previousDelayMillis) {
+        long upper = Math.min(MAX_DELAY_MILLIS, Math.max(BASE_DELAY_MILLIS, previousDelayMillis) * 3);
+        if (upper <= BASE_DELAY_MILLIS) {
+            return BASE_DELAY_MILLIS;
+        }
+        return ThreadLocalRandom.current().nextLong(BASE_DELAY_MILLIS, upper + 1);
+    }
+
+    /**
+     * 申请发起一次重连.
+     *
+     * @return 0表示可以立即重连, 否则为需要等待的毫秒数
+     */
+    public static long tryAcquire() {
+        if (INTERVAL_NANOS <= 0) {
+            return 0;
+        }
+
+        for (;;) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrivalNanos.get();
+            long start = Math.max(tat, now);
+            long waitNanos = start + INTERVAL_NANOS - now - BURST_NANOS;
+            if (waitNanos > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, start + INTERVAL_NANOS)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 已经提交到timer还没有执行的重连任务数.
+     */
+    public static int pendingReconnects() {
+        return pending.get();
+    }
+
+    /**
+     * 发起过的重连总次数.
+     */
+    public static long reconnectAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * 因为超过全局限速而推迟的重连总次数.
+     */
+    public static long throttledReconnects() {
+        return throttled.sum();
+    }
+
+    static void onScheduled() {
+        pending.incrementAndGet();
+    }
+
+    static void onFired() {
+        pending.decrementAndGet();
+    }
+
+    static void onAttempt() {
+        attempts.increment();
+    }
+
+    static void onThrottled() {
+        throttled.increment();
+    }
+
+    private Reconnects() {}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.io.IOException;
+import java.util.Set;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Signal;
+
+import org.jupiter.common.concurrent.collection.ConcurrentSet;
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.Status;
+import org.jupiter.transport.netty.Handshakes;
+
+/**
+ * 后端一侧, 把响应帧的 id 换回客户端原始的 id 之后原样写回客户端.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+@ChannelHandler.Sharable
+final class BackendHandler extends ChannelInboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(BackendHandler.class);
+
+    // 因为这个后端不可写而暂停读取的客户端连接
+    private static final AttributeKey<Set<Channel>> SUSPENDED_FRONTENDS_KEY =
+            AttributeKey.valueOf("proxy.suspended.frontends");
+
+    private final JNettyForwardingProxy proxy;
+
+    BackendHandler(JNettyForwardingProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (Handshakes.isNegotiationEnabled()) {
+            ctx.writeAndFlush(Handshakes.handshakeRequestContent());
+        }
+
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof ByteBuf)) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        ByteBuf frame = (ByteBuf) msg;
+        if (Frames.messageCode(Frames.sign(frame)) != JProtocolHeader.RESPONSE) {
+            frame.release();
+            return;
+        }
+
+        long id = Frames.id(frame);
+        byte flags = Frames.flags(id);
+        long proxyId = id & JProtocolHeader.ID_MASK;
+
+        Pending pending = proxy.pendings().get(proxyId);
+        if (pending == null) {
+            // 已经超时或者后端重复响应
+            frame.release();
+            return;
+        }
+
+        boolean last = (flags & JProtocolHeader.FLAG_STREAMING) == 0;
+        if ((flags & JProtocolHeader.FLAG_CHUNKED) != 0) {
+            int bodySize = Frames.bodySize(frame);
+            if (pending.responseRemaining == 0) {
+                pending.responseRemaining = Frames.chunkedTotalLength(frame) - (bodySize - 4);
+            } else {
+                pending.responseRemaining -= bodySize;
+            }
+            if (pending.responseRemaining > 0) {
+                last = false;
+            }
+        }
+
+        if (last) {
+            proxy.pendings().remove(proxyId);
+        } else {
+            pending.timestamp = SystemClock.millisClock().now();
+        }
+
+        Channel frontend = pending.frontend;
+        if (!frontend.isActive()) {
+            frame.release();
+            return;
+        }
+
+        frame = Frames.rewriteId(frame, JProtocolHeader.toId(pending.invokeId, flags));
+        frontend.writeAndFlush(frame, frontend.voidPromise());
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel ch = ctx.channel();
+        if (ch.isWritable()) {
+            resumeSuspendedFrontends(ch);
+        }
+
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Channel ch = ctx.channel();
+        proxy.failAll(ch, Status.SERVER_ERROR);
+        // 连接断了就不会再有可写事件了
+        resumeSuspendedFrontends(ch);
+
+        ctx.fireChannelInactive();
+    }
+
+    /**
+     * 后端的写缓冲区超过了高水位, 暂停读取客户端连接, 等到后端重新可写时再恢复.
+     */
+    static void suspendUntilWritable(Channel backend, Channel frontend) {
+        frontend.config().setAutoRead(false);
+        backend.attr(SUSPENDED_FRONTENDS_KEY).setIfAbsent(new ConcurrentSet<>());
+        backend.attr(SUSPENDED_FRONTENDS_KEY).get().add(frontend);
+        // 注册之前后端可能已经可写了, 错过了可写事件
+        if (backend.isWritable() || !backend.isActive()) {
+            resumeSuspendedFrontends(backend);
+        }
+    }
+
+    private static void resumeSuspendedFrontends(Channel backend) {
+        Set<Channel> frontends = backend.attr(SUSPENDED_FRONTENDS_KEY).get();
+        if (frontends == null) {
+            return;
+        }
+        for (Channel frontend : frontends) {
+            if (frontends.remove(frontend)) {
+                frontend.config().setAutoRead(true);
+            }
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        Channel ch = ctx.channel();
+
+        if (cause instanceof Signal) {
+            logger.error("I/O signal was caught: {}, force to close channel: {}.", ((Signal) cause).name(), ch);
+
+            ch.close();
+        } else if (cause instanceof IOException || cause instanceof DecoderException) {
+            logger.error("An I/O exception was caught: {}, force to close channel: {}.", StackTraceUtil.stackTrace(cause), ch);
+
+            ch.close();
+        } else {
+            logger.error("Unexpected exception was caught: {}, channel: {}.", StackTraceUtil.stackTrace(cause), ch);
+        }
+    }
+}
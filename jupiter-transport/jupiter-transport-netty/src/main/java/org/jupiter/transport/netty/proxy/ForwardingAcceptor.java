@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.net.SocketAddress;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.transport.JConfig;
+import org.jupiter.transport.JOption;
+import org.jupiter.transport.netty.NettyTcpAcceptor;
+import org.jupiter.transport.netty.handler.IdleStateChecker;
+import org.jupiter.transport.netty.handler.acceptor.AcceptorIdleStateTrigger;
+
+/**
+ * 代理面向客户端的一侧, 没有 processor, 也没有 encoder, 读到的帧直接交给 {@link FrontendHandler}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class ForwardingAcceptor extends NettyTcpAcceptor {
+
+    private final AcceptorIdleStateTrigger idleStateTrigger = new AcceptorIdleStateTrigger();
+    private final JNettyForwardingProxy proxy;
+
+    ForwardingAcceptor(SocketAddress localAddress, JNettyForwardingProxy proxy) {
+        super(localAddress);
+        this.proxy = proxy;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+
+        // parent options
+        JConfig parent = configGroup().parent();
+        parent.setOption(JOption.SO_BACKLOG, 32768);
+        parent.setOption(JOption.SO_REUSEADDR, true);
+
+        // child options
+        JConfig child = configGroup().child();
+        child.setOption(JOption.SO_REUSEADDR, true);
+    }
+
+    @Override
+    public ChannelFuture bind(SocketAddress localAddress) {
+        ServerBootstrap boot = bootstrap();
+
+        initChannelFactory();
+
+        boot.childHandler(new ChannelInitializer<Channel>() {
+
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                ch.pipeline().addLast(
+                        new FlushConsolidationHandler(JConstants.EXPLICIT_FLUSH_AFTER_FLUSHES, true),
+                        new IdleStateChecker(timer, JConstants.READER_IDLE_TIME_SECONDS, 0, 0),
+                        idleStateTrigger,
+                        new FrameDecoder(),
+                        new FrontendHandler(proxy));
+            }
+        });
+
+        setOptions();
+
+        return boot.bind(localAddress);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.Timer;
+
+import org.jupiter.common.util.JConstants;
+import org.jupiter.transport.JConnection;
+import org.jupiter.transport.JOption;
+import org.jupiter.transport.UnresolvedAddress;
+import org.jupiter.transport.channel.JChannelGroup;
+import org.jupiter.transport.exception.ConnectFailedException;
+import org.jupiter.transport.netty.JNettyConnection;
+import org.jupiter.transport.netty.NettyTcpConnector;
+import org.jupiter.transport.netty.handler.IdleStateChecker;
+import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
+import org.jupiter.transport.netty.handler.connector.ConnectorIdleStateTrigger;
+
+/**
+ * 代理面向后端的一侧, 与 {@link org.jupiter.transport.netty.JNettyTcpConnector} 一样带重连和心跳,
+ * 读到的帧直接交给 {@link BackendHandler}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class ForwardingConnector extends NettyTcpConnector {
+
+    private final ConnectorIdleStateTrigger idleStateTrigger = new ConnectorIdleStateTrigger();
+    private final BackendHandler handler;
+
+    ForwardingConnector(JNettyForwardingProxy proxy) {
+        super();
+        handler = new BackendHandler(proxy);
+    }
+
+    @Override
+    protected void doInit() {
+        // child options
+        config().setOption(JOption.SO_REUSEADDR, true);
+        config().setOption(JOption.CONNECT_TIMEOUT_MILLIS, (int) TimeUnit.SECONDS.toMillis(3));
+        // channel factory
+        initChannelFactory();
+    }
+
+    @Override
+    public JConnection connect(UnresolvedAddress address, boolean async) {
+        setOptions();
+
+        final Bootstrap boot = bootstrap();
+        final SocketAddress socketAddress = InetSocketAddress.createUnresolved(address.getHost(), address.getPort());
+        final JChannelGroup group = group(address);
+
+        // 重连watchdog
+        final ConnectionWatchdog watchdog = new ConnectionWatchdog(boot, timer, socketAddress, group) {
+
+            @Override
+            public ChannelHandler[] handlers() {
+                return new ChannelHandler[] {
+                        new FlushConsolidationHandler(JConstants.EXPLICIT_FLUSH_AFTER_FLUSHES, true),
+                        this,
+                        new IdleStateChecker(timer, 0, JConstants.WRITER_IDLE_TIME_SECONDS, 0),
+                        idleStateTrigger,
+                        new FrameDecoder(),
+                        handler
+                };
+            }
+        };
+
+        ChannelFuture future;
+        try {
+            synchronized (bootstrapLock()) {
+                boot.handler(new ChannelInitializer<Channel>() {
+
+                    @Override
+                    protected void initChannel(Channel ch) throws Exception {
+                        ch.pipeline().addLast(watchdog.handlers());
+                    }
+                });
+
+                future = boot.connect(socketAddress);
+            }
+
+            // 以下代码在synchronized同步块外面是安全的
+            if (!async) {
+                future.sync();
+            }
+        } catch (Throwable t) {
+            throw new ConnectFailedException("Connects to [" + address + "] fails", t);
+        }
+
+        return new JNettyConnection(address, future) {
+
+            @Override
+            public void setReconnect(boolean reconnect) {
+                if (reconnect) {
+                    watchdog.start();
+                } else {
+                    watchdog.stop();
+                }
+            }
+        };
+    }
+
+    Timer timer() {
+        return timer;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.Handshakes;
+
+/**
+ * 只切分帧, 不解析消息体.
+ *
+ * 输出的是原始帧(协议头 + 消息体)的一个retained slice, 心跳包(包括版本协商)在这里处理掉, 不会往后传递.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class FrameDecoder extends ByteToMessageDecoder {
+
+    // 协议体最大限制, 与 ProtocolDecoder 使用同一个配置
+    private static final int MAX_BODY_SIZE = SystemPropertyUtil.getInt("jupiter.io.decoder.max.body.size", 1024 * 1024 * 5);
+
+    // 只用于心跳包, 版本协商的结果也记录在这里
+    private final JProtocolHeader header = new JProtocolHeader();
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        while (in.readableBytes() >= JProtocolHeader.HEADER_SIZE) {
+            if (Frames.magic(in) != JProtocolHeader.MAGIC) {
+                throw IoSignals.ILLEGAL_MAGIC;
+            }
+
+            int bodySize = Frames.bodySize(in);
+            if (bodySize < 0 || bodySize > MAX_BODY_SIZE) {
+                throw IoSignals.BODY_TOO_LARGE;
+            }
+
+            int frameLength = JProtocolHeader.HEADER_SIZE + bodySize;
+            if (in.readableBytes() < frameLength) {
+                return;
+            }
+
+            byte sign = Frames.sign(in);
+            if (Frames.messageCode(sign) == JProtocolHeader.HEARTBEAT) {
+                header.sign(sign);
+                header.status(Frames.status(in));
+                header.id(Frames.id(in));
+                Handshakes.handle(ctx, header);
+
+                in.skipBytes(frameLength);
+                continue;
+            }
+
+            out.add(in.readRetainedSlice(frameLength));
+        }
+    }
+}
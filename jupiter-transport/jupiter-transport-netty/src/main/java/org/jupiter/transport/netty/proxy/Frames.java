@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.Status;
+
+/**
+ * 直接在编码后的帧上读写协议头的字段, 帧的布局见 {@link JProtocolHeader}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class Frames {
+
+    private static final int SIGN_OFFSET = 2;
+    private static final int STATUS_OFFSET = 3;
+    private static final int ID_OFFSET = 4;
+    private static final int BODY_SIZE_OFFSET = 12;
+
+    static short magic(ByteBuf frame) {
+        return frame.getShort(frame.readerIndex());
+    }
+
+    static byte sign(ByteBuf frame) {
+        return frame.getByte(frame.readerIndex() + SIGN_OFFSET);
+    }
+
+    static byte status(ByteBuf frame) {
+        return frame.getByte(frame.readerIndex() + STATUS_OFFSET);
+    }
+
+    static long id(ByteBuf frame) {
+        return frame.getLong(frame.readerIndex() + ID_OFFSET);
+    }
+
+    static int bodySize(ByteBuf frame) {
+        return frame.getInt(frame.readerIndex() + BODY_SIZE_OFFSET);
+    }
+
+    static byte messageCode(byte sign) {
+        return (byte) (sign & 0x0f);
+    }
+
+    static byte serializerCode(byte sign) {
+        return (byte) ((sign & 0xff) >> 4);
+    }
+
+    static byte flags(long id) {
+        return (byte) (id >>> 56);
+    }
+
+    static int routeKey(long id) {
+        return (int) ((id >>> 48) & 0xff);
+    }
+
+    /**
+     * 分片帧中第一个分片的消息体前4个字节为整个消息体的长度, 见 ChunkedFrames.
+     */
+    static int chunkedTotalLength(ByteBuf frame) {
+        return frame.getInt(frame.readerIndex() + JProtocolHeader.HEADER_SIZE);
+    }
+
+    /**
+     * 改写帧的id, 只读的帧先拷贝一份, 返回值为改写后的帧.
+     */
+    static ByteBuf rewriteId(ByteBuf frame, long id) {
+        if (frame.isReadOnly()) {
+            ByteBuf copy = frame.copy();
+            frame.release();
+            frame = copy;
+        }
+        frame.setLong(frame.readerIndex() + ID_OFFSET, id);
+        return frame;
+    }
+
+    /**
+     * 由代理自己生成的响应, 消息体为空, 客户端根据 status 得到一个远程异常.
+     */
+    static void writeEmptyResponse(Channel ch, byte serializerCode, Status status, long invokeId) {
+        if (!ch.isActive()) {
+            return;
+        }
+
+        ByteBuf buf = ch.alloc().ioBuffer(JProtocolHeader.HEADER_SIZE);
+        buf.writeShort(JProtocolHeader.MAGIC)
+                .writeByte(JProtocolHeader.toSign(serializerCode, JProtocolHeader.RESPONSE))
+                .writeByte(status.value())
+                .writeLong(invokeId & JProtocolHeader.ID_MASK)
+                .writeInt(0);
+        ch.writeAndFlush(buf, ch.voidPromise());
+    }
+
+    private Frames() {}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Signal;
+
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.collection.LongObjectHashMap;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.Status;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.netty.channel.NettyChannel;
+
+/**
+ * 客户端一侧, 每个连接一个实例.
+ *
+ * 根据 id 中的 route key 选择后端, 把 id 换成代理分配的新 id 之后原样转发, 消息体不做任何解析.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class FrontendHandler extends ChannelInboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(FrontendHandler.class);
+
+    private final JNettyForwardingProxy proxy;
+
+    // 还没有转发完的分片请求, key为客户端原始的id, 只在当前连接的IO线程中访问
+    private final LongObjectHashMap<ChunkedRequest> chunkedRequests = new LongObjectHashMap<>();
+
+    FrontendHandler(JNettyForwardingProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof ByteBuf)) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        ByteBuf frame = (ByteBuf) msg;
+        byte sign = Frames.sign(frame);
+        if (Frames.messageCode(sign) != JProtocolHeader.REQUEST) {
+            // 客户端只会发送请求
+            frame.release();
+            return;
+        }
+
+        Channel ch = ctx.channel();
+        byte serializerCode = Frames.serializerCode(sign);
+        long id = Frames.id(frame);
+
+        if (NettyChannel.attachChannel(ch).protocolVersion() < JProtocolHeader.VERSION_2) {
+            // v1的id中没有route key
+            frame.release();
+            Frames.writeEmptyResponse(ch, serializerCode, Status.BAD_REQUEST, id);
+            return;
+        }
+
+        byte flags = Frames.flags(id);
+        long invokeId = id & JProtocolHeader.ID_MASK;
+
+        Channel backend;
+        long proxyId;
+        ChunkedRequest chunked = (flags & JProtocolHeader.FLAG_CHUNKED) != 0 ? chunkedRequests.get(invokeId) : null;
+        if (chunked != null) {
+            // 后续分片跟着第一个分片走
+            chunked.remaining -= Frames.bodySize(frame);
+            if (chunked.remaining <= 0) {
+                chunkedRequests.remove(invokeId);
+            }
+
+            backend = chunked.backend;
+            proxyId = chunked.proxyId;
+            if (backend == null) {
+                // 第一个分片已经被拒绝了
+                frame.release();
+                return;
+            }
+
+            Pending pending = proxy.pendings().get(proxyId);
+            if (pending != null) {
+                pending.timestamp = SystemClock.millisClock().now();
+            }
+        } else {
+            backend = selectBackend(ch, serializerCode, Frames.routeKey(id), flags, invokeId);
+            proxyId = backend == null ? 0 : proxy.nextProxyId();
+
+            if ((flags & JProtocolHeader.FLAG_CHUNKED) != 0) {
+                int remaining = Frames.chunkedTotalLength(frame) - (Frames.bodySize(frame) - 4);
+                if (remaining > 0) {
+                    chunkedRequests.put(invokeId, new ChunkedRequest(backend, proxyId, remaining));
+                }
+            }
+
+            if (backend == null) {
+                frame.release();
+                return;
+            }
+
+            if ((flags & JProtocolHeader.FLAG_ONE_WAY) == 0) {
+                proxy.pendings().put(
+                        proxyId, new Pending(ch, backend, serializerCode, invokeId, SystemClock.millisClock().now()));
+            }
+        }
+
+        // route key 只对代理有意义, 不再往后传
+        frame = Frames.rewriteId(frame, JProtocolHeader.toId(proxyId, flags));
+
+        final long _proxyId = proxyId;
+        backend.writeAndFlush(frame).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                proxy.fail(_proxyId, Status.SERVER_ERROR);
+            }
+        });
+
+        if (!backend.isWritable()) {
+            // 后端写不过来了, 先不读客户端, 否则数据都会堆积在代理的出站缓冲区里
+            BackendHandler.suspendUntilWritable(backend, ch);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        chunkedRequests.clear();
+
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        Channel ch = ctx.channel();
+
+        if (cause instanceof Signal) {
+            logger.error("I/O signal was caught: {}, force to close channel: {}.", ((Signal) cause).name(), ch);
+
+            ch.close();
+        } else if (cause instanceof IOException || cause instanceof DecoderException) {
+            logger.error("An I/O exception was caught: {}, force to close channel: {}.", StackTraceUtil.stackTrace(cause), ch);
+
+            ch.close();
+        } else {
+            logger.error("Unexpected exception was caught: {}, channel: {}.", StackTraceUtil.stackTrace(cause), ch);
+        }
+    }
+
+    private Channel selectBackend(Channel ch, byte serializerCode, int routeKey, byte flags, long invokeId) {
+        Route route = proxy.route(routeKey);
+        if (route == null) {
+            Frames.writeEmptyResponse(ch, serializerCode, Status.SERVICE_NOT_FOUND, invokeId);
+            return null;
+        }
+
+        JChannel backend = route.select();
+        if (backend == null
+                // 没有协商到v2的后端不认识标志位
+                || (flags != 0 && backend.protocolVersion() < JProtocolHeader.VERSION_2)) {
+            Frames.writeEmptyResponse(ch, serializerCode, Status.SERVER_BUSY, invokeId);
+            return null;
+        }
+        return ((NettyChannel) backend).channel();
+    }
+
+    private static final class ChunkedRequest {
+
+        final Channel backend;
+        final long proxyId;
+        int remaining;
+
+        ChunkedRequest(Channel backend, long proxyId, int remaining) {
+            this.backend = backend;
+            this.proxyId = proxyId;
+            this.remaining = remaining;
+        }
+    }
+}
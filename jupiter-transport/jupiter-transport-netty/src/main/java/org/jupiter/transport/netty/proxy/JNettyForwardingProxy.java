@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+
+import org.jupiter.common.concurrent.collection.NonBlockingHashMapLong;
+import org.jupiter.common.util.JConstants;
+import org.jupiter.common.util.LongSequence;
+import org.jupiter.common.util.Requires;
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+import org.jupiter.transport.JConnection;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.Status;
+import org.jupiter.transport.UnresolvedAddress;
+import org.jupiter.transport.channel.JChannelGroup;
+
+/**
+ * 帧级别的转发代理.
+ *
+ * 客户端通过 {@code ProxyFactory#routeKey(int)} 在协议v2的 id 扩展字段中带上一个 route key, 代理只读取16个字节的
+ * 协议头, 根据 route key 选择一组后端, 替换 id 之后把整个帧原样转发过去, 响应帧再把 id 换回来写回客户端, 消息体
+ * 自始至终不做反序列化, 压缩/分片/流式的帧也都是透明转发的.
+ *
+ * 没有 route key 的请求(route key 为0)走 {@link #defaultRoute(UnresolvedAddress...)}, 找不到路由的请求回复
+ * {@link Status#SERVICE_NOT_FOUND}, 后端都不可用时回复 {@link Status#SERVER_BUSY}.
+ *
+ * <pre>
+ * JNettyForwardingProxy proxy = new JNettyForwardingProxy(18099)
+ *         .route(1, new UnresolvedSocketAddress("10.0.0.1", 18090))
+ *         .defaultRoute(new UnresolvedSocketAddress("10.0.0.2", 18090));
+ * proxy.start();
+ * </pre>
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+public class JNettyForwardingProxy {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(JNettyForwardingProxy.class);
+
+    // 到每个后端地址的连接数
+    private static final int CONNECTIONS_PER_BACKEND = SystemPropertyUtil.getInt(
+            "jupiter.proxy.connections_per_backend", JConstants.SUGGESTED_CONNECTION_COUNT);
+    // 等待后端响应的最长时间, 超时后丢弃映射关系, 客户端自己会超时
+    private static final long PENDING_TIMEOUT_MILLIS = SystemPropertyUtil.getLong(
+            "jupiter.proxy.pending.timeout_millis", TimeUnit.SECONDS.toMillis(30));
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final AtomicReferenceArray<Route> routes = new AtomicReferenceArray<>(256);
+    // 代理分配的id -> 客户端原始请求
+    private final NonBlockingHashMapLong<Pending> pendings = new NonBlockingHashMapLong<>();
+    private final LongSequence sequence = new LongSequence();
+
+    private final ForwardingAcceptor acceptor;
+    private final ForwardingConnector connector;
+
+    public JNettyForwardingProxy(int port) {
+        this(new InetSocketAddress(port));
+    }
+
+    public JNettyForwardingProxy(SocketAddress localAddress) {
+        acceptor = new ForwardingAcceptor(localAddress, this);
+        connector = new ForwardingConnector(this);
+    }
+
+    /**
+     * 把 route key 为 {@code routeKey} 的请求转发到这一组后端, 多个后端之间轮询.
+     */
+    public JNettyForwardingProxy route(int routeKey, UnresolvedAddress... backends) {
+        Requires.requireTrue(routeKey >= 0 && routeKey <= 0xff, "routeKey must be in [0, 255]: " + routeKey);
+        Requires.requireTrue(backends != null && backends.length > 0, "backends");
+
+        JChannelGroup[] groups = new JChannelGroup[backends.length];
+        for (int i = 0; i < backends.length; i++) {
+            UnresolvedAddress address = backends[i];
+            groups[i] = connector.group(address);
+            for (int j = 0; j < CONNECTIONS_PER_BACKEND; j++) {
+                JConnection connection = connector.connect(address);
+                connector.connectionManager().manage(connection);
+            }
+        }
+        routes.set(routeKey, new Route(groups));
+
+        logger.info("Route {} -> {}.", routeKey, backends);
+
+        return this;
+    }
+
+    /**
+     * 没有 route key 的请求转发到这一组后端.
+     */
+    public JNettyForwardingProxy defaultRoute(UnresolvedAddress... backends) {
+        return route(0, backends);
+    }
+
+    public void start() throws InterruptedException {
+        start(true);
+    }
+
+    public void start(boolean sync) throws InterruptedException {
+        connector.timer().newTimeout(new PendingSweeper(), SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        acceptor.start(sync);
+    }
+
+    public void shutdownGracefully() {
+        acceptor.shutdownGracefully();
+        connector.shutdownGracefully();
+    }
+
+    Route route(int routeKey) {
+        return routes.get(routeKey);
+    }
+
+    NonBlockingHashMapLong<Pending> pendings() {
+        return pendings;
+    }
+
+    long nextProxyId() {
+        return sequence.next() & JProtocolHeader.ID_MASK;
+    }
+
+    /**
+     * 转发失败, 直接给客户端回复一个错误.
+     */
+    void fail(long proxyId, Status status) {
+        Pending pending = pendings.remove(proxyId);
+        if (pending != null) {
+            Frames.writeEmptyResponse(pending.frontend, pending.serializerCode, status, pending.invokeId);
+        }
+    }
+
+    /**
+     * 后端连接断开, 发往这个连接的请求都不会再有响应了.
+     */
+    void failAll(Channel backend, Status status) {
+        for (long proxyId : pendings.keySetLong()) {
+            Pending pending = pendings.get(proxyId);
+            if (pending != null && pending.backend == backend) {
+                fail(proxyId, status);
+            }
+        }
+    }
+
+    private final class PendingSweeper implements TimerTask {
+
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            long deadline = SystemClock.millisClock().now() - PENDING_TIMEOUT_MILLIS;
+            try {
+                for (long proxyId : pendings.keySetLong()) {
+                    Pending pending = pendings.get(proxyId);
+                    if (pending != null && pending.timestamp < deadline) {
+                        pendings.remove(proxyId);
+                    }
+                }
+            } finally {
+                timeout.timer().newTimeout(this, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import io.netty.channel.Channel;
+
+/**
+ * 一个已经转发给后端, 还没有收到(最后一个)响应帧的请求.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class Pending {
+
+    final Channel frontend;
+    final Channel backend;
+    final byte serializerCode;
+    // 客户端原始的id
+    final long invokeId;
+    // 最近一次转发这个请求的帧的时间, 流式/分片的响应每转发一帧都会刷新, 超时清理只针对长时间没有动静的请求
+    volatile long timestamp;
+
+    // 响应分片还没有收到的字节数, 只在backend的IO线程中访问
+    int responseRemaining;
+
+    Pending(Channel frontend, Channel backend, byte serializerCode, long invokeId, long timestamp) {
+        this.frontend = frontend;
+        this.backend = backend;
+        this.serializerCode = serializerCode;
+        this.invokeId = invokeId;
+        this.timestamp = timestamp;
+    }
+}
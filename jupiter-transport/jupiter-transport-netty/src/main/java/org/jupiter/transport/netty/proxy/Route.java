@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.proxy;
+
+import org.jupiter.common.util.IntSequence;
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JChannelGroup;
+
+/**
+ * 一个 route key 对应的一组后端地址, 每个地址一个 {@link JChannelGroup}.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.proxy
+ *
+ * @author jiachun.fjc
+ */
+final class Route {
+
+    private final JChannelGroup[] groups;
+    private final IntSequence sequence = new IntSequence();
+
+    Route(JChannelGroup[] groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * 轮询选择一个可用的后端channel, 没有可用的返回 null.
+     *
+     * 运行在IO线程中, 所以不能调用会阻塞等待的 {@link JChannelGroup#next()} 去等一个还没有建立的连接.
+     */
+    JChannel select() {
+        JChannelGroup[] groups = this.groups;
+        int length = groups.length;
+        int index = (sequence.next() & Integer.MAX_VALUE) % length;
+        for (int i = 0; i < length; i++) {
+            JChannelGroup group = groups[(index + i) % length];
+            if (group.isAvailable()) {
+                try {
+                    return group.next();
+                } catch (IllegalStateException ignored) {
+                    // 刚刚断开, 继续尝试下一个
+                }
+            }
+        }
+        return null;
+    }
+
+    JChannelGroup[] groups() {
+        return groups;
+    }
+}
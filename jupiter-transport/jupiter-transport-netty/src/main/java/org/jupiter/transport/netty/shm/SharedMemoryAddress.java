@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.io.File;
+import java.net.SocketAddress;
+
+/**
+ * 共享内存传输的地址, 对应一个 rendezvous 目录.
+ *
+ * 服务端在该目录下扫描客户端创建的连接文件, 建议在 linux 上使用 /dev/shm 下的目录 (tmpfs),
+ * 避免 page cache 回写磁盘.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemoryAddress extends SocketAddress {
+
+    private static final long serialVersionUID = -2571227398574016538L;
+
+    private final String path;
+
+    public SharedMemoryAddress(String path) {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        this.path = path;
+    }
+
+    public SharedMemoryAddress(File directory) {
+        this(directory.getPath());
+    }
+
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SharedMemoryAddress that = (SharedMemoryAddress) o;
+
+        return path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "shm:" + path;
+    }
+}
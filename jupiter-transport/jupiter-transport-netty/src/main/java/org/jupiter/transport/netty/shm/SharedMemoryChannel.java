@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.io.File;
+import java.net.SocketAddress;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.util.internal.StringUtil;
+
+import org.jupiter.common.util.SystemPropertyUtil;
+
+/**
+ * 基于共享内存 ring buffer 的 netty channel, 用于同一台机器上的进程间通信.
+ *
+ * 没有 fd 可以注册到 selector 上, 读和 "ring 已满" 之后的写都以任务的形式在所属 event loop 上轮询,
+ * 空闲时的退让方式见 {@link SharedMemoryWaitStrategy}. 环中是编码后的字节流, pipeline 上的编解码器与
+ * tcp/domain socket 完全相同.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemoryChannel extends AbstractChannel {
+
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    // 每个方向 ring 的容量 (会向上取整为 2 的幂)
+    private static final int RING_CAPACITY = SystemPropertyUtil.getInt("jupiter.io.shm.ring.capacity", 1024 * 1024);
+    // 单次读出的最大字节数
+    private static final int MAX_READ_CHUNK = 64 * 1024;
+    // 一次读任务最多读取的次数, 避免饿死同一 event loop 上的其他 channel
+    private static final int MAX_READS_PER_TASK = 16;
+    private static final long CONNECT_CHECK_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    // 空闲或者 ring 写满时检查对端进程是否存活 (探测对端的文件锁) 的最小间隔
+    private static final long PEER_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            SystemPropertyUtil.getLong("jupiter.io.shm.peer.check.interval.millis", 100));
+
+    private static final int ST_OPEN = 0;
+    private static final int ST_ACTIVE = 1;
+    private static final int ST_CLOSED = 2;
+
+    private final ChannelConfig config = new DefaultChannelConfig(this);
+    private final boolean client;
+
+    private final Runnable readTask = this::doRead;
+    private final Runnable flushTask = () -> ((SharedMemoryUnsafe) unsafe()).forceFlush();
+    private final Runnable connectTask = this::finishConnect;
+
+    private volatile int state;
+    private volatile SharedMemoryAddress localAddress;
+    private volatile SharedMemoryAddress remoteAddress;
+
+    private SharedMemorySegment segment;
+    private SharedMemoryRing inbound;
+    private SharedMemoryRing outbound;
+
+    private ChannelPromise connectPromise;
+    private long connectDeadlineNanos;
+
+    private boolean readScheduled;
+    private boolean writePending;
+    private int readIdleRounds;
+    private int writeIdleRounds;
+    private long nextPeerCheckNanos;
+
+    public SharedMemoryChannel() {
+        super(null);
+        client = true;
+        state = ST_OPEN;
+    }
+
+    SharedMemoryChannel(SharedMemoryServerChannel parent, SharedMemorySegment segment) {
+        super(parent);
+        client = false;
+        this.segment = segment;
+        inbound = segment.clientToServer(false);
+        outbound = segment.serverToClient(true);
+        localAddress = parent.localAddress();
+        remoteAddress = new SharedMemoryAddress(segment.file());
+        state = ST_ACTIVE;
+    }
+
+    @Override
+    public SharedMemoryServerChannel parent() {
+        return (SharedMemoryServerChannel) super.parent();
+    }
+
+    @Override
+    public SharedMemoryAddress localAddress() {
+        return (SharedMemoryAddress) super.localAddress();
+    }
+
+    @Override
+    public SharedMemoryAddress remoteAddress() {
+        return (SharedMemoryAddress) super.remoteAddress();
+    }
+
+    @Override
+    public ChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return state != ST_CLOSED;
+    }
+
+    @Override
+    public boolean isActive() {
+        return state == ST_ACTIVE;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected AbstractUnsafe newUnsafe() {
+        return new SharedMemoryUnsafe();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof SingleThreadEventLoop;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return localAddress;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remoteAddress;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException("bind");
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (state == ST_CLOSED) {
+            return;
+        }
+        state = ST_CLOSED;
+
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            connectPromise = null;
+            promise.tryFailure(new ClosedChannelException());
+        }
+
+        SharedMemorySegment segment = this.segment;
+        if (segment != null) {
+            this.segment = null;
+            if (client) {
+                // 还在建连中则取消, 服务端不会再 accept 这个文件
+                segment.cancel();
+            }
+            segment.markClosed(client);
+            segment.delete();
+            releaseLater(segment);
+        }
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        if (readScheduled) {
+            return;
+        }
+        readScheduled = true;
+        readIdleRounds = 0;
+        eventLoop().execute(readTask);
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            return msg;
+        }
+        throw new UnsupportedOperationException("unsupported message type: " + StringUtil.simpleClassName(msg));
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        for (;;) {
+            ByteBuf buf = (ByteBuf) in.current();
+            if (buf == null) {
+                writeIdleRounds = 0;
+                return;
+            }
+
+            int readableBytes = buf.readableBytes();
+            if (readableBytes == 0) {
+                in.remove();
+                continue;
+            }
+
+            int written = outbound.write(buf);
+            if (written > 0) {
+                in.removeBytes(written);
+            }
+            if (written < readableBytes) {
+                // ring 已满, 等消费者腾出空间后再 flush
+                incompleteWrite(written == 0);
+                return;
+            }
+        }
+    }
+
+    private void incompleteWrite(boolean noProgress) {
+        SharedMemorySegment segment = this.segment;
+        if (eventLoop().isShuttingDown() || (segment != null && isPeerGone(segment))) {
+            unsafe().close(unsafe().voidPromise());
+            return;
+        }
+        writePending = true;
+        int rounds = noProgress ? ++writeIdleRounds : (writeIdleRounds = 0);
+        SharedMemoryWaitStrategy.idle(eventLoop(), flushTask, rounds);
+    }
+
+    private void doRead() {
+        if (!isActive()) {
+            readScheduled = false;
+            return;
+        }
+
+        ChannelConfig config = config();
+        ChannelPipeline pipeline = pipeline();
+        SharedMemoryRing inbound = this.inbound;
+
+        int totalRead = 0;
+        for (int i = 0; i < MAX_READS_PER_TASK; i++) {
+            int readableBytes = inbound.readableBytes();
+            if (readableBytes == 0) {
+                break;
+            }
+            int length = Math.min(readableBytes, MAX_READ_CHUNK);
+            ByteBuf buf = config.getAllocator().ioBuffer(length);
+            inbound.read(buf, length);
+            totalRead += length;
+
+            pipeline.fireChannelRead(buf);
+
+            if (!isActive()) {
+                // handler 中关闭了 channel
+                break;
+            }
+        }
+
+        if (totalRead > 0) {
+            pipeline.fireChannelReadComplete();
+        }
+
+        if (!isActive()) {
+            readScheduled = false;
+            return;
+        }
+
+        // 与 NioEventLoop#closeAll 一致, event loop 关闭时关闭其上的 channel, 否则轮询任务会让 event loop 一直无法 quiet
+        if (totalRead == 0 && (eventLoop().isShuttingDown()
+                || (isPeerGone(segment) && inbound.readableBytes() == 0))) {
+            readScheduled = false;
+            unsafe().close(unsafe().voidPromise());
+            return;
+        }
+
+        if (!config.isAutoRead()) {
+            // 等待下一次 read() 触发 doBeginRead
+            readScheduled = false;
+            return;
+        }
+
+        if (totalRead > 0) {
+            readIdleRounds = 0;
+            eventLoop().execute(readTask);
+        } else {
+            SharedMemoryWaitStrategy.idle(eventLoop(), readTask, ++readIdleRounds);
+        }
+    }
+
+    /**
+     * 对端正常关闭时会设置 closed 标记, 进程崩溃时则只能通过它的文件锁被内核释放来发现,
+     * 后者需要系统调用, 按 {@link #PEER_CHECK_INTERVAL_NANOS} 限制频率.
+     */
+    private boolean isPeerGone(SharedMemorySegment segment) {
+        if (segment.isPeerClosed(client)) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - nextPeerCheckNanos < 0) {
+            return false;
+        }
+        nextPeerCheckNanos = now + PEER_CHECK_INTERVAL_NANOS;
+        return !segment.isPeerAlive(client);
+    }
+
+    private void finishConnect() {
+        ChannelPromise promise = connectPromise;
+        if (promise == null || !isOpen()) {
+            return;
+        }
+
+        SharedMemorySegment segment = this.segment;
+        if (segment.state() == SharedMemorySegment.ST_ACCEPTED) {
+            connectPromise = null;
+            inbound = segment.serverToClient(false);
+            outbound = segment.clientToServer(true);
+            state = ST_ACTIVE;
+
+            boolean promiseSet = promise.trySuccess();
+            pipeline().fireChannelActive();
+            if (!promiseSet) {
+                unsafe().close(unsafe().voidPromise());
+            }
+            return;
+        }
+
+        if (System.nanoTime() - connectDeadlineNanos >= 0 && segment.cancel()) {
+            connectPromise = null;
+            promise.tryFailure(new ConnectTimeoutException("connection timed out: " + remoteAddress));
+            unsafe().close(unsafe().voidPromise());
+            return;
+        }
+
+        eventLoop().schedule(connectTask, CONNECT_CHECK_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    private void releaseLater(SharedMemorySegment segment) {
+        // 延后解除映射, 当前调用栈上 (比如 flush 或 fireChannelRead 中触发的 close) 可能还会访问 ring
+        try {
+            eventLoop().execute(segment::release);
+        } catch (RejectedExecutionException ignored) {
+            segment.release();
+        }
+    }
+
+    private final class SharedMemoryUnsafe extends AbstractUnsafe {
+
+        @Override
+        public void connect(SocketAddress remoteAddress, SocketAddress localAddress, ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            if (state == ST_ACTIVE) {
+                promise.setFailure(new AlreadyConnectedException());
+                return;
+            }
+
+            if (connectPromise != null) {
+                promise.setFailure(new ConnectionPendingException());
+                return;
+            }
+
+            if (!(remoteAddress instanceof SharedMemoryAddress)) {
+                promise.setFailure(new IllegalArgumentException("unsupported address type: " + remoteAddress));
+                close(voidPromise());
+                return;
+            }
+
+            SharedMemoryAddress address = (SharedMemoryAddress) remoteAddress;
+            try {
+                segment = SharedMemorySegment.create(new File(address.path()), RING_CAPACITY);
+            } catch (Throwable t) {
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+                close(voidPromise());
+                return;
+            }
+
+            SharedMemoryChannel.this.remoteAddress = address;
+            SharedMemoryChannel.this.localAddress = new SharedMemoryAddress(segment.file());
+            connectPromise = promise;
+            connectDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getConnectTimeoutMillis());
+
+            eventLoop().execute(connectTask);
+        }
+
+        @Override
+        protected void flush0() {
+            // ring 已满时由 flushTask 重试, 期间的 flush 没有意义
+            if (!writePending) {
+                super.flush0();
+            }
+        }
+
+        void forceFlush() {
+            writePending = false;
+            super.flush0();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
+
+import org.jupiter.common.util.internal.UnsafeUtil;
+
+/**
+ * 映射在共享内存上的单生产者/单消费者 (SPSC) 字节环形缓冲区.
+ *
+ * 内存布局 (tail 和 head 各自独占一个 cache line, 避免伪共享):
+ * <pre>
+ * ┌──────────────────┬──────────────────┬─────────────────────────────┐
+ * │  tail (64 bytes) │  head (64 bytes) │      data (capacity bytes)  │
+ * └──────────────────┴──────────────────┴─────────────────────────────┘
+ * </pre>
+ *
+ * tail 只由生产者写, head 只由消费者写, 双方通过 ordered store / volatile load 发布位置,
+ * 因此不需要任何锁或 CAS. 环中传输的是编码后的原始字节流, 帧的边界仍然由
+ * {@link org.jupiter.transport.netty.handler.ProtocolDecoder} 负责切分.
+ *
+ * 每个进程内, 一个 ring 对象只会被所属 channel 的 event loop 线程访问.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+final class SharedMemoryRing {
+
+    static final int TAIL_OFFSET = 0;
+    static final int HEAD_OFFSET = 64;
+    static final int DATA_OFFSET = 128;
+
+    static final UnsafeUtil.UnsafeAccessor unsafe = UnsafeUtil.getUnsafeAccessor();
+
+    static boolean isSupported() {
+        return unsafe != null && PlatformDependent.hasUnsafe();
+    }
+
+    static int size(int capacity) {
+        return DATA_OFFSET + capacity;
+    }
+
+    private final long tailAddress;
+    private final long headAddress;
+    private final ByteBuffer data;
+    private final int capacity;
+    private final int mask;
+
+    // 本端已经发布 (生产者) 或已经消费 (消费者) 的位置
+    private long position;
+    // 对端位置的本地缓存, 减少对共享 cache line 的 volatile 读
+    private long cachedPeerPosition;
+
+    SharedMemoryRing(ByteBuffer segment, long segmentAddress, int offset, int capacity, boolean producer) {
+        this.tailAddress = segmentAddress + offset + TAIL_OFFSET;
+        this.headAddress = segmentAddress + offset + HEAD_OFFSET;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+
+        ByteBuffer dup = segment.duplicate();
+        dup.position(offset + DATA_OFFSET);
+        dup.limit(offset + DATA_OFFSET + capacity);
+        this.data = dup.slice();
+
+        long tail = unsafe.getLongVolatile(null, tailAddress);
+        long head = unsafe.getLongVolatile(null, headAddress);
+        if (producer) {
+            position = tail;
+            cachedPeerPosition = head;
+        } else {
+            position = head;
+            cachedPeerPosition = tail;
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 生产者: 尽可能多地写入 {@code src} 的可读字节 (不修改 src 的 readerIndex), 返回实际写入的字节数,
+     * 环满时返回 0.
+     */
+    int write(ByteBuf src) {
+        int length = src.readableBytes();
+        long tail = position;
+        long free = capacity - (tail - cachedPeerPosition);
+        if (free < length) {
+            cachedPeerPosition = unsafe.getLongVolatile(null, headAddress);
+            free = capacity - (tail - cachedPeerPosition);
+        }
+        int n = (int) Math.min(length, free);
+        if (n <= 0) {
+            return 0;
+        }
+
+        int index = (int) (tail & mask);
+        int first = Math.min(n, capacity - index);
+        int readerIndex = src.readerIndex();
+        data.clear();
+        data.position(index);
+        data.limit(index + first);
+        src.getBytes(readerIndex, data);
+        if (first < n) {
+            data.clear();
+            data.limit(n - first);
+            src.getBytes(readerIndex + first, data);
+        }
+
+        position = tail + n;
+        // release: 数据先于 tail 对消费者可见
+        unsafe.putOrderedLong(null, tailAddress, position);
+        return n;
+    }
+
+    /**
+     * 消费者: 当前可读的字节数.
+     */
+    int readableBytes() {
+        long available = cachedPeerPosition - position;
+        if (available == 0) {
+            cachedPeerPosition = unsafe.getLongVolatile(null, tailAddress);
+            available = cachedPeerPosition - position;
+        }
+        return (int) available;
+    }
+
+    /**
+     * 消费者: 读取 {@code length} 个字节到 {@code dst}, 调用方需保证 length 不超过 {@link #readableBytes()}.
+     */
+    void read(ByteBuf dst, int length) {
+        long head = position;
+        int index = (int) (head & mask);
+        int first = Math.min(length, capacity - index);
+        data.clear();
+        data.position(index);
+        data.limit(index + first);
+        dst.writeBytes(data);
+        if (first < length) {
+            data.clear();
+            data.limit(length - first);
+            dst.writeBytes(data);
+        }
+
+        position = head + length;
+        // 数据已拷贝完成, 归还空间给生产者
+        unsafe.putOrderedLong(null, headAddress, position);
+    }
+}
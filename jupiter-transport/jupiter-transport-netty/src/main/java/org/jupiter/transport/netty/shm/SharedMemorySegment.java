@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import io.netty.util.internal.PlatformDependent;
+
+import org.jupiter.common.util.Pow2;
+
+import static org.jupiter.transport.netty.shm.SharedMemoryRing.unsafe;
+
+/**
+ * 一条共享内存连接对应的内存映射文件, 由客户端创建, 服务端扫描 rendezvous 目录后映射同一个文件.
+ *
+ * 文件布局:
+ * <pre>
+ * ┌──────────────────────────────────────────────────────────┐
+ * │ header (256 bytes)                                       │
+ * │   magic(4) | capacity(4) | ... | state(8) @64            │
+ * │   clientClosed(8) @128 | serverClosed(8) @192            │
+ * ├──────────────────────────────────────────────────────────┤
+ * │ ring: client -> server                                   │
+ * ├──────────────────────────────────────────────────────────┤
+ * │ ring: server -> client                                   │
+ * └──────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * 建连状态机: REQUESTED -> ACCEPTED (服务端 CAS) 或 REQUESTED -> CANCELLED (客户端超时 CAS),
+ * 双方只有一方能成功, 避免连接超时与 accept 的竞争.
+ *
+ * 正常关闭时设置 clientClosed/serverClosed 标记, 另外双方在映射期间各自持有本端 closed 字段所在字节的
+ * 文件锁, 进程异常退出 (比如 kill -9) 时由内核释放, 对端能抢到这把锁就说明进程已经不在了.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+final class SharedMemorySegment {
+
+    static final String FILE_SUFFIX = ".shm";
+    static final String LOCK_FILE = "acceptor.lock";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x4A534D01;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int STATE_OFFSET = 64;
+    private static final int CLIENT_CLOSED_OFFSET = 128;
+    private static final int SERVER_CLOSED_OFFSET = 192;
+    private static final int HEADER_SIZE = 256;
+
+    static final long ST_REQUESTED = 1;
+    static final long ST_ACCEPTED = 2;
+    static final long ST_CANCELLED = 3;
+
+    private final File file;
+    // 持有本端的文件锁, 关闭时锁随之释放
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final int capacity;
+
+    private SharedMemorySegment(File file, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.address = PlatformDependent.directBufferAddress(buffer);
+        this.capacity = capacity;
+    }
+
+    static long size(int capacity) {
+        return HEADER_SIZE + 2L * SharedMemoryRing.size(capacity);
+    }
+
+    /**
+     * 客户端: 在 rendezvous 目录下创建一个新的连接文件, 初始化完成后再原子地改名为 *.shm,
+     * 保证服务端扫描到的一定是完整的文件.
+     */
+    static SharedMemorySegment create(File directory, int capacity) throws IOException {
+        checkSupported();
+
+        if (!isAcceptorAlive(directory)) {
+            throw new ConnectException("Connection refused: " + directory);
+        }
+
+        capacity = Pow2.roundToPowerOfTwo(capacity);
+
+        File temp = File.createTempFile("conn-", TEMP_SUFFIX, directory);
+        FileChannel channel = null;
+        MappedByteBuffer buffer;
+        try {
+            channel = FileChannel.open(temp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = map(channel, size(capacity));
+            lock(channel, true);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            // noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw e;
+        }
+
+        String name = temp.getName();
+        File file = new File(directory, name.substring(0, name.length() - TEMP_SUFFIX.length()) + FILE_SUFFIX);
+
+        SharedMemorySegment segment = new SharedMemorySegment(file, channel, buffer, capacity);
+        unsafe.putInt(segment.address + CAPACITY_OFFSET, capacity);
+        unsafe.putInt(segment.address + MAGIC_OFFSET, MAGIC);
+        unsafe.putLongVolatile(null, segment.address + STATE_OFFSET, ST_REQUESTED);
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            segment.release();
+            throw e;
+        }
+        return segment;
+    }
+
+    /**
+     * 服务端: 映射客户端创建的连接文件, 文件不合法时返回 {@code null}.
+     */
+    static SharedMemorySegment open(File file) throws IOException {
+        checkSupported();
+
+        long length = file.length();
+        if (length < HEADER_SIZE) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer;
+        try {
+            buffer = map(channel, length);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        long address = PlatformDependent.directBufferAddress(buffer);
+        int capacity = unsafe.getInt(address + CAPACITY_OFFSET);
+        if (unsafe.getInt(address + MAGIC_OFFSET) != MAGIC
+                || !Pow2.isPowerOfTwo(capacity)
+                || size(capacity) != length) {
+            PlatformDependent.freeDirectBuffer(buffer);
+            closeQuietly(channel);
+            return null;
+        }
+        try {
+            lock(channel, false);
+        } catch (IOException e) {
+            PlatformDependent.freeDirectBuffer(buffer);
+            closeQuietly(channel);
+            throw e;
+        }
+        return new SharedMemorySegment(file, channel, buffer, capacity);
+    }
+
+    /**
+     * acceptor 存活期间一直持有 rendezvous 目录下的文件锁, 锁能被抢到说明没有 acceptor,
+     * 直接失败而不是等到建连超时.
+     */
+    private static boolean isAcceptorAlive(File directory) throws IOException {
+        File lockFile = new File(directory, LOCK_FILE);
+        if (!lockFile.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            // 同一个 JVM 中的 acceptor 持有该锁
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        if (channel.size() < size) {
+            // 扩展文件长度
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * 锁住本端 closed 字段所在的字节 (只是借用这个区间作为锁的标识, 与映射的内容无关).
+     */
+    private static void lock(FileChannel channel, boolean client) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock(closedOffset(client), 1, false);
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Segment already locked by another " + (client ? "client" : "server"));
+        }
+    }
+
+    private static long closedOffset(boolean client) {
+        return client ? CLIENT_CLOSED_OFFSET : SERVER_CLOSED_OFFSET;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 只会发生在关闭路径上, 锁和 fd 都已经不再需要
+            }
+        }
+    }
+
+    private static void checkSupported() {
+        if (!SharedMemoryRing.isSupported()) {
+            throw new UnsupportedOperationException("Shared memory transport requires sun.misc.Unsafe");
+        }
+    }
+
+    File file() {
+        return file;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long state() {
+        return unsafe.getLongVolatile(null, address + STATE_OFFSET);
+    }
+
+    boolean accept() {
+        return unsafe.compareAndSwapLong(null, address + STATE_OFFSET, ST_REQUESTED, ST_ACCEPTED);
+    }
+
+    boolean cancel() {
+        return unsafe.compareAndSwapLong(null, address + STATE_OFFSET, ST_REQUESTED, ST_CANCELLED);
+    }
+
+    SharedMemoryRing clientToServer(boolean producer) {
+        return new SharedMemoryRing(buffer, address, HEADER_SIZE, capacity, producer);
+    }
+
+    SharedMemoryRing serverToClient(boolean producer) {
+        return new SharedMemoryRing(buffer, address, HEADER_SIZE + SharedMemoryRing.size(capacity), capacity, producer);
+    }
+
+    void markClosed(boolean client) {
+        unsafe.putLongVolatile(null, address + closedOffset(client), 1L);
+    }
+
+    boolean isPeerClosed(boolean client) {
+        return unsafe.getLongVolatile(null, address + closedOffset(!client)) != 0;
+    }
+
+    /**
+     * 对端进程是否还持有它的文件锁, 需要系统调用, 调用方应控制频率.
+     */
+    boolean isPeerAlive(boolean client) {
+        FileLock lock;
+        try {
+            lock = channel.tryLock(closedOffset(!client), 1, false);
+        } catch (OverlappingFileLockException e) {
+            // 同一个 JVM 中的对端持有该锁
+            return true;
+        } catch (IOException e) {
+            // 无法判断时当作存活, 由 closed 标记或者上层的心跳兜底
+            return true;
+        }
+        if (lock == null) {
+            return true;
+        }
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+            // 对端已经不在了, 锁随 channel 关闭释放
+        }
+        return false;
+    }
+
+    /**
+     * 删除连接文件, 已经建立的映射不受影响.
+     */
+    void delete() {
+        // noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * 解除映射, 调用后不能再访问本 segment 及其 ring.
+     */
+    void release() {
+        PlatformDependent.freeDirectBuffer(buffer);
+        closeQuietly(channel);
+    }
+
+    @Override
+    public String toString() {
+        return "SharedMemorySegment{" +
+                "file=" + file +
+                ", capacity=" + capacity +
+                '}';
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.SocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.AbstractServerChannel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SingleThreadEventLoop;
+
+import org.jupiter.common.util.StackTraceUtil;
+import org.jupiter.common.util.SystemPropertyUtil;
+import org.jupiter.common.util.internal.logging.InternalLogger;
+import org.jupiter.common.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * 共享内存传输的服务端 channel.
+ *
+ * bind 时独占 rendezvous 目录 (目录下的 acceptor.lock 文件锁), 之后定时扫描目录下客户端创建的
+ * *.shm 连接文件, accept 成功后立即删除文件 (已建立的映射不受影响), 避免进程异常退出后遗留文件.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemoryServerChannel extends AbstractServerChannel {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(SharedMemoryServerChannel.class);
+
+    private static final long ACCEPT_INTERVAL_MILLIS =
+            SystemPropertyUtil.getLong("jupiter.io.shm.accept.interval.millis", 1);
+
+    private static final int ST_OPEN = 0;
+    private static final int ST_BOUND = 1;
+    private static final int ST_CLOSED = 2;
+
+    private final ChannelConfig config = new DefaultChannelConfig(this);
+    private final Runnable acceptTask = this::doAccept;
+
+    private volatile int state;
+    private volatile SharedMemoryAddress localAddress;
+
+    private File directory;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private boolean acceptScheduled;
+
+    @Override
+    public SharedMemoryAddress localAddress() {
+        return (SharedMemoryAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return state != ST_CLOSED;
+    }
+
+    @Override
+    public boolean isActive() {
+        return state == ST_BOUND;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof SingleThreadEventLoop;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return localAddress;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        if (!(localAddress instanceof SharedMemoryAddress)) {
+            throw new IllegalArgumentException("unsupported address type: " + localAddress);
+        }
+
+        File directory = new File(((SharedMemoryAddress) localAddress).path());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new BindException("Could not create directory: " + directory);
+        }
+
+        FileChannel lockChannel = FileChannel.open(
+                new File(directory, SharedMemorySegment.LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new BindException("Address already in use: " + directory);
+        }
+
+        // 清理上一个 acceptor 遗留的连接文件, 这些客户端早已超时
+        File[] stale = directory.listFiles((dir, name) -> name.endsWith(SharedMemorySegment.FILE_SUFFIX));
+        if (stale != null) {
+            for (File f : stale) {
+                // noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+
+        this.directory = directory;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.localAddress = (SharedMemoryAddress) localAddress;
+        state = ST_BOUND;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (state == ST_CLOSED) {
+            return;
+        }
+        state = ST_CLOSED;
+
+        if (lock != null) {
+            try {
+                lock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                logger.warn("Release lock of {} failed: {}.", directory, StackTraceUtil.stackTrace(e));
+            }
+            lock = null;
+            lockChannel = null;
+        }
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        if (acceptScheduled) {
+            return;
+        }
+        acceptScheduled = true;
+        eventLoop().execute(acceptTask);
+    }
+
+    private void doAccept() {
+        if (!isActive()) {
+            acceptScheduled = false;
+            return;
+        }
+
+        ChannelPipeline pipeline = pipeline();
+        int accepted = 0;
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SharedMemorySegment.FILE_SUFFIX));
+        if (files != null) {
+            for (File f : files) {
+                SharedMemorySegment segment;
+                try {
+                    segment = SharedMemorySegment.open(f);
+                } catch (IOException e) {
+                    logger.warn("Open shared memory segment {} failed: {}.", f, StackTraceUtil.stackTrace(e));
+                    segment = null;
+                }
+
+                if (segment == null) {
+                    // noinspection ResultOfMethodCallIgnored
+                    f.delete();
+                    continue;
+                }
+
+                boolean ok = segment.accept();
+                segment.delete();
+                if (!ok) {
+                    // 客户端已经超时放弃
+                    segment.release();
+                    continue;
+                }
+
+                pipeline.fireChannelRead(new SharedMemoryChannel(this, segment));
+                accepted++;
+            }
+        }
+
+        if (accepted > 0) {
+            pipeline.fireChannelReadComplete();
+        }
+
+        if (!isActive() || !config.isAutoRead()) {
+            acceptScheduled = false;
+            return;
+        }
+
+        if (eventLoop().isShuttingDown()) {
+            acceptScheduled = false;
+            unsafe().close(unsafe().voidPromise());
+            return;
+        }
+
+        eventLoop().schedule(acceptTask, ACCEPT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.EventLoop;
+
+import org.jupiter.common.concurrent.disruptor.WaitStrategyType;
+import org.jupiter.common.util.SystemPropertyUtil;
+
+/**
+ * 共享内存上没有 selector 可以等待, 只能轮询 ring, 空闲时的退让方式复用 {@link WaitStrategyType}:
+ *
+ * BUSY_SPIN_WAIT: 一直自旋 (立即重新提交轮询任务), 延迟最低, 独占一个 CPU;
+ * YIELDING_WAIT:  自旋 {@link #SPIN_TRIES} 次后每次轮询前 Thread.yield();
+ * 其他:           自旋 -> yield -> 以 {@link #PARK_NANOS} 为间隔定时轮询 (等同 SLEEPING_WAIT),
+ *                 跨进程没有可用的通知机制, 所以各种 blocking 策略都按 sleeping 处理.
+ *
+ * 轮询任务运行在 channel 所属的 event loop 上, 同一个 event loop 上的多个 channel 共享该线程.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+final class SharedMemoryWaitStrategy {
+
+    private static final WaitStrategyType TYPE;
+    private static final int SPIN_TRIES = SystemPropertyUtil.getInt("jupiter.io.shm.spin_tries", 100);
+    private static final long PARK_NANOS = SystemPropertyUtil.getLong("jupiter.io.shm.park.nanos", 50_000);
+
+    static {
+        WaitStrategyType type = WaitStrategyType.parse(SystemPropertyUtil.get("jupiter.io.shm.wait_strategy"));
+        TYPE = type == null ? WaitStrategyType.SLEEPING_WAIT : type;
+    }
+
+    /**
+     * 本轮没有任何进展 (没读到数据或 ring 已满) 时, 决定下一次执行 {@code task} 的时机.
+     *
+     * @param idleRounds 连续空转的次数
+     */
+    static void idle(EventLoop loop, Runnable task, int idleRounds) {
+        switch (TYPE) {
+            case BUSY_SPIN_WAIT:
+                loop.execute(task);
+                return;
+            case YIELDING_WAIT:
+                if (idleRounds > SPIN_TRIES) {
+                    Thread.yield();
+                }
+                loop.execute(task);
+                return;
+            default:
+                if (idleRounds <= SPIN_TRIES) {
+                    loop.execute(task);
+                } else if (idleRounds <= SPIN_TRIES << 1) {
+                    Thread.yield();
+                    loop.execute(task);
+                } else {
+                    loop.schedule(task, PARK_NANOS, TimeUnit.NANOSECONDS);
+                }
+        }
+    }
+
+    static WaitStrategyType type() {
+        return TYPE;
+    }
+
+    private SharedMemoryWaitStrategy() {}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.jupiter.transport.UnresolvedSocketAddress;
+import org.jupiter.transport.channel.JChannelGroup;
+import org.jupiter.transport.netty.channel.NettyChannel;
+import org.jupiter.transport.netty.channel.NettyChannelGroup;
+import org.jupiter.transport.netty.handler.connector.ConnectionWatchdog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty
+ *
+ * @author jiachun.fjc
+ */
+public class AdaptiveChannelPoolTest {
+
+    private final AdaptiveChannelPool pool = new AdaptiveChannelPool(null, 1, 4, 100, 1024, 1000);
+
+    @Test
+    public void testGrowThreshold() {
+        // 低于最小连接数
+        assertTrue(pool.shouldGrow(0, 0, 0));
+        // 平均in-flight请求数超过阈值
+        assertFalse(pool.shouldGrow(2, 200, 0));
+        assertTrue(pool.shouldGrow(2, 201, 0));
+        // 平均待写出字节数超过阈值
+        assertFalse(pool.shouldGrow(2, 0, 2048));
+        assertTrue(pool.shouldGrow(2, 0, 2049));
+        // 已经达到最大连接数
+        assertFalse(pool.shouldGrow(4, 10000, 1 << 20));
+    }
+
+    @Test
+    public void testShrinkThreshold() {
+        AdaptiveChannelPool.PoolState state = new AdaptiveChannelPool.PoolState();
+        // 没有连接池新建的连接, 不缩容
+        assertFalse(pool.shouldShrink(state, 3, 0, 0, 0));
+        assertTrue(state.lowLoadSince < 0);
+
+        state.grown.push(new AdaptiveChannelPool.PooledConnection(null, null));
+        // 负载持续很低一个周期之后才缩容
+        assertFalse(pool.shouldShrink(state, 3, 0, 0, 0));
+        assertFalse(pool.shouldShrink(state, 3, 0, 0, 999));
+        assertTrue(pool.shouldShrink(state, 3, 0, 0, 1000));
+        // 一个周期最多关闭一个
+        assertFalse(pool.shouldShrink(state, 3, 0, 0, 1500));
+
+        // 去掉一个连接后平均负载达到了扩容阈值的一半, 重新计时
+        assertFalse(pool.shouldShrink(state, 3, 100, 0, 3000));
+        assertTrue(state.lowLoadSince < 0);
+        assertFalse(pool.shouldShrink(state, 3, 99, 0, 3000));
+        assertFalse(pool.shouldShrink(state, 3, 0, 1024, 3000));
+        assertTrue(state.lowLoadSince < 0);
+
+        // 已经是最小连接数
+        assertFalse(pool.shouldShrink(state, 1, 0, 0, 10000));
+    }
+
+    @Test
+    public void testFindChannel() {
+        JChannelGroup group = new NettyChannelGroup(new UnresolvedSocketAddress("127.0.0.1", 18090));
+        ConnectionWatchdog userWatchdog = newWatchdog(group);
+        ConnectionWatchdog pooledWatchdog = newWatchdog(group);
+
+        EmbeddedChannel userChannel = new EmbeddedChannel(userWatchdog);
+        EmbeddedChannel pooledChannel = new EmbeddedChannel(pooledWatchdog);
+        try {
+            // 用户取消了自己连接的重连, 也不能被当成连接池的连接关掉
+            userWatchdog.stop();
+            pooledWatchdog.stop();
+
+            assertSame(NettyChannel.attachChannel(pooledChannel), AdaptiveChannelPool.findChannel(group, pooledWatchdog));
+            assertSame(NettyChannel.attachChannel(userChannel), AdaptiveChannelPool.findChannel(group, userWatchdog));
+
+            pooledChannel.close();
+            assertNull(AdaptiveChannelPool.findChannel(group, pooledWatchdog));
+        } finally {
+            userChannel.finishAndReleaseAll();
+            pooledChannel.finishAndReleaseAll();
+        }
+    }
+
+    private static ConnectionWatchdog newWatchdog(JChannelGroup group) {
+        return new ConnectionWatchdog(null, null, null, group) {
+
+            @Override
+            public ChannelHandler[] handlers() {
+                return new ChannelHandler[] { this };
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.channel;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.jupiter.transport.UnresolvedSocketAddress;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.channel
+ *
+ * @author jiachun.fjc
+ */
+public class NettyChannelGroupTest {
+
+    @Test
+    public void testNextPrefersWritable() {
+        NettyChannelGroup group = new NettyChannelGroup(new UnresolvedSocketAddress("127.0.0.1", 18090));
+        EmbeddedChannel blocked = new EmbeddedChannel();
+        EmbeddedChannel writable = new EmbeddedChannel();
+        EmbeddedChannel another = new EmbeddedChannel();
+        try {
+            NettyChannel nBlocked = NettyChannel.attachChannel(blocked);
+            NettyChannel nWritable = NettyChannel.attachChannel(writable);
+            NettyChannel nAnother = NettyChannel.attachChannel(another);
+            group.add(nBlocked);
+            group.add(nWritable);
+            group.add(nAnother);
+
+            makeUnwritable(blocked);
+            makeUnwritable(another);
+            assertTrue(group.isWritable());
+            for (int i = 0; i < 100; i++) {
+                assertSame(nWritable, group.next());
+            }
+
+            // 都不可写时仍然轮询, 不返回null也不抛异常
+            makeUnwritable(writable);
+            assertFalse(group.isWritable());
+            boolean[] picked = new boolean[3];
+            for (int i = 0; i < 100; i++) {
+                NettyChannel next = (NettyChannel) group.next();
+                picked[next == nBlocked ? 0 : next == nWritable ? 1 : 2] = true;
+            }
+            assertTrue(picked[0] && picked[1] && picked[2]);
+
+            // 恢复可写后又被优先选中
+            blocked.flush();
+            assertTrue(group.isWritable());
+            for (int i = 0; i < 100; i++) {
+                assertSame(nBlocked, group.next());
+            }
+        } finally {
+            blocked.finishAndReleaseAll();
+            writable.finishAndReleaseAll();
+            another.finishAndReleaseAll();
+        }
+    }
+
+    private static void makeUnwritable(EmbeddedChannel channel) {
+        int highWaterMark = channel.config().getWriteBufferHighWaterMark();
+        channel.write(Unpooled.wrappedBuffer(new byte[highWaterMark + 1]));
+        assertFalse(channel.isWritable());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.channel;
+
+import java.nio.channels.NotYetConnectedException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
+
+import org.jupiter.transport.channel.JChannel;
+import org.jupiter.transport.channel.JFutureListener;
+import org.jupiter.transport.netty.handler.acceptor.AcceptorHandler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.channel
+ *
+ * @author jiachun.fjc
+ */
+public class NettyChannelTest {
+
+    // 与jupiter.io.channel.max.pending.write.bytes的默认值一致
+    private static final long MAX_PENDING_WRITE_BYTES = 64 * 1024 * 1024;
+
+    @Test
+    public void testPendingWriteBytes() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        try {
+            NettyChannel nChannel = NettyChannel.attachChannel(channel);
+            assertEquals(0, nChannel.pendingWriteBytes());
+
+            // 只write不flush, 字节数停留在ChannelOutboundBuffer中 (另外还有netty给每个entry估算的额外开销)
+            channel.write(Unpooled.wrappedBuffer(new byte[1024]));
+            long oneMessage = nChannel.pendingWriteBytes();
+            assertTrue(oneMessage >= 1024);
+            channel.write(Unpooled.wrappedBuffer(new byte[1024]));
+            assertEquals(oneMessage << 1, nChannel.pendingWriteBytes());
+
+            channel.flush();
+            assertEquals(0, nChannel.pendingWriteBytes());
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testOverloaded() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        // 共享同一块内存, 避免测试真的占用64M堆内存
+        ByteBuf chunk = Unpooled.wrappedBuffer(new byte[1024 * 1024]);
+        try {
+            NettyChannel nChannel = NettyChannel.attachChannel(channel);
+
+            channel.write(chunk.retainedDuplicate());
+            long oneChunk = nChannel.pendingWriteBytes();
+            // 没有超过上限之前都不算过载
+            while (nChannel.pendingWriteBytes() + oneChunk <= MAX_PENDING_WRITE_BYTES) {
+                assertFalse(nChannel.isOverloaded());
+                channel.write(chunk.retainedDuplicate());
+            }
+            assertFalse(nChannel.isOverloaded());
+            assertFalse(nChannel.isWritable());
+
+            channel.write(chunk.retainedDuplicate());
+            assertTrue(nChannel.pendingWriteBytes() > MAX_PENDING_WRITE_BYTES);
+            assertTrue(nChannel.isOverloaded());
+
+            channel.flush();
+            assertFalse(nChannel.isOverloaded());
+            assertTrue(nChannel.isWritable());
+        } finally {
+            channel.finishAndReleaseAll();
+            chunk.release();
+        }
+    }
+
+    @Test
+    public void testAwaitWritable() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new AcceptorHandler());
+        ByteBuf chunk = Unpooled.wrappedBuffer(new byte[64 * 1024]);
+        try {
+            NettyChannel nChannel = NettyChannel.attachChannel(channel);
+            assertTrue(nChannel.awaitWritable(0));
+
+            while (channel.isWritable()) {
+                channel.write(chunk.retainedDuplicate());
+            }
+            // 一直不可写时等到超时
+            assertFalse(nChannel.awaitWritable(TimeUnit.MILLISECONDS.toNanos(10)));
+
+            // 由AcceptorHandler#channelWritabilityChanged唤醒, 而不是等到超时
+            AtomicBoolean writable = new AtomicBoolean();
+            Thread waiter = newWaiter(nChannel, writable);
+            channel.flush();
+            waiter.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(waiter.isAlive());
+            assertTrue(writable.get());
+
+            // channel关闭时同样被唤醒
+            while (channel.isWritable()) {
+                channel.write(chunk.retainedDuplicate());
+            }
+            writable.set(true);
+            waiter = newWaiter(nChannel, writable);
+            channel.close();
+            waiter.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(waiter.isAlive());
+            assertFalse(writable.get());
+        } finally {
+            channel.finishAndReleaseAll();
+            chunk.release();
+        }
+    }
+
+    private static Thread newWaiter(NettyChannel nChannel, AtomicBoolean writable) throws InterruptedException {
+        Thread waiter = new Thread(() -> {
+            try {
+                writable.set(nChannel.awaitWritable(TimeUnit.MINUTES.toNanos(1)));
+            } catch (InterruptedException ignored) {
+                // ignored
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        return waiter;
+    }
+
+    @Test
+    public void testBatchWriteFailure() throws Exception {
+        DefaultEventLoopGroup group = new DefaultEventLoopGroup(1);
+        // 没有连接的channel, flush时写失败
+        LocalChannel channel = new LocalChannel();
+        try {
+            group.register(channel).sync();
+            NettyChannel nChannel = new NettyChannel(channel, true);
+
+            ByteBuf msg = Unpooled.buffer().writeLong(1);
+            CompletableFuture<Throwable> failure = new CompletableFuture<>();
+            nChannel.write(msg, new FailureListener(failure));
+
+            assertTrue(failure.get(3, TimeUnit.SECONDS) instanceof NotYetConnectedException);
+            assertEquals(0, msg.refCnt());
+            assertEquals(0, nChannel.pendingWriteBytes());
+        } finally {
+            channel.close().sync();
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    public void testBatchWriteRejected() throws Exception {
+        DefaultEventLoopGroup group = new DefaultEventLoopGroup(1);
+        LocalChannel channel = new LocalChannel();
+        group.register(channel).sync();
+        NettyChannel nChannel = new NettyChannel(channel, true);
+
+        // event loop关闭后批量写任务提交不上去, 队列中的消息要被释放, listener要在提交线程中收到失败通知
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+
+        ByteBuf msg = Unpooled.buffer().writeLong(1);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        nChannel.write(msg, new FailureListener(failure));
+
+        assertTrue(failure.isDone());
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+        assertEquals(0, msg.refCnt());
+        assertEquals(0, nChannel.pendingWriteBytes());
+
+        // 标志位已经复位, 后续的写同样失败而不是滞留在队列中
+        ByteBuf next = Unpooled.buffer().writeLong(2);
+        nChannel.write(next);
+        assertEquals(0, next.refCnt());
+        assertEquals(0, nChannel.pendingWriteBytes());
+    }
+
+    static final class FailureListener implements JFutureListener<JChannel> {
+
+        private final CompletableFuture<Throwable> failure;
+
+        FailureListener(CompletableFuture<Throwable> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void operationSuccess(JChannel channel) {
+            failure.completeExceptionally(new AssertionError("write should fail"));
+        }
+
+        @Override
+        public void operationFailure(JChannel channel, Throwable cause) {
+            failure.complete(cause);
+        }
+    }
+}
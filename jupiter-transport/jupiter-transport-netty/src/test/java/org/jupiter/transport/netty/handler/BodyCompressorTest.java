@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.Random;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+public class BodyCompressorTest {
+
+    private static final int MAX_SIZE = 1024 * 1024;
+
+    @Test
+    public void testHeapRoundTrip() throws Exception {
+        roundTrip(Unpooled.wrappedBuffer(compressible(100 * 1024)));
+    }
+
+    @Test
+    public void testDirectRoundTrip() throws Exception {
+        byte[] bytes = compressible(100 * 1024);
+        ByteBuf src = Unpooled.directBuffer(bytes.length);
+        src.writeBytes(bytes);
+        roundTrip(src);
+    }
+
+    @Test
+    public void testIncompressible() {
+        byte[] bytes = new byte[4096];
+        new Random(1).nextBytes(bytes);
+
+        ByteBuf out = Unpooled.buffer();
+        out.writeLong(1L);
+        assertFalse(BodyCompressor.compress(Unpooled.wrappedBuffer(bytes), 0, bytes.length, out));
+        assertEquals(8, out.writerIndex());
+        out.release();
+    }
+
+    @Test(expected = Exception.class)
+    public void testTruncated() throws Exception {
+        byte[] bytes = compressible(8192);
+        ByteBuf compressed = Unpooled.buffer();
+        assertTrue(BodyCompressor.compress(Unpooled.wrappedBuffer(bytes), 0, bytes.length, compressed));
+
+        BodyCompressor.decompressToBytes(compressed, compressed.readableBytes() - 8, MAX_SIZE);
+    }
+
+    private static void roundTrip(ByteBuf src) throws Exception {
+        int length = src.readableBytes();
+        byte[] expected = new byte[length];
+        src.getBytes(0, expected);
+
+        ByteBuf compressed = Unpooled.directBuffer();
+        assertTrue(BodyCompressor.compress(src, 0, length, compressed));
+        assertTrue(compressed.readableBytes() < length);
+
+        ByteBuf copy = compressed.copy();
+        ByteBuf body = BodyCompressor.decompress(ByteBufAllocator.DEFAULT, compressed, compressed.readableBytes(), MAX_SIZE);
+        byte[] actual = new byte[body.readableBytes()];
+        body.readBytes(actual);
+        assertArrayEquals(expected, actual);
+        assertFalse(compressed.isReadable());
+
+        assertArrayEquals(expected, BodyCompressor.decompressToBytes(copy, copy.readableBytes(), MAX_SIZE));
+
+        body.release();
+        copy.release();
+        compressed.release();
+        src.release();
+    }
+
+    private static byte[] compressible(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ("User{id=" + (i % 100) + "}").charAt(i % 8);
+        }
+        return bytes;
+    }
+}
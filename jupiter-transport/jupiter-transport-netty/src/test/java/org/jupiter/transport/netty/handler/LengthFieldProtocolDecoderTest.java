@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.jupiter.serialization.io.OutputBuf;
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.netty.channel.NettyChannel;
+import org.jupiter.transport.payload.JRequestPayload;
+import org.jupiter.transport.payload.JResponsePayload;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+public class LengthFieldProtocolDecoderTest {
+
+    @Test
+    public void testFragmented() {
+        EmbeddedChannel channel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+
+        ByteBuf stream = Unpooled.buffer();
+        writeFrame(stream, JProtocolHeader.REQUEST, 1L, 300);
+        writeFrame(stream, JProtocolHeader.HEARTBEAT, 0L, 0);
+        writeFrame(stream, JProtocolHeader.RESPONSE, 2L, 5);
+
+        // 每次只到达7个字节, 协议头和消息体都会被拆开
+        while (stream.isReadable()) {
+            channel.writeInbound(stream.readRetainedSlice(Math.min(7, stream.readableBytes())));
+        }
+        stream.release();
+
+        JRequestPayload request = channel.readInbound();
+        assertEquals(1L, request.invokeId());
+        assertEquals(300, request.inputBuf().size());
+        request.releaseInputBuf();
+
+        JResponsePayload response = channel.readInbound();
+        assertEquals(2L, response.id());
+        assertEquals(5, response.inputBuf().size());
+        response.releaseInputBuf();
+
+        assertNull(channel.readInbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testCoalesced() {
+        EmbeddedChannel channel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+
+        ByteBuf stream = Unpooled.buffer();
+        for (int i = 0; i < 10; i++) {
+            writeFrame(stream, JProtocolHeader.REQUEST, i, i * 10);
+        }
+        channel.writeInbound(stream);
+
+        for (int i = 0; i < 10; i++) {
+            JRequestPayload request = channel.readInbound();
+            assertEquals(i, request.invokeId());
+            assertEquals(i * 10, request.inputBuf().size());
+            request.releaseInputBuf();
+        }
+
+        assertNull(channel.readInbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testHandshake() {
+        EmbeddedChannel channel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+
+        ByteBuf stream = Unpooled.buffer();
+        writeFrame(stream, JProtocolHeader.HEARTBEAT, JProtocolHeader.HANDSHAKE_REQUEST, JProtocolHeader.VERSION_2, 0);
+        writeFrame(stream, JProtocolHeader.REQUEST, JProtocolHeader.toId(7L, JProtocolHeader.FLAG_ONE_WAY), 10);
+        channel.writeInbound(stream);
+
+        ByteBuf ack = channel.readOutbound();
+        assertEquals(JProtocolHeader.HEARTBEAT, ack.getByte(2) & 0x0f);
+        assertEquals(JProtocolHeader.HANDSHAKE_RESPONSE, ack.getByte(3));
+        assertEquals(JProtocolHeader.VERSION_2, ack.getLong(4));
+        ack.release();
+
+        assertEquals(JProtocolHeader.VERSION_2, NettyChannel.attachChannel(channel).protocolVersion());
+
+        JRequestPayload request = channel.readInbound();
+        assertEquals(7L, request.invokeId());
+        assertTrue(request.hasFlag(JProtocolHeader.FLAG_ONE_WAY));
+        request.releaseInputBuf();
+
+        assertNull(channel.readInbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testChunked() {
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(new ProtocolEncoder());
+        NettyChannel.attachChannel(encoderChannel).protocolVersion(JProtocolHeader.VERSION_2);
+
+        byte[] bigBody = new byte[(int) (2.5 * 1024 * 1024)];
+        for (int i = 0; i < bigBody.length; i++) {
+            bigBody[i] = (byte) i;
+        }
+        JResponsePayload big = new JResponsePayload(1L);
+        big.bytes((byte) 0x01, bigBody);
+        JResponsePayload small = new JResponsePayload(2L);
+        small.bytes((byte) 0x01, new byte[16]);
+
+        encoderChannel.writeOutbound(big, small);
+
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+        ByteBuf handshake = Unpooled.buffer();
+        writeFrame(handshake, JProtocolHeader.HEARTBEAT, JProtocolHeader.HANDSHAKE_REQUEST, JProtocolHeader.VERSION_2, 0);
+        decoderChannel.writeInbound(handshake);
+        ((ByteBuf) decoderChannel.readOutbound()).release();
+
+        List<ByteBuf> frames = new ArrayList<>();
+        for (Object frame; (frame = encoderChannel.readOutbound()) != null; ) {
+            frames.add((ByteBuf) frame);
+        }
+        assertEquals(4, frames.size());
+
+        // 小消息穿插在分片之间
+        decoderChannel.writeInbound(frames.get(0));
+        decoderChannel.writeInbound(frames.get(3));
+        decoderChannel.writeInbound(frames.get(1));
+        decoderChannel.writeInbound(frames.get(2));
+
+        JResponsePayload response = decoderChannel.readInbound();
+        assertEquals(2L, response.id());
+        response.releaseInputBuf();
+
+        response = decoderChannel.readInbound();
+        assertEquals(1L, response.id());
+        assertEquals(0, response.flags());
+        byte[] actual = new byte[response.inputBuf().size()];
+        response.inputBuf().nioByteBuffer().get(actual);
+        assertArrayEquals(bigBody, actual);
+        response.releaseInputBuf();
+
+        assertNull(decoderChannel.readInbound());
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testChunkedStream() throws Exception {
+        testChunkedStream(new ProtocolEncoder());
+        testChunkedStream(new LowCopyProtocolEncoder());
+    }
+
+    private static void testChunkedStream(ChannelHandler encoder) throws Exception {
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(encoder);
+        NettyChannel.attachChannel(encoderChannel).protocolVersion(JProtocolHeader.VERSION_2);
+
+        // 同一个流式调用的两个大数据帧和一个结束帧, 分片不能交错, 结束帧也不能越过前面的分片
+        int itemSize = (int) (2.5 * 1024 * 1024);
+        List<JResponsePayload> items = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            byte[] body = new byte[itemSize];
+            Arrays.fill(body, (byte) (i + 1));
+            JResponsePayload item = new JResponsePayload(9L);
+            item.setFlag(JProtocolHeader.FLAG_STREAMING);
+            setBody(encoderChannel, item, body);
+            items.add(item);
+        }
+        JResponsePayload end = new JResponsePayload(9L);
+        setBody(encoderChannel, end, new byte[4]);
+        encoderChannel.writeOutbound(items.get(0), items.get(1), end);
+        encoderChannel.runPendingTasks();
+
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+        ByteBuf handshake = Unpooled.buffer();
+        writeFrame(handshake, JProtocolHeader.HEARTBEAT, JProtocolHeader.HANDSHAKE_REQUEST, JProtocolHeader.VERSION_2, 0);
+        decoderChannel.writeInbound(handshake);
+        ((ByteBuf) decoderChannel.readOutbound()).release();
+
+        for (Object frame; (frame = encoderChannel.readOutbound()) != null; ) {
+            decoderChannel.writeInbound(frame);
+        }
+
+        for (int i = 0; i < 2; i++) {
+            JResponsePayload response = decoderChannel.readInbound();
+            assertEquals(9L, response.id());
+            assertTrue(response.hasFlag(JProtocolHeader.FLAG_STREAMING));
+            byte[] actual = new byte[response.inputBuf().size()];
+            response.inputBuf().nioByteBuffer().get(actual);
+            byte[] expected = new byte[itemSize];
+            Arrays.fill(expected, (byte) (i + 1));
+            assertArrayEquals(expected, actual);
+            response.releaseInputBuf();
+        }
+
+        JResponsePayload response = decoderChannel.readInbound();
+        assertEquals(9L, response.id());
+        assertEquals(4, response.inputBuf().size());
+        response.releaseInputBuf();
+
+        assertNull(decoderChannel.readInbound());
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    private static void setBody(EmbeddedChannel encoderChannel, JResponsePayload payload, byte[] body) throws Exception {
+        if (encoderChannel.pipeline().first() instanceof LowCopyProtocolEncoder) {
+            OutputBuf outputBuf = NettyChannel.attachChannel(encoderChannel).allocOutputBuf();
+            outputBuf.outputStream().write(body);
+            payload.outputBuf((byte) 0x01, outputBuf);
+        } else {
+            payload.bytes((byte) 0x01, body);
+        }
+    }
+
+    @Test
+    public void testRequestTimeout() {
+        // 编码只向上取整, 误差不超过1/16
+        for (long millis = 1; millis <= JProtocolHeader.MAX_ENCODED_TIMEOUT_MILLIS; millis += 1 + millis / 7) {
+            long decoded = JProtocolHeader.decodeTimeout(JProtocolHeader.encodeTimeout(millis));
+            assertTrue(millis + " -> " + decoded, decoded >= millis && decoded - millis <= millis / 16 + 1);
+        }
+        assertEquals(0, JProtocolHeader.encodeTimeout(0));
+        assertEquals(0, JProtocolHeader.encodeTimeout(JProtocolHeader.MAX_ENCODED_TIMEOUT_MILLIS + 1));
+
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(new ProtocolEncoder());
+        JRequestPayload request = new JRequestPayload(3L);
+        request.bytes((byte) 0x01, new byte[8]);
+        request.timeoutMillis(3000);
+        encoderChannel.writeOutbound(request);
+
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+        decoderChannel.writeInbound((ByteBuf) encoderChannel.readOutbound());
+
+        JRequestPayload decoded = decoderChannel.readInbound();
+        assertEquals(3L, decoded.invokeId());
+        assertEquals(3072, decoded.timeoutMillis());
+        decoded.releaseInputBuf();
+
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    private static void writeFrame(ByteBuf buf, byte messageCode, long id, int bodySize) {
+        writeFrame(buf, messageCode, (byte) 0x00, id, bodySize);
+    }
+
+    private static void writeFrame(ByteBuf buf, byte messageCode, byte status, long id, int bodySize) {
+        buf.writeShort(JProtocolHeader.MAGIC)
+                .writeByte(JProtocolHeader.toSign((byte) 0x01, messageCode))
+                .writeByte(status)
+                .writeLong(id)
+                .writeInt(bodySize)
+                .writeZero(bodySize);
+    }
+}
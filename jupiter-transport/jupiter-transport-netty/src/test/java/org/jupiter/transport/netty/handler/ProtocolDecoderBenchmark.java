@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.jupiter.transport.JProtocolHeader;
+import org.jupiter.transport.payload.PayloadHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ReplayingDecoder vs length-field decoder.
+ *
+ * fragmented: 每个frame被拆成 {@code segmentSize} 字节的小段依次到达, 模拟大消息体跨多个TCP分段.
+ * coalesced:  {@code frames} 个frame粘在一个buffer中一次到达, 模拟小消息的批量读取.
+ *
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class ProtocolDecoderBenchmark {
+
+    @Param({ "replaying", "lengthField" })
+    String decoder;
+
+    @Param({ "128", "65536" })
+    int bodySize;
+
+    @Param({ "1460" })
+    int segmentSize;
+
+    @Param({ "16" })
+    int frames;
+
+    EmbeddedChannel channel;
+    ByteBuf stream;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ProtocolDecoderBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channel = new EmbeddedChannel(
+                "replaying".equals(decoder) ? new LowCopyProtocolDecoder() : new LengthFieldProtocolDecoder());
+
+        stream = Unpooled.buffer(frames * (JProtocolHeader.HEADER_SIZE + bodySize));
+        byte sign = JProtocolHeader.toSign((byte) 0x01, JProtocolHeader.REQUEST);
+        for (int i = 0; i < frames; i++) {
+            stream.writeShort(JProtocolHeader.MAGIC)
+                    .writeByte(sign)
+                    .writeByte(0x00)
+                    .writeLong(i)
+                    .writeInt(bodySize)
+                    .writeZero(bodySize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        stream.release();
+    }
+
+    @Benchmark
+    public int fragmented() {
+        int length = stream.readableBytes();
+        for (int i = 0; i < length; i += segmentSize) {
+            channel.writeInbound(stream.retainedSlice(i, Math.min(segmentSize, length - i)));
+        }
+        return drain();
+    }
+
+    @Benchmark
+    public int coalesced() {
+        channel.writeInbound(stream.retainedDuplicate());
+        return drain();
+    }
+
+    private int drain() {
+        int count = 0;
+        for (;;) {
+            PayloadHolder payload = channel.readInbound();
+            if (payload == null) {
+                return count;
+            }
+            payload.releaseInputBuf();
+            count++;
+        }
+    }
+}
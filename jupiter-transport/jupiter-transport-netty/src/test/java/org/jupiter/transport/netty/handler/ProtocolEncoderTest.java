@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.jupiter.common.util.SystemClock;
+import org.jupiter.serialization.io.OutputBuf;
+import org.jupiter.transport.exception.IoSignals;
+import org.jupiter.transport.netty.channel.NettyChannel;
+import org.jupiter.transport.payload.JRequestPayload;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.handler
+ *
+ * @author jiachun.fjc
+ */
+public class ProtocolEncoderTest {
+
+    @Test
+    public void testRemainingTimeout() throws Exception {
+        testRemainingTimeout(new ProtocolEncoder());
+        testRemainingTimeout(new LowCopyProtocolEncoder());
+    }
+
+    private static void testRemainingTimeout(ChannelHandler encoder) throws Exception {
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(encoder);
+        JRequestPayload request = newRequest(encoderChannel);
+        // 超时时间1000ms, 在本地排队(在途窗口/批量写队列)了300ms才写出
+        request.deadlineMillis(SystemClock.millisClock().now() - 300 + 1000);
+        encoderChannel.writeOutbound(request);
+
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new LengthFieldProtocolDecoder());
+        decoderChannel.writeInbound((ByteBuf) encoderChannel.readOutbound());
+
+        JRequestPayload decoded = decoderChannel.readInbound();
+        long timeoutMillis = decoded.timeoutMillis();
+        // 编码只向上取整, 误差不超过1/16
+        assertTrue(String.valueOf(timeoutMillis), timeoutMillis > 0 && timeoutMillis <= 700 + 700 / 16 + 1);
+        decoded.releaseInputBuf();
+
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testDeadlineExceeded() throws Exception {
+        testDeadlineExceeded(new ProtocolEncoder());
+        testDeadlineExceeded(new LowCopyProtocolEncoder());
+    }
+
+    private static void testDeadlineExceeded(ChannelHandler encoder) throws Exception {
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(encoder);
+        JRequestPayload request = newRequest(encoderChannel);
+        OutputBuf outputBuf = request.outputBuf();
+        // 排队期间就已经超时
+        request.deadlineMillis(SystemClock.millisClock().now() - 1);
+
+        ChannelFuture future = encoderChannel.writeAndFlush(request);
+        assertFalse(future.isSuccess());
+        assertSame(IoSignals.DEADLINE_EXCEEDED, future.cause().getCause());
+        assertNull(encoderChannel.readOutbound());
+        if (outputBuf != null) {
+            assertEquals(0, ((ByteBuf) outputBuf.backingObject()).refCnt());
+        }
+
+        encoderChannel.finishAndReleaseAll();
+    }
+
+    private static JRequestPayload newRequest(EmbeddedChannel encoderChannel) throws Exception {
+        JRequestPayload request = new JRequestPayload(1L);
+        byte[] body = new byte[8];
+        if (encoderChannel.pipeline().first() instanceof LowCopyProtocolEncoder) {
+            OutputBuf outputBuf = NettyChannel.attachChannel(encoderChannel).allocOutputBuf();
+            outputBuf.outputStream().write(body);
+            request.outputBuf((byte) 0x01, outputBuf);
+        } else {
+            request.bytes((byte) 0x01, body);
+        }
+        return request;
+    }
+}
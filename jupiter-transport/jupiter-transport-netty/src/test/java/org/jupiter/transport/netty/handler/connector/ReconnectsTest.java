@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.handler.connector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.handler.connector
+ *
+ * @author jiachun.fjc
+ */
+public class ReconnectsTest {
+
+    @Test
+    public void testDelayBounds() {
+        long delay = 0;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            delay = Reconnects.nextDelayMillis(delay);
+            assertTrue(delay >= 4 && delay <= 8192);
+            max = Math.max(max, delay);
+        }
+        // 多次退避之后会增长到接近上限
+        assertTrue(max > 1000);
+    }
+
+    @Test
+    public void testDelayJitter() {
+        long first = Reconnects.nextDelayMillis(1000);
+        boolean differs = false;
+        for (int i = 0; i < 100 && !differs; i++) {
+            differs = Reconnects.nextDelayMillis(1000) != first;
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testRateLimit() {
+        int acquired = 0;
+        long waitMillis = 0;
+        for (int i = 0; i < 1000; i++) {
+            long wait = Reconnects.tryAcquire();
+            if (wait == 0) {
+                acquired++;
+            } else {
+                waitMillis = wait;
+                break;
+            }
+        }
+        // 默认每秒128次, 允许一秒的突发
+        assertEquals(128, acquired, 2);
+        assertTrue(waitMillis > 0 && waitMillis <= 1000);
+    }
+}
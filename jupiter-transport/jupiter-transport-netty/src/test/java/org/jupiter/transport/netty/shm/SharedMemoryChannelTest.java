@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.CharsetUtil;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemoryChannelTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(SharedMemoryRing.isSupported());
+
+        group = new DefaultEventLoopGroup(2);
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(SharedMemoryServerChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+
+                    @Override
+                    protected void initChannel(Channel ch) throws Exception {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                                ByteBuf buf = (ByteBuf) msg;
+                                received.add(buf.toString(CharsetUtil.UTF_8));
+                                buf.release();
+                            }
+                        });
+                        accepted.add(ch);
+                    }
+                })
+                .bind(new SharedMemoryAddress(folder.getRoot()))
+                .sync()
+                .channel();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (serverChannel != null) {
+            serverChannel.close().sync();
+        }
+        if (group != null) {
+            group.shutdownGracefully(0, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).sync();
+        }
+    }
+
+    @Test
+    public void testPeerClose() throws Exception {
+        Channel client = new Bootstrap()
+                .group(group)
+                .channel(SharedMemoryChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(new SharedMemoryAddress(folder.getRoot()))
+                .sync()
+                .channel();
+        Channel child = accepted.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(child);
+
+        client.writeAndFlush(Unpooled.copiedBuffer("ping", CharsetUtil.UTF_8)).sync();
+        assertEquals("ping", received.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        client.close().sync();
+        assertTrue(child.closeFuture().await(TIMEOUT_MILLIS));
+    }
+
+    @Test
+    public void testPeerCrashed() throws Exception {
+        Process peer = SharedMemorySegmentTest.startPeer(folder.getRoot());
+        try {
+            SharedMemorySegmentTest.readLine(peer);
+            Channel child = accepted.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(child);
+            assertFalse(child.closeFuture().await(500));
+
+            // kill -9, 对端来不及设置 closed 标记, 只能靠文件锁发现
+            peer.destroyForcibly();
+            assertTrue(child.closeFuture().await(TIMEOUT_MILLIS));
+        } finally {
+            peer.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemoryRingTest {
+
+    private static final int CAPACITY = 16;
+
+    private SharedMemoryRing producer;
+    private SharedMemoryRing consumer;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(SharedMemoryRing.isSupported());
+
+        ByteBuffer memory = ByteBuffer.allocateDirect(SharedMemoryRing.size(CAPACITY));
+        long address = PlatformDependent.directBufferAddress(memory);
+        producer = new SharedMemoryRing(memory, address, 0, CAPACITY, true);
+        consumer = new SharedMemoryRing(memory, address, 0, CAPACITY, false);
+    }
+
+    @Test
+    public void testWrapAround() {
+        // 反复写读, 让数据多次跨过环的末尾
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            ByteBuf src = sequence(next, 11);
+            assertEquals(11, producer.write(src));
+            assertEquals(0, src.readerIndex());
+
+            assertEquals(11, consumer.readableBytes());
+            assertSequence(read(11), next);
+            assertEquals(0, consumer.readableBytes());
+            next += 11;
+        }
+    }
+
+    @Test
+    public void testPartialWrite() {
+        ByteBuf src = sequence(0, 20);
+        // 环满时只写入一部分
+        assertEquals(CAPACITY, producer.write(src));
+        src.skipBytes(CAPACITY);
+        assertEquals(0, producer.write(src));
+
+        // 消费一部分之后剩下的才能写进去
+        assertSequence(read(8), 0);
+        assertEquals(4, producer.write(src));
+
+        // 消费者先读完本地缓存的 tail 之前的数据, 之后才会重新读取 tail
+        assertSequence(read(8), 8);
+        assertSequence(read(4), 16);
+        assertEquals(0, consumer.readableBytes());
+    }
+
+    private ByteBuf read(int length) {
+        assertTrue(consumer.readableBytes() >= length);
+        ByteBuf dst = Unpooled.buffer(length);
+        consumer.read(dst, length);
+        return dst;
+    }
+
+    private static ByteBuf sequence(int start, int length) {
+        ByteBuf buf = Unpooled.buffer(length);
+        for (int i = 0; i < length; i++) {
+            buf.writeByte(start + i);
+        }
+        return buf;
+    }
+
+    private static void assertSequence(ByteBuf buf, int start) {
+        for (int i = 0; buf.isReadable(); i++) {
+            assertEquals((byte) (start + i), buf.readByte());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2015 The Jupiter Project
+ *
+ * Licensed under the Apache License, version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jupiter.transport.netty.shm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jupiter
+ * org.jupiter.transport.netty.shm
+ *
+ * @author jiachun.fjc
+ */
+public class SharedMemorySegmentTest {
+
+    private static final long PEER_EXIT_TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private FileChannel acceptorLockChannel;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(SharedMemoryRing.isSupported());
+
+        directory = folder.getRoot();
+        // 模拟存活的 acceptor
+        acceptorLockChannel = FileChannel.open(new File(directory, SharedMemorySegment.LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = acceptorLockChannel.lock();
+        assertNotNull(lock);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (acceptorLockChannel != null) {
+            acceptorLockChannel.close();
+        }
+    }
+
+    @Test
+    public void testAcceptCancelRace() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            SharedMemorySegment client = SharedMemorySegment.create(directory, 64);
+            SharedMemorySegment server = SharedMemorySegment.open(client.file());
+            assertNotNull(server);
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger winners = new AtomicInteger();
+            Thread canceller = new Thread(() -> {
+                await(start);
+                if (client.cancel()) {
+                    winners.incrementAndGet();
+                }
+            });
+            canceller.start();
+            start.countDown();
+            boolean accepted = server.accept();
+            if (accepted) {
+                winners.incrementAndGet();
+            }
+            canceller.join();
+
+            // 双方只有一方能成功, 并且看到同样的结果
+            assertEquals(1, winners.get());
+            long expected = accepted ? SharedMemorySegment.ST_ACCEPTED : SharedMemorySegment.ST_CANCELLED;
+            assertEquals(expected, client.state());
+            assertEquals(expected, server.state());
+
+            client.delete();
+            server.release();
+            client.release();
+        }
+    }
+
+    @Test
+    public void testPeerClosed() throws Exception {
+        SharedMemorySegment client = SharedMemorySegment.create(directory, 64);
+        SharedMemorySegment server = SharedMemorySegment.open(client.file());
+        assertNotNull(server);
+        assertTrue(server.accept());
+
+        assertFalse(server.isPeerClosed(false));
+        assertTrue(server.isPeerAlive(false));
+        assertTrue(client.isPeerAlive(true));
+
+        client.markClosed(true);
+        assertTrue(server.isPeerClosed(false));
+        assertFalse(client.isPeerClosed(true));
+
+        client.delete();
+        client.release();
+        server.release();
+    }
+
+    @Test
+    public void testPeerCrashed() throws Exception {
+        Process peer = startPeer(directory);
+        try {
+            SharedMemorySegment server = SharedMemorySegment.open(new File(readLine(peer)));
+            assertNotNull(server);
+            assertTrue(server.accept());
+            assertTrue(server.isPeerAlive(false));
+
+            // kill -9, 进程来不及设置 closed 标记
+            peer.destroyForcibly();
+            assertTrue(peer.waitFor(PEER_EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+            assertFalse(server.isPeerClosed(false));
+            assertFalse(server.isPeerAlive(false));
+
+            server.delete();
+            server.release();
+        } finally {
+            peer.destroyForcibly();
+        }
+    }
+
+    /**
+     * 在另一个进程中创建一个连接文件 (作为客户端), 文件路径从进程的标准输出读取.
+     */
+    static Process startPeer(File directory) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Peer.class.getName(), directory.getPath())
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    static String readLine(Process peer) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(peer.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.endsWith(SharedMemorySegment.FILE_SUFFIX)) {
+                return line;
+            }
+        }
+        throw new IllegalStateException("peer exited: " + peer.waitFor());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static final class Peer {
+
+        public static void main(String[] args) throws Exception {
+            SharedMemorySegment segment = SharedMemorySegment.create(new File(args[0]), 64);
+            System.out.println(segment.file().getPath());
+            System.out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}